@@ -0,0 +1,223 @@
+package sms.ui;
+
+import sms.data.BackupManager;
+import sms.data.StudentRepository;
+import sms.data.StudentStore;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.io.IOException;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+// 备份与恢复：列出备份目录中的快照，立即备份时先写入队列中的修改；
+// 恢复不在运行中替换数据库文件，只记下所选快照，下次启动时在打开数据库之前恢复
+public class BackupDialog extends JDialog {
+    private static final String[] COLUMN_NAMES = {"备份时间", "大小", "文件"};
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final BackupManager backups;
+    private final StudentStore repository;
+    private final Runnable exit;
+    private final SnapshotModel model = new SnapshotModel();
+    private final JTable table = new JTable(model);
+    private final JLabel statusLabel = new JLabel(" ");
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private final JButton backupButton = new JButton("立即备份");
+    private final JButton restoreButton = new JButton("恢复所选");
+    private final JButton cancelButton = new JButton("取消备份");
+    // 进行中的写入或备份，仅在 EDT 上访问
+    private CompletableFuture<?> running;
+    // 上一次显示的进度，百分比变化时才更新界面
+    private int shownPercent = -1;
+
+    // exit 在用户选择立即退出时调用，与关闭主窗口相同
+    public BackupDialog(Frame owner, BackupManager backups, StudentStore repository, Runnable exit) {
+        super(owner, "备份与恢复", false);
+        this.backups = backups;
+        this.repository = repository;
+        this.exit = exit;
+        setSize(720, 460);
+        setLocationRelativeTo(owner);
+        getContentPane().setBackground(UiTheme.PANEL_BACKGROUND);
+        setLayout(new BorderLayout(8, 8));
+
+        table.setRowHeight(28);
+        table.setFont(UiTheme.FONT);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setSelectionBackground(UiTheme.SELECTION);
+        table.setSelectionForeground(Color.BLACK);
+        table.getTableHeader().setFont(UiTheme.HEADER_FONT);
+        table.getTableHeader().setReorderingAllowed(false);
+        DefaultTableCellRenderer center = new DefaultTableCellRenderer();
+        center.setHorizontalAlignment(JLabel.CENTER);
+        table.getColumnModel().getColumn(0).setCellRenderer(center);
+        table.getColumnModel().getColumn(1).setCellRenderer(center);
+        table.getColumnModel().getColumn(2).setPreferredWidth(300);
+        table.getSelectionModel().addListSelectionListener(e -> updateButtons());
+
+        statusLabel.setFont(UiTheme.FONT);
+        progressBar.setPreferredSize(new Dimension(160, 16));
+        progressBar.setVisible(false);
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 4));
+        top.setOpaque(false);
+        top.add(new JLabel("备份目录中的快照（最新的在前），恢复在下次启动时进行"));
+
+        backupButton.addActionListener(e -> backup());
+        restoreButton.addActionListener(e -> restore());
+        cancelButton.addActionListener(e -> {
+            if (running != null) running.cancel(false);
+        });
+        JButton closeButton = new JButton("关闭");
+        closeButton.addActionListener(e -> dispose());
+        JPanel bottom = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 4));
+        bottom.setOpaque(false);
+        bottom.add(statusLabel);
+        bottom.add(progressBar);
+        bottom.add(backupButton);
+        bottom.add(cancelButton);
+        bottom.add(restoreButton);
+        bottom.add(closeButton);
+
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(bottom, BorderLayout.SOUTH);
+        reload();
+        if (backups.restoreScheduled()) {
+            statusLabel.setText("已安排在下次启动时恢复");
+        }
+    }
+
+    // 备份目录只有几个文件，直接在 EDT 上列出
+    private void reload() {
+        try {
+            model.setSnapshots(backups.snapshots());
+        } catch (IOException e) {
+            model.setSnapshots(new ArrayList<>());
+            statusLabel.setText("读取备份目录失败: " + e.getMessage());
+        }
+        updateButtons();
+    }
+
+    private void updateButtons() {
+        backupButton.setEnabled(running == null);
+        cancelButton.setEnabled(running != null);
+        restoreButton.setEnabled(running == null && table.getSelectedRow() >= 0);
+    }
+
+    // 先写入队列中的修改，快照包含到此为止的全部修改；写入失败时仍备份库中已提交的数据
+    private void backup() {
+        shownPercent = -1;
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+        statusLabel.setText("正在备份...");
+        CompletableFuture<Integer> flush = repository.flushWrites();
+        running = flush;
+        updateButtons();
+        flush.whenComplete((n, error) -> SwingUtilities.invokeLater(() -> {
+            if (flush.isCancelled()) {
+                finishBackup(null, new CancellationException());
+                return;
+            }
+            CompletableFuture<BackupManager.Snapshot> task = backups.backupAsync((phase, done, total) -> {
+                // 复制页很快，时间主要花在压缩上：复制只占前 10%
+                int percent = total == 0 ? 0 : phase == BackupManager.Phase.COPY ? (int) (done * 10 / total)
+                        : 10 + (int) (done * 90 / total);
+                showProgress(percent);
+            });
+            running = task;
+            task.whenComplete((snapshot, e) -> SwingUtilities.invokeLater(() ->
+                    finishBackup(snapshot, task.isCancelled() ? new CancellationException() : e)));
+        }));
+    }
+
+    private void finishBackup(BackupManager.Snapshot snapshot, Throwable error) {
+        running = null;
+        progressBar.setVisible(false);
+        Throwable cause = error == null ? null : StudentRepository.unwrap(error);
+        if (cause instanceof CancellationException) {
+            statusLabel.setText("备份已取消");
+        } else if (cause != null) {
+            statusLabel.setText(" ");
+            JOptionPane.showMessageDialog(this, "备份失败: " + cause.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        } else {
+            statusLabel.setText("已备份 " + megabytes(snapshot.size));
+        }
+        reload();
+    }
+
+    private void showProgress(int percent) {
+        if (percent == shownPercent) return;
+        shownPercent = percent;
+        SwingUtilities.invokeLater(() -> {
+            if (running == null) return;
+            progressBar.setValue(percent);
+            statusLabel.setText("正在备份... " + percent + "%");
+        });
+    }
+
+    private void restore() {
+        BackupManager.Snapshot snapshot = model.snapshots.get(table.getSelectedRow());
+        String[] options = {"立即退出", "下次启动时", "取消"};
+        int choice = JOptionPane.showOptionDialog(this,
+                "将把数据库恢复到 " + snapshot.time.format(TIME) + " 的备份，之后的修改都会丢失。\n"
+                        + "当前数据库会另存为 " + backups.database().getFileName() + ".before-restore。\n"
+                        + "恢复在程序下次启动、打开数据库之前进行，选择立即退出后重新打开程序即可。",
+                "恢复备份", JOptionPane.DEFAULT_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[2]);
+        if (choice != 0 && choice != 1) return;
+        try {
+            backups.scheduleRestore(snapshot.file);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "无法安排恢复: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        statusLabel.setText("已安排在下次启动时恢复");
+        if (choice == 0) {
+            dispose();
+            exit.run();
+        }
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / 1048576.0);
+    }
+
+    private static class SnapshotModel extends AbstractTableModel {
+        List<BackupManager.Snapshot> snapshots = new ArrayList<>();
+
+        void setSnapshots(List<BackupManager.Snapshot> snapshots) {
+            this.snapshots = snapshots;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return snapshots.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            BackupManager.Snapshot snapshot = snapshots.get(row);
+            switch (column) {
+                case 0: return snapshot.time.format(TIME);
+                case 1: return megabytes(snapshot.size);
+                default: return snapshot.file.getFileName().toString();
+            }
+        }
+    }
+}
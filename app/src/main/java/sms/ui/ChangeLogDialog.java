@@ -0,0 +1,197 @@
+package sms.ui;
+
+import sms.data.ChangeLog;
+import sms.data.CourseRegistry;
+import sms.data.Student;
+import sms.data.StudentRepository;
+import sms.data.StudentStore;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// 修改记录：按学号查看修改日志，学号留空时为全部学生最近的修改；日志超过上限后较早的记录按学生合并
+public class ChangeLogDialog extends JDialog {
+    private static final String[] COLUMN_NAMES = {"时间", "学号", "操作", "内容"};
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+    private static final int LIMIT = 500;
+
+    private final StudentStore repository;
+    private final CourseRegistry courses;
+    private final EntryModel model = new EntryModel();
+    private final JTextField idField = new JTextField(14);
+    private final JLabel statusLabel = new JLabel(" ");
+    // 进行中的查询，仅在 EDT 上访问
+    private CompletableFuture<List<ChangeLog.Entry>> loading;
+
+    // studentId 为打开时的查询条件，可以为 null；courses 用于显示登记课程的名称
+    public ChangeLogDialog(Frame owner, StudentStore repository, CourseRegistry courses, String studentId) {
+        super(owner, "修改记录", false);
+        this.repository = repository;
+        this.courses = courses;
+        setSize(900, 520);
+        setLocationRelativeTo(owner);
+        getContentPane().setBackground(UiTheme.PANEL_BACKGROUND);
+        setLayout(new BorderLayout(8, 8));
+
+        JTable table = new JTable(model);
+        table.setRowHeight(28);
+        table.setFont(UiTheme.FONT);
+        table.setSelectionBackground(UiTheme.SELECTION);
+        table.setSelectionForeground(Color.BLACK);
+        table.getTableHeader().setFont(UiTheme.HEADER_FONT);
+        table.getTableHeader().setReorderingAllowed(false);
+        DefaultTableCellRenderer center = new DefaultTableCellRenderer();
+        center.setHorizontalAlignment(JLabel.CENTER);
+        for (int i = 0; i < 3; i++) table.getColumnModel().getColumn(i).setCellRenderer(center);
+        table.getColumnModel().getColumn(0).setPreferredWidth(170);
+        table.getColumnModel().getColumn(3).setPreferredWidth(460);
+
+        idField.setFont(UiTheme.FONT);
+        if (studentId != null) idField.setText(studentId);
+        idField.addActionListener(e -> reload());
+        JButton queryButton = new JButton("查询");
+        queryButton.addActionListener(e -> reload());
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 4));
+        top.setOpaque(false);
+        top.add(new JLabel("学号:"));
+        top.add(idField);
+        top.add(queryButton);
+        top.add(new JLabel("（留空为全部学生，最新的在前，最多 " + LIMIT + " 条）"));
+
+        statusLabel.setFont(UiTheme.FONT);
+        JButton closeButton = new JButton("关闭");
+        closeButton.addActionListener(e -> dispose());
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.setOpaque(false);
+        bottom.setBorder(BorderFactory.createEmptyBorder(0, 8, 4, 8));
+        bottom.add(statusLabel, BorderLayout.CENTER);
+        bottom.add(closeButton, BorderLayout.EAST);
+
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(bottom, BorderLayout.SOUTH);
+        reload();
+    }
+
+    private void reload() {
+        if (loading != null) loading.cancel(false);
+        String id = idField.getText().trim();
+        CompletableFuture<List<ChangeLog.Entry>> task = repository.changeLog(id.isEmpty() ? null : id, LIMIT);
+        loading = task;
+        statusLabel.setText("正在读取...");
+        task.whenComplete((entries, error) -> SwingUtilities.invokeLater(() -> {
+            if (loading != task) return;
+            loading = null;
+            if (error != null) {
+                statusLabel.setText("读取修改记录失败: " + StudentRepository.unwrap(error).getMessage());
+                return;
+            }
+            model.setEntries(entries);
+            statusLabel.setText(entries.isEmpty() ? "没有修改记录" : "共 " + entries.size() + " 条");
+        }));
+    }
+
+    @Override
+    public void dispose() {
+        if (loading != null) loading.cancel(false);
+        super.dispose();
+    }
+
+    private static String action(ChangeLog.Entry e) {
+        String action = e.kind == ChangeLog.INSERT ? "添加" : e.kind == ChangeLog.DELETE ? "删除" : "修改";
+        return e.merged > 1 ? action + "（合并 " + e.merged + " 次）" : action;
+    }
+
+    // 修改显示“旧值 → 新值”，添加只有新值，删除只有旧值
+    private String describe(ChangeLog.Entry e) {
+        List<String> parts = new ArrayList<>();
+        if (e.has(ChangeLog.NAME)) parts.add("姓名 " + values(e, ChangeLog.NAME));
+        if (e.has(ChangeLog.CLASS_NAME)) parts.add("班级 " + values(e, ChangeLog.CLASS_NAME));
+        for (int c = 0; c < CourseRegistry.FIXED_COUNT; c++) {
+            if (e.has(ChangeLog.FIRST_SCORE + c)) {
+                parts.add(CourseRegistry.FIXED_NAMES[c] + " " + values(e, ChangeLog.FIRST_SCORE + c));
+            }
+        }
+        if (e.has(ChangeLog.EXTRA_SCORES)) {
+            byte[] before = (byte[]) e.oldValue(ChangeLog.EXTRA_SCORES);
+            byte[] after = (byte[]) e.newValue(ChangeLog.EXTRA_SCORES);
+            int slots = Math.max(before == null ? 0 : before.length, after == null ? 0 : after.length);
+            for (int slot = 0; slot < slots; slot++) {
+                int oldScore = score(before, slot);
+                int newScore = score(after, slot);
+                if (e.kind == ChangeLog.UPDATE ? oldScore == newScore
+                        : (e.kind == ChangeLog.INSERT ? newScore : oldScore) == Student.NO_SCORE) continue;
+                parts.add(courseName(slot) + " " + arrow(e.kind, scoreText(oldScore), scoreText(newScore)));
+            }
+        }
+        return String.join("，", parts);
+    }
+
+    private static String values(ChangeLog.Entry e, int field) {
+        return arrow(e.kind, String.valueOf(e.oldValue(field)), String.valueOf(e.newValue(field)));
+    }
+
+    private static String arrow(int kind, String before, String after) {
+        return kind == ChangeLog.INSERT ? after : kind == ChangeLog.DELETE ? before : before + " → " + after;
+    }
+
+    private static int score(byte[] scores, int slot) {
+        return scores == null || slot >= scores.length ? Student.NO_SCORE : scores[slot];
+    }
+
+    private static String scoreText(int score) {
+        return score == Student.NO_SCORE ? "-" : String.valueOf(score);
+    }
+
+    // 日志中的成绩可能属于当前客户端还不知道的课程
+    private String courseName(int slot) {
+        return slot < courses.extraCount() ? courses.name(CourseRegistry.FIXED_COUNT + slot) : "课程 " + (slot + 1);
+    }
+
+    private class EntryModel extends AbstractTableModel {
+        List<ChangeLog.Entry> entries = new ArrayList<>();
+        List<String> descriptions = new ArrayList<>();
+
+        void setEntries(List<ChangeLog.Entry> entries) {
+            this.entries = entries;
+            descriptions = new ArrayList<>(entries.size());
+            for (ChangeLog.Entry e : entries) descriptions.add(describe(e));
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return entries.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            ChangeLog.Entry e = entries.get(row);
+            switch (column) {
+                case 0: return TIME.format(Instant.ofEpochMilli(e.time));
+                case 1: return e.studentId;
+                case 2: return action(e);
+                default: return descriptions.get(row);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package sms.ui;
+
+import sms.data.ConnectionPoolMXBean;
+import sms.data.Metrics;
+import sms.data.StudentCacheMXBean;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+// 诊断面板（Ctrl+Shift+D 显示/隐藏）：各数据库操作、表格刷新和 EDT 事件的次数与延迟分布，以及连接池和缓存状态
+// 数据来自 Metrics，与 JMX 中 sms:type=Operation 的各项相同；面板可见时每秒刷新
+public class DiagnosticsPanel extends JPanel {
+    private static final int REFRESH_MS = 1000;
+    private static final String[] COLUMN_NAMES =
+            {"操作", "次数", "失败", "行数", "平均(ms)", "P50(ms)", "P90(ms)", "P99(ms)", "最大(ms)", "合计(ms)"};
+
+    private final ConnectionPoolMXBean pool;
+    private final StudentCacheMXBean cache;
+    private final IntSupplier pendingWrites;
+    private final OperationModel model = new OperationModel();
+    private final JLabel poolLabel = new JLabel();
+    private final JLabel cacheLabel = new JLabel();
+    private final Timer timer = new Timer(REFRESH_MS, e -> refresh());
+
+    public DiagnosticsPanel(ConnectionPoolMXBean pool, StudentCacheMXBean cache, IntSupplier pendingWrites) {
+        super(new BorderLayout(8, 8));
+        this.pool = pool;
+        this.cache = cache;
+        this.pendingWrites = pendingWrites;
+        setBackground(UiTheme.PANEL_BACKGROUND);
+        setBorder(BorderFactory.createEmptyBorder(8, 12, 8, 12));
+
+        JButton resetButton = new JButton("清零");
+        resetButton.addActionListener(e -> {
+            Metrics.resetAll();
+            refresh();
+        });
+        JPanel top = new JPanel(new GridLayout(2, 1));
+        top.setOpaque(false);
+        JPanel poolRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 4));
+        poolRow.setOpaque(false);
+        poolRow.add(poolLabel);
+        poolRow.add(resetButton);
+        JPanel cacheRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 4));
+        cacheRow.setOpaque(false);
+        cacheRow.add(cacheLabel);
+        top.add(poolRow);
+        top.add(cacheRow);
+
+        JTable table = new JTable(model);
+        table.setRowHeight(26);
+        table.setAutoCreateRowSorter(true);
+        table.getTableHeader().setFont(UiTheme.BOLD_FONT);
+        DefaultTableCellRenderer right = new DefaultTableCellRenderer();
+        right.setHorizontalAlignment(JLabel.RIGHT);
+        table.setDefaultRenderer(Long.class, right);
+        table.setDefaultRenderer(Double.class, new DefaultTableCellRenderer() {
+            {
+                setHorizontalAlignment(JLabel.RIGHT);
+            }
+
+            @Override
+            protected void setValue(Object value) {
+                setText(value == null ? "" : String.format("%.3f", (Double) value));
+            }
+        });
+
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        // 只在面板显示时刷新
+        addHierarchyListener(e -> {
+            if (isShowing()) {
+                refresh();
+                timer.start();
+            } else {
+                timer.stop();
+            }
+        });
+    }
+
+    private void refresh() {
+        // 连接服务器时本机没有连接池和缓存
+        if (pool == null) {
+            poolLabel.setText(String.format("连接池: 无（远程服务器）；待写入 %d 名学生", pendingWrites.getAsInt()));
+        } else {
+            poolLabel.setText(String.format("连接池: 已建立 %d / %d，空闲 %d，累计建立 %d；待写入 %d 名学生",
+                    pool.getOpen(), pool.getMaxSize(), pool.getIdle(), pool.getOpenedTotal(), pendingWrites.getAsInt()));
+        }
+        if (cache == null) {
+            cacheLabel.setText("按学号查询缓存: 无");
+        } else {
+            cacheLabel.setText(String.format("按学号查询缓存: 命中率 %.1f%%（命中 %d，Bloom 判定不存在 %d，未命中 %d），"
+                            + "%d / %d 名学生，淘汰 %d，Bloom 过滤器%s",
+                    cache.getHitRate() * 100, cache.getHits(), cache.getBloomRejections(), cache.getMisses(),
+                    cache.getSize(), cache.getCapacity(), cache.getEvictions(), cache.isBloomReady() ? "可用" : "未建立"));
+        }
+        model.setRows(Metrics.operations());
+    }
+
+    private static class OperationModel extends AbstractTableModel {
+        private List<Object[]> rows = new ArrayList<>();
+
+        // 每次刷新取一份快照，排序和重绘时数值不再变化
+        void setRows(List<Metrics.Operation> operations) {
+            List<Object[]> snapshot = new ArrayList<>(operations.size());
+            for (Metrics.Operation op : operations) {
+                snapshot.add(new Object[]{op.getName(), op.getCount(), op.getErrors(), op.getRows(),
+                        op.getMeanMillis(), op.getP50Millis(), op.getP90Millis(), op.getP99Millis(),
+                        op.getMaxMillis(), op.getTotalMillis()});
+            }
+            boolean sameRows = snapshot.size() == rows.size();
+            rows = snapshot;
+            if (sameRows && !rows.isEmpty()) {
+                // 保留选中行和排序
+                fireTableRowsUpdated(0, rows.size() - 1);
+            } else {
+                fireTableDataChanged();
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            if (column == 0) return String.class;
+            return column <= 3 ? Long.class : Double.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return rows.get(row)[column];
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package sms.ui;
+
+import sms.data.Student;
+import sms.data.StudentDao;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 表格中就地修改、尚未保存的学生，按学号记录修改前后的内容，“保存全部”时在一个事务中写入
+// 两个表格模型共用一份：重新加载的行用其中的内容覆盖，刷新、查询或翻页不会丢失未保存的修改
+// 只在 EDT 上访问
+public class DirtyRows {
+    private final Map<String, StudentDao.Change> changes = new LinkedHashMap<>();
+    private Runnable onChange = () -> { };
+
+    public void setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    // before 只在该学号第一次修改时记录；改回原值后不再算作未保存
+    public void edit(Student before, Student after) {
+        StudentDao.Change previous = changes.get(after.getId());
+        put(new StudentDao.Change(previous != null ? previous.before : before, after));
+        onChange.run();
+    }
+
+    public StudentDao.Change get(String id) {
+        return changes.get(id);
+    }
+
+    // 有未保存的修改时返回修改后的内容，否则原样返回
+    public Student apply(Student student) {
+        StudentDao.Change change = changes.get(student.getId());
+        return change == null ? student : change.after;
+    }
+
+    public boolean isCellDirty(String id, int course) {
+        StudentDao.Change change = changes.get(id);
+        return change != null && change.before.getScore(course) != change.after.getScore(course);
+    }
+
+    public void remove(String id) {
+        if (changes.remove(id) != null) onChange.run();
+    }
+
+    // saved 已写入数据库：保存期间没有再修改的直接移除，否则以保存后的内容作为新的修改前内容
+    public void saved(StudentDao.Change saved) {
+        StudentDao.Change current = changes.get(saved.getId());
+        if (current == saved) {
+            changes.remove(saved.getId());
+        } else if (current != null) {
+            put(new StudentDao.Change(saved.after, current.after));
+        }
+        onChange.run();
+    }
+
+    public List<StudentDao.Change> changes() {
+        return new ArrayList<>(changes.values());
+    }
+
+    public int size() {
+        return changes.size();
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    public void clear() {
+        changes.clear();
+        onChange.run();
+    }
+
+    private void put(StudentDao.Change change) {
+        if (change.isNoop()) {
+            changes.remove(change.getId());
+        } else {
+            changes.put(change.getId(), change);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package sms.ui;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// EDT 上处理时间超过阈值的事件，阈值可在 JFR 配置中修改，默认与 EdtMonitor.BLOCKED_MS 相同
+@Name("sms.EdtBlocked")
+@Label("EDT Blocked")
+@Category({"Student Management System", "UI"})
+@Description("AWT event whose dispatch kept the event dispatch thread busy")
+@Threshold("50 ms")
+@StackTrace(false)
+class EdtBlockedEvent extends Event {
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Source")
+    String source;
+}
@@ -0,0 +1,57 @@
+package sms.ui;
+
+import sms.data.Metrics;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.util.concurrent.TimeUnit;
+
+// 替换系统事件队列，统计 EDT 上每个事件的处理时间（edt.dispatch）；
+// 超过 BLOCKED_MS 的记入 edt.blocked 并发出 JFR 事件 sms.EdtBlocked
+// 模态对话框等在事件处理中运行嵌套事件循环的，外层事件不计时，只统计嵌套循环中的各个事件
+public class EdtMonitor extends EventQueue {
+    static final long BLOCKED_MS = 50;
+    private static final long BLOCKED_NANOS = TimeUnit.MILLISECONDS.toNanos(BLOCKED_MS);
+
+    private final Metrics.Operation dispatch = Metrics.operation("edt.dispatch");
+    private final Metrics.Operation blocked = Metrics.operation("edt.blocked");
+    // 以下字段只在 EDT 上访问
+    private int depth;
+    // 当前事件处理期间是否有嵌套的事件被分发
+    private boolean pumping;
+
+    public static void install() {
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new EdtMonitor());
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        boolean parentPumping = pumping;
+        pumping = false;
+        depth++;
+        EdtBlockedEvent jfr = new EdtBlockedEvent();
+        jfr.begin();
+        long start = System.nanoTime();
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long nanos = System.nanoTime() - start;
+            depth--;
+            boolean pumped = pumping;
+            pumping = parentPumping || depth > 0;
+            if (!pumped) {
+                dispatch.record(nanos, 0, false);
+                if (nanos >= BLOCKED_NANOS) {
+                    blocked.record(nanos, 0, false);
+                }
+                jfr.end();
+                if (jfr.shouldCommit()) {
+                    jfr.eventType = event.getClass().getName();
+                    jfr.source = String.valueOf(event.getSource()).split("\\[", 2)[0];
+                    jfr.commit();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package sms.ui;
+
+import sms.data.CourseRegistry;
+import sms.data.FailReport;
+import sms.data.GradeStats;
+import sms.data.Student;
+import sms.data.StudentColumns;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+
+// 不及格名单：全部课程（含登记的课程）的不及格学生一次读出（FailReport），按课程和不及格门数筛选只重建下标数组
+// 表格只绘制可见的行，几万行的名单也能立即打开；不及格的成绩标红
+public class FailReportDialog extends JDialog {
+    private static final Color FAIL_COLOR = new Color(200, 40, 40);
+    // 成绩列之前的学号、姓名、班级
+    private static final int FIRST_SCORE_COLUMN = 3;
+
+    private final FailReport report;
+    private final String[] courseNames;
+    // 学号、姓名、班级、各门课程、不及格门数
+    private final String[] columnNames;
+    private final JComboBox<String> courseBox;
+    private final JComboBox<String> minFailedBox;
+    private final JLabel summaryLabel = new JLabel();
+    private final FailModel model = new FailModel();
+    private final JTable table = new JTable(model);
+
+    public FailReportDialog(Frame owner, FailReport report) {
+        super(owner, "不及格名单", false);
+        this.report = report;
+        this.courseNames = report.courses().names();
+        columnNames = new String[FIRST_SCORE_COLUMN + courseNames.length + 1];
+        columnNames[0] = "学号";
+        columnNames[1] = "姓名";
+        columnNames[2] = "班级";
+        System.arraycopy(courseNames, 0, columnNames, FIRST_SCORE_COLUMN, courseNames.length);
+        columnNames[columnNames.length - 1] = "不及格门数";
+        setSize(980, 640);
+        setLocationRelativeTo(owner);
+        getContentPane().setBackground(UiTheme.PANEL_BACKGROUND);
+        setLayout(new BorderLayout(8, 8));
+
+        String[] courses = new String[courseNames.length + 1];
+        courses[0] = "全部课程";
+        System.arraycopy(courseNames, 0, courses, 1, courseNames.length);
+        courseBox = new JComboBox<>(courses);
+        String[] counts = new String[courseNames.length];
+        for (int k = 1; k <= courseNames.length; k++) counts[k - 1] = k + " 门及以上";
+        minFailedBox = new JComboBox<>(counts);
+        courseBox.setFont(UiTheme.FONT);
+        minFailedBox.setFont(UiTheme.FONT);
+        summaryLabel.setFont(UiTheme.FONT);
+        courseBox.addActionListener(e -> applyFilter());
+        minFailedBox.addActionListener(e -> applyFilter());
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 4));
+        top.setOpaque(false);
+        top.add(new JLabel("课程:"));
+        top.add(courseBox);
+        top.add(new JLabel("不及格:"));
+        top.add(minFailedBox);
+        top.add(summaryLabel);
+
+        table.setRowHeight(28);
+        table.setFont(UiTheme.FONT);
+        table.setSelectionBackground(UiTheme.SELECTION);
+        table.setSelectionForeground(Color.BLACK);
+        table.getTableHeader().setFont(UiTheme.HEADER_FONT);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.setDefaultRenderer(Object.class, new ScoreRenderer());
+        table.setDefaultRenderer(Integer.class, new ScoreRenderer());
+        // 课程多时横向滚动
+        if (courseNames.length > CourseRegistry.FIXED_COUNT) table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+
+        JButton copyButton = new JButton("复制");
+        copyButton.setToolTipText("复制选中的行，未选中时复制当前名单，可直接粘贴到表格软件");
+        copyButton.addActionListener(e -> copyRows());
+        JButton closeButton = new JButton("关闭");
+        closeButton.addActionListener(e -> dispose());
+        JPanel bottom = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 4));
+        bottom.setOpaque(false);
+        bottom.add(copyButton);
+        bottom.add(closeButton);
+
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(bottom, BorderLayout.SOUTH);
+        applyFilter();
+    }
+
+    private void applyFilter() {
+        int course = courseBox.getSelectedIndex() - 1;
+        int minFailed = minFailedBox.getSelectedIndex() + 1;
+        model.setRows(report.select(course < 0 ? FailReport.ANY_COURSE : course, minFailed));
+        StringBuilder sb = new StringBuilder("共 ").append(model.rows.length).append(" 人");
+        if (report.size() == 0) {
+            sb.append("，没有不及格的学生！");
+        } else {
+            sb.append("（");
+            for (int c = 0; c < courseNames.length; c++) {
+                // 登记的课程只列出有不及格的
+                if (c >= CourseRegistry.FIXED_COUNT && report.courseCount(c) == 0) continue;
+                if (c > 0) sb.append("，");
+                sb.append(courseNames[c]).append(' ').append(report.courseCount(c));
+            }
+            sb.append("；两门及以上 ").append(report.countAtLeast(2)).append("）");
+        }
+        summaryLabel.setText(sb.toString());
+    }
+
+    // 制表符分隔，第一行为表头
+    private void copyRows() {
+        int[] selected = table.getSelectedRows();
+        int count = selected.length > 0 ? selected.length : model.rows.length;
+        StringBuilder sb = new StringBuilder(count * 48);
+        for (int i = 0; i < columnNames.length; i++) {
+            if (i > 0) sb.append('\t');
+            sb.append(columnNames[i]);
+        }
+        sb.append('\n');
+        for (int i = 0; i < count; i++) {
+            report.appendRow(sb, model.rows[selected.length > 0 ? selected[i] : i]);
+        }
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(sb.toString()), null);
+    }
+
+    // 视图行到 FailReport 行的下标映射，单元格值在绘制时才读取
+    private class FailModel extends AbstractTableModel {
+        int[] rows = new int[0];
+
+        void setRows(int[] rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column < FIRST_SCORE_COLUMN ? String.class : Integer.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            int r = rows[row];
+            StudentColumns students = report.rows();
+            switch (column) {
+                case 0: return students.getId(r);
+                case 1: return students.getName(r);
+                case 2: return students.getClassName(r);
+                default:
+                    if (column == columnNames.length - 1) return report.failedCourses(r);
+                    // 登记课程没有成绩时显示为空
+                    int score = students.getScore(r, column - FIRST_SCORE_COLUMN);
+                    return score == Student.NO_SCORE ? null : score;
+            }
+        }
+    }
+
+    // 居中显示，成绩列中不及格的分数用红色粗体
+    private class ScoreRenderer extends DefaultTableCellRenderer {
+        ScoreRenderer() {
+            setHorizontalAlignment(JLabel.CENTER);
+        }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            int modelColumn = table.convertColumnIndexToModel(column);
+            boolean failed = modelColumn >= FIRST_SCORE_COLUMN && modelColumn < columnNames.length - 1
+                    && value != null && (Integer) value < GradeStats.PASS_SCORE;
+            setForeground(failed ? FAIL_COLOR : table.getForeground());
+            setFont(failed ? UiTheme.BOLD_FONT : table.getFont());
+            return this;
+        }
+    }
+}
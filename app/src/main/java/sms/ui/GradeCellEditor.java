@@ -0,0 +1,50 @@
+package sms.ui;
+
+import sms.data.Student;
+
+import javax.swing.*;
+import javax.swing.border.LineBorder;
+import java.awt.*;
+
+// 成绩单元格的编辑器：只接受 0-100 的整数，输入无效时红框提示并停留在该单元格
+public class GradeCellEditor extends DefaultCellEditor {
+    private final JTextField field;
+
+    public GradeCellEditor() {
+        super(new JTextField());
+        field = (JTextField) getComponent();
+        field.setHorizontalAlignment(JTextField.CENTER);
+        field.setFont(UiTheme.FONT);
+    }
+
+    @Override
+    public Component getTableCellEditorComponent(JTable table, Object value, boolean isSelected, int row, int column) {
+        field.setBorder(new LineBorder(Color.BLACK));
+        return super.getTableCellEditorComponent(table, value, isSelected, row, column);
+    }
+
+    @Override
+    public boolean stopCellEditing() {
+        if (parse() == null) {
+            field.setBorder(new LineBorder(Color.RED));
+            field.setToolTipText("成绩必须为 0-100 的整数");
+            return false;
+        }
+        field.setToolTipText(null);
+        return super.stopCellEditing();
+    }
+
+    @Override
+    public Object getCellEditorValue() {
+        return parse();
+    }
+
+    private Integer parse() {
+        try {
+            int grade = Integer.parseInt(field.getText().trim());
+            return Student.isValidGrade(grade) ? grade : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
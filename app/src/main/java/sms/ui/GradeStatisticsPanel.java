@@ -0,0 +1,206 @@
+package sms.ui;
+
+import sms.data.GradeStats;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// 成绩统计面板：按课程列出全校和各班的汇总，下方为选中行的分数段分布
+// 只显示 GradeStats 中的汇总数据，切换课程或选中行都不访问数据库
+public class GradeStatisticsPanel extends JPanel {
+    private static final String OVERALL = "全校";
+    private static final String[] COLUMN_NAMES = {"班级", "人数", "平均分", "最高分", "最低分", "不及格人数", "不及格率(%)"};
+
+    private final JComboBox<String> courseBox;
+    private final SummaryModel model = new SummaryModel();
+    private final JTable table = new JTable(model);
+    private final Histogram histogram = new Histogram();
+    private GradeStats stats = new GradeStats();
+
+    public GradeStatisticsPanel(String[] courseNames) {
+        super(new BorderLayout(8, 8));
+        setBackground(UiTheme.PANEL_BACKGROUND);
+        setBorder(BorderFactory.createEmptyBorder(8, 12, 8, 12));
+
+        courseBox = new JComboBox<>(courseNames);
+        courseBox.setFont(UiTheme.FONT);
+        courseBox.addActionListener(e -> showCourse());
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 4));
+        top.setOpaque(false);
+        top.add(new JLabel("课程:"));
+        top.add(courseBox);
+
+        table.setRowHeight(28);
+        table.setFont(UiTheme.FONT);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setSelectionBackground(UiTheme.SELECTION);
+        table.setSelectionForeground(Color.BLACK);
+        table.getTableHeader().setFont(UiTheme.HEADER_FONT);
+        table.setAutoCreateRowSorter(true);
+        DefaultTableCellRenderer center = new DefaultTableCellRenderer();
+        center.setHorizontalAlignment(JLabel.CENTER);
+        table.setDefaultRenderer(Object.class, center);
+        table.setDefaultRenderer(Integer.class, center);
+        table.setDefaultRenderer(Double.class, center);
+        table.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) showHistogram();
+        });
+
+        histogram.setPreferredSize(new Dimension(0, 220));
+        add(top, BorderLayout.NORTH);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(histogram, BorderLayout.SOUTH);
+    }
+
+    // 登记课程后更新课程列表，保持原来选中的课程
+    public void setCourseNames(String[] courseNames) {
+        int selected = courseBox.getSelectedIndex();
+        courseBox.setModel(new DefaultComboBoxModel<>(courseNames));
+        courseBox.setSelectedIndex(Math.max(0, Math.min(selected, courseNames.length - 1)));
+    }
+
+    // 在 EDT 上调用
+    public void setStats(GradeStats stats) {
+        this.stats = stats;
+        showCourse();
+    }
+
+    private void showCourse() {
+        String selected = selectedClass();
+        int course = courseBox.getSelectedIndex();
+        List<String> classes = new ArrayList<>();
+        List<GradeStats.Summary> summaries = new ArrayList<>();
+        classes.add(OVERALL);
+        summaries.add(stats.overall(course));
+        for (String className : stats.classNames()) {
+            classes.add(className);
+            summaries.add(stats.get(className, course));
+        }
+        model.setRows(classes, summaries);
+        // 刷新后保持原来选中的班级
+        int row = Math.max(classes.indexOf(selected), 0);
+        int viewRow = table.convertRowIndexToView(row);
+        table.getSelectionModel().setSelectionInterval(viewRow, viewRow);
+        showHistogram();
+    }
+
+    private String selectedClass() {
+        int viewRow = table.getSelectedRow();
+        return viewRow < 0 ? OVERALL : model.classes.get(table.convertRowIndexToModel(viewRow));
+    }
+
+    private void showHistogram() {
+        int viewRow = table.getSelectedRow();
+        if (viewRow < 0) {
+            histogram.setSummary(null, null);
+            return;
+        }
+        int row = table.convertRowIndexToModel(viewRow);
+        histogram.setSummary(model.classes.get(row) + " " + courseBox.getSelectedItem() + " 分数段分布",
+                model.summaries.get(row));
+    }
+
+    private static class SummaryModel extends AbstractTableModel {
+        List<String> classes = new ArrayList<>();
+        List<GradeStats.Summary> summaries = new ArrayList<>();
+
+        void setRows(List<String> classes, List<GradeStats.Summary> summaries) {
+            this.classes = classes;
+            this.summaries = summaries;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return classes.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+                case 0: return String.class;
+                case 2: case 6: return Double.class;
+                default: return Integer.class;
+            }
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            GradeStats.Summary s = summaries.get(row);
+            switch (column) {
+                case 0: return classes.get(row);
+                case 1: return s.count;
+                // 保留一位小数，按数值排序
+                case 2: return Math.round(s.average() * 10) / 10.0;
+                case 3: return s.count == 0 ? null : s.max;
+                case 4: return s.count == 0 ? null : s.min;
+                case 5: return s.fail;
+                default: return Math.round(s.failRate() * 1000) / 10.0;
+            }
+        }
+    }
+
+    // 10 个分数段的柱状图，不及格的分数段用红色
+    private static class Histogram extends JComponent {
+        private static final Color FAIL_BAR = new Color(230, 120, 110);
+        private static final Color PASS_BAR = new Color(110, 160, 210);
+        private String title;
+        private GradeStats.Summary summary;
+
+        void setSummary(String title, GradeStats.Summary summary) {
+            this.title = title;
+            this.summary = summary;
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(UiTheme.PANEL_BACKGROUND);
+            g2.fillRect(0, 0, getWidth(), getHeight());
+            if (summary == null) {
+                g2.dispose();
+                return;
+            }
+            g2.setFont(UiTheme.BOLD_FONT);
+            g2.setColor(Color.DARK_GRAY);
+            g2.drawString(title, 8, 20);
+
+            g2.setFont(UiTheme.SMALL_FONT);
+            FontMetrics fm = g2.getFontMetrics();
+            int left = 8, top = 32, bottom = getHeight() - fm.getHeight() - 6;
+            int slot = (getWidth() - 2 * left) / GradeStats.BUCKETS;
+            int peak = 1;
+            for (int n : summary.buckets) peak = Math.max(peak, n);
+            for (int i = 0; i < GradeStats.BUCKETS; i++) {
+                int n = summary.buckets[i];
+                int h = (int) ((long) (bottom - top - fm.getHeight()) * n / peak);
+                int x = left + i * slot + slot / 6;
+                int w = slot * 2 / 3;
+                g2.setColor(i * 10 < GradeStats.PASS_SCORE ? FAIL_BAR : PASS_BAR);
+                g2.fillRect(x, bottom - h, w, h);
+                g2.setColor(Color.DARK_GRAY);
+                String count = String.valueOf(n);
+                g2.drawString(count, x + (w - fm.stringWidth(count)) / 2, bottom - h - 4);
+                String label = i == GradeStats.BUCKETS - 1 ? "90-100" : (i * 10) + "-" + (i * 10 + 9);
+                g2.drawString(label, x + (w - fm.stringWidth(label)) / 2, bottom + fm.getAscent() + 2);
+            }
+            g2.dispose();
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package sms.ui;
+
+import sms.data.CourseRegistry;
+import sms.data.Metrics;
+import sms.data.RankingEngine;
+import sms.data.Student;
+import sms.data.StudentDao;
+import sms.data.StudentRepository;
+import sms.data.StudentStore;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+// 分页表格模型：只加载视口需要的页，按键集分页读取，用 LRU 保留有限的页
+// 排序下推为 ORDER BY，不在内存中排序。所有状态只在 EDT 上访问
+public class PagedStudentTableModel extends AbstractTableModel implements StudentRows {
+    static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 40;
+    private static final int PREFETCH_PAGES = 2;
+    private static final String[] ORDER_FIELDS = {"id", "name", "className", "math", "english", "computer", "pe"};
+
+    private final StudentStore repository;
+    private final Map<Integer, StudentTableModel> pages = new LinkedHashMap<Integer, StudentTableModel>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, StudentTableModel> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    // 每页首尾行的排序键，页被淘汰后仍保留，用于后续键集定位
+    private final Map<Integer, Object[]> firstKeys = new HashMap<>();
+    private final Map<Integer, Object[]> lastKeys = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    // 等待前一页边界的页
+    private final Set<Integer> waiting = new HashSet<>();
+    private int rowCount;
+    private String orderField = "rowid";
+    private boolean descending;
+    private int generation;
+    private int lastRequestedPage = -1;
+    private Consumer<Throwable> errorHandler = e -> { };
+    private RankingEngine ranking;
+    private int rankMetric = RankingEngine.TOTAL;
+    private DirtyRows dirty;
+    private CourseRegistry courses = CourseRegistry.FIXED_ONLY;
+    // reload(count) 返回的结果，第一页显示后完成
+    private CompletableFuture<Integer> firstPage;
+
+    public PagedStudentTableModel(StudentStore repository) {
+        this.repository = repository;
+    }
+
+    public void setErrorHandler(Consumer<Throwable> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return StudentTableModel.columnCount(courses);
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return StudentTableModel.columnName(courses, column);
+    }
+
+    // 登记课程的成绩在成绩向量中，不能下推为 ORDER BY，这些列不支持排序
+    public void setCourses(CourseRegistry courses) {
+        this.courses = courses;
+        fireTableStructureChanged();
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return StudentTableModel.columnClass(column);
+    }
+
+    // 页尚未加载时返回 null 并发起异步读取，数据到达后刷新这一页的行
+    @Override
+    public Object getValueAt(int row, int column) {
+        StudentTableModel page = page(row);
+        int offset = row % PAGE_SIZE;
+        if (page == null || offset >= page.getRowCount()) return null;
+        return page.getValueAt(offset, column);
+    }
+
+    // 已加载的页可以就地修改成绩，修改记在该页的 StudentTableModel 和共用的 dirty 中
+    public void setDirtyRows(DirtyRows dirty) {
+        this.dirty = dirty;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        StudentTableModel page = pages.get(row / PAGE_SIZE);
+        return page != null && row % PAGE_SIZE < page.getRowCount() && page.isCellEditable(row % PAGE_SIZE, column);
+    }
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        StudentTableModel page = pages.get(row / PAGE_SIZE);
+        if (page == null || row % PAGE_SIZE >= page.getRowCount()) return;
+        page.setValueAt(value, row % PAGE_SIZE, column);
+        StudentTableModel.fireCellEdited(this, row, column);
+    }
+
+    @Override
+    public String getIdAt(int row) {
+        StudentTableModel page = page(row);
+        int offset = row % PAGE_SIZE;
+        return page == null || offset >= page.getRowCount() ? null : page.getIdAt(offset);
+    }
+
+    @Override
+    public Student getStudentAt(int row) {
+        StudentTableModel page = page(row);
+        int offset = row % PAGE_SIZE;
+        return page == null || offset >= page.getRowCount() ? null : page.getStudentAt(offset);
+    }
+
+    // 新增和删除会改变所有后续行的位置，直接丢弃缓存重新计数
+    @Override
+    public void addStudent(Student student) {
+        reload();
+    }
+
+    @Override
+    public void updateStudent(Student student) {
+        for (Map.Entry<Integer, StudentTableModel> entry : pages.entrySet()) {
+            int offset = entry.getValue().indexOf(student.getId());
+            if (offset >= 0) {
+                entry.getValue().updateStudent(student);
+                int row = entry.getKey() * PAGE_SIZE + offset;
+                fireTableRowsUpdated(row, row);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void removeStudent(String id) {
+        reload();
+    }
+
+    // 名次列由各页的 StudentTableModel 查表得出
+    @Override
+    public void setRanking(RankingEngine ranking, int metric) {
+        this.ranking = ranking;
+        this.rankMetric = metric;
+        for (StudentTableModel page : pages.values()) {
+            page.setRanking(ranking, metric);
+        }
+        if (rowCount > 0) {
+            fireTableRowsUpdated(0, rowCount - 1);
+        }
+    }
+
+    public CompletableFuture<Integer> reload() {
+        CompletableFuture<Integer> count = repository.count();
+        int expected = ++generation;
+        count.whenComplete((n, error) -> SwingUtilities.invokeLater(() -> {
+            if (expected != generation) return;
+            if (error != null) {
+                errorHandler.accept(StudentRepository.unwrap(error));
+                return;
+            }
+            rowCount = n;
+            clearPages();
+            fireTableDataChanged();
+        }));
+        return count;
+    }
+
+    // 行数已知（刚读过 count）时不再查询，直接请求第一页而不等表格绘制时来取；结果在第一页显示后完成
+    public CompletableFuture<Integer> reload(int count) {
+        generation++;
+        rowCount = count;
+        clearPages();
+        fireTableDataChanged();
+        CompletableFuture<Integer> shown = new CompletableFuture<>();
+        if (count == 0) {
+            shown.complete(0);
+        } else {
+            firstPage = shown;
+            request(0);
+        }
+        return shown;
+    }
+
+    // 能下推为 ORDER BY 的列对应的字段，不能下推时返回 null
+    // 按单科排名时全校名次和百分位与该科成绩同序，可以用成绩索引；总分和班级名次没有索引，不支持排序
+    String orderFieldFor(int column) {
+        if (column < ORDER_FIELDS.length) return ORDER_FIELDS[column];
+        if ((column == StudentTableModel.SCHOOL_RANK_COLUMN || column == StudentTableModel.PERCENTILE_COLUMN)
+                && rankMetric != RankingEngine.TOTAL) {
+            return ORDER_FIELDS[StudentTableModel.FIRST_SCORE_COLUMN + rankMetric];
+        }
+        return null;
+    }
+
+    // column 为 -1 表示恢复插入顺序
+    public void setOrder(int column, boolean descending) {
+        this.orderField = column < 0 ? "rowid" : orderFieldFor(column);
+        // 名次越小成绩越高
+        this.descending = descending != (column == StudentTableModel.SCHOOL_RANK_COLUMN);
+        generation++;
+        clearPages();
+        fireTableDataChanged();
+    }
+
+    private void clearPages() {
+        if (firstPage != null) {
+            firstPage.cancel(false);
+            firstPage = null;
+        }
+        pages.clear();
+        firstKeys.clear();
+        lastKeys.clear();
+        loading.clear();
+        waiting.clear();
+        lastRequestedPage = -1;
+    }
+
+    private StudentTableModel page(int row) {
+        int index = row / PAGE_SIZE;
+        StudentTableModel page = pages.get(index);
+        if (page == null) {
+            request(index);
+        }
+        return page;
+    }
+
+    // 请求一页，并按滚动方向预取后面几页
+    private void request(int index) {
+        if (index == lastRequestedPage) {
+            load(index);
+            return;
+        }
+        int direction = index >= lastRequestedPage ? 1 : -1;
+        lastRequestedPage = index;
+        load(index);
+        int pageCount = (rowCount + PAGE_SIZE - 1) / PAGE_SIZE;
+        for (int i = 1; i <= PREFETCH_PAGES; i++) {
+            int next = index + direction * i;
+            if (next >= 0 && next < pageCount) load(next);
+        }
+    }
+
+    private void load(int index) {
+        if (pages.containsKey(index) || loading.contains(index)) return;
+        Object[] boundary = null;
+        boolean before = false;
+        if (index > 0 && lastKeys.containsKey(index - 1)) {
+            boundary = lastKeys.get(index - 1);
+        } else if (firstKeys.containsKey(index + 1)) {
+            boundary = firstKeys.get(index + 1);
+            before = true;
+        } else if (loading.contains(index - 1) || loading.contains(index + 1)) {
+            // 相邻页正在加载，等它的边界再用键集读取，避免 OFFSET 扫描
+            waiting.add(index);
+            return;
+        }
+        loading.add(index);
+        waiting.remove(index);
+        int expected = generation;
+        repository.findPage(orderField, descending, boundary, before, index * PAGE_SIZE, PAGE_SIZE)
+                .whenComplete((page, error) -> SwingUtilities.invokeLater(() -> {
+                    if (expected != generation) return;
+                    loading.remove(index);
+                    if (error != null) {
+                        // 错误已由 errorHandler 提示，等待第一页的一方不再重复
+                        if (index == 0 && firstPage != null) {
+                            firstPage.cancel(false);
+                            firstPage = null;
+                        }
+                        errorHandler.accept(StudentRepository.unwrap(error));
+                        return;
+                    }
+                    try (Metrics.Timer timer = Metrics.start("table.page")) {
+                        onPageLoaded(index, page);
+                        timer.rows(page.students.size());
+                    }
+                }));
+    }
+
+    private void onPageLoaded(int index, StudentDao.Page page) {
+        StudentTableModel rows = new StudentTableModel();
+        rows.setRanking(ranking, rankMetric);
+        rows.setDirtyRows(dirty);
+        rows.setStudents(page.students);
+        pages.put(index, rows);
+        if (page.firstKey != null) {
+            firstKeys.put(index, page.firstKey);
+            lastKeys.put(index, page.lastKey);
+        }
+        int first = index * PAGE_SIZE;
+        int last = Math.min(first + PAGE_SIZE, rowCount) - 1;
+        if (last >= first) {
+            fireTableRowsUpdated(first, last);
+        }
+        for (int neighbour : new int[]{index + 1, index - 1}) {
+            if (waiting.remove(neighbour)) load(neighbour);
+        }
+        if (index == 0 && firstPage != null) {
+            firstPage.complete(rowCount);
+            firstPage = null;
+        }
+    }
+
+    // 表头点击只改变 ORDER BY，行号映射始终是恒等的
+    public static class SortPushdown extends RowSorter<PagedStudentTableModel> {
+        private final PagedStudentTableModel model;
+        private List<SortKey> sortKeys = Collections.emptyList();
+
+        public SortPushdown(PagedStudentTableModel model) {
+            this.model = model;
+        }
+
+        @Override
+        public PagedStudentTableModel getModel() {
+            return model;
+        }
+
+        @Override
+        public void toggleSortOrder(int column) {
+            if (model.orderFieldFor(column) == null) return;
+            SortOrder order = SortOrder.ASCENDING;
+            if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column
+                    && sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING) {
+                order = SortOrder.DESCENDING;
+            }
+            setSortKeys(Collections.singletonList(new SortKey(column, order)));
+        }
+
+        @Override
+        public int convertRowIndexToModel(int index) {
+            return index;
+        }
+
+        @Override
+        public int convertRowIndexToView(int index) {
+            return index;
+        }
+
+        @Override
+        public void setSortKeys(List<? extends SortKey> keys) {
+            List<SortKey> newKeys = keys == null || keys.isEmpty()
+                    ? Collections.<SortKey>emptyList()
+                    : Collections.<SortKey>singletonList(keys.get(0));
+            if (newKeys.equals(sortKeys)) return;
+            sortKeys = newKeys;
+            fireSortOrderChanged();
+            if (newKeys.isEmpty()) {
+                model.setOrder(-1, false);
+            } else {
+                model.setOrder(newKeys.get(0).getColumn(), newKeys.get(0).getSortOrder() == SortOrder.DESCENDING);
+            }
+        }
+
+        @Override
+        public List<? extends SortKey> getSortKeys() {
+            return sortKeys;
+        }
+
+        @Override
+        public int getViewRowCount() {
+            return model.getRowCount();
+        }
+
+        @Override
+        public int getModelRowCount() {
+            return model.getRowCount();
+        }
+
+        @Override
+        public void modelStructureChanged() {
+        }
+
+        @Override
+        public void allRowsChanged() {
+        }
+
+        @Override
+        public void rowsInserted(int firstRow, int endRow) {
+        }
+
+        @Override
+        public void rowsDeleted(int firstRow, int endRow) {
+        }
+
+        @Override
+        public void rowsUpdated(int firstRow, int endRow) {
+        }
+
+        @Override
+        public void rowsUpdated(int firstRow, int endRow, int column) {
+        }
+    }
+}
@@ -0,0 +1,1438 @@
+package sms.ui;
+
+import sms.data.BackupManager;
+import sms.data.ConnectionPool;
+import sms.data.CourseRegistry;
+import sms.data.Metrics;
+import sms.data.RankingEngine;
+import sms.data.RemoteStudentStore;
+import sms.data.Student;
+import sms.data.StudentColumns;
+import sms.data.StudentDao;
+import sms.data.StudentExporter;
+import sms.data.StudentImporter;
+import sms.data.StudentRepository;
+import sms.data.StudentServer;
+import sms.data.StudentStore;
+import sms.data.WriteBehindQueue;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.JTableHeader;
+import javax.swing.table.TableModel;
+import java.awt.*;
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class StudentManagementSystem extends JFrame {
+    private static final Logger LOG = Logger.getLogger(StudentManagementSystem.class.getName());
+    private JTable studentTable;
+    private StudentTableModel tableModel;
+    private StudentRowSorter sorter;
+    private PagedStudentTableModel pagedModel;
+    private PagedStudentTableModel.SortPushdown pagedSorter;
+    // 当前表格显示的模型
+    private StudentRows rows;
+    private DefaultTableCellRenderer centerRenderer;
+    private JTextField searchField;
+    private JLabel statusLabel;
+    private JProgressBar progressBar;
+    private JButton cancelButton;
+    private JTabbedPane tabs;
+    private GradeStatisticsPanel statisticsPanel;
+    private DiagnosticsPanel diagnosticsPanel;
+    // 全校名次表，随刷新在后台重建，增删改时增量调整
+    private RankingEngine ranking;
+    private int rankMetric = RankingEngine.TOTAL;
+    private CompletableFuture<RankingEngine> rankingLoad;
+    // 修改计数，名次表统计期间有修改时需要重新统计
+    private int rankingEdits;
+    // 上一次写入队列中的修改失败，成功写入后清除
+    private boolean writeFailing;
+    // 表格中就地修改、尚未保存的成绩，两个表格模型共用
+    private final DirtyRows dirtyRows = new DirtyRows();
+    private JButton saveAllButton;
+    private CompletableFuture<?> saving;
+    // 本次运行中的添加、修改、删除和保存全部，每项为一次操作的修改，最近的在前；仅在 EDT 上访问
+    private final Deque<List<StudentDao.Change>> undoStack = new ArrayDeque<>();
+    private final Deque<List<StudentDao.Change>> redoStack = new ArrayDeque<>();
+    private static final int MAX_UNDO = 100;
+    private JButton undoButton;
+    private JButton redoButton;
+    // 当前登记的课程，修改记录中显示课程名
+    private CourseRegistry courses = CourseRegistry.FIXED_ONLY;
+    private static final String[] COURSE_NAMES = {"高等数学", "大学英语", "计算机导论", "体育"};
+    private static final String DB_FILE = "students.db";
+    private static final String DB_URL = "jdbc:sqlite:" + DB_FILE;
+    // 数据库快照放在 backups 目录，保留最新 10 份，距上一份超过一天时自动备份
+    private static final String BACKUP_DIR = "backups";
+    private static final int BACKUP_KEEP = 10;
+    private static final Duration AUTO_BACKUP_INTERVAL = Duration.ofDays(1);
+    private static final int POOL_SIZE = 4;
+    // 服务器模式：同时访问数据库的连接数和处理请求的线程数（JDK 21+ 上为虚拟线程，不受此限制）
+    private static final int DEFAULT_SERVER_PORT = 8080;
+    // 服务器要求、客户端发送的访问令牌所在的环境变量（不放在命令行上，避免出现在进程列表中）
+    private static final String TOKEN_ENV = "SMS_TOKEN";
+    private static final int SERVER_POOL_SIZE = 8;
+    private static final int SERVER_THREADS = 32;
+    // 超过该行数时改用分页模型，只加载视口附近的数据
+    private static final int PAGED_THRESHOLD = 50_000;
+    // 冲突提示中最多列出的学号数
+    private static final int MAX_LISTED_CONFLICTS = 20;
+    private static final Color UNSAVED_COLOR = new Color(255, 243, 205);
+    private static final java.awt.event.MouseListener BUTTON_HOVER = new java.awt.event.MouseAdapter() {
+        public void mouseEntered(java.awt.event.MouseEvent evt) {
+            evt.getComponent().setBackground(UiTheme.BUTTON_HOVER);
+        }
+        public void mouseExited(java.awt.event.MouseEvent evt) {
+            evt.getComponent().setBackground(Color.WHITE);
+        }
+    };
+    // 连接远程服务器时 pool 为 null
+    private final ConnectionPool pool;
+    private final StudentStore repository;
+    // 本地数据库的备份，连接服务器时为 null
+    private final BackupManager backups;
+    // 进行中的后台任务，仅在 EDT 上访问
+    private final Set<CompletableFuture<?>> pending = new HashSet<>();
+    private final Set<CompletableFuture<?>> cancellableTasks = new HashSet<>();
+    private CompletableFuture<?> tableLoad;
+    // 每次表格加载自增，用于丢弃过期的分块结果
+    private int tableGeneration;
+    // 输入停顿后才发起查询
+    private static final int SEARCH_DEBOUNCE_MS = 250;
+    private Timer searchTimer;
+    // 当前表格中完整显示的查询关键字，未显示查询结果时为 null
+    private String shownKeyword;
+    // 启动计时，见 recordStartup
+    private static boolean exitAfterLoad;
+    private boolean painted;
+    private boolean dataShown;
+    private long visibleMillis;
+    private long dataMillis;
+    private long dataRows;
+
+    public StudentManagementSystem() {
+        this(new ConnectionPool(DB_URL, POOL_SIZE));
+    }
+
+    private StudentManagementSystem(ConnectionPool pool) {
+        this(new StudentRepository(new StudentDao(pool), POOL_SIZE), pool, newBackupManager());
+    }
+
+    // 使用给定的数据源，pool 为本地数据库的连接池、backups 为它的备份，连接服务器时都为 null
+    public StudentManagementSystem(StudentStore repository, ConnectionPool pool, BackupManager backups) {
+        this.repository = repository;
+        this.pool = pool;
+        this.backups = backups;
+        setTitle("学生成绩管理系统");
+        setSize(1230, 760);
+        // 关闭前先写入队列中的修改，见 closeWindow
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                closeWindow();
+            }
+        });
+        setLocationRelativeTo(null);
+
+        // 设置全局字体
+        setUIFont(UiTheme.FONT);
+
+        // 设置主面板背景色
+        getContentPane().setBackground(UiTheme.BACKGROUND);
+        setLayout(new BorderLayout(12, 12));
+
+        // ====== 新增：大标题 ======
+        JLabel titleLabel = new JLabel("学生成绩管理系统", SwingConstants.CENTER);
+        titleLabel.setFont(UiTheme.TITLE_FONT);
+        titleLabel.setBorder(BorderFactory.createEmptyBorder(18, 0, 8, 0));
+        titleLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        // =========================
+
+        // 创建表格模型
+        tableModel = new StudentTableModel();
+        rows = tableModel;
+        pagedModel = new PagedStudentTableModel(repository);
+        pagedModel.setErrorHandler(e -> showError("读取数据失败: " + e.getMessage()));
+        pagedSorter = new PagedStudentTableModel.SortPushdown(pagedModel);
+        tableModel.setDirtyRows(dirtyRows);
+        pagedModel.setDirtyRows(dirtyRows);
+        studentTable = new JTable(tableModel);
+        // 成绩列像电子表格一样直接输入，回车移到下一行；点击其他地方时提交正在编辑的单元格
+        studentTable.setDefaultEditor(Integer.class, new GradeCellEditor());
+        studentTable.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+        studentTable.setRowHeight(28);
+        studentTable.setFont(UiTheme.FONT);
+        studentTable.setSelectionBackground(UiTheme.SELECTION);
+        studentTable.setSelectionForeground(Color.BLACK);
+
+        // ====== 新增：表格排序功能 ======
+        sorter = new StudentRowSorter(tableModel);
+        studentTable.setRowSorter(sorter);
+        // ==============================
+
+        // 表头美化
+        JTableHeader header = studentTable.getTableHeader();
+        header.setFont(UiTheme.HEADER_FONT);
+        header.setBackground(UiTheme.HEADER_BACKGROUND);
+        header.setPreferredSize(new Dimension(header.getWidth(), 32));
+        ((DefaultTableCellRenderer)header.getDefaultRenderer()).setHorizontalAlignment(JLabel.CENTER);
+
+        // 表格居中，未保存的成绩用浅黄色标出
+        centerRenderer = new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                           boolean hasFocus, int row, int column) {
+                super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                int modelColumn = table.convertColumnIndexToModel(column);
+                if (!isSelected && StudentTableModel.isScoreColumn(modelColumn) && !dirtyRows.isEmpty()) {
+                    String id = rows.getIdAt(table.convertRowIndexToModel(row));
+                    boolean dirty = id != null
+                            && dirtyRows.isCellDirty(id, StudentTableModel.courseOf(modelColumn));
+                    setBackground(dirty ? UNSAVED_COLOR : table.getBackground());
+                } else if (!isSelected) {
+                    setBackground(table.getBackground());
+                }
+                return this;
+            }
+        };
+        centerRenderer.setHorizontalAlignment(JLabel.CENTER);
+        applyCenterRenderer();
+
+        JScrollPane scrollPane = new JScrollPane(studentTable);
+        scrollPane.setBorder(BorderFactory.createEmptyBorder(8, 12, 8, 12));
+        scrollPane.getViewport().setBackground(UiTheme.PANEL_BACKGROUND);
+
+        // 创建操作按钮
+        JButton addButton = createButton("添加学生");
+        JButton editButton = createButton("修改信息");
+        JButton deleteButton = createButton("删除学生");
+        saveAllButton = createButton("保存全部");
+        saveAllButton.setEnabled(false);
+        undoButton = createButton("撤销");
+        undoButton.setToolTipText("撤销上一次添加、修改、删除或保存 (Ctrl+Z)");
+        redoButton = createButton("重做");
+        redoButton.setToolTipText("重做撤销的操作 (Ctrl+Y)");
+        updateUndoButtons();
+        JButton importButton = createButton("批量导入");
+        JButton exportButton = createButton("导出数据");
+        JButton searchButton = createButton("查询学生");
+        JButton failButton = createButton("不及格名单");
+        JButton refreshButton = createButton("刷新数据");
+        JButton resetOrderButton = createButton("恢复顺序");
+        JButton courseButton = createButton("添加课程");
+        JButton backupButton = createButton("备份恢复");
+        JButton changeLogButton = createButton("修改记录");
+        searchField = new JTextField(16);
+        searchField.setFont(UiTheme.FONT);
+        searchField.setPreferredSize(new Dimension(120, 32));
+        searchTimer = new Timer(SEARCH_DEBOUNCE_MS, e -> searchStudent());
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+
+        // 按钮分两行：第一行为修改数据，第二行为查询和管理
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.setBackground(UiTheme.BACKGROUND);
+        buttonPanel.setLayout(new FlowLayout(FlowLayout.LEFT, 12, 10));
+        buttonPanel.add(addButton);
+        buttonPanel.add(editButton);
+        buttonPanel.add(deleteButton);
+        buttonPanel.add(saveAllButton);
+        buttonPanel.add(undoButton);
+        buttonPanel.add(redoButton);
+        buttonPanel.add(Box.createHorizontalStrut(10));
+        buttonPanel.add(importButton);
+        buttonPanel.add(exportButton);
+        buttonPanel.add(courseButton);
+        JPanel queryPanel = new JPanel();
+        queryPanel.setBackground(UiTheme.BACKGROUND);
+        queryPanel.setLayout(new FlowLayout(FlowLayout.LEFT, 12, 0));
+        queryPanel.add(new JLabel("学号/姓名/班级:"));
+        queryPanel.add(searchField);
+        queryPanel.add(searchButton);
+        queryPanel.add(Box.createHorizontalStrut(10));
+        queryPanel.add(failButton);
+        queryPanel.add(refreshButton);
+        queryPanel.add(resetOrderButton);
+        queryPanel.add(changeLogButton);
+        queryPanel.add(backupButton);
+
+        // ====== 新增：标题和按钮面板垂直组合 ======
+        JPanel northPanel = new JPanel();
+        northPanel.setLayout(new BoxLayout(northPanel, BoxLayout.Y_AXIS));
+        northPanel.setBackground(UiTheme.BACKGROUND);
+        northPanel.add(titleLabel);
+        northPanel.add(buttonPanel);
+        northPanel.add(queryPanel);
+        // ======================================
+
+        // 状态栏：显示进度并允许取消正在进行的加载
+        statusLabel = new JLabel("就绪");
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setPreferredSize(new Dimension(160, 16));
+        progressBar.setVisible(false);
+        cancelButton = createButton("取消");
+        cancelButton.setPreferredSize(new Dimension(70, 26));
+        cancelButton.setEnabled(false);
+        JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 12, 4));
+        statusPanel.setBackground(UiTheme.BACKGROUND);
+        statusPanel.add(statusLabel);
+        statusPanel.add(progressBar);
+        statusPanel.add(cancelButton);
+        // 名次列按哪一项计算
+        String[] metrics = new String[RankingEngine.METRICS];
+        metrics[0] = "总分";
+        System.arraycopy(COURSE_NAMES, 0, metrics, 1, COURSE_NAMES.length);
+        JComboBox<String> metricBox = new JComboBox<>(metrics);
+        metricBox.setFont(UiTheme.FONT);
+        metricBox.addActionListener(e -> {
+            int index = metricBox.getSelectedIndex();
+            setRankMetric(index == 0 ? RankingEngine.TOTAL : index - 1);
+        });
+        statusPanel.add(Box.createHorizontalStrut(20));
+        statusPanel.add(new JLabel("排名依据:"));
+        statusPanel.add(metricBox);
+
+        // 学生名单和成绩统计分两个标签页，统计只读汇总表，切换到该页时重新读取
+        statisticsPanel = new GradeStatisticsPanel(COURSE_NAMES);
+        tabs = new JTabbedPane();
+        tabs.setFont(UiTheme.FONT);
+        tabs.addTab("学生名单", scrollPane);
+        tabs.addTab("成绩统计", statisticsPanel);
+        tabs.addChangeListener(e -> refreshStatistics());
+        // 隐藏的诊断页，Ctrl+Shift+D 显示或隐藏，第一次显示时才创建
+        if (pool != null) Metrics.register("sms:type=ConnectionPool", pool);
+        if (repository.cacheStats() != null) Metrics.register("sms:type=StudentCache", repository.cacheStats());
+        getRootPane().registerKeyboardAction(e -> toggleDiagnostics(),
+                KeyStroke.getKeyStroke("ctrl shift D"), JComponent.WHEN_IN_FOCUSED_WINDOW);
+        // 单元格编辑中的 Ctrl+Z 不撤销已完成的操作
+        getRootPane().registerKeyboardAction(e -> {
+            if (!studentTable.isEditing()) undo();
+        }, KeyStroke.getKeyStroke("ctrl Z"), JComponent.WHEN_IN_FOCUSED_WINDOW);
+        getRootPane().registerKeyboardAction(e -> {
+            if (!studentTable.isEditing()) redo();
+        }, KeyStroke.getKeyStroke("ctrl Y"), JComponent.WHEN_IN_FOCUSED_WINDOW);
+
+        add(northPanel, BorderLayout.NORTH);
+        add(tabs, BorderLayout.CENTER);
+        add(statusPanel, BorderLayout.SOUTH);
+
+        // 按钮事件
+        addButton.addActionListener(e -> addStudent());
+        editButton.addActionListener(e -> editStudent());
+        deleteButton.addActionListener(e -> deleteStudent());
+        saveAllButton.addActionListener(e -> saveAll());
+        undoButton.addActionListener(e -> undo());
+        redoButton.addActionListener(e -> redo());
+        dirtyRows.setOnChange(() -> {
+            saveAllButton.setEnabled(!dirtyRows.isEmpty() && saving == null);
+            updateProgress(null);
+        });
+        importButton.addActionListener(e -> importStudents());
+        exportButton.addActionListener(e -> exportStudents());
+        // 导入导出读写本机文件，连接服务器时不可用
+        if (!repository.supportsFiles()) {
+            importButton.setEnabled(false);
+            exportButton.setEnabled(false);
+        }
+        searchButton.addActionListener(e -> searchStudent());
+        searchField.addActionListener(e -> searchStudent());
+        failButton.addActionListener(e -> showFailList());
+        refreshButton.addActionListener(e -> {
+            searchTimer.stop();
+            searchField.setText("");
+            refreshTable();
+        });
+        resetOrderButton.addActionListener(e -> studentTable.getRowSorter().setSortKeys(null));
+        cancelButton.addActionListener(e -> cancelRunningTasks());
+        courseButton.addActionListener(e -> addCourse());
+        backupButton.addActionListener(e -> new BackupDialog(this, backups, repository, this::closeWindow).setVisible(true));
+        backupButton.setEnabled(backups != null);
+        changeLogButton.addActionListener(e -> showChangeLog());
+
+        // 初始化数据库，退出时写入剩余的修改并关闭连接池
+        repository.setWriteListener(new WriteBehindQueue.Listener() {
+            @Override
+            public void flushed(int written, List<StudentDao.Change> conflicts) {
+                SwingUtilities.invokeLater(() -> onWritesFlushed(conflicts));
+            }
+
+            @Override
+            public void failed(Exception e) {
+                SwingUtilities.invokeLater(() -> onWritesFailed(e));
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                repository.close();
+            } catch (SQLException e) {
+                System.err.println("退出时保存修改失败: " + e.getMessage());
+            }
+            if (pool != null) pool.close();
+            if (backups != null) backups.close();
+        }));
+        restorePending();
+    }
+
+    private static BackupManager newBackupManager() {
+        return new BackupManager(Paths.get(DB_FILE), Paths.get(BACKUP_DIR), BACKUP_KEEP);
+    }
+
+    // 上次安排了恢复时先在后台恢复，此时还没有打开任何连接；恢复失败时提示并继续使用原数据库
+    private void restorePending() {
+        if (backups == null || !backups.restoreScheduled()) {
+            openDatabase();
+            return;
+        }
+        progressBar.setIndeterminate(false);
+        progressBar.setValue(0);
+        int[] shown = {-1};
+        CompletableFuture<BackupManager.Snapshot> restore = backups.restorePending((phase, done, total) -> {
+            int percent = total == 0 ? 100 : (int) (done * 100 / total);
+            if (percent == shown[0]) return;
+            shown[0] = percent;
+            SwingUtilities.invokeLater(() -> {
+                progressBar.setValue(percent);
+                statusLabel.setText("正在从备份恢复数据库... " + percent + "%");
+            });
+        });
+        runAsync(restore.handle((snapshot, error) -> error), "正在从备份恢复数据库...", false, "", error -> {
+            progressBar.setIndeterminate(true);
+            if (error != null) {
+                Throwable cause = StudentRepository.unwrap(error);
+                LOG.log(Level.WARNING, "从备份恢复失败", cause);
+                showError("从备份恢复失败，仍使用原数据库: " + cause.getMessage());
+            }
+            openDatabase();
+        });
+    }
+
+    // 数据库结构升级完成后读取登记的课程，再初始刷新表格；之后开始定期自动备份
+    private void openDatabase() {
+        runAsync(repository.migrateSchema().thenCompose(v -> repository.courses()), "正在初始化数据库...", false,
+                "数据库初始化失败: ", courses -> {
+                    applyCourses(courses);
+                    refreshTable();
+                    if (backups != null) backups.startAutomatic(AUTO_BACKUP_INTERVAL);
+                });
+    }
+
+    // 登记的课程作为成绩列排在百分位之后；列重建后重新设置渲染器
+    private void applyCourses(CourseRegistry courses) {
+        this.courses = courses;
+        tableModel.setCourses(courses);
+        pagedModel.setCourses(courses);
+        statisticsPanel.setCourseNames(courses.names());
+        applyCenterRenderer();
+    }
+
+    // 登记新课程：只写 courses 表，学生表不变，新列在录入成绩前为空
+    private void addCourse() {
+        String name = JOptionPane.showInputDialog(this, "课程名称:", "添加课程", JOptionPane.PLAIN_MESSAGE);
+        if (name == null || name.trim().isEmpty()) return;
+        runAsync(repository.addCourse(name.trim()), "正在添加课程...", false, "添加课程失败: ", courses -> {
+            applyCourses(courses);
+            refreshStatistics();
+        });
+    }
+
+    private void applyCenterRenderer() {
+        for (int i = 0; i < studentTable.getColumnCount(); i++) {
+            studentTable.getColumnModel().getColumn(i).setCellRenderer(centerRenderer);
+        }
+    }
+
+    // 切换表格模型，setModel 会重建列，需要重新设置渲染器
+    private void installModel(StudentRows model, RowSorter<? extends TableModel> rowSorter) {
+        rows = model;
+        if (studentTable.getModel() == model) return;
+        studentTable.setRowSorter(null);
+        studentTable.setModel(model);
+        studentTable.setRowSorter(rowSorter);
+        applyCenterRenderer();
+    }
+
+    // 设置全局字体
+    public static void setUIFont(Font f) {
+        UiTheme.installFont(f);
+    }
+
+    // 创建美观按钮，各按钮共用字体、边框和悬停效果
+    private JButton createButton(String text) {
+        JButton btn = new JButton(text);
+        btn.setFont(UiTheme.FONT);
+        btn.setFocusPainted(false);
+        btn.setBackground(Color.WHITE);
+        btn.setBorder(UiTheme.BUTTON_BORDER);
+        btn.setPreferredSize(new Dimension(100, 32));
+        btn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        btn.addMouseListener(BUTTON_HOVER);
+        return btn;
+    }
+
+    // 在后台执行数据库操作，完成后回到 EDT 处理结果
+    private <T> CompletableFuture<T> runAsync(CompletableFuture<T> future, String status, boolean cancellable,
+                                              String errorPrefix, Consumer<T> onSuccess) {
+        pending.add(future);
+        if (cancellable) {
+            cancellableTasks.add(future);
+        }
+        updateProgress(status);
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            pending.remove(future);
+            cancellableTasks.remove(future);
+            try {
+                if (future.isCancelled()) return;
+                if (error != null) {
+                    Throwable cause = StudentRepository.unwrap(error);
+                    if (!(cause instanceof CancellationException)) {
+                        LOG.log(Level.WARNING, errorPrefix + cause.getMessage(), cause);
+                        showError(errorPrefix + cause.getMessage());
+                    }
+                    return;
+                }
+                onSuccess.accept(result);
+            } finally {
+                updateProgress(null);
+            }
+        }));
+        return future;
+    }
+
+    // 表格只显示最新一次加载的结果，旧的加载直接取消
+    private void loadTable(CompletableFuture<StudentColumns> load, String status, String errorPrefix,
+                           Consumer<StudentColumns> onLoaded) {
+        if (tableLoad != null) {
+            tableLoad.cancel(false);
+        }
+        tableLoad = load;
+        runAsync(load, status, true, errorPrefix, columns -> {
+            if (tableLoad == load) {
+                fillTable(columns);
+                onLoaded.accept(columns);
+            }
+        });
+    }
+
+    private void updateProgress(String status) {
+        if (status != null) {
+            statusLabel.setText(status);
+        } else if (pending.isEmpty()) {
+            statusLabel.setText(resultSummary());
+        }
+        progressBar.setVisible(!pending.isEmpty());
+        cancelButton.setEnabled(!cancellableTasks.isEmpty());
+    }
+
+    private String resultSummary() {
+        int unsaved = repository.pendingWrites();
+        String suffix = unsaved == 0 ? "" : writeFailing ? "（" + unsaved + " 项修改保存失败，稍后重试）"
+                : "（" + unsaved + " 项修改待保存）";
+        if (!dirtyRows.isEmpty()) {
+            suffix += "（" + dirtyRows.size() + " 名学生的成绩已修改，尚未保存）";
+        }
+        if (shownKeyword == null) {
+            return "共 " + rows.getRowCount() + " 条记录" + suffix;
+        }
+        int rowCount = rows.getRowCount();
+        return (rowCount == 0 ? "未找到匹配的学生信息" : "找到 " + rowCount + " 条匹配的学生信息") + suffix;
+    }
+
+    private void onWritesFlushed(List<StudentDao.Change> conflicts) {
+        writeFailing = false;
+        updateProgress(null);
+        if (conflicts.isEmpty()) return;
+        showConflicts(conflicts);
+    }
+
+    // 冲突的修改没有写入，重新加载表格以显示库中的实际内容
+    private void showConflicts(List<StudentDao.Change> conflicts) {
+        StringBuilder msg = new StringBuilder("以下学生已被其他途径修改、删除或学号已存在，本次修改未保存:\n");
+        for (int i = 0; i < conflicts.size(); i++) {
+            if (i == MAX_LISTED_CONFLICTS) {
+                msg.append("……共 ").append(conflicts.size()).append(" 个\n");
+                break;
+            }
+            StudentDao.Change change = conflicts.get(i);
+            String action = change.before == null ? "添加" : change.after == null ? "删除" : "修改";
+            msg.append(action).append(" 学号 ").append(change.getId()).append('\n');
+        }
+        showError(msg.toString());
+        refreshTable();
+        refreshStatistics();
+    }
+
+    // 整批写入失败时修改仍在队列中并会重试，连续失败只提示一次
+    private void onWritesFailed(Exception e) {
+        if (!writeFailing) {
+            writeFailing = true;
+            showError("保存修改失败，将稍后重试: " + e.getMessage());
+        }
+        updateProgress(null);
+    }
+
+    // 写入队列中的修改后退出；写入失败时由用户决定是否放弃这些修改
+    private void closeWindow() {
+        if (studentTable.isEditing() && !studentTable.getCellEditor().stopCellEditing()) return;
+        if (!dirtyRows.isEmpty()) {
+            int choice = JOptionPane.showConfirmDialog(this,
+                    dirtyRows.size() + " 名学生的成绩修改尚未保存，保存后退出吗?", "退出",
+                    JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE);
+            if (choice == JOptionPane.CANCEL_OPTION || choice == JOptionPane.CLOSED_OPTION) return;
+            if (choice == JOptionPane.YES_OPTION) {
+                saveAll(this::closeWindow);
+                return;
+            }
+            dirtyRows.clear();
+        }
+        setEnabled(false);
+        updateProgress("正在保存修改...");
+        repository.flushWrites().whenComplete((written, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                setEnabled(true);
+                updateProgress(null);
+                int choice = JOptionPane.showConfirmDialog(this,
+                        "保存修改失败: " + StudentRepository.unwrap(error).getMessage()
+                                + "\n放弃 " + repository.pendingWrites() + " 项未保存的修改并退出吗?",
+                        "退出", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                if (choice != JOptionPane.YES_OPTION) return;
+            }
+            dispose();
+            System.exit(0);
+        }));
+    }
+
+    private void cancelRunningTasks() {
+        for (CompletableFuture<?> future : new ArrayList<>(cancellableTasks)) {
+            future.cancel(false);
+        }
+    }
+
+    // 后台重新统计全校名次；统计期间有修改时结束后再统计一次
+    private void loadRanking() {
+        if (rankingLoad != null) {
+            rankingLoad.cancel(false);
+        }
+        int edits = rankingEdits;
+        CompletableFuture<RankingEngine> load = repository.loadRanking();
+        rankingLoad = load;
+        runAsync(load, "正在统计名次...", false, "统计名次失败: ", engine -> {
+            if (rankingLoad != load) return;
+            rankingLoad = null;
+            if (edits != rankingEdits) {
+                loadRanking();
+                return;
+            }
+            ranking = engine;
+            applyRanking();
+        });
+    }
+
+    private void applyRanking() {
+        tableModel.setRanking(ranking, rankMetric);
+        pagedModel.setRanking(ranking, rankMetric);
+    }
+
+    // removed/added 为修改前后的学生，新增时 removed 为 null，删除时 added 为 null
+    private void updateRanking(Student removed, Student added) {
+        updateRanking(Collections.singletonList(new StudentDao.Change(removed, added)));
+    }
+
+    private void updateRanking(List<StudentDao.Change> changes) {
+        rankingEdits++;
+        if (ranking == null) return;
+        for (StudentDao.Change change : changes) {
+            if (change.before != null) ranking.remove(change.before);
+            if (change.after != null) ranking.add(change.after);
+        }
+        applyRanking();
+    }
+
+    private void setRankMetric(int metric) {
+        rankMetric = metric;
+        // 分页模型按名次列排序时，换了排名依据后对应的 ORDER BY 也不同
+        if (rows == pagedModel && !pagedSorter.getSortKeys().isEmpty()
+                && pagedSorter.getSortKeys().get(0).getColumn() >= StudentTableModel.TOTAL_COLUMN) {
+            pagedSorter.setSortKeys(null);
+        }
+        applyRanking();
+    }
+
+    // 刷新表格：数据量小时整体加载到内存，否则切换到分页模型（沿用刚读到的行数，直接读第一页）
+    // 名次统计要扫描全表，等第一屏数据显示后再开始，不与表格加载争用连接和 CPU
+    private void refreshTable() {
+        if (tableLoad != null) {
+            tableLoad.cancel(false);
+        }
+        tableGeneration++;
+        shownKeyword = null;
+        CompletableFuture<Integer> count = repository.count();
+        tableLoad = count;
+        runAsync(count, "正在加载学生数据...", true, "读取数据失败: ", n -> {
+            if (tableLoad != count) return;
+            if (n > PAGED_THRESHOLD) {
+                installModel(pagedModel, pagedSorter);
+                runAsync(pagedModel.reload(n), "正在加载学生数据...", false, "读取数据失败: ", this::onTableShown);
+            } else {
+                loadTable(repository.findAllColumns(n), "正在加载学生数据...", "读取数据失败: ",
+                        columns -> onTableShown(columns.size()));
+            }
+        });
+    }
+
+    private void onTableShown(int rowCount) {
+        loadRanking();
+        if (!dataShown) {
+            dataShown = true;
+            recordStartup("startup.data", rowCount);
+        }
+    }
+
+    // 启动计时：窗口第一次绘制
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!painted) {
+            painted = true;
+            recordStartup("startup.visible", 0);
+        }
+    }
+
+    // 记下自进程启动以来的时间（可在诊断页查看）；--exit-after-load 时两项都有后输出并退出
+    private void recordStartup(String name, long rowCount) {
+        Optional<Instant> started = ProcessHandle.current().info().startInstant();
+        if (!started.isPresent()) return;
+        long millis = System.currentTimeMillis() - started.get().toEpochMilli();
+        Metrics.operation(name).record(TimeUnit.MILLISECONDS.toNanos(millis), rowCount, false);
+        if (name.equals("startup.visible")) {
+            visibleMillis = millis;
+        } else {
+            dataMillis = millis;
+            dataRows = rowCount;
+        }
+        // 第一屏数据也可能在第一次绘制之前就已读到
+        if (exitAfterLoad && painted && dataShown) {
+            System.out.println("startup visible=" + visibleMillis + " data=" + dataMillis + " rows=" + dataRows);
+            closeWindow();
+        }
+    }
+
+    private void fillTable(StudentColumns columns) {
+        try (Metrics.Timer timer = Metrics.start("table.fill")) {
+            installModel(tableModel, sorter);
+            tableModel.setColumns(columns);
+            timer.rows(tableModel.getRowCount());
+        }
+    }
+
+    // 添加学生
+    private void addStudent() {
+        JPanel panel = new JPanel(new GridLayout(7, 2, 8, 8));
+        panel.setBackground(UiTheme.PANEL_BACKGROUND);
+        JTextField idField = new JTextField();
+        JTextField nameField = new JTextField();
+        JTextField classField = new JTextField();
+        JTextField mathField = new JTextField();
+        JTextField englishField = new JTextField();
+        JTextField computerField = new JTextField();
+        JTextField peField = new JTextField();
+
+        panel.add(new JLabel("学号:"));
+        panel.add(idField);
+        panel.add(new JLabel("姓名:"));
+        panel.add(nameField);
+        panel.add(new JLabel("班级:"));
+        panel.add(classField);
+        panel.add(new JLabel("高等数学:"));
+        panel.add(mathField);
+        panel.add(new JLabel("大学英语:"));
+        panel.add(englishField);
+        panel.add(new JLabel("计算机导论:"));
+        panel.add(computerField);
+        panel.add(new JLabel("体育:"));
+        panel.add(peField);
+
+        setDialogFont(panel);
+
+        int result = JOptionPane.showConfirmDialog(
+                this, panel, "添加学生信息",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+
+        if (result == JOptionPane.OK_OPTION) {
+            try {
+                // 验证学号是否为空
+                String id = idField.getText().trim();
+                if (id.isEmpty()) {
+                    showError("学号不能为空!");
+                    return;
+                }
+
+                // 验证姓名是否为空
+                String name = nameField.getText().trim();
+                if (name.isEmpty()) {
+                    showError("姓名不能为空!");
+                    return;
+                }
+
+                // 验证班级是否为空
+                String className = classField.getText().trim();
+                if (className.isEmpty()) {
+                    showError("班级不能为空!");
+                    return;
+                }
+
+                // 验证成绩
+                int math = Integer.parseInt(mathField.getText());
+                int english = Integer.parseInt(englishField.getText());
+                int computer = Integer.parseInt(computerField.getText());
+                int pe = Integer.parseInt(peField.getText());
+
+                if (!Student.isValidGrade(math) || !Student.isValidGrade(english) ||
+                        !Student.isValidGrade(computer) || !Student.isValidGrade(pe)) {
+                    showError("成绩必须在0-100之间!");
+                    return;
+                }
+
+                // 验证学号是否已存在，再插入
+                Student student = new Student(id, name, className, math, english, computer, pe);
+                runAsync(repository.exists(id), "正在检查学号...", false, "检查学号失败: ", exists -> {
+                    if (exists) {
+                        showError("学号已存在，请使用其他学号!");
+                        return;
+                    }
+                    insertStudent(student);
+                });
+            } catch (NumberFormatException e) {
+                showError("成绩必须为数字!");
+            }
+        }
+    }
+
+    // 统计页可见时重新读取汇总，数据变化后调用
+    private void refreshStatistics() {
+        if (tabs.getSelectedComponent() != statisticsPanel) return;
+        runAsync(repository.gradeStats(), "正在读取成绩统计...", false, "读取成绩统计失败: ",
+                statisticsPanel::setStats);
+    }
+
+    // 插入学生
+    // 插入、修改和删除先更新表格，写入由队列在后台合并完成
+    private void insertStudent(Student student) {
+        repository.insert(student);
+        rows.addStudent(student);
+        updateRanking(null, student);
+        recordAction(new StudentDao.Change(null, copyOf(student)));
+        refreshStatistics();
+        updateProgress(null);
+        JOptionPane.showMessageDialog(this, "学生添加成功!", "成功", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void saveAll() {
+        saveAll(() -> { });
+    }
+
+    // 把表格中就地修改的成绩在一个事务中写入，成功后调用 onSaved；冲突的行放弃修改并重新加载
+    private void saveAll(Runnable onSaved) {
+        if (studentTable.isEditing() && !studentTable.getCellEditor().stopCellEditing()) return;
+        if (saving != null) return;
+        if (dirtyRows.isEmpty()) {
+            onSaved.run();
+            return;
+        }
+        List<StudentDao.Change> changes = dirtyRows.changes();
+        CompletableFuture<List<StudentDao.Change>> save = repository.saveAll(changes);
+        saving = save;
+        saveAllButton.setEnabled(false);
+        runAsync(save, "正在保存 " + changes.size() + " 名学生的成绩...", false, "保存失败: ", conflicts -> {
+            Set<String> conflicted = new HashSet<>();
+            for (StudentDao.Change change : conflicts) {
+                conflicted.add(change.getId());
+            }
+            List<StudentDao.Change> written = new ArrayList<>();
+            List<StudentDao.Change> action = new ArrayList<>();
+            for (StudentDao.Change change : changes) {
+                if (conflicted.contains(change.getId())) {
+                    dirtyRows.remove(change.getId());
+                } else {
+                    dirtyRows.saved(change);
+                    written.add(change);
+                    action.add(new StudentDao.Change(copyOf(change.before), copyOf(change.after)));
+                }
+            }
+            updateRanking(written);
+            recordAction(action);
+            studentTable.repaint();
+            if (!conflicts.isEmpty()) {
+                showConflicts(conflicts);
+                return;
+            }
+            refreshStatistics();
+            onSaved.run();
+        });
+        save.whenComplete((conflicts, error) -> SwingUtilities.invokeLater(() -> {
+            saving = null;
+            saveAllButton.setEnabled(!dirtyRows.isEmpty());
+        }));
+    }
+
+    private void recordAction(StudentDao.Change change) {
+        recordAction(Collections.singletonList(change));
+    }
+
+    // 新的操作进入撤销栈并清空重做栈，只保留最近 MAX_UNDO 项
+    private void recordAction(List<StudentDao.Change> action) {
+        if (action.isEmpty()) return;
+        undoStack.push(action);
+        if (undoStack.size() > MAX_UNDO) undoStack.removeLast();
+        redoStack.clear();
+        updateUndoButtons();
+    }
+
+    private void undo() {
+        replay(undoStack, redoStack, true);
+    }
+
+    private void redo() {
+        replay(redoStack, undoStack, false);
+    }
+
+    // 撤销按相反顺序写入各修改的逆操作，重做原样再写一次；与其他修改一样经过写入队列，
+    // 库中内容已被其他途径改动时作为冲突提示并重新加载。涉及的行上未保存的成绩一并放弃
+    private void replay(Deque<List<StudentDao.Change>> from, Deque<List<StudentDao.Change>> to, boolean inverse) {
+        if (studentTable.isEditing() && !studentTable.getCellEditor().stopCellEditing()) return;
+        List<StudentDao.Change> action = from.poll();
+        if (action == null) return;
+        List<StudentDao.Change> applied = new ArrayList<>(action.size());
+        for (int i = 0; i < action.size(); i++) {
+            StudentDao.Change change = action.get(inverse ? action.size() - 1 - i : i);
+            Student before = inverse ? change.after : change.before;
+            Student after = inverse ? change.before : change.after;
+            before = before == null ? null : copyOf(before);
+            after = after == null ? null : copyOf(after);
+            dirtyRows.remove(change.getId());
+            if (before == null) {
+                repository.insert(after);
+                rows.addStudent(after);
+            } else if (after == null) {
+                repository.delete(before);
+                rows.removeStudent(before.getId());
+            } else {
+                repository.update(before, after);
+                rows.updateStudent(after);
+            }
+            applied.add(new StudentDao.Change(before, after));
+        }
+        to.push(action);
+        updateRanking(applied);
+        studentTable.repaint();
+        refreshStatistics();
+        updateUndoButtons();
+        updateProgress(pending.isEmpty() ? (inverse ? "已撤销: " : "已重做: ") + describeAction(action) : null);
+    }
+
+    private static String describeAction(List<StudentDao.Change> action) {
+        if (action.size() > 1) return action.size() + " 名学生的修改";
+        StudentDao.Change change = action.get(0);
+        String verb = change.before == null ? "添加" : change.after == null ? "删除" : "修改";
+        return verb + "学号 " + change.getId();
+    }
+
+    private void updateUndoButtons() {
+        undoButton.setEnabled(!undoStack.isEmpty());
+        redoButton.setEnabled(!redoStack.isEmpty());
+    }
+
+    // 打开时按所选学生过滤，未选择时显示全部学生最近的修改
+    private void showChangeLog() {
+        String id = null;
+        int viewRow = studentTable.getSelectedRow();
+        if (viewRow != -1) id = rows.getIdAt(studentTable.convertRowIndexToModel(viewRow));
+        new ChangeLogDialog(this, repository, courses, id).setVisible(true);
+    }
+
+    // 修改学生
+    private void editStudent() {
+        int viewRow = studentTable.getSelectedRow();
+        if (viewRow == -1) {
+            showError("请先选择学生!");
+            return;
+        }
+        int modelRow = studentTable.convertRowIndexToModel(viewRow);
+        String id = rows.getIdAt(modelRow);
+        if (id == null) {
+            showError("请先选择学生!");
+            return;
+        }
+        StudentDao.Change unsaved = dirtyRows.get(id);
+        if (unsaved != null) {
+            // 该行有未保存的成绩：对话框显示修改后的内容，确定后连同这些修改一起保存
+            showEditDialog(unsaved.before, copyOf(unsaved.after));
+            return;
+        }
+        runAsync(repository.findById(id), "正在读取学生信息...", true, "查询学生失败: ", student -> {
+            if (student == null) {
+                showError("未找到该学生!");
+                return;
+            }
+            showEditDialog(copyOf(student), student);
+        });
+    }
+
+    private static Student copyOf(Student s) {
+        Student copy = new Student(s.getId(), s.getName(), s.getClassName(),
+                s.getMath(), s.getEnglish(), s.getComputer(), s.getPe());
+        copy.setExtraScores(s.getExtraScores());
+        return copy;
+    }
+
+    // 对话框直接修改 student，before 为库中修改前的内容，用于调整名次和检查写入冲突
+    private void showEditDialog(Student before, Student student) {
+        JPanel panel = new JPanel(new GridLayout(7, 2, 8, 8));
+        panel.setBackground(UiTheme.PANEL_BACKGROUND);
+        JTextField idField = new JTextField(student.getId());
+        JTextField nameField = new JTextField(student.getName());
+        JTextField classField = new JTextField(student.getClassName());
+        JTextField mathField = new JTextField(String.valueOf(student.getMath()));
+        JTextField englishField = new JTextField(String.valueOf(student.getEnglish()));
+        JTextField computerField = new JTextField(String.valueOf(student.getComputer()));
+        JTextField peField = new JTextField(String.valueOf(student.getPe()));
+
+        idField.setEditable(false);
+
+        panel.add(new JLabel("学号:"));
+        panel.add(idField);
+        panel.add(new JLabel("姓名:"));
+        panel.add(nameField);
+        panel.add(new JLabel("班级:"));
+        panel.add(classField);
+        panel.add(new JLabel("高等数学:"));
+        panel.add(mathField);
+        panel.add(new JLabel("大学英语:"));
+        panel.add(englishField);
+        panel.add(new JLabel("计算机导论:"));
+        panel.add(computerField);
+        panel.add(new JLabel("体育:"));
+        panel.add(peField);
+
+        setDialogFont(panel);
+
+        int result = JOptionPane.showConfirmDialog(
+                this, panel, "修改学生信息",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+
+        if (result == JOptionPane.OK_OPTION) {
+            try {
+                // 验证姓名是否为空
+                String name = nameField.getText().trim();
+                if (name.isEmpty()) {
+                    showError("姓名不能为空!");
+                    return;
+                }
+
+                // 验证班级是否为空
+                String className = classField.getText().trim();
+                if (className.isEmpty()) {
+                    showError("班级不能为空!");
+                    return;
+                }
+
+                // 验证成绩
+                int math = Integer.parseInt(mathField.getText());
+                int english = Integer.parseInt(englishField.getText());
+                int computer = Integer.parseInt(computerField.getText());
+                int pe = Integer.parseInt(peField.getText());
+
+                if (!Student.isValidGrade(math) || !Student.isValidGrade(english) ||
+                        !Student.isValidGrade(computer) || !Student.isValidGrade(pe)) {
+                    showError("成绩必须在0-100之间!");
+                    return;
+                }
+
+                student.setName(name);
+                student.setClassName(className);
+                student.setMath(math);
+                student.setEnglish(english);
+                student.setComputer(computer);
+                student.setPe(pe);
+                updateStudent(before, student);
+            } catch (NumberFormatException e) {
+                showError("成绩必须为数字!");
+            }
+        }
+    }
+
+    // 更新学生
+    private void updateStudent(Student before, Student student) {
+        dirtyRows.remove(student.getId());
+        repository.update(before, student);
+        rows.updateStudent(student);
+        updateRanking(before, student);
+        recordAction(new StudentDao.Change(copyOf(before), copyOf(student)));
+        refreshStatistics();
+        updateProgress(null);
+        JOptionPane.showMessageDialog(this, "学生信息修改成功!", "成功", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // 删除学生
+    private void deleteStudent() {
+        int viewRow = studentTable.getSelectedRow();
+        if (viewRow == -1) {
+            showError("请先选择学生!");
+            return;
+        }
+        int modelRow = studentTable.convertRowIndexToModel(viewRow);
+        String id = rows.getIdAt(modelRow);
+        String name = (String) rows.getValueAt(modelRow, 1);
+        if (id == null) {
+            showError("请先选择学生!");
+            return;
+        }
+        // 有未保存的成绩时，库中和名次表里仍是修改前的内容
+        StudentDao.Change unsaved = dirtyRows.get(id);
+        Student removed = unsaved != null ? unsaved.before : rows.getStudentAt(modelRow);
+
+        int confirm = JOptionPane.showConfirmDialog(
+                this, "确定要删除学生 " + name + " (学号: " + id + ") 吗?", "确认删除",
+                JOptionPane.YES_NO_OPTION);
+
+        if (confirm == JOptionPane.YES_OPTION) {
+            dirtyRows.remove(id);
+            repository.delete(removed);
+            rows.removeStudent(id);
+            updateRanking(removed, null);
+            recordAction(new StudentDao.Change(copyOf(removed), null));
+            refreshStatistics();
+            updateProgress(null);
+            JOptionPane.showMessageDialog(this, "学生删除成功!", "成功", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    // 批量导入 CSV/TSV 文件或旧版 students.dat，进度条显示已读取的比例，完成后给出逐行错误报告
+    private void importStudents() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("选择要导入的文件");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV/TSV 文件 (*.csv, *.tsv, *.txt)", "csv", "tsv", "txt"));
+        chooser.addChoosableFileFilter(new FileNameExtensionFilter("旧版数据文件 (*.dat)", "dat"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+
+        CompletableFuture<StudentImporter.Result> task = repository.importFile(file, (read, total, rowsDone) ->
+                SwingUtilities.invokeLater(() -> {
+                    int percent = total == 0 ? 100 : (int) (read * 100 / total);
+                    progressBar.setValue(percent);
+                    statusLabel.setText("正在导入... 已处理 " + rowsDone + " 行 (" + percent + "%)");
+                }));
+        progressBar.setIndeterminate(false);
+        progressBar.setValue(0);
+        task.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            progressBar.setIndeterminate(true);
+            // 取消前已提交的块仍然有效
+            if (task.isCancelled()) {
+                refreshTable();
+                refreshStatistics();
+            }
+        }));
+        runAsync(task, "正在导入...", true, "导入失败: ", result -> {
+            refreshTable();
+            refreshStatistics();
+            showImportReport(result);
+        });
+    }
+
+    private void showImportReport(StudentImporter.Result result) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("导入完成：成功 ").append(result.imported).append(" 行，失败 ").append(result.rejected).append(" 行\n");
+        if (!result.ignoredColumns.isEmpty()) {
+            sb.append("以下列不是已登记的课程，未导入（可先添加课程再重新导入）: ")
+                    .append(String.join("，", result.ignoredColumns)).append('\n');
+        }
+        if (!result.errors.isEmpty()) {
+            sb.append("\n");
+            for (StudentImporter.RowError error : result.errors) {
+                sb.append("第 ").append(error.line).append(" 行: ").append(error.message).append('\n');
+            }
+            if (result.rejected > result.errors.size()) {
+                sb.append("……另有 ").append(result.rejected - result.errors.size()).append(" 行错误未列出\n");
+            }
+        }
+        boolean warn = result.rejected > 0 || !result.ignoredColumns.isEmpty();
+        JTextArea textArea = new JTextArea(sb.toString(), result.errors.isEmpty() ? 3 : 15, 40);
+        textArea.setEditable(false);
+        textArea.setLineWrap(true);
+        textArea.setFont(UiTheme.FONT);
+        JOptionPane.showMessageDialog(this, new JScrollPane(textArea), "导入结果",
+                warn ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // 导出全部学生、当前查询结果或某门课程的不及格名单，格式由文件类型决定
+    private void exportStudents() {
+        List<String> choices = new ArrayList<>();
+        choices.add("全部学生");
+        String keyword = searchField.getText().trim();
+        if (!keyword.isEmpty()) {
+            choices.add("当前查询结果");
+        }
+        String[] courseNames = courses.names();
+        for (String course : courseNames) {
+            choices.add(course + "不及格名单");
+        }
+        String choice = (String) JOptionPane.showInputDialog(
+                this, "请选择要导出的数据:", "导出数据",
+                JOptionPane.PLAIN_MESSAGE, null, choices.toArray(), choices.get(0));
+        if (choice == null) return;
+        StudentExporter.Source source;
+        if (choice.equals("全部学生")) {
+            source = StudentExporter.Source.roster();
+        } else if (choice.equals("当前查询结果")) {
+            source = StudentExporter.Source.search(keyword);
+        } else {
+            source = StudentExporter.Source.failing(choices.indexOf(choice) - (choices.size() - courseNames.length));
+        }
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("导出到文件");
+        chooser.setAcceptAllFileFilterUsed(false);
+        List<FileNameExtensionFilter> filters = new ArrayList<>();
+        for (StudentExporter.Format format : StudentExporter.Format.values()) {
+            FileNameExtensionFilter filter = new FileNameExtensionFilter(format.description, format.extension);
+            filters.add(filter);
+            chooser.addChoosableFileFilter(filter);
+        }
+        chooser.setFileFilter(filters.get(0));
+        chooser.setSelectedFile(new File(choice + "." + StudentExporter.Format.CSV.extension));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        StudentExporter.Format format = StudentExporter.Format.values()[filters.indexOf(chooser.getFileFilter())];
+        Path file = chooser.getSelectedFile().toPath();
+        if (!file.getFileName().toString().toLowerCase().endsWith("." + format.extension)) {
+            file = file.resolveSibling(file.getFileName() + "." + format.extension);
+        }
+        if (Files.exists(file)) {
+            int confirm = JOptionPane.showConfirmDialog(this, "文件 " + file.getFileName() + " 已存在，是否覆盖?",
+                    "确认覆盖", JOptionPane.YES_NO_OPTION);
+            if (confirm != JOptionPane.YES_OPTION) return;
+        }
+
+        Path target = file;
+        runAsync(repository.export(source, target, format), "正在导出" + choice + "...", true, "导出失败: ",
+                n -> JOptionPane.showMessageDialog(this, "已导出 " + n + " 条记录到\n" + target,
+                        "导出完成", JOptionPane.INFORMATION_MESSAGE));
+    }
+
+    // 查询学生：输入时自动触发，结果分块流入表格
+    // 新关键字包含上一次已完整显示的关键字时，直接在内存中过滤当前结果
+    private void searchStudent() {
+        searchTimer.stop();
+        String keyword = searchField.getText().trim();
+        if (keyword.isEmpty()) {
+            if (shownKeyword != null || tableLoad != null && !tableLoad.isDone()) {
+                refreshTable();
+            }
+            return;
+        }
+        if (keyword.equals(shownKeyword) && rows == tableModel) {
+            return;
+        }
+        if (shownKeyword != null && rows == tableModel
+                && keyword.toLowerCase().contains(shownKeyword.toLowerCase())) {
+            tableModel.retainMatching(keyword);
+            shownKeyword = keyword;
+            updateProgress(null);
+            return;
+        }
+
+        if (tableLoad != null) {
+            tableLoad.cancel(false);
+        }
+        int generation = ++tableGeneration;
+        shownKeyword = null;
+        installModel(tableModel, sorter);
+        tableModel.setStudents(new ArrayList<>());
+        CompletableFuture<Integer> search = repository.search(keyword, chunk -> SwingUtilities.invokeLater(() -> {
+            if (generation == tableGeneration) {
+                try (Metrics.Timer timer = Metrics.start("table.append")) {
+                    tableModel.appendStudents(chunk);
+                    timer.rows(chunk.size());
+                }
+            }
+        }));
+        tableLoad = search;
+        runAsync(search, "正在查询...", true, "查询失败: ", total -> {
+            if (generation == tableGeneration) {
+                shownKeyword = keyword;
+            }
+        });
+    }
+
+    // 显示不及格名单：全部课程一次读出，在对话框中按课程和不及格门数筛选
+    private void showFailList() {
+        runAsync(repository.failReport(), "正在查询不及格名单...", true, "查询不及格名单失败: ",
+                report -> new FailReportDialog(this, report).setVisible(true));
+    }
+
+    // 统一弹窗字体
+    private void setDialogFont(JComponent comp) {
+        for (Component c : comp.getComponents()) {
+            c.setFont(UiTheme.FONT);
+            if (c instanceof JComponent) {
+                setDialogFont((JComponent) c);
+            }
+        }
+    }
+
+    private void toggleDiagnostics() {
+        if (diagnosticsPanel == null) {
+            diagnosticsPanel = new DiagnosticsPanel(pool, repository.cacheStats(), repository::pendingWrites);
+        }
+        int index = tabs.indexOfComponent(diagnosticsPanel);
+        if (index >= 0) {
+            tabs.removeTabAt(index);
+        } else {
+            tabs.addTab("诊断", diagnosticsPanel);
+            tabs.setSelectedComponent(diagnosticsPanel);
+        }
+    }
+
+    private void showError(String msg) {
+        JOptionPane.showMessageDialog(this, msg, "错误", JOptionPane.ERROR_MESSAGE);
+    }
+
+    // 无参数时使用本地数据库；--server [端口] [--bind 地址] 不显示界面，在 HTTP 接口上提供本地数据库，
+    // 默认只监听本机，--bind 0.0.0.0 等才对其他电脑开放；--remote http://主机:端口 连接这样的服务器；
+    // 两端都从环境变量 SMS_TOKEN 读取访问令牌；--restore 快照文件 先把本地数据库恢复到该快照，可以与 --server 连用；
+    // --exit-after-load 显示第一屏数据后输出启动耗时并退出，用于生成 CDS 归档（见 start.sh）和 StartupBenchmark
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[args.length - 1].equals("--exit-after-load")) {
+            exitAfterLoad = true;
+            args = Arrays.copyOf(args, args.length - 1);
+        }
+        if (args.length > 1 && args[0].equals("--restore")) {
+            try (BackupManager backups = newBackupManager()) {
+                backups.scheduleRestore(Paths.get(args[1]));
+            }
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = DEFAULT_SERVER_PORT;
+            InetAddress bind = InetAddress.getLoopbackAddress();
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--bind") && i + 1 < args.length) {
+                    bind = InetAddress.getByName(args[++i]);
+                } else {
+                    port = Integer.parseInt(args[i]);
+                }
+            }
+            runServer(new InetSocketAddress(bind, port));
+            return;
+        }
+        StudentStore remote = null;
+        if (args.length > 1 && args[0].equals("--remote")) {
+            remote = new RemoteStudentStore(URI.create(args[1]), accessToken(), POOL_SIZE);
+        }
+        StudentStore store = remote;
+        if (store == null) {
+            Thread preload = new Thread(StudentManagementSystem::preloadDriver, "sms-preload");
+            preload.setDaemon(true);
+            preload.start();
+        }
+        EdtMonitor.install();
+        SwingUtilities.invokeLater(() -> {
+            try {
+                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            StudentManagementSystem frame = store == null
+                    ? new StudentManagementSystem() : new StudentManagementSystem(store, null, null);
+            frame.setVisible(true);
+        });
+    }
+
+    // 加载 SQLite 驱动（解压并加载本地库，约 300 ms），与外观和窗口的创建同时进行；
+    // 只打开内存数据库，不碰 students.db，待恢复的快照不受影响。失败时打开数据库会再次报告
+    private static void preloadDriver() {
+        try {
+            // 只为加载驱动，连接随即关闭
+            DriverManager.getConnection("jdbc:sqlite::memory:").close();
+        } catch (SQLException e) {
+            LOG.log(Level.FINE, "预加载数据库驱动失败", e);
+        }
+    }
+
+    // 未设置或为空时为 null
+    private static String accessToken() {
+        String token = System.getenv(TOKEN_ENV);
+        return token == null || token.isEmpty() ? null : token;
+    }
+
+    private static void runServer(InetSocketAddress address) throws Exception {
+        String token = accessToken();
+        if (token == null && !address.getAddress().isLoopbackAddress()) {
+            System.err.println("警告: 未设置 " + TOKEN_ENV + "，网络上的任何人都可以读取和修改学生成绩");
+        }
+        BackupManager backups = newBackupManager();
+        BackupManager.Snapshot restored = backups.restorePending((phase, done, total) -> { }).join();
+        if (restored != null) {
+            System.out.println("已从备份恢复数据库: " + restored.file);
+        }
+        ConnectionPool pool = new ConnectionPool(DB_URL, SERVER_POOL_SIZE);
+        StudentRepository repository = new StudentRepository(new StudentDao(pool), SERVER_POOL_SIZE);
+        repository.migrateSchema().join();
+        StudentServer server = new StudentServer(repository, DB_URL, address, SERVER_THREADS, token);
+        Metrics.register("sms:type=ConnectionPool", pool);
+        Metrics.register("sms:type=StudentCache", repository.cacheStats());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                repository.close();
+            } catch (SQLException e) {
+                System.err.println("关闭服务器失败: " + e.getMessage());
+            }
+            pool.close();
+            backups.close();
+        }));
+        server.start();
+        backups.startAutomatic(AUTO_BACKUP_INTERVAL);
+        System.out.println("学生成绩服务器已启动: http://" + server.address().getHostString() + ":"
+                + server.address().getPort() + "/api/students");
+    }
+}
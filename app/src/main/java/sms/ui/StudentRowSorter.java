@@ -0,0 +1,320 @@
+package sms.ui;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 直接比较 StudentTableModel 列数组的排序器，不经过 getValueAt 装箱
+// 单列排序且键为小整数时（成绩、字典编码的姓名/班级）使用计数排序
+public class StudentRowSorter extends RowSorter<StudentTableModel> {
+    private static final int MAX_SORT_KEYS = 3;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final StudentTableModel model;
+    private List<SortKey> sortKeys = Collections.emptyList();
+    // 未排序时为 null，视图行号与模型行号相同
+    private int[] viewToModel;
+    private int[] modelToView;
+    // 当前排序键展开后的原始形式
+    private int[] keyColumns = new int[0];
+    private boolean[] keyDescending = new boolean[0];
+    private int[][] keyRanks = new int[0][];
+
+    public StudentRowSorter(StudentTableModel model) {
+        this.model = model;
+    }
+
+    @Override
+    public StudentTableModel getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        List<SortKey> keys = new ArrayList<>(sortKeys);
+        int existing = -1;
+        for (int i = 0; i < keys.size(); i++) {
+            if (keys.get(i).getColumn() == column) {
+                existing = i;
+                break;
+            }
+        }
+        if (existing == 0) {
+            SortOrder order = keys.get(0).getSortOrder() == SortOrder.ASCENDING
+                    ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+            keys.set(0, new SortKey(column, order));
+        } else {
+            if (existing > 0) keys.remove(existing);
+            keys.add(0, new SortKey(column, SortOrder.ASCENDING));
+        }
+        if (keys.size() > MAX_SORT_KEYS) {
+            keys = keys.subList(0, MAX_SORT_KEYS);
+        }
+        setSortKeys(keys);
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (viewToModel == null) {
+            checkIndex(index);
+            return index;
+        }
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (modelToView == null) {
+            checkIndex(index);
+            return index;
+        }
+        return modelToView[index];
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> newKeys = new ArrayList<>();
+        if (keys != null) {
+            for (SortKey key : keys) {
+                if (key.getSortOrder() != SortOrder.UNSORTED) newKeys.add(key);
+            }
+        }
+        if (newKeys.equals(sortKeys)) return;
+        sortKeys = Collections.unmodifiableList(newKeys);
+        fireSortOrderChanged();
+        sortAll();
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        sortAll();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        sortAll();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        if (!isSorted()) return;
+        int n = model.getRowCount();
+        // 模型只在末尾追加：新行单独排序后与已有顺序归并，不必整体重排
+        if (endRow == n - 1 && viewToModel.length == firstRow) {
+            int[] previous = viewToModel;
+            prepareKeys();
+            int added = endRow - firstRow + 1;
+            int[] fresh = new int[added];
+            for (int i = 0; i < added; i++) fresh[i] = firstRow + i;
+            if (added > 1) {
+                mergeSort(fresh, new int[added], 0, added);
+            }
+            int[] merged = new int[n];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < n; k++) {
+                if (j >= added || (i < previous.length && compare(previous[i], fresh[j]) <= 0)) {
+                    merged[k] = previous[i++];
+                } else {
+                    merged[k] = fresh[j++];
+                }
+            }
+            viewToModel = merged;
+            rebuildModelToView();
+            fireRowSorterChanged(previous);
+        } else {
+            sortAll();
+        }
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        if (!isSorted()) return;
+        if (firstRow == endRow && viewToModel.length == model.getRowCount() + 1) {
+            int[] previous = viewToModel.clone();
+            int[] shrunk = new int[viewToModel.length - 1];
+            int j = 0;
+            for (int modelRow : viewToModel) {
+                if (modelRow == firstRow) continue;
+                shrunk[j++] = modelRow > firstRow ? modelRow - 1 : modelRow;
+            }
+            viewToModel = shrunk;
+            rebuildModelToView();
+            fireRowSorterChanged(previous);
+        } else {
+            sortAll();
+        }
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        if (!isSorted()) return;
+        if (firstRow == endRow && viewToModel.length == model.getRowCount()) {
+            int[] previous = viewToModel.clone();
+            prepareKeys();
+            // 先移除该行，再按新值二分插回
+            int n = viewToModel.length;
+            int from = modelToView[firstRow];
+            System.arraycopy(viewToModel, from + 1, viewToModel, from, n - from - 1);
+            int pos = insertionPoint(viewToModel, n - 1, firstRow);
+            System.arraycopy(viewToModel, pos, viewToModel, pos + 1, n - 1 - pos);
+            viewToModel[pos] = firstRow;
+            rebuildModelToView();
+            fireRowSorterChanged(previous);
+        } else {
+            sortAll();
+        }
+    }
+
+    // 单元格事件只来自就地编辑，保持原有顺序，避免录入成绩时行跳走；点击表头或刷新时再按新值排序
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+    }
+
+    private boolean isSorted() {
+        return !sortKeys.isEmpty();
+    }
+
+    private void sortAll() {
+        int[] previous = viewToModel;
+        if (!isSorted()) {
+            viewToModel = null;
+            modelToView = null;
+        } else {
+            prepareKeys();
+            int n = model.getRowCount();
+            int range = model.sortKeyRange(keyColumns[0]);
+            if (keyColumns.length == 1 && range > 0) {
+                viewToModel = countingSort(n, range);
+            } else {
+                int[] order = new int[n];
+                for (int i = 0; i < n; i++) order[i] = i;
+                mergeSort(order, new int[n], 0, n);
+                viewToModel = order;
+            }
+            rebuildModelToView();
+        }
+        fireRowSorterChanged(previous);
+    }
+
+    private void prepareKeys() {
+        int k = sortKeys.size();
+        keyColumns = new int[k];
+        keyDescending = new boolean[k];
+        keyRanks = new int[k][];
+        for (int i = 0; i < k; i++) {
+            SortKey key = sortKeys.get(i);
+            keyColumns[i] = key.getColumn();
+            keyDescending[i] = key.getSortOrder() == SortOrder.DESCENDING;
+            keyRanks[i] = model.sortRanks(key.getColumn());
+        }
+    }
+
+    // 稳定的计数排序，相同键按模型行号升序
+    private int[] countingSort(int n, int range) {
+        int column = keyColumns[0];
+        int[] ranks = keyRanks[0];
+        boolean descending = keyDescending[0];
+        int[] start = new int[range + 1];
+        for (int row = 0; row < n; row++) {
+            int key = model.sortKey(column, ranks, row);
+            start[(descending ? range - 1 - key : key) + 1]++;
+        }
+        for (int i = 1; i <= range; i++) {
+            start[i] += start[i - 1];
+        }
+        int[] order = new int[n];
+        for (int row = 0; row < n; row++) {
+            int key = model.sortKey(column, ranks, row);
+            order[start[descending ? range - 1 - key : key]++] = row;
+        }
+        return order;
+    }
+
+    // 全序比较：排序键相同时按模型行号，保证与稳定排序结果一致
+    private int compare(int a, int b) {
+        for (int i = 0; i < keyColumns.length; i++) {
+            int c = model.compareRows(keyColumns[i], keyRanks[i], a, b);
+            if (c != 0) return keyDescending[i] ? -c : c;
+        }
+        return Integer.compare(a, b);
+    }
+
+    private int insertionPoint(int[] order, int length, int row) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(order[mid], row) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void mergeSort(int[] a, int[] aux, int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int v = a[i];
+                int j = i - 1;
+                while (j >= from && compare(a[j], v) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = v;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, aux, from, mid);
+        mergeSort(a, aux, mid, to);
+        if (compare(a[mid - 1], a[mid]) <= 0) return;
+        System.arraycopy(a, from, aux, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (i >= mid) {
+                a[k] = aux[j++];
+            } else if (j >= to || compare(aux[i], aux[j]) <= 0) {
+                a[k] = aux[i++];
+            } else {
+                a[k] = aux[j++];
+            }
+        }
+    }
+
+    private void rebuildModelToView() {
+        int n = viewToModel.length;
+        if (modelToView == null || modelToView.length != n) {
+            modelToView = new int[n];
+        }
+        for (int view = 0; view < n; view++) {
+            modelToView[viewToModel[view]] = view;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= model.getRowCount()) {
+            throw new IndexOutOfBoundsException("行号越界: " + index);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package sms.ui;
+
+import sms.data.RankingEngine;
+import sms.data.Student;
+
+import javax.swing.table.TableModel;
+
+// 学生表格使用的模型：全量内存模型或分页模型，界面只依赖这组操作
+public interface StudentRows extends TableModel {
+    String getIdAt(int row);
+
+    // 行尚未加载时为 null
+    Student getStudentAt(int row);
+
+    void addStudent(Student student);
+
+    void updateStudent(Student student);
+
+    void removeStudent(String id);
+
+    // ranking 为 null 表示名次尚未统计，metric 见 RankingEngine
+    void setRanking(RankingEngine ranking, int metric);
+}
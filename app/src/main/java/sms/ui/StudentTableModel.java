@@ -0,0 +1,411 @@
+package sms.ui;
+
+import sms.data.CourseRegistry;
+import sms.data.RankingEngine;
+import sms.data.StringDictionary;
+import sms.data.Student;
+import sms.data.StudentColumns;
+import sms.data.StudentDao;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// 学生表格模型：按列存储，成绩为 byte 数组，姓名/班级为字典编码
+// 维护 学号 -> 行号 索引，单行增删改只触发一个细粒度事件
+// 登记的课程（CourseRegistry）依次排在百分位之后，每行的成绩向量原样保存，显示时才取出对应的字节
+public class StudentTableModel extends AbstractTableModel implements StudentRows {
+    static final String[] COLUMN_NAMES = {"学号", "姓名", "班级", "高等数学", "大学英语", "计算机导论", "体育",
+            "总分", "班级排名", "全校排名", "百分位"};
+    static final int ID_COLUMN = 0;
+    static final int NAME_COLUMN = 1;
+    static final int CLASS_COLUMN = 2;
+    static final int FIRST_SCORE_COLUMN = 3;
+    static final int COURSE_COUNT = 4;
+    // 以下各列由 RankingEngine 查表得出，名次和百分位按 rankMetric 指定的科目或总分计算
+    static final int TOTAL_COLUMN = 7;
+    static final int CLASS_RANK_COLUMN = 8;
+    static final int SCHOOL_RANK_COLUMN = 9;
+    static final int PERCENTILE_COLUMN = 10;
+    static final int FIRST_EXTRA_COLUMN = 11;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private int[] nameCodes = new int[INITIAL_CAPACITY];
+    private int[] classCodes = new int[INITIAL_CAPACITY];
+    // scores[课程][行]，成绩范围 0-100 用 byte 足够
+    private byte[][] scores = new byte[COURSE_COUNT][INITIAL_CAPACITY];
+    // 每行登记课程的成绩向量，与 Student 共用，修改时整体替换
+    private byte[][] extraScores = new byte[INITIAL_CAPACITY][];
+    private CourseRegistry courses = CourseRegistry.FIXED_ONLY;
+    private int size;
+    private StringDictionary names = new StringDictionary();
+    private StringDictionary classNames = new StringDictionary();
+    private final Map<String, Integer> rowById = new HashMap<>();
+    // 全校名次表，尚未统计完成时为 null，名次列显示为空
+    private RankingEngine ranking;
+    private int rankMetric = RankingEngine.TOTAL;
+    // 就地修改的成绩，为 null 时表格只读
+    private DirtyRows dirty;
+
+    @Override
+    public int getRowCount() {
+        return size;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount(courses);
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnName(courses, column);
+    }
+
+    static int columnCount(CourseRegistry courses) {
+        return FIRST_EXTRA_COLUMN + courses.extraCount();
+    }
+
+    static String columnName(CourseRegistry courses, int column) {
+        return column < FIRST_EXTRA_COLUMN ? COLUMN_NAMES[column] : courses.name(courseOf(column));
+    }
+
+    // 登记或重新读取课程后列数可能变化
+    public void setCourses(CourseRegistry courses) {
+        this.courses = courses;
+        fireTableStructureChanged();
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return columnClass(column);
+    }
+
+    static Class<?> columnClass(int column) {
+        if (column < FIRST_SCORE_COLUMN) return String.class;
+        return column == PERCENTILE_COLUMN ? Double.class : Integer.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case ID_COLUMN: return ids[row];
+            case NAME_COLUMN: return names.decode(nameCodes[row]);
+            case CLASS_COLUMN: return classNames.decode(classCodes[row]);
+            case TOTAL_COLUMN: return total(row);
+            case CLASS_RANK_COLUMN:
+                return ranking == null ? null : ranking.classRank(rankMetric, classNames.decode(classCodes[row]), metricValue(row));
+            case SCHOOL_RANK_COLUMN:
+                return ranking == null ? null : ranking.schoolRank(rankMetric, metricValue(row));
+            case PERCENTILE_COLUMN:
+                // 保留一位小数
+                return ranking == null ? null : Math.round(ranking.percentile(rankMetric, metricValue(row)) * 10) / 10.0;
+            default:
+                int score = getScoreAt(row, courseOf(column));
+                // 0-100 落在 Integer 缓存内，装箱不分配对象；登记课程没有成绩时显示为空
+                return score == Student.NO_SCORE ? null : Integer.valueOf(score);
+        }
+    }
+
+    private int total(int row) {
+        int total = 0;
+        for (byte[] column : scores) total += column[row];
+        return total;
+    }
+
+    private int metricValue(int row) {
+        return rankMetric == RankingEngine.TOTAL ? total(row) : scores[rankMetric][row];
+    }
+
+    // 成绩列可以就地修改，修改记入 dirty；之后加载的行用 dirty 中未保存的内容覆盖
+    public void setDirtyRows(DirtyRows dirty) {
+        this.dirty = dirty;
+    }
+
+    static boolean isScoreColumn(int column) {
+        return column >= FIRST_SCORE_COLUMN && column < FIRST_SCORE_COLUMN + COURSE_COUNT
+                || column >= FIRST_EXTRA_COLUMN;
+    }
+
+    // 成绩列对应的课程下标（见 CourseRegistry）
+    static int courseOf(int column) {
+        return column < FIRST_EXTRA_COLUMN ? column - FIRST_SCORE_COLUMN
+                : CourseRegistry.FIXED_COUNT + column - FIRST_EXTRA_COLUMN;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return dirty != null && isScoreColumn(column);
+    }
+
+    // value 为 GradeCellEditor 校验过的成绩
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        if (!isCellEditable(row, column) || !(value instanceof Integer) || !Student.isValidGrade((Integer) value)) return;
+        int score = (Integer) value;
+        int course = courseOf(column);
+        if (getScoreAt(row, course) == score) return;
+        Student before = getStudentAt(row);
+        Student after = getStudentAt(row);
+        after.setScore(course, score);
+        write(row, after);
+        dirty.edit(before, after);
+        fireCellEdited(this, row, column);
+    }
+
+    // 就地修改只发出单元格事件，排序器不会因此重排，录入时行不会跳走；同一行的总分和名次列一并重绘
+    static void fireCellEdited(AbstractTableModel model, int row, int column) {
+        for (int c : new int[]{column, TOTAL_COLUMN, CLASS_RANK_COLUMN, SCHOOL_RANK_COLUMN, PERCENTILE_COLUMN}) {
+            model.fireTableCellUpdated(row, c);
+        }
+    }
+
+    // 名次表或排名依据变化后所有行的名次列都可能改变
+    @Override
+    public void setRanking(RankingEngine ranking, int metric) {
+        this.ranking = ranking;
+        this.rankMetric = metric;
+        if (size > 0) {
+            fireTableRowsUpdated(0, size - 1);
+        }
+    }
+
+    @Override
+    public String getIdAt(int row) {
+        return ids[row];
+    }
+
+    // 登记课程没有成绩时为 Student.NO_SCORE
+    public int getScoreAt(int row, int course) {
+        return course < COURSE_COUNT ? scores[course][row] : Student.extraScore(extraScores[row], course - COURSE_COUNT);
+    }
+
+    @Override
+    public Student getStudentAt(int row) {
+        Student student = new Student(ids[row], names.decode(nameCodes[row]), classNames.decode(classCodes[row]),
+                scores[0][row], scores[1][row], scores[2][row], scores[3][row]);
+        student.setExtraScores(extraScores[row]);
+        return student;
+    }
+
+    public int indexOf(String id) {
+        Integer row = rowById.get(id);
+        return row == null ? -1 : row;
+    }
+
+    // 整体替换数据，只触发一次全表事件
+    public void setStudents(List<Student> students) {
+        size = 0;
+        rowById.clear();
+        names.clear();
+        classNames.clear();
+        ensureCapacity(students.size());
+        for (Student s : students) {
+            rowById.put(s.getId(), size);
+            write(size++, unsaved(s));
+        }
+        fireTableDataChanged();
+    }
+
+    // 整体替换为按列加载的数据：直接接管其中的数组和字典，不逐行复制；之后 columns 不能再使用
+    public void setColumns(StudentColumns columns) {
+        ids = columns.ids();
+        nameCodes = columns.nameCodes();
+        classCodes = columns.classCodes();
+        byte[][] loaded = columns.scores();
+        for (int c = 0; c < COURSE_COUNT; c++) scores[c] = loaded[c];
+        extraScores = columns.extraScores();
+        names = columns.names();
+        classNames = columns.classNames();
+        size = columns.size();
+        rowById.clear();
+        for (int row = 0; row < size; row++) {
+            rowById.put(ids[row], row);
+        }
+        if (dirty != null) {
+            for (StudentDao.Change change : dirty.changes()) {
+                Integer row = rowById.get(change.getId());
+                if (row != null) write(row, change.after);
+            }
+        }
+        fireTableDataChanged();
+    }
+
+    // 在末尾追加一批行，只触发一次插入事件；已存在的学号跳过
+    public void appendStudents(List<Student> students) {
+        int first = size;
+        ensureCapacity(size + students.size());
+        for (Student s : students) {
+            if (rowById.containsKey(s.getId())) continue;
+            rowById.put(s.getId(), size);
+            write(size++, unsaved(s));
+        }
+        if (size > first) {
+            fireTableRowsInserted(first, size - 1);
+        }
+    }
+
+    // 只保留学号/姓名/班级包含 keyword 的行（不区分大小写），用于在已有查询结果上细化
+    public void retainMatching(String keyword) {
+        String k = keyword.toLowerCase(Locale.ROOT);
+        boolean[] nameMatches = matches(names, k);
+        boolean[] classMatches = matches(classNames, k);
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (nameMatches[nameCodes[row]] || classMatches[classCodes[row]]
+                    || ids[row].toLowerCase(Locale.ROOT).contains(k)) {
+                if (kept != row) {
+                    ids[kept] = ids[row];
+                    nameCodes[kept] = nameCodes[row];
+                    classCodes[kept] = classCodes[row];
+                    for (byte[] column : scores) {
+                        column[kept] = column[row];
+                    }
+                    extraScores[kept] = extraScores[row];
+                }
+                kept++;
+            }
+        }
+        Arrays.fill(ids, kept, size, null);
+        Arrays.fill(extraScores, kept, size, null);
+        size = kept;
+        rowById.clear();
+        for (int row = 0; row < size; row++) {
+            rowById.put(ids[row], row);
+        }
+        fireTableDataChanged();
+    }
+
+    // 每个字典项只判断一次
+    private static boolean[] matches(StringDictionary dictionary, String keyword) {
+        boolean[] result = new boolean[dictionary.size()];
+        for (int code = 0; code < result.length; code++) {
+            String value = dictionary.decode(code);
+            result[code] = value != null && value.toLowerCase(Locale.ROOT).contains(keyword);
+        }
+        return result;
+    }
+
+    @Override
+    public void addStudent(Student student) {
+        Integer existing = rowById.get(student.getId());
+        if (existing != null) {
+            updateStudent(student);
+            return;
+        }
+        int row = size;
+        ensureCapacity(size + 1);
+        write(row, student);
+        size++;
+        rowById.put(student.getId(), row);
+        fireTableRowsInserted(row, row);
+    }
+
+    // 学号不在当前表格中时（例如正在显示查询结果）不做任何事
+    @Override
+    public void updateStudent(Student student) {
+        Integer row = rowById.get(student.getId());
+        if (row == null) return;
+        write(row, student);
+        fireTableRowsUpdated(row, row);
+    }
+
+    @Override
+    public void removeStudent(String id) {
+        Integer row = rowById.remove(id);
+        if (row == null) return;
+        int tail = size - row - 1;
+        System.arraycopy(ids, row + 1, ids, row, tail);
+        System.arraycopy(nameCodes, row + 1, nameCodes, row, tail);
+        System.arraycopy(classCodes, row + 1, classCodes, row, tail);
+        for (byte[] column : scores) {
+            System.arraycopy(column, row + 1, column, row, tail);
+        }
+        System.arraycopy(extraScores, row + 1, extraScores, row, tail);
+        size--;
+        ids[size] = null;
+        extraScores[size] = null;
+        // 后面的行前移一位，只需修正索引，不涉及 I/O 或额外事件
+        for (int i = row; i < size; i++) {
+            rowById.put(ids[i], i);
+        }
+        fireTableRowsDeleted(row, row);
+    }
+
+    // ---- 供 StudentRowSorter 使用的原始类型比较 ----
+
+    // 该列能否映射到 [0, 范围) 的小整数键（用于计数排序），不能则返回 0
+    int sortKeyRange(int column) {
+        switch (column) {
+            case ID_COLUMN: return 0;
+            case NAME_COLUMN: return names.size();
+            case CLASS_COLUMN: return classNames.size();
+            case TOTAL_COLUMN: return RankingEngine.maxValue(RankingEngine.TOTAL) + 1;
+            case CLASS_RANK_COLUMN: return ranking == null ? 1 : ranking.maxClassSize() + 1;
+            case SCHOOL_RANK_COLUMN:
+            case PERCENTILE_COLUMN: return RankingEngine.maxValue(rankMetric) + 1;
+            // 成绩加 1，登记课程没有成绩时为 0，排在最前
+            default: return 102;
+        }
+    }
+
+    // 排序前先取一次字典名次，避免在比较循环里反复查找
+    int[] sortRanks(int column) {
+        if (column == NAME_COLUMN) return names.ranks();
+        if (column == CLASS_COLUMN) return classNames.ranks();
+        return null;
+    }
+
+    // 全校名次与分数反序、百分位与分数同序，都直接用分数作键；班级名次只在班内可比，需要查表
+    int sortKey(int column, int[] ranks, int row) {
+        switch (column) {
+            case NAME_COLUMN: return ranks[nameCodes[row]];
+            case CLASS_COLUMN: return ranks[classCodes[row]];
+            case TOTAL_COLUMN: return total(row);
+            case CLASS_RANK_COLUMN:
+                return ranking == null ? 0
+                        : Math.max(ranking.classRank(rankMetric, classNames.decode(classCodes[row]), metricValue(row)) - 1, 0);
+            case SCHOOL_RANK_COLUMN: return RankingEngine.maxValue(rankMetric) - metricValue(row);
+            case PERCENTILE_COLUMN: return metricValue(row);
+            default: return getScoreAt(row, courseOf(column)) + 1;
+        }
+    }
+
+    int compareRows(int column, int[] ranks, int a, int b) {
+        if (column == ID_COLUMN) {
+            return ids[a].compareTo(ids[b]);
+        }
+        return Integer.compare(sortKey(column, ranks, a), sortKey(column, ranks, b));
+    }
+
+    private Student unsaved(Student s) {
+        return dirty == null ? s : dirty.apply(s);
+    }
+
+    private void write(int row, Student s) {
+        ids[row] = s.getId();
+        nameCodes[row] = names.encode(s.getName());
+        classCodes[row] = classNames.encode(s.getClassName());
+        scores[0][row] = (byte) s.getMath();
+        scores[1][row] = (byte) s.getEnglish();
+        scores[2][row] = (byte) s.getComputer();
+        scores[3][row] = (byte) s.getPe();
+        extraScores[row] = s.getExtraScores();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) return;
+        int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, newCapacity);
+        nameCodes = Arrays.copyOf(nameCodes, newCapacity);
+        classCodes = Arrays.copyOf(classCodes, newCapacity);
+        extraScores = Arrays.copyOf(extraScores, newCapacity);
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = Arrays.copyOf(scores[i], newCapacity);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package sms.benchmark;
+
+import sms.data.BackupManager;
+import sms.data.LatencyHistogram;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+// 快照、VACUUM INTO 和恢复的耗时，以及进行期间另一连接逐条写入的延迟（相当于界面上的修改）
+// 默认 400 万名学生，数据库约 1 GB；首次运行需要先生成数据库:
+// java -cp benchmarks/target/benchmarks.jar sms.benchmark.BackupBenchmark [学生数]
+public class BackupBenchmark {
+    private static final long WRITE_INTERVAL_MS = 5;
+    private static final long IDLE_MS = 3000;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        Path db = BenchmarkDatabase.copy(rows);
+        Path dir = Files.createTempDirectory(db.getParent(), "sms-backup-");
+        Path vacuumed = dir.resolve("vacuum.db");
+        System.out.printf("%,d 名学生, 数据库 %,d 字节%n", rows, Files.size(db));
+        try (BackupManager backups = new BackupManager(db, dir, 2)) {
+            Writer idle = Writer.start(db, rows);
+            Thread.sleep(IDLE_MS);
+            idle.stop("空闲时写入");
+
+            long[] copied = new long[1];
+            Writer writer = Writer.start(db, rows);
+            long start = System.nanoTime();
+            BackupManager.Snapshot snapshot = backups.backup((phase, done, total) -> {
+                if (phase == BackupManager.Phase.COMPRESS && copied[0] == 0) copied[0] = System.nanoTime();
+            }, () -> false);
+            long end = System.nanoTime();
+            writer.stop("快照期间写入");
+            System.out.printf("%-16s %,8d ms（复制页 %,d ms，压缩 %,d ms），%,d 字节%n", "快照", ms(end - start),
+                    ms(copied[0] - start), ms(end - copied[0]), snapshot.size);
+
+            writer = Writer.start(db, rows);
+            start = System.nanoTime();
+            try (Connection conn = DriverManager.getConnection(BenchmarkDatabase.url(db));
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("VACUUM INTO '" + vacuumed + "'");
+            }
+            end = System.nanoTime();
+            writer.stop("VACUUM INTO 期间写入");
+            System.out.printf("%-16s %,8d ms（未压缩），%,d 字节%n", "VACUUM INTO", ms(end - start), Files.size(vacuumed));
+
+            start = System.nanoTime();
+            backups.restore(snapshot.file, (phase, done, total) -> { });
+            System.out.printf("%-16s %,8d ms%n", "恢复", ms(System.nanoTime() - start));
+        } finally {
+            BenchmarkDatabase.delete(db);
+            BenchmarkDatabase.delete(Paths.get(db + ".before-restore"));
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static long ms(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    // 每隔 WRITE_INTERVAL_MS 修改一名学生的成绩，记录每次提交的耗时
+    private static final class Writer extends Thread {
+        private final Path db;
+        private final int rows;
+        private final AtomicBoolean running = new AtomicBoolean(true);
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private volatile SQLException error;
+
+        private Writer(Path db, int rows) {
+            this.db = db;
+            this.rows = rows;
+        }
+
+        static Writer start(Path db, int rows) {
+            Writer writer = new Writer(db, rows);
+            writer.start();
+            return writer;
+        }
+
+        @Override
+        public void run() {
+            String[] ids = BenchmarkDatabase.randomIds(rows, 10_000, 17);
+            try (Connection conn = DriverManager.getConnection(BenchmarkDatabase.url(db))) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("PRAGMA journal_mode=WAL");
+                    stmt.execute("PRAGMA synchronous=NORMAL");
+                    stmt.execute("PRAGMA busy_timeout=5000");
+                }
+                PreparedStatement update = conn.prepareStatement("UPDATE students SET math = ? WHERE id = ?");
+                for (int i = 0; running.get(); i++) {
+                    long start = System.nanoTime();
+                    update.setInt(1, i % 101);
+                    update.setString(2, ids[i % ids.length]);
+                    update.executeUpdate();
+                    latency.record(System.nanoTime() - start);
+                    Thread.sleep(WRITE_INTERVAL_MS);
+                }
+            } catch (SQLException e) {
+                error = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void stop(String label) throws Exception {
+            running.set(false);
+            join();
+            if (error != null) throw error;
+            System.out.printf("%-16s %,6d 次, p50 %.2f ms, p99 %.2f ms, 最长 %.2f ms%n", label, latency.count(),
+                    latency.percentileNanos(50) / 1e6, latency.percentileNanos(99) / 1e6, latency.maxNanos() / 1e6);
+        }
+    }
+}
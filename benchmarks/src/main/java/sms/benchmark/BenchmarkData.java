@@ -0,0 +1,114 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.Student;
+import sms.data.StudentDao;
+import sms.data.StudentImporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+// 基准测试共用的合成数据：姓氏按人口比例抽取，名字一到两个字，班级为“入学年份+班号”（如 2403），
+// 成绩按学生水平加各科波动生成，每门课约一成不及格。同一种子生成的数据完全相同
+// 单独生成数据库: java -cp benchmarks/target/benchmarks.jar sms.benchmark.BenchmarkData [行数] [数据库文件]
+public class BenchmarkData {
+    // 常见姓氏及其大致人口占比（万分之一），末尾为少量复姓
+    private static final String[] SURNAMES = {
+            "王", "李", "张", "刘", "陈", "杨", "黄", "赵", "吴", "周", "徐", "孙", "马", "朱", "胡", "郭",
+            "何", "高", "林", "罗", "郑", "梁", "谢", "宋", "唐", "许", "韩", "冯", "邓", "曹", "彭", "曾",
+            "肖", "田", "董", "袁", "潘", "于", "蒋", "蔡", "余", "杜", "叶", "程", "苏", "魏", "吕", "丁",
+            "任", "沈", "姚", "卢", "姜", "崔", "钟", "谭", "陆", "汪", "范", "金", "欧阳", "司马", "诸葛"};
+    private static final int[] SURNAME_WEIGHTS = {
+            725, 719, 690, 538, 453, 308, 223, 200, 187, 185, 145, 138, 129, 126, 115, 106,
+            102, 97, 97, 94, 82, 78, 69, 60, 58, 56, 55, 54, 54, 49, 48, 46,
+            44, 42, 41, 40, 38, 37, 37, 36, 35, 34, 33, 32, 31, 30, 29, 28,
+            27, 26, 25, 24, 23, 22, 21, 20, 19, 18, 17, 16, 5, 2, 1};
+    private static final int[] SURNAME_CUMULATIVE = cumulative(SURNAME_WEIGHTS);
+    private static final String GIVEN =
+            "伟芳娜敏静丽强磊军洋勇艳杰娟涛明超霞平刚桂英华玉萍红鹏辉建文斌宇浩凯欣怡佳琪晨阳雪梦婷子轩" +
+            "涵梓萱诗雨思彤宏博嘉俊晓东海波兰凤志国庆春燕秀琳颖倩文昊天一鸣振飞雅婧婉清瑞泽铭瑶蕾菲楠";
+    private static final int FIRST_YEAR = 20;
+    private static final int YEARS = 5;
+    private static final int CLASSES_PER_YEAR = 60;
+
+    public static List<Student> generate(int n) {
+        Random random = new Random(42);
+        List<Student> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            list.add(student(random, i));
+        }
+        Collections.shuffle(list, random);
+        return list;
+    }
+
+    public static Student student(Random random, int i) {
+        String className = (FIRST_YEAR + random.nextInt(YEARS)) + String.format("%02d", 1 + random.nextInt(CLASSES_PER_YEAR));
+        double ability = 74 + random.nextGaussian() * 9;
+        return new Student(String.format("2024%07d", i), name(random), className,
+                score(random, ability), score(random, ability), score(random, ability), score(random, ability));
+    }
+
+    public static String name(Random random) {
+        int k = Arrays.binarySearch(SURNAME_CUMULATIVE, random.nextInt(SURNAME_CUMULATIVE[SURNAME_CUMULATIVE.length - 1]) + 1);
+        String surname = SURNAMES[k >= 0 ? k : -k - 1];
+        StringBuilder name = new StringBuilder(surname).append(GIVEN.charAt(random.nextInt(GIVEN.length())));
+        // 约四分之三的名字是两个字
+        if (random.nextInt(4) != 0) {
+            name.append(GIVEN.charAt(random.nextInt(GIVEN.length())));
+        }
+        return name.toString();
+    }
+
+    private static int score(Random random, double ability) {
+        return (int) Math.max(0, Math.min(100, Math.round(ability + random.nextGaussian() * 10)));
+    }
+
+    private static int[] cumulative(int[] weights) {
+        int[] sums = new int[weights.length];
+        int sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            sums[i] = sum;
+        }
+        return sums;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        File dbFile = new File(args.length > 1 ? args[1] : "students-" + rows + ".db");
+        if (dbFile.exists()) {
+            System.err.println(dbFile + " 已存在");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        populate("jdbc:sqlite:" + dbFile.getAbsolutePath(), rows);
+        System.out.printf("生成 %,d 行用时 %d ms: %s%n", rows, (System.nanoTime() - start) / 1_000_000, dbFile);
+    }
+
+    // 建表（含索引和触发器）后用批量导入的方式在一个事务里写入 n 行
+    public static void populate(String url, int n) throws SQLException {
+        Random random = new Random(42);
+        int[] written = {0};
+        try (ConnectionPool pool = new ConnectionPool(url, 1)) {
+            StudentDao dao = new StudentDao(pool);
+            dao.migrateSchema();
+            dao.upsertInOneTransaction(true, () -> {
+                if (written[0] == n) return null;
+                List<Student> chunk = new ArrayList<>(StudentImporter.CHUNK_SIZE);
+                while (chunk.size() < StudentImporter.CHUNK_SIZE && written[0] < n) {
+                    chunk.add(student(random, written[0]++));
+                }
+                return chunk;
+            });
+        } catch (IOException e) {
+            // 数据在内存中生成，不会抛出 IOException
+            throw new SQLException(e);
+        }
+    }
+}
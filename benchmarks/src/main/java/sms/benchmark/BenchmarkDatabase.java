@@ -0,0 +1,67 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.StudentDao;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+// JMH 基准用的数据库文件：每种行数用 BenchmarkData 生成一次，缓存在临时目录（-Dsms.bench.dir 可指定其他目录），
+// 以后的运行直接复用；修改 BenchmarkData 后删除 sms-jmh-*.db 重新生成
+final class BenchmarkDatabase {
+    private BenchmarkDatabase() {
+    }
+
+    static Path cached(int rows) throws IOException, SQLException {
+        Path dir = Paths.get(System.getProperty("sms.bench.dir", System.getProperty("java.io.tmpdir")));
+        Path db = dir.resolve("sms-jmh-" + rows + ".db");
+        if (!Files.exists(db)) {
+            // 先写到临时文件再改名，生成被中断时不会留下不完整的缓存
+            Path tmp = dir.resolve(db.getFileName() + ".tmp");
+            delete(tmp);
+            BenchmarkData.populate(url(tmp), rows);
+            Files.move(tmp, db, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            // 旧版本生成的缓存先升级到当前结构，已是最新时不做任何事
+            try (ConnectionPool pool = new ConnectionPool(url(db), 1)) {
+                new StudentDao(pool).migrateSchema();
+            }
+        }
+        return db;
+    }
+
+    // 写入类基准在缓存的副本上运行，不改动缓存本身
+    static Path copy(int rows) throws IOException, SQLException {
+        Path db = cached(rows);
+        Path work = Files.createTempFile(db.getParent(), "sms-jmh-work-", ".db");
+        Files.copy(db, work, StandardCopyOption.REPLACE_EXISTING);
+        return work;
+    }
+
+    static String url(Path db) {
+        return "jdbc:sqlite:" + db.toAbsolutePath();
+    }
+
+    static void delete(Path db) throws IOException {
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            Files.deleteIfExists(Paths.get(db + suffix));
+        }
+    }
+
+    // 随机取 n 个互不相同的已有学号，与 BenchmarkData 的学号格式一致
+    static String[] randomIds(int rows, int n, long seed) {
+        Random random = new Random(seed);
+        Set<String> ids = new LinkedHashSet<>();
+        while (ids.size() < n) {
+            ids.add(String.format("2024%07d", random.nextInt(rows)));
+        }
+        return ids.toArray(new String[0]);
+    }
+}
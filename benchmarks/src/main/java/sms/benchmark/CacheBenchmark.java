@@ -0,0 +1,86 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.Student;
+import sms.data.StudentDao;
+import sms.data.StudentRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// 修改前的按学号读取和添加前的查重：直接查询数据库，与经过 StudentRepository 的缓存和 Bloom 过滤器
+// 缓存一侧包含 CompletableFuture 的开销；测量前已读过这些学号，学号不存在的查询由过滤器判定
+// 运行: java -jar benchmarks/target/benchmarks.jar CacheBenchmark [-p rows=100000]
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private ConnectionPool pool;
+    private StudentDao dao;
+    private StudentRepository repository;
+    private String[] ids;
+    private int next;
+
+    @Setup
+    public void open() throws Exception {
+        pool = new ConnectionPool(BenchmarkDatabase.url(BenchmarkDatabase.cached(rows)), 4);
+        dao = new StudentDao(pool);
+        repository = new StudentRepository(dao, 4);
+        ids = BenchmarkDatabase.randomIds(rows, 4096, 13);
+        for (String id : ids) {
+            repository.findById(id).get();
+        }
+        // 等待后台建好学号过滤器
+        while (!repository.cacheStats().isBloomReady()) {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown
+    public void close() throws Exception {
+        repository.close();
+        pool.close();
+    }
+
+    private String nextId() {
+        return ids[next++ & (ids.length - 1)];
+    }
+
+    @Benchmark
+    public Student findByIdDao() throws Exception {
+        return dao.findById(nextId());
+    }
+
+    @Benchmark
+    public Student findByIdCached() throws Exception {
+        return repository.findById(nextId()).get();
+    }
+
+    @Benchmark
+    public boolean existsAbsentDao() throws Exception {
+        return dao.exists(nextId() + "0");
+    }
+
+    @Benchmark
+    public boolean existsAbsentBloom() throws Exception {
+        return repository.exists(nextId() + "0").get();
+    }
+}
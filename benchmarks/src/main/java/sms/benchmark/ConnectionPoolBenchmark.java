@@ -0,0 +1,147 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+
+import java.io.File;
+import java.sql.*;
+import java.util.Arrays;
+
+// 对比每次 DriverManager.getConnection 与连接池 + 语句缓存的单次操作延迟
+// 运行: java -cp benchmarks/target/benchmarks.jar sms.benchmark.ConnectionPoolBenchmark [行数] [迭代次数]
+public class ConnectionPoolBenchmark {
+    private static final String SELECT_BY_ID = "SELECT * FROM students WHERE id = ?";
+    private static final String COUNT_BY_ID = "SELECT COUNT(*) FROM students WHERE id = ?";
+    private static final String INSERT = "INSERT INTO students (id, name, className, math, english, computer, pe) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE = "DELETE FROM students WHERE id=?";
+
+    interface Op {
+        void run(int i) throws SQLException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        File dbFile = File.createTempFile("sms-bench", ".db");
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        populate(url, rows);
+
+        System.out.printf("行数=%d 迭代=%d (单位: 微秒)%n", rows, iterations);
+        System.out.printf("%-28s %10s %10s %10s%n", "操作", "平均", "p50", "p99");
+
+        run("getStudentById  直连", iterations, i -> {
+            try (Connection conn = DriverManager.getConnection(url);
+                 PreparedStatement pstmt = conn.prepareStatement(SELECT_BY_ID)) {
+                pstmt.setString(1, id(i % rows));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                }
+            }
+        });
+        run("isStudentIdExists 直连", iterations, i -> {
+            try (Connection conn = DriverManager.getConnection(url);
+                 PreparedStatement pstmt = conn.prepareStatement(COUNT_BY_ID)) {
+                pstmt.setString(1, id(i % rows));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                }
+            }
+        });
+        run("insert+delete   直连", iterations, i -> {
+            try (Connection conn = DriverManager.getConnection(url)) {
+                try (PreparedStatement pstmt = conn.prepareStatement(INSERT)) {
+                    bindInsert(pstmt, "X" + i);
+                    pstmt.executeUpdate();
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(DELETE)) {
+                    pstmt.setString(1, "X" + i);
+                    pstmt.executeUpdate();
+                }
+            }
+        });
+
+        try (ConnectionPool pool = new ConnectionPool(url, 4)) {
+            run("getStudentById  连接池", iterations, i -> {
+                try (ConnectionPool.PooledConnection conn = pool.acquire()) {
+                    PreparedStatement pstmt = conn.prepare(SELECT_BY_ID);
+                    pstmt.setString(1, id(i % rows));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        rs.next();
+                    }
+                }
+            });
+            run("isStudentIdExists 连接池", iterations, i -> {
+                try (ConnectionPool.PooledConnection conn = pool.acquire()) {
+                    PreparedStatement pstmt = conn.prepare(COUNT_BY_ID);
+                    pstmt.setString(1, id(i % rows));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        rs.next();
+                    }
+                }
+            });
+            run("insert+delete   连接池", iterations, i -> {
+                try (ConnectionPool.PooledConnection conn = pool.acquire()) {
+                    PreparedStatement insert = conn.prepare(INSERT);
+                    bindInsert(insert, "Y" + i);
+                    insert.executeUpdate();
+                    PreparedStatement delete = conn.prepare(DELETE);
+                    delete.setString(1, "Y" + i);
+                    delete.executeUpdate();
+                }
+            });
+        }
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            new File(dbFile.getAbsolutePath() + suffix).delete();
+        }
+    }
+
+    private static void run(String label, int iterations, Op op) throws SQLException {
+        for (int i = 0; i < iterations / 4; i++) {
+            op.run(i);
+        }
+        long[] samples = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            op.run(i);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        long sum = 0;
+        for (long s : samples) sum += s;
+        System.out.printf("%-28s %10.1f %10.1f %10.1f%n", label,
+                sum / (double) iterations / 1000.0,
+                samples[iterations / 2] / 1000.0,
+                samples[(int) (iterations * 0.99)] / 1000.0);
+    }
+
+    private static void populate(String url, int rows) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS students (id TEXT PRIMARY KEY, name TEXT, className TEXT, " +
+                    "math INTEGER, english INTEGER, computer INTEGER, pe INTEGER)");
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT)) {
+                for (int i = 0; i < rows; i++) {
+                    bindInsert(pstmt, id(i));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    private static void bindInsert(PreparedStatement pstmt, String id) throws SQLException {
+        int h = id.hashCode() & 0x7fffffff;
+        pstmt.setString(1, id);
+        pstmt.setString(2, "学生" + (h % 1000));
+        pstmt.setString(3, "24" + String.format("%02d", h % 40));
+        pstmt.setInt(4, h % 101);
+        pstmt.setInt(5, (h >> 3) % 101);
+        pstmt.setInt(6, (h >> 6) % 101);
+        pstmt.setInt(7, (h >> 9) % 101);
+    }
+
+    private static String id(int i) {
+        return String.format("2024%06d", i);
+    }
+}
@@ -0,0 +1,165 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.StudentColumns;
+import sms.data.StudentDao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 登记课程成绩的存储方式对全表加载的影响：
+// fixedOnly 为没有登记课程的数据库（与原来只有四门固定课程时相同）；
+// extraBlob 每名学生另有 extraCourses 门成绩，打包在 extra_scores 中，与固定列同一次读取；
+// narrowTable 为对比方案，成绩存放在 (student_id, course, score) 窄表中（主键即覆盖索引），加载后按学号合并
+// java -jar benchmarks/target/benchmarks.jar CourseStorageBenchmark -prof gc [-p extraCourses=24]
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CourseStorageBenchmark {
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"12"})
+    public int extraCourses;
+
+    private Path blobDb;
+    private Path narrowDb;
+    private ConnectionPool fixedPool;
+    private ConnectionPool blobPool;
+    private ConnectionPool narrowPool;
+    private StudentDao fixedDao;
+    private StudentDao blobDao;
+    private StudentDao narrowDao;
+
+    @Setup(Level.Trial)
+    public void open() throws Exception {
+        fixedPool = new ConnectionPool(BenchmarkDatabase.url(BenchmarkDatabase.cached(rows)), 2);
+        fixedDao = new StudentDao(fixedPool);
+        blobDb = BenchmarkDatabase.copy(rows);
+        narrowDb = BenchmarkDatabase.copy(rows);
+        blobPool = new ConnectionPool(BenchmarkDatabase.url(blobDb), 2);
+        blobDao = new StudentDao(blobPool);
+        narrowPool = new ConnectionPool(BenchmarkDatabase.url(narrowDb), 2);
+        narrowDao = new StudentDao(narrowPool);
+        for (int i = 0; i < extraCourses; i++) {
+            blobDao.addCourse("课程" + i);
+        }
+        fillBlob();
+        fillNarrowTable();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        fixedPool.close();
+        blobPool.close();
+        narrowPool.close();
+        BenchmarkDatabase.delete(blobDb);
+        BenchmarkDatabase.delete(narrowDb);
+    }
+
+    // 每名学生 extraCourses 个 0-100 的随机成绩
+    private void fillBlob() throws SQLException {
+        Random random = new Random(7);
+        try (Connection conn = DriverManager.getConnection(BenchmarkDatabase.url(blobDb));
+             Statement stmt = conn.createStatement();
+             PreparedStatement update = conn.prepareStatement("UPDATE students SET extra_scores = ? WHERE rowid = ?")) {
+            conn.setAutoCommit(false);
+            try (ResultSet rs = stmt.executeQuery("SELECT rowid FROM students")) {
+                while (rs.next()) {
+                    byte[] scores = new byte[extraCourses];
+                    for (int i = 0; i < scores.length; i++) scores[i] = (byte) random.nextInt(101);
+                    update.setBytes(1, scores);
+                    update.setLong(2, rs.getLong(1));
+                    update.addBatch();
+                }
+            }
+            update.executeBatch();
+            conn.commit();
+        }
+    }
+
+    private void fillNarrowTable() throws SQLException {
+        Random random = new Random(7);
+        try (Connection conn = DriverManager.getConnection(BenchmarkDatabase.url(narrowDb));
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE student_scores (student_id TEXT NOT NULL, course INTEGER NOT NULL, " +
+                    "score INTEGER NOT NULL, PRIMARY KEY (student_id, course)) WITHOUT ROWID");
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO student_scores VALUES (?, ?, ?)");
+                 ResultSet rs = stmt.executeQuery("SELECT id FROM students")) {
+                while (rs.next()) {
+                    String id = rs.getString(1);
+                    for (int c = 0; c < extraCourses; c++) {
+                        insert.setString(1, id);
+                        insert.setInt(2, c);
+                        insert.setInt(3, random.nextInt(101));
+                        insert.addBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            conn.commit();
+        }
+    }
+
+    @Benchmark
+    public StudentColumns fixedOnly() throws SQLException {
+        return fixedDao.findAllColumns(rows, () -> false);
+    }
+
+    @Benchmark
+    public StudentColumns extraBlob() throws SQLException {
+        return blobDao.findAllColumns(rows, () -> false);
+    }
+
+    // 与表格模型相同按学号建行号索引，再把窄表逐行写入各行的成绩向量
+    @Benchmark
+    public StudentColumns narrowTable() throws SQLException {
+        StudentColumns columns = narrowDao.findAllColumns(rows, () -> false);
+        Map<String, Integer> rowById = new HashMap<>(columns.size() * 2);
+        for (int row = 0; row < columns.size(); row++) rowById.put(columns.getId(row), row);
+        byte[][] extra = columns.extraScores();
+        try (ConnectionPool.PooledConnection conn = narrowPool.acquire();
+             ResultSet rs = conn.prepare("SELECT student_id, course, score FROM student_scores").executeQuery()) {
+            while (rs.next()) {
+                int row = rowById.get(rs.getString(1));
+                if (extra[row] == null) extra[row] = new byte[extraCourses];
+                extra[row][rs.getInt(2)] = (byte) rs.getInt(3);
+            }
+        }
+        return columns;
+    }
+
+    // 统计同样受存储方式影响：固定课程读汇总表，登记课程逐行解码成绩向量
+    @Benchmark
+    public Object gradeStats() throws SQLException {
+        return blobDao.gradeStats();
+    }
+}
@@ -0,0 +1,75 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.Student;
+import sms.data.StudentDao;
+import sms.data.StudentExporter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// 对比 findAll 读入内存后逐行格式化写出，与 StudentExporter 从结果集直接流式写出的耗时
+// 用较小的堆运行可以看出前者随行数增长而后者不受影响:
+// java -Xmx256m -cp benchmarks/target/benchmarks.jar sms.benchmark.ExportBenchmark [行数] [数据库文件]
+public class ExportBenchmark {
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        File dbFile = args.length > 1 ? new File(args[1]) : new File(System.getProperty("java.io.tmpdir"), "sms-search-" + rows + ".db");
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        if (!dbFile.exists()) {
+            BenchmarkData.populate(url, rows);
+        }
+        Path dir = Files.createTempDirectory("sms-export-");
+        try (ConnectionPool pool = new ConnectionPool(url, 1)) {
+            StudentDao dao = new StudentDao(pool);
+            dao.migrateSchema();
+
+            Path naive = dir.resolve("naive.csv");
+            long start = System.nanoTime();
+            try {
+                List<Student> all = dao.findAll(() -> false);
+                try (BufferedWriter out = Files.newBufferedWriter(naive, StandardCharsets.UTF_8)) {
+                    for (Student s : all) {
+                        out.write(String.format("%s,%s,%s,%d,%d,%d,%d%n", s.getId(), s.getName(), s.getClassName(),
+                                s.getMath(), s.getEnglish(), s.getComputer(), s.getPe()));
+                    }
+                }
+                report("findAll + String.format", all.size(), System.nanoTime() - start, naive);
+            } catch (OutOfMemoryError e) {
+                System.out.printf("%-24s 内存不足 (%d ms)%n", "findAll + String.format", (System.nanoTime() - start) / 1_000_000);
+            }
+
+            StudentExporter exporter = new StudentExporter(dao);
+            for (StudentExporter.Format format : StudentExporter.Format.values()) {
+                Path file = dir.resolve("students." + format.extension);
+                start = System.nanoTime();
+                int n = exporter.export(StudentExporter.Source.roster(), file, format, () -> false);
+                report("StudentExporter " + format, n, System.nanoTime() - start, file);
+            }
+            Path fail = dir.resolve("fail-math.csv");
+            start = System.nanoTime();
+            int n = exporter.export(StudentExporter.Source.failing(0), fail, StudentExporter.Format.CSV, () -> false);
+            report("不及格名单 CSV", n, System.nanoTime() - start, fail);
+
+            start = System.nanoTime();
+            int[] read = new int[1];
+            StudentExporter.readBinary(dir.resolve("students.smsb"), s -> read[0]++);
+            System.out.printf("%-24s %,10d 行 %7d ms%n", "读回二进制", read[0], (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static void report(String label, int rows, long nanos, Path file) throws Exception {
+        Runtime rt = Runtime.getRuntime();
+        System.out.printf("%-24s %,10d 行 %7d ms %8.1f MB 文件 %6.1f MB 堆%n", label, rows, nanos / 1_000_000,
+                Files.size(file) / 1048576.0, (rt.totalMemory() - rt.freeMemory()) / 1048576.0);
+    }
+}
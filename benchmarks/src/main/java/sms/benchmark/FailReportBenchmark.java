@@ -0,0 +1,98 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.FailReport;
+import sms.data.Student;
+import sms.data.StudentDao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 四门课程的不及格名单：原来每门课程查询一次并用 String.format 拼成整段文本，
+// 现在一次查询得到 FailReport；*Text 包含生成全部名单文本（原来显示用，现在仅在复制时生成）
+// java -jar benchmarks/target/benchmarks.jar FailReportBenchmark -prof gc [-p rows=1000000]
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FailReportBenchmark {
+    private static final String[] FIELDS = {"math", "english", "computer", "pe"};
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private ConnectionPool pool;
+    private StudentDao dao;
+
+    @Setup
+    public void open() throws Exception {
+        pool = new ConnectionPool(BenchmarkDatabase.url(BenchmarkDatabase.cached(rows)), 2);
+        dao = new StudentDao(pool);
+    }
+
+    @TearDown
+    public void close() {
+        pool.close();
+    }
+
+    @Benchmark
+    public int perCourse() throws SQLException {
+        int total = 0;
+        for (String field : FIELDS) total += dao.findFailing(field, () -> false).size();
+        return total;
+    }
+
+    // 原来的 showFailList 对四门课程各执行一次
+    @Benchmark
+    public int perCourseText() throws SQLException {
+        int length = 0;
+        for (int c = 0; c < FIELDS.length; c++) {
+            List<Student> list = dao.findFailing(FIELDS[c], () -> false);
+            StringBuilder sb = new StringBuilder();
+            for (Student s : list) {
+                sb.append(String.format("学号: %s  姓名: %s  班级: %s  成绩: %d\n",
+                        s.getId(), s.getName(), s.getClassName(), score(s, c)));
+            }
+            length += sb.toString().length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public FailReport singlePass() throws SQLException {
+        return dao.failReport(() -> false);
+    }
+
+    @Benchmark
+    public int singlePassText() throws SQLException {
+        FailReport report = dao.failReport(() -> false);
+        StringBuilder sb = new StringBuilder(report.size() * 48);
+        for (int i = 0; i < report.size(); i++) report.appendRow(sb, i);
+        return sb.toString().length();
+    }
+
+    private static int score(Student s, int course) {
+        switch (course) {
+            case 0: return s.getMath();
+            case 1: return s.getEnglish();
+            case 2: return s.getComputer();
+            default: return s.getPe();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.Student;
+import sms.data.StudentDao;
+import sms.data.StudentImporter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+// 对比逐行导入（先查学号再自动提交插入，与添加学生对话框相同）与 StudentImporter 的批量导入
+// 运行: java -cp benchmarks/target/benchmarks.jar sms.benchmark.ImportBenchmark [行数] [逐行导入的行数]
+public class ImportBenchmark {
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int naiveRows = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        Path csv = writeCsv(rows);
+        System.out.printf("CSV %,d 行, %,d 字节%n", rows, Files.size(csv));
+
+        File naiveDb = freshDb("naive");
+        try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + naiveDb, 1)) {
+            StudentDao dao = new StudentDao(pool);
+            dao.migrateSchema();
+            List<Student> students = BenchmarkData.generate(naiveRows);
+            long start = System.nanoTime();
+            for (Student s : students) {
+                if (!dao.exists(s.getId())) dao.insert(s);
+            }
+            report("逐行导入", naiveRows, System.nanoTime() - start);
+        }
+
+        File bulkDb = freshDb("bulk");
+        try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + bulkDb, 1)) {
+            StudentDao dao = new StudentDao(pool);
+            dao.migrateSchema();
+            StudentImporter importer = new StudentImporter(dao);
+            long start = System.nanoTime();
+            StudentImporter.Result result = importer.importFile(csv, (read, total, done) -> { }, () -> false);
+            report("批量导入", result.imported, System.nanoTime() - start);
+            // 再导入一次：全部命中 ON CONFLICT 且内容不变
+            start = System.nanoTime();
+            result = importer.importFile(csv, (read, total, done) -> { }, () -> false);
+            report("重复导入", result.imported, System.nanoTime() - start);
+        }
+        Files.delete(csv);
+    }
+
+    // 带 BOM 和表头的 UTF-8 CSV，与 Excel 另存为 "CSV UTF-8" 的格式相同
+    private static Path writeCsv(int rows) throws Exception {
+        Path csv = Files.createTempFile("sms-import-", ".csv");
+        Random random = new Random(42);
+        try (BufferedWriter out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            out.write('﻿');
+            out.write("学号,姓名,班级,高等数学,大学英语,计算机导论,体育\r\n");
+            for (int i = 0; i < rows; i++) {
+                Student s = BenchmarkData.student(random, i);
+                out.write(s.getId() + "," + s.getName() + "," + s.getClassName() + "," + s.getMath() + ","
+                        + s.getEnglish() + "," + s.getComputer() + "," + s.getPe() + "\r\n");
+            }
+        }
+        return csv;
+    }
+
+    private static File freshDb(String name) {
+        File db = new File(System.getProperty("java.io.tmpdir"), "sms-import-" + name + ".db");
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            new File(db.getPath() + suffix).delete();
+        }
+        return db;
+    }
+
+    private static void report(String label, int rows, long nanos) {
+        System.out.printf("%-8s %,10d 行 %8d ms %,12.0f 行/秒%n", label, rows, nanos / 1_000_000, rows * 1e9 / nanos);
+    }
+}
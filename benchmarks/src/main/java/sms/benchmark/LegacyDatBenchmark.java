@@ -0,0 +1,125 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.LegacyDatMigrator;
+import sms.data.Student;
+import sms.data.StudentDao;
+import sms.data.StudentImporter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamConstants;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// 对比 ObjectInputStream.readObject 整体读入与 LegacyDatMigrator 流式解码旧版 students.dat 的耗时和堆占用
+// 堆一栏为回收后仍存活的数据，前者需要容纳全部记录和句柄表（生成测试文件本身也需要整个列表在内存中）:
+// java -Xmx1g -cp benchmarks/target/benchmarks.jar sms.benchmark.LegacyDatBenchmark [记录数]
+public class LegacyDatBenchmark {
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Path dat = writeDat(records);
+        System.out.printf("students.dat %,d 条记录, %,d 字节%n", records, Files.size(dat));
+        try {
+            System.gc();
+            long start = System.nanoTime();
+            try (ObjectInputStream in = new LegacyInputStream(new BufferedInputStream(Files.newInputStream(dat), 64 * 1024))) {
+                List<?> list = (List<?>) in.readObject();
+                report("readObject", list.size(), System.nanoTime() - start);
+            } catch (OutOfMemoryError e) {
+                System.out.printf("%-20s 内存不足 (%d ms)%n", "readObject", (System.nanoTime() - start) / 1_000_000);
+            }
+
+            System.gc();
+            start = System.nanoTime();
+            int n = 0;
+            try (FileChannel channel = FileChannel.open(dat)) {
+                LegacyDatMigrator.Decoder decoder = new LegacyDatMigrator.Decoder(channel);
+                while (decoder.next() != null) n++;
+            }
+            report("流式解码", n, System.nanoTime() - start);
+
+            File db = new File(System.getProperty("java.io.tmpdir"), "sms-legacy.db");
+            for (String suffix : new String[]{"", "-wal", "-shm"}) {
+                new File(db.getPath() + suffix).delete();
+            }
+            try (ConnectionPool pool = new ConnectionPool("jdbc:sqlite:" + db, 1)) {
+                StudentDao dao = new StudentDao(pool);
+                dao.migrateSchema();
+                System.gc();
+                start = System.nanoTime();
+                StudentImporter.Result result = new LegacyDatMigrator(dao).migrate(dat, (read, total, done) -> { }, () -> false);
+                report("迁移到数据库", result.imported, System.nanoTime() - start);
+            }
+        } finally {
+            Files.delete(dat);
+        }
+    }
+
+    // 与旧版程序保存数据的方式相同：整个 ArrayList 用一次 writeObject 写出
+    private static Path writeDat(int records) throws Exception {
+        Path dat = Files.createTempFile("sms-legacy-", ".dat");
+        List<Student> students = BenchmarkData.generate(records);
+        try (ObjectOutputStream out = new LegacyOutputStream(new BufferedOutputStream(Files.newOutputStream(dat), 64 * 1024))) {
+            out.writeObject(students);
+        }
+        return dat;
+    }
+
+    // 旧版程序的 Student 在默认包中，类描述里写不带包名的 "Student"，其余与默认实现相同
+    private static class LegacyOutputStream extends ObjectOutputStream {
+        LegacyOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+            if (desc.forClass() != Student.class) {
+                super.writeClassDescriptor(desc);
+                return;
+            }
+            writeUTF(Student.class.getSimpleName());
+            writeLong(desc.getSerialVersionUID());
+            writeByte(ObjectStreamConstants.SC_SERIALIZABLE);
+            ObjectStreamField[] fields = desc.getFields();
+            writeShort(fields.length);
+            for (ObjectStreamField field : fields) {
+                writeByte(field.getTypeCode());
+                writeUTF(field.getName());
+                if (!field.isPrimitive()) {
+                    writeObject(field.getTypeString());
+                }
+            }
+        }
+    }
+
+    // 反序列化只比较简单类名，把 "Student" 解析到 sms.data.Student 即可
+    private static class LegacyInputStream extends ObjectInputStream {
+        LegacyInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            return desc.getName().equals(Student.class.getSimpleName()) ? Student.class : super.resolveClass(desc);
+        }
+    }
+
+    // 先回收再统计，得到的是仍然存活的数据量
+    private static void report(String label, int rows, long nanos) {
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        System.out.printf("%-20s %,10d 条 %7d ms %,12.0f 条/秒 %7.1f MB 堆%n", label, rows, nanos / 1_000_000,
+                rows * 1e9 / nanos, (rt.totalMemory() - rt.freeMemory()) / 1048576.0);
+    }
+}
@@ -0,0 +1,104 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.Student;
+import sms.data.StudentDao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 界面上各个查询对应的数据访问：刷新（findAll）、按学号查询和查重、搜索、不及格名单
+// 运行: java -jar benchmarks/target/benchmarks.jar QueryBenchmark [-p rows=100000]
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private ConnectionPool pool;
+    private StudentDao dao;
+    private String[] ids;
+    private int next;
+
+    // 搜索框中典型的三类输入：姓名、班级和学号前缀
+    @State(Scope.Benchmark)
+    public static class Keyword {
+        @Param({"王秀英", "2403", "20240001"})
+        public String keyword;
+    }
+
+    @Setup
+    public void open() throws Exception {
+        pool = new ConnectionPool(BenchmarkDatabase.url(BenchmarkDatabase.cached(rows)), 2);
+        dao = new StudentDao(pool);
+        ids = BenchmarkDatabase.randomIds(rows, 4096, 7);
+    }
+
+    @TearDown
+    public void close() {
+        pool.close();
+    }
+
+    private String nextId() {
+        return ids[next++ & (ids.length - 1)];
+    }
+
+    // 刷新表格
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Student> findAll() throws SQLException {
+        return dao.findAll(() -> false);
+    }
+
+    // 修改、删除前按学号读取
+    @Benchmark
+    public Student findById() throws SQLException {
+        return dao.findById(nextId());
+    }
+
+    // 添加学生时的学号查重，一半查询的学号不存在
+    @Benchmark
+    public boolean exists() throws SQLException {
+        String id = nextId();
+        return dao.exists((next & 1) == 0 ? id : id + "0");
+    }
+
+    // 原来 searchStudent 中 lower(...) LIKE '%kw%' 的全表扫描
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int searchLike(Keyword keyword) throws SQLException {
+        return SearchBenchmark.likeScan(pool, keyword.keyword);
+    }
+
+    // 现在的搜索：学号前缀走主键，姓名和班级走全文索引
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Student> search(Keyword keyword) throws SQLException {
+        return dao.search(keyword.keyword, () -> false);
+    }
+
+    // 不及格名单中一门课程的查询
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Student> findFailing() throws SQLException {
+        return dao.findFailing("math", () -> false);
+    }
+}
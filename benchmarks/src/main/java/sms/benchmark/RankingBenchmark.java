@@ -0,0 +1,226 @@
+package sms.benchmark;
+
+import sms.data.GradeStats;
+import sms.data.RankingEngine;
+import sms.data.Student;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+// 计算每个学生在各科和总分上的全校名次、班级名次和百分位：
+// 对象列表逐项排序、原始类型数组并行排序，与 RankingEngine 计数统计后查表的耗时对比；三者结果在 setup 中校验一致。
+// edit 为增量修改一个学生的成绩后读取名次，与 build 的完整重建对比
+// java -jar benchmarks/target/benchmarks.jar RankingBenchmark [-p students=100000]
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RankingBenchmark {
+    @Param({"1000000"})
+    public int students;
+
+    private List<Student> list;
+    private String[] classNames;
+    private int[] classOf;
+    private byte[][] scores;
+    private RankingEngine engine;
+    private final Random random = new Random(7);
+
+    @Setup
+    public void generate() {
+        int n = students;
+        if (n > 1 << 20) throw new IllegalArgumentException("并行排序的键中下标只占 20 位，学生数不能超过 " + (1 << 20));
+        list = BenchmarkData.generate(n);
+        Map<String, Integer> classCodes = new HashMap<>();
+        classOf = new int[n];
+        scores = new byte[GradeStats.COURSES][n];
+        for (int i = 0; i < n; i++) {
+            Student s = list.get(i);
+            classOf[i] = classCodes.computeIfAbsent(s.getClassName(), k -> classCodes.size());
+            scores[0][i] = (byte) s.getMath();
+            scores[1][i] = (byte) s.getEnglish();
+            scores[2][i] = (byte) s.getComputer();
+            scores[3][i] = (byte) s.getPe();
+        }
+        classNames = new String[classCodes.size()];
+        classCodes.forEach((name, code) -> classNames[code] = name);
+        engine = RankingEngine.build(classNames, classOf, scores, n);
+
+        int[][][] expected = rankBySort(list);
+        check("并行排序", expected, rankByParallelSort(classOf, scores, n));
+        check("RankingEngine", expected, rankByEngine(engine, classNames, classOf, scores, n));
+    }
+
+    @Benchmark
+    public int[][][] objectSort() {
+        return rankBySort(list);
+    }
+
+    @Benchmark
+    public int[][][] parallelSort() {
+        return rankByParallelSort(classOf, scores, students);
+    }
+
+    @Benchmark
+    public RankingEngine build() {
+        return RankingEngine.build(classNames, classOf, scores, students);
+    }
+
+    // 构建并查出全部学生的名次，与两种排序的工作量相同
+    @Benchmark
+    public int[][][] engine() {
+        return rankByEngine(RankingEngine.build(classNames, classOf, scores, students), classNames, classOf, scores,
+                students);
+    }
+
+    // 改一个学生的数学成绩后读取一次总分全校名次和数学班级名次
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int edit() {
+        Student s = list.get(random.nextInt(students));
+        engine.remove(s);
+        s.setMath(random.nextInt(101));
+        engine.add(s);
+        return engine.schoolRank(RankingEngine.TOTAL, s.getMath() + s.getEnglish() + s.getComputer() + s.getPe())
+                + engine.classRank(0, s.getClassName(), s.getMath());
+    }
+
+    // result[指标][0=全校名次, 1=班级名次, 2=百分位×10][学生]
+    private static int[][][] rankBySort(List<Student> students) {
+        int n = students.size();
+        int[][][] result = new int[RankingEngine.METRICS][3][n];
+        Map<Student, Integer> index = new HashMap<>();
+        for (int i = 0; i < n; i++) index.put(students.get(i), i);
+        Map<String, List<Student>> byClass = new HashMap<>();
+        for (Student s : students) byClass.computeIfAbsent(s.getClassName(), k -> new ArrayList<>()).add(s);
+        for (int m = 0; m < RankingEngine.METRICS; m++) {
+            ToIntFunction<Student> metric = metric(m);
+            List<Student> sorted = new ArrayList<>(students);
+            sorted.sort(Comparator.comparingInt(metric).reversed());
+            assignRanks(sorted, metric, index, result[m][0], result[m][2], n);
+            for (List<Student> members : byClass.values()) {
+                List<Student> classSorted = new ArrayList<>(members);
+                classSorted.sort(Comparator.comparingInt(metric).reversed());
+                assignRanks(classSorted, metric, index, result[m][1], null, 0);
+            }
+        }
+        return result;
+    }
+
+    private static void assignRanks(List<Student> sorted, ToIntFunction<Student> metric, Map<Student, Integer> index,
+                                    int[] ranks, int[] percentiles, int n) {
+        // 逐个分数相同的组处理，组内名次相同，低于该分数的人数 = 组之后的人数
+        for (int from = 0, to; from < sorted.size(); from = to) {
+            int value = metric.applyAsInt(sorted.get(from));
+            to = from + 1;
+            while (to < sorted.size() && metric.applyAsInt(sorted.get(to)) == value) to++;
+            for (int k = from; k < to; k++) {
+                int i = index.get(sorted.get(k));
+                ranks[i] = from + 1;
+                if (percentiles != null) percentiles[i] = percentile(n - to, n);
+            }
+        }
+    }
+
+    // 每项指标排序两次：全校按 (反转的分数 << 20 | 下标)，班级内按 (班级 << 41 | 反转的分数 << 20 | 下标)
+    private static int[][][] rankByParallelSort(int[] classOf, byte[][] scores, int n) {
+        int[][][] result = new int[RankingEngine.METRICS][3][n];
+        long[] keys = new long[n];
+        for (int m = 0; m < RankingEngine.METRICS; m++) {
+            int max = RankingEngine.maxValue(m);
+            int[] value = new int[n];
+            for (int i = 0; i < n; i++) value[i] = metricValue(m, scores, i);
+            for (int i = 0; i < n; i++) keys[i] = ((long) (max - value[i]) << 20) | i;
+            Arrays.parallelSort(keys);
+            int rank = 0;
+            for (int k = 0; k < n; k++) {
+                int i = (int) (keys[k] & 0xFFFFF);
+                if (k == 0 || value[i] != value[(int) (keys[k - 1] & 0xFFFFF)]) rank = k + 1;
+                result[m][0][i] = rank;
+            }
+            // 全校名次 = 1 + 更高分人数，百分位 = 低于该分数人数 / 总数
+            int[] atOrAbove = new int[max + 2];
+            for (int i = 0; i < n; i++) atOrAbove[value[i]]++;
+            for (int v = max - 1; v >= 0; v--) atOrAbove[v] += atOrAbove[v + 1];
+            for (int i = 0; i < n; i++) result[m][2][i] = percentile(n - atOrAbove[value[i]], n);
+            for (int i = 0; i < n; i++) keys[i] = ((long) classOf[i] << 41) | ((long) (max - value[i]) << 20) | i;
+            Arrays.parallelSort(keys);
+            int classStart = 0;
+            for (int k = 0; k < n; k++) {
+                int i = (int) (keys[k] & 0xFFFFF);
+                int previous = k == 0 ? -1 : (int) (keys[k - 1] & 0xFFFFF);
+                if (k == 0 || classOf[previous] != classOf[i]) {
+                    classStart = k;
+                    rank = 1;
+                } else if (value[i] != value[previous]) {
+                    rank = k - classStart + 1;
+                }
+                result[m][1][i] = rank;
+            }
+        }
+        return result;
+    }
+
+    private static int[][][] rankByEngine(RankingEngine engine, String[] classNames, int[] classOf, byte[][] scores, int n) {
+        int[][][] result = new int[RankingEngine.METRICS][3][n];
+        for (int m = 0; m < RankingEngine.METRICS; m++) {
+            for (int i = 0; i < n; i++) {
+                int value = metricValue(m, scores, i);
+                result[m][0][i] = engine.schoolRank(m, value);
+                result[m][1][i] = engine.classRank(m, classNames[classOf[i]], value);
+                result[m][2][i] = (int) Math.round(engine.percentile(m, value) * 10);
+            }
+        }
+        return result;
+    }
+
+    private static int percentile(int below, int n) {
+        return (int) Math.round(100.0 * below / n * 10);
+    }
+
+    private static int metricValue(int metric, byte[][] scores, int i) {
+        if (metric < GradeStats.COURSES) return scores[metric][i];
+        return scores[0][i] + scores[1][i] + scores[2][i] + scores[3][i];
+    }
+
+    private static ToIntFunction<Student> metric(int m) {
+        switch (m) {
+            case 0: return Student::getMath;
+            case 1: return Student::getEnglish;
+            case 2: return Student::getComputer;
+            case 3: return Student::getPe;
+            default: return s -> s.getMath() + s.getEnglish() + s.getComputer() + s.getPe();
+        }
+    }
+
+    private static void check(String label, int[][][] expected, int[][][] actual) {
+        for (int m = 0; m < expected.length; m++) {
+            for (int k = 0; k < 3; k++) {
+                if (!Arrays.equals(expected[m][k], actual[m][k])) {
+                    throw new AssertionError(label + " 结果不一致: 指标 " + m + " 项 " + k);
+                }
+            }
+        }
+    }
+}
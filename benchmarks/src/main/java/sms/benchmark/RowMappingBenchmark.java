@@ -0,0 +1,95 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.Student;
+import sms.data.StudentColumns;
+import sms.data.StudentDao;
+import sms.ui.StudentTableModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 全表加载的结果集解码：原来每行按列名取值并创建 Student，现在列号只解析一次、班级名去重，
+// 或者直接按列解码到 StudentColumns；tableFrom* 包含填充表格模型，对应刷新表格的全过程
+// 分配量用 gc 分析器查看（gc.alloc.rate.norm 为每次操作分配的字节数）:
+// java -jar benchmarks/target/benchmarks.jar RowMappingBenchmark -prof gc [-p rows=1000000]
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private ConnectionPool pool;
+    private StudentDao dao;
+
+    @Setup
+    public void open() throws Exception {
+        pool = new ConnectionPool(BenchmarkDatabase.url(BenchmarkDatabase.cached(rows)), 2);
+        dao = new StudentDao(pool);
+    }
+
+    @TearDown
+    public void close() {
+        pool.close();
+    }
+
+    // 原来的 readStudent：每行每列按列名查找
+    @Benchmark
+    public List<Student> studentsByName() throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare("SELECT * FROM students").executeQuery()) {
+            List<Student> list = new ArrayList<>();
+            while (rs.next()) {
+                list.add(new Student(rs.getString("id"), rs.getString("name"), rs.getString("className"),
+                        rs.getInt("math"), rs.getInt("english"), rs.getInt("computer"), rs.getInt("pe")));
+            }
+            return list;
+        }
+    }
+
+    // StudentRowReader：列号解析一次，班级名去重
+    @Benchmark
+    public List<Student> students() throws SQLException {
+        return dao.findAll(() -> false);
+    }
+
+    @Benchmark
+    public StudentColumns columns() throws SQLException {
+        return dao.findAllColumns(rows, () -> false);
+    }
+
+    // 刷新表格原来的路径：先得到 List<Student>，再逐行写入模型
+    @Benchmark
+    public StudentTableModel tableFromStudents() throws SQLException {
+        StudentTableModel model = new StudentTableModel();
+        model.setStudents(studentsByName());
+        return model;
+    }
+
+    @Benchmark
+    public StudentTableModel tableFromColumns() throws SQLException {
+        StudentTableModel model = new StudentTableModel();
+        model.setColumns(dao.findAllColumns(rows, () -> false));
+        return model;
+    }
+}
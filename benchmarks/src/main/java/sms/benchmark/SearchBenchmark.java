@@ -0,0 +1,73 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.StudentDao;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+// 对比 lower(...) LIKE '%kw%' 全表扫描与 StudentDao.search 的索引查询；JMH 版本见 QueryBenchmark
+// 运行: java -cp benchmarks/target/benchmarks.jar sms.benchmark.SearchBenchmark [行数] [数据库文件]
+public class SearchBenchmark {
+    static final String LIKE_SQL =
+            "SELECT * FROM students WHERE lower(id) LIKE ? OR lower(name) LIKE ? OR lower(className) LIKE ?";
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        File dbFile = args.length > 1 ? new File(args[1]) : new File(System.getProperty("java.io.tmpdir"), "sms-search-" + rows + ".db");
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        if (!dbFile.exists()) {
+            long start = System.nanoTime();
+            BenchmarkData.populate(url, rows);
+            System.out.printf("生成 %,d 行用时 %d ms%n", rows, (System.nanoTime() - start) / 1_000_000);
+        }
+        String[] keywords = {"2024000123", "202400012", "2401", "秀英", "王秀英", "李明", "2412"};
+        try (ConnectionPool pool = new ConnectionPool(url, 2)) {
+            StudentDao dao = new StudentDao(pool);
+            System.out.printf("%-12s %8s %14s %14s%n", "关键字", "结果数", "LIKE 扫描(ms)", "索引查询(ms)");
+            for (String keyword : keywords) {
+                int[] count = new int[1];
+                double like = median(() -> count[0] = likeScan(pool, keyword));
+                int expected = count[0];
+                double indexed = median(() -> count[0] = dao.search(keyword, () -> false).size());
+                System.out.printf("%-12s %8d %14.3f %14.3f%s%n", keyword, count[0], like, indexed,
+                        expected == count[0] ? "" : "  (结果数不一致: " + expected + ")");
+            }
+        }
+    }
+
+    interface Query {
+        void run() throws SQLException;
+    }
+
+    static int likeScan(ConnectionPool pool, String keyword) throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(LIKE_SQL);
+            String like = "%" + keyword.toLowerCase() + "%";
+            pstmt.setString(1, like);
+            pstmt.setString(2, like);
+            pstmt.setString(3, like);
+            int n = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) n++;
+            }
+            return n;
+        }
+    }
+
+    private static double median(Query query) throws SQLException {
+        query.run();
+        double[] samples = new double[7];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            query.run();
+            samples[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
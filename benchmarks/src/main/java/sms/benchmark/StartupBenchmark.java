@@ -0,0 +1,105 @@
+package sms.benchmark;
+
+import sms.ui.StudentManagementSystem;
+
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 冷启动耗时：每次启动一个新的 JVM 运行界面（--exit-after-load），记录从进程启动到窗口第一次绘制、
+// 到第一屏数据显示的时间，分别在关闭 CDS、JDK 默认 CDS 和 AppCDS 归档（同 start.sh）下取中位数。
+// 需要图形界面；首次运行需要先生成数据库:
+// java -cp benchmarks/target/benchmarks.jar sms.benchmark.StartupBenchmark [学生数,学生数...] [次数]
+public class StartupBenchmark {
+    private static final long TIMEOUT_SECONDS = 120;
+
+    public static void main(String[] args) throws Exception {
+        if (GraphicsEnvironment.isHeadless()) {
+            System.out.println("没有可用的显示器，无法启动界面；请在桌面环境中运行");
+            return;
+        }
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "10000,1000000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String jar = Paths.get(StartupBenchmark.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                .toString();
+        for (int rows : sizes) {
+            Path db = BenchmarkDatabase.cached(rows);
+            Path dir = Files.createTempDirectory(db.getParent(), "sms-startup-");
+            Path archive = dir.resolve("app.jsa");
+            try {
+                // 界面在工作目录下打开 students.db
+                Files.copy(db, dir.resolve("students.db"));
+                System.out.printf("%,d 名学生%n", rows);
+                // 第一次运行只用来预热文件缓存，同时生成 AppCDS 归档
+                launch(dir, jar, "-XX:ArchiveClassesAtExit=" + archive);
+                measure(dir, jar, runs, "关闭 CDS", "-Xshare:off");
+                measure(dir, jar, runs, "默认 CDS", "-Xshare:auto");
+                measure(dir, jar, runs, "AppCDS", "-XX:SharedArchiveFile=" + archive);
+            } finally {
+                Files.deleteIfExists(archive);
+                BenchmarkDatabase.delete(dir.resolve("students.db"));
+                Files.deleteIfExists(dir);
+            }
+        }
+    }
+
+    private static void measure(Path dir, String jar, int runs, String label, String option) throws Exception {
+        List<Long> visible = new ArrayList<>();
+        List<Long> data = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            long[] result = launch(dir, jar, option);
+            visible.add(result[0]);
+            data.add(result[1]);
+        }
+        System.out.printf("%-10s 窗口显示 %,6d ms, 第一屏数据 %,6d ms（%d 次中位数）%n", label, median(visible),
+                median(data), runs);
+    }
+
+    // 返回 {窗口显示, 第一屏数据} 的毫秒数，取自界面输出的 "startup visible=.. data=.. rows=.."
+    private static long[] launch(Path dir, String jar, String option) throws IOException, InterruptedException {
+        Path output = dir.resolve("output.txt");
+        Process process = new ProcessBuilder("java", option, "-cp", jar,
+                StudentManagementSystem.class.getName(), "--exit-after-load")
+                .directory(dir.toFile())
+                .redirectOutput(output.toFile())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+                throw new IllegalStateException("界面没有在 " + TIMEOUT_SECONDS + " 秒内退出");
+            }
+            // 界面的其他输出按平台编码，只关心 ASCII 的那一行，按单字节读取不会出错
+            for (String line : Files.readAllLines(output, StandardCharsets.ISO_8859_1)) {
+                if (line.startsWith("startup ")) return parse(line);
+            }
+            throw new IllegalStateException("界面没有输出启动耗时，退出码 " + process.exitValue());
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    private static long[] parse(String line) {
+        long[] result = new long[2];
+        for (String field : line.split(" ")) {
+            if (field.startsWith("visible=")) result[0] = Long.parseLong(field.substring(8));
+            if (field.startsWith("data=")) result[1] = Long.parseLong(field.substring(5));
+        }
+        return result;
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}
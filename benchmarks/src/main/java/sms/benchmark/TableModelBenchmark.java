@@ -0,0 +1,95 @@
+package sms.benchmark;
+
+import sms.data.Student;
+import sms.ui.StudentRowSorter;
+import sms.ui.StudentTableModel;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 对比 DefaultTableModel + TableRowSorter 与 StudentTableModel + StudentRowSorter 的堆占用和排序耗时
+// 运行: java -XX:+UseSerialGC -Xmx4g -cp benchmarks/target/benchmarks.jar sms.benchmark.TableModelBenchmark [行数...]
+public class TableModelBenchmark {
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{100_000, 1_000_000} : parse(args);
+        for (int n : sizes) {
+            System.out.printf("==== %,d 行 ====%n", n);
+
+            // 模型各自持有数据，生成用的临时列表在测量前释放
+            long base = usedHeap();
+            DefaultTableModel defaultModel = new DefaultTableModel(
+                    new String[]{"学号", "姓名", "班级", "高等数学", "大学英语", "计算机导论", "体育"}, 0);
+            for (Student s : BenchmarkData.generate(n)) {
+                defaultModel.addRow(new Object[]{s.getId(), s.getName(), s.getClassName(),
+                        s.getMath(), s.getEnglish(), s.getComputer(), s.getPe()});
+            }
+            long defaultHeap = usedHeap() - base;
+            TableRowSorter<DefaultTableModel> tableRowSorter = new TableRowSorter<>(defaultModel);
+            long defaultMath = time(tableRowSorter, 3);
+            long defaultName = time(tableRowSorter, 1);
+            long defaultMulti = timeMulti(tableRowSorter);
+            tableRowSorter = null;
+            defaultModel = null;
+
+            base = usedHeap();
+            StudentTableModel model = new StudentTableModel();
+            model.setStudents(BenchmarkData.generate(n));
+            long columnarHeap = usedHeap() - base;
+            StudentRowSorter sorter = new StudentRowSorter(model);
+            long columnarMath = time(sorter, 3);
+            long columnarName = time(sorter, 1);
+            long columnarMulti = timeMulti(sorter);
+
+            System.out.printf("%-24s %14s %14s%n", "", "DefaultTableModel", "StudentTableModel");
+            System.out.printf("%-24s %11.1f MB %11.1f MB%n", "堆占用", defaultHeap / 1048576.0, columnarHeap / 1048576.0);
+            System.out.printf("%-24s %11d ms %11d ms%n", "按高等数学排序", defaultMath, columnarMath);
+            System.out.printf("%-24s %11d ms %11d ms%n", "按姓名排序", defaultName, columnarName);
+            System.out.printf("%-24s %11d ms %11d ms%n", "班级+数学+学号 三键排序", defaultMulti, columnarMulti);
+            sorter = null;
+            model = null;
+        }
+    }
+
+    private static long time(RowSorter<?> sorter, int column) {
+        List<RowSorter.SortKey> keys = Collections.singletonList(new RowSorter.SortKey(column, SortOrder.ASCENDING));
+        sorter.setSortKeys(null);
+        long start = System.nanoTime();
+        sorter.setSortKeys(keys);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static long timeMulti(RowSorter<?> sorter) {
+        List<RowSorter.SortKey> keys = new ArrayList<>();
+        keys.add(new RowSorter.SortKey(2, SortOrder.ASCENDING));
+        keys.add(new RowSorter.SortKey(3, SortOrder.DESCENDING));
+        keys.add(new RowSorter.SortKey(0, SortOrder.ASCENDING));
+        sorter.setSortKeys(null);
+        long start = System.nanoTime();
+        sorter.setSortKeys(keys);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static int[] parse(String[] args) {
+        int[] sizes = new int[args.length];
+        for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        return sizes;
+    }
+}
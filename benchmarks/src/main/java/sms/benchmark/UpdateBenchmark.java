@@ -0,0 +1,135 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.Student;
+import sms.data.StudentDao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 单条添加、修改、删除（每条自动提交，对话框原来的写法）和写回队列一次提交 500 条修改的耗时
+// 在缓存数据库的副本上运行，结束后删除副本
+// 运行: java -jar benchmarks/target/benchmarks.jar UpdateBenchmark [-p rows=100000]
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UpdateBenchmark {
+    private static final int BATCH = 500;
+    // 新增的学号不与生成的学号重叠，每轮结束后删除
+    private static final String NEW_ID_PREFIX = "2099";
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private Path db;
+    private ConnectionPool pool;
+    private StudentDao dao;
+    private List<Student> students;
+    private int next;
+    private int inserted;
+
+    // 被删除的行在每次调用前插入，插入不计入耗时
+    @State(Scope.Thread)
+    public static class Victim {
+        Student student;
+
+        @Setup(Level.Invocation)
+        public void insert(UpdateBenchmark bench) throws SQLException {
+            student = bench.newStudent();
+            bench.dao.insert(student);
+        }
+    }
+
+    @Setup
+    public void open() throws Exception {
+        db = BenchmarkDatabase.copy(rows);
+        pool = new ConnectionPool(BenchmarkDatabase.url(db), 2);
+        dao = new StudentDao(pool);
+        students = new ArrayList<>();
+        for (String id : BenchmarkDatabase.randomIds(rows, 4096, 11)) {
+            students.add(dao.findById(id));
+        }
+    }
+
+    @TearDown
+    public void close() throws Exception {
+        pool.close();
+        BenchmarkDatabase.delete(db);
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeInserted() throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare("DELETE FROM students WHERE id >= ?");
+            pstmt.setString(1, NEW_ID_PREFIX);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private Student nextStudent() {
+        return students.get(next++ & (students.size() - 1));
+    }
+
+    private Student newStudent() {
+        Student s = students.get(inserted & (students.size() - 1));
+        return new Student(NEW_ID_PREFIX + String.format("%07d", inserted++), s.getName(), s.getClassName(),
+                s.getMath(), s.getEnglish(), s.getComputer(), s.getPe());
+    }
+
+    private static Student withMath(Student s, int math) {
+        return new Student(s.getId(), s.getName(), s.getClassName(), math, s.getEnglish(), s.getComputer(), s.getPe());
+    }
+
+    @Benchmark
+    public void insert() throws SQLException {
+        dao.insert(newStudent());
+    }
+
+    // 每次改动一门成绩，使写入确实发生
+    @Benchmark
+    public void update() throws SQLException {
+        Student s = nextStudent();
+        s.setMath((s.getMath() + 1) % 101);
+        dao.update(s);
+    }
+
+    @Benchmark
+    public void delete(Victim victim) throws SQLException {
+        dao.delete(victim.student.getId());
+    }
+
+    // 写回队列的提交方式：500 名学生各改一门成绩，一个事务写入
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<StudentDao.Change> applyChanges() throws SQLException {
+        List<StudentDao.Change> changes = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            Student s = nextStudent();
+            Student after = withMath(s, (s.getMath() + 1) % 101);
+            changes.add(new StudentDao.Change(withMath(s, s.getMath()), after));
+            s.setMath(after.getMath());
+        }
+        return dao.applyChanges(changes);
+    }
+}
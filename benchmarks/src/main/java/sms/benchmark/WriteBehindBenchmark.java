@@ -0,0 +1,132 @@
+package sms.benchmark;
+
+import sms.data.ConnectionPool;
+import sms.data.GradeStats;
+import sms.data.Student;
+import sms.data.StudentDao;
+import sms.data.WriteBehindQueue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 连续录入成绩：按班级逐科逐人修改一门成绩，对比每次修改自动提交（原来的做法）与 WriteBehindQueue 合并写入
+// 统计录入线程每次修改的等待时间，以及全部修改提交到数据库的吞吐量和事务数
+// 运行: java -cp benchmarks/target/benchmarks.jar sms.benchmark.WriteBehindBenchmark [总行数] [每轮录入的班级数]
+public class WriteBehindBenchmark {
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int classesPerRound = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        File dbFile = new File(System.getProperty("java.io.tmpdir"), "sms-write-behind-" + rows + ".db");
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            new File(dbFile.getPath() + suffix).delete();
+        }
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        BenchmarkData.populate(url, rows);
+
+        try (ConnectionPool pool = new ConnectionPool(url, 2)) {
+            StudentDao dao = new StudentDao(pool);
+            dao.migrateSchema();
+            Map<String, List<Student>> byClass = new HashMap<>();
+            for (Student s : dao.findAll(() -> false)) {
+                byClass.computeIfAbsent(s.getClassName(), k -> new ArrayList<>()).add(s);
+            }
+            List<String> classNames = new ArrayList<>(byClass.keySet());
+            Random random = new Random(7);
+            System.out.printf("%,d 行, 每轮录入 %d 个班级的四门成绩%n", rows, classesPerRound);
+            for (int round = 0; round < 3; round++) {
+                List<List<Student>> classes = new ArrayList<>();
+                for (int c = 0; c < classesPerRound; c++) {
+                    classes.add(byClass.get(classNames.get(random.nextInt(classNames.size()))));
+                }
+                autocommit(dao, classes, random);
+                writeBehind(dao, classes, random);
+            }
+        }
+    }
+
+    private static void autocommit(StudentDao dao, List<List<Student>> classes, Random random) throws Exception {
+        Latency latency = new Latency();
+        long start = System.nanoTime();
+        int edits = 0;
+        for (List<Student> members : classes) {
+            for (int course = 0; course < GradeStats.COURSES; course++) {
+                for (Student s : members) {
+                    setScore(s, course, random.nextInt(101));
+                    long t = System.nanoTime();
+                    dao.update(s);
+                    latency.add(System.nanoTime() - t);
+                    edits++;
+                }
+            }
+        }
+        report("逐次自动提交", edits, System.nanoTime() - start, latency, edits);
+    }
+
+    private static void writeBehind(StudentDao dao, List<List<Student>> classes, Random random) throws Exception {
+        WriteBehindQueue queue = new WriteBehindQueue(dao::applyChanges, 200, 500);
+        AtomicInteger transactions = new AtomicInteger();
+        queue.setListener(new WriteBehindQueue.Listener() {
+            @Override
+            public void flushed(int written, List<StudentDao.Change> conflicts) {
+                transactions.incrementAndGet();
+                if (!conflicts.isEmpty()) throw new AssertionError("不应有冲突: " + conflicts.size());
+            }
+
+            @Override
+            public void failed(Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        Latency latency = new Latency();
+        long start = System.nanoTime();
+        int edits = 0;
+        for (List<Student> members : classes) {
+            for (int course = 0; course < GradeStats.COURSES; course++) {
+                for (Student s : members) {
+                    Student before = new Student(s.getId(), s.getName(), s.getClassName(),
+                            s.getMath(), s.getEnglish(), s.getComputer(), s.getPe());
+                    setScore(s, course, random.nextInt(101));
+                    long t = System.nanoTime();
+                    queue.update(before, s);
+                    latency.add(System.nanoTime() - t);
+                    edits++;
+                }
+            }
+        }
+        // 计时到全部修改提交为止
+        queue.close();
+        report("写入队列", edits, System.nanoTime() - start, latency, transactions.get());
+    }
+
+    private static void setScore(Student s, int course, int score) {
+        switch (course) {
+            case 0: s.setMath(score); break;
+            case 1: s.setEnglish(score); break;
+            case 2: s.setComputer(score); break;
+            default: s.setPe(score); break;
+        }
+    }
+
+    private static void report(String label, int edits, long nanos, Latency latency, int transactions) {
+        System.out.printf("%-10s %,6d 次修改 %6d ms %,10.0f 次/秒   每次等待 平均 %8.1f µs, 最长 %8.1f µs   事务 %,d 个%n",
+                label, edits, nanos / 1_000_000, edits * 1e9 / nanos, latency.total / 1e3 / latency.count,
+                latency.max / 1e3, transactions);
+    }
+
+    private static class Latency {
+        long total;
+        long max;
+        int count;
+
+        void add(long nanos) {
+            total += nanos;
+            max = Math.max(max, nanos);
+            count++;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package sms.data;
+
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteErrorCode;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// 数据库快照：用 SQLite 在线备份接口按页分步复制，再 gzip 压缩到备份目录，只保留最新的若干份
+// 复制前先开启读事务固定 WAL 快照，复制期间其他连接照常写入，备份也不会因源库变化而从头开始；
+// 快照内容即开始备份那一刻已提交的数据。恢复只在启动时、打开连接池之前进行，见 restorePending
+public class BackupManager implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(BackupManager.class.getName());
+    public static final String SUFFIX = ".db.gz";
+    // 每步复制的页数（默认 4 KB 一页，即每步 4 MB），两步之间让出处理器
+    private static final int PAGES_PER_STEP = 1024;
+    private static final long STEP_PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int BUSY_SLEEP_MS = 100;
+    private static final int BUSY_RETRIES = 50;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    // 自动备份：启动一分钟后第一次检查，避开启动时的加载，之后每小时检查一次
+    private static final long FIRST_CHECK_DELAY_MINUTES = 1;
+    private static final long CHECK_INTERVAL_MINUTES = 60;
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    public enum Phase { COPY, COMPRESS, RESTORE }
+
+    public interface Progress {
+        // 在备份线程上调用，done/total 为页数（COPY）或字节数
+        void update(Phase phase, long done, long total);
+    }
+
+    public static final class Snapshot {
+        public final Path file;
+        public final LocalDateTime time;
+        public final long size;
+
+        Snapshot(Path file, LocalDateTime time, long size) {
+            this.file = file;
+            this.time = time;
+            this.size = size;
+        }
+    }
+
+    private final Path database;
+    private final Path directory;
+    private final int keep;
+    private final Pattern namePattern;
+    // 备份依次执行，不占用查询线程
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sms-backup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 快照为 directory 下的 <库名>-<时间>.db.gz，超过 keep 份时删除最旧的
+    public BackupManager(Path database, Path directory, int keep) {
+        this.database = database.toAbsolutePath();
+        this.directory = directory.toAbsolutePath();
+        this.keep = keep;
+        this.namePattern = Pattern.compile(Pattern.quote(baseName(database)) + "-(\\d{8}-\\d{6})(-\\d+)?"
+                + Pattern.quote(SUFFIX));
+    }
+
+    public Path database() {
+        return database;
+    }
+
+    // 在备份线程上建立一份快照
+    public CompletableFuture<Snapshot> backupAsync(Progress progress) {
+        CompletableFuture<Snapshot> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isDone()) return;
+            try {
+                future.complete(backup(progress, future::isCancelled));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    // 定期检查，最新的快照早于 interval 时在后台备份；失败只记日志，下次检查时重试
+    public void startAutomatic(Duration interval) {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                List<Snapshot> snapshots = snapshots();
+                if (snapshots.isEmpty()
+                        || snapshots.get(0).time.isBefore(LocalDateTime.now().minus(interval))) {
+                    backup((phase, done, total) -> { }, () -> false);
+                }
+            } catch (Exception e) {
+                LOG.log(Level.WARNING, "自动备份失败: " + e.getMessage(), e);
+            }
+        }, FIRST_CHECK_DELAY_MINUTES, CHECK_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public Snapshot backup(Progress progress, BooleanSupplier cancelled) throws IOException, SQLException {
+        Files.createDirectories(directory);
+        try (Metrics.Timer timer = Metrics.start("backup.snapshot")) {
+            LocalDateTime time = LocalDateTime.now().withNano(0);
+            Path target = uniqueTarget(time);
+            Path copy = directory.resolve(target.getFileName() + ".copy");
+            Path part = directory.resolve(target.getFileName() + ".part");
+            try {
+                copyPages(copy, progress);
+                if (cancelled.getAsBoolean()) throw new CancellationException();
+                compress(copy, part, progress, cancelled);
+                Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(part);
+                deleteDatabase(copy);
+            }
+            rotate();
+            timer.done();
+            return new Snapshot(target, time, Files.size(target));
+        }
+    }
+
+    // 在复制所用的连接上先读一次，事务结束前看到的始终是这一刻的数据
+    private void copyPages(Path copy, Progress progress) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + database)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA busy_timeout=5000");
+            }
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT count(*) FROM sqlite_master")) {
+                rs.next();
+            }
+            int rc = conn.unwrap(SQLiteConnection.class).getDatabase().backup("main", copy.toString(),
+                    (remaining, total) -> {
+                        progress.update(Phase.COPY, total - remaining, total);
+                        LockSupport.parkNanos(STEP_PAUSE_NANOS);
+                    }, BUSY_SLEEP_MS, BUSY_RETRIES, PAGES_PER_STEP);
+            conn.rollback();
+            if (rc != SQLiteErrorCode.SQLITE_OK.code) {
+                throw new SQLException("复制数据库失败，错误码 " + rc);
+            }
+        }
+    }
+
+    // 最快的压缩级别约压到三分之一；默认级别只再小一成，耗时却是两倍多
+    private static void compress(Path source, Path target, Progress progress, BooleanSupplier cancelled)
+            throws IOException {
+        long total = Files.size(source);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), BUFFER_SIZE) {
+                 {
+                     def.setLevel(Deflater.BEST_SPEED);
+                 }
+             }) {
+            long done = 0;
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                if (cancelled.getAsBoolean()) throw new CancellationException();
+                out.write(buffer, 0, n);
+                done += n;
+                progress.update(Phase.COMPRESS, done, total);
+            }
+        }
+    }
+
+    // 同一秒内的第二份快照加序号
+    private Path uniqueTarget(LocalDateTime time) {
+        String prefix = baseName(database) + "-" + time.format(STAMP);
+        Path target = directory.resolve(prefix + SUFFIX);
+        for (int i = 2; Files.exists(target); i++) {
+            target = directory.resolve(prefix + "-" + i + SUFFIX);
+        }
+        return target;
+    }
+
+    private void rotate() throws IOException {
+        List<Snapshot> snapshots = snapshots();
+        for (int i = keep; i < snapshots.size(); i++) {
+            Files.deleteIfExists(snapshots.get(i).file);
+        }
+    }
+
+    // 备份目录中的快照，最新的在前
+    public List<Snapshot> snapshots() throws IOException {
+        List<Snapshot> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return snapshots;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher m = namePattern.matcher(file.getFileName().toString());
+                if (m.matches()) {
+                    snapshots.add(new Snapshot(file, LocalDateTime.parse(m.group(1), STAMP), Files.size(file)));
+                }
+            }
+        }
+        snapshots.sort(Comparator.comparing((Snapshot s) -> s.time)
+                .thenComparing(s -> s.file.getFileName().toString().length())
+                .thenComparing(s -> s.file.getFileName().toString()).reversed());
+        return snapshots;
+    }
+
+    // 不是本目录命名的文件（如命令行指定的）以修改时间作为快照时间
+    private Snapshot describe(Path file) throws IOException {
+        Matcher m = namePattern.matcher(file.getFileName().toString());
+        LocalDateTime time = m.matches() ? LocalDateTime.parse(m.group(1), STAMP)
+                : LocalDateTime.ofInstant(Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault());
+        return new Snapshot(file, time, Files.size(file));
+    }
+
+    // 记下要恢复的快照，下次启动时由 restorePending 恢复；运行中的连接池仍指向当前的数据库文件
+    public void scheduleRestore(Path snapshot) throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            throw new IOException("备份文件不存在: " + snapshot);
+        }
+        Files.write(marker(), snapshot.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean restoreScheduled() {
+        return Files.exists(marker());
+    }
+
+    // 启动时、打开任何连接之前调用；没有待恢复的快照时结果为 null
+    // 标记文件先删除：快照损坏时不会每次启动都失败，原数据库保持不变
+    public CompletableFuture<Snapshot> restorePending(Progress progress) {
+        CompletableFuture<Snapshot> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                if (!restoreScheduled()) {
+                    future.complete(null);
+                    return;
+                }
+                Path snapshot = Paths.get(new String(Files.readAllBytes(marker()), StandardCharsets.UTF_8).trim());
+                Files.delete(marker());
+                Snapshot restored = describe(snapshot);
+                restore(snapshot, progress);
+                future.complete(restored);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    // 解压到临时文件并做完整性检查，通过后才替换数据库；原文件合并 WAL 后改名为 .before-restore 保留
+    public void restore(Path snapshot, Progress progress) throws IOException, SQLException {
+        try (Metrics.Timer timer = Metrics.start("backup.restore")) {
+            Path restoring = database.resolveSibling(database.getFileName() + ".restoring");
+            try {
+                decompress(snapshot, restoring, progress);
+                quickCheck(restoring);
+                if (Files.exists(database)) {
+                    checkpoint(database);
+                    deleteDatabase(database.resolveSibling(database.getFileName() + ".before-restore"));
+                    Files.move(database, database.resolveSibling(database.getFileName() + ".before-restore"));
+                }
+                deleteDatabase(database);
+                Files.move(restoring, database, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                deleteDatabase(restoring);
+            }
+            timer.done();
+        }
+    }
+
+    private static void decompress(Path snapshot, Path target, Progress progress) throws IOException {
+        long total = Files.size(snapshot);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (CountingInputStream counted = new CountingInputStream(Files.newInputStream(snapshot));
+             InputStream in = new GZIPInputStream(counted, BUFFER_SIZE);
+             OutputStream out = Files.newOutputStream(target)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+                progress.update(Phase.RESTORE, counted.count, total);
+            }
+        }
+    }
+
+    private static void quickCheck(Path db) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + db);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA quick_check")) {
+            String result = rs.next() ? rs.getString(1) : null;
+            if (!"ok".equals(result)) {
+                throw new SQLException("备份文件已损坏: " + result);
+            }
+        }
+    }
+
+    // 把 WAL 中的内容写回主文件，之后单独移动主文件不会丢失已提交的修改
+    private static void checkpoint(Path db) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + db);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout=5000");
+            stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+        }
+    }
+
+    private static void deleteDatabase(Path db) throws IOException {
+        for (String suffix : new String[]{"", "-journal", "-wal", "-shm"}) {
+            Files.deleteIfExists(Paths.get(db + suffix));
+        }
+    }
+
+    private Path marker() {
+        return database.resolveSibling(database.getFileName() + ".restore");
+    }
+
+    private static String baseName(Path database) {
+        String name = database.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    // 退出时不等待进行中的备份，未完成的快照不会出现在备份目录中
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // 按读取的压缩字节数报告解压进度
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package sms.data;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+// 修改日志中的一条记录：只保存变化的字段（delta），插入时只有新值，删除时只有旧值
+// delta 格式：第一个字节为字段掩码，之后按字段顺序，每个记录的字段依次写旧值（插入时没有）和新值（删除时没有）；
+// 字符串为变长长度 + UTF-8，成绩为一个字节，登记课程的成绩向量为变长长度 + 内容（长度 0 即没有成绩）
+// 只改一门成绩的修改 delta 为 3 个字节
+public final class ChangeLog {
+    public static final int INSERT = 1;
+    public static final int UPDATE = 2;
+    public static final int DELETE = 3;
+
+    public static final int NAME = 0;
+    public static final int CLASS_NAME = 1;
+    // 2-5 为四门固定课程，顺序同 Student.getScore
+    public static final int FIRST_SCORE = 2;
+    public static final int EXTRA_SCORES = 6;
+    public static final int FIELDS = 7;
+    private static final int ALL_FIELDS = (1 << FIELDS) - 1;
+
+    public static final class Entry {
+        public final long seq;
+        // 毫秒时间戳，合并的记录为其中最后一次修改的时间
+        public final long time;
+        public final String studentId;
+        public final int kind;
+        // 记录了哪些字段，第 i 位对应字段 i
+        public final int fields;
+        // 合并进这一条的修改次数
+        public final int merged;
+        private final Object[] oldValues;
+        private final Object[] newValues;
+
+        Entry(long seq, long time, String studentId, int kind, int fields, int merged,
+              Object[] oldValues, Object[] newValues) {
+            this.seq = seq;
+            this.time = time;
+            this.studentId = studentId;
+            this.kind = kind;
+            this.fields = fields;
+            this.merged = merged;
+            this.oldValues = oldValues;
+            this.newValues = newValues;
+        }
+
+        public boolean has(int field) {
+            return (fields & (1 << field)) != 0;
+        }
+
+        // 姓名、班级为 String，成绩为 Integer，登记课程为 byte[]（可能为 null）；插入时没有旧值
+        public Object oldValue(int field) {
+            return oldValues[field];
+        }
+
+        // 删除时没有新值
+        public Object newValue(int field) {
+            return newValues[field];
+        }
+
+        public byte[] delta() {
+            return encode(kind, fields, oldValues, newValues);
+        }
+    }
+
+    private ChangeLog() {
+    }
+
+    public static int kindOf(StudentDao.Change change) {
+        return change.before == null ? INSERT : change.after == null ? DELETE : UPDATE;
+    }
+
+    public static byte[] encode(StudentDao.Change change) {
+        int kind = kindOf(change);
+        Object[] oldValues = change.before == null ? null : values(change.before);
+        Object[] newValues = change.after == null ? null : values(change.after);
+        int fields = ALL_FIELDS;
+        if (kind == UPDATE) {
+            fields = 0;
+            for (int f = 0; f < FIELDS; f++) {
+                if (!Objects.deepEquals(oldValues[f], newValues[f])) fields |= 1 << f;
+            }
+        }
+        return encode(kind, fields, oldValues, newValues);
+    }
+
+    private static Object[] values(Student s) {
+        return new Object[]{s.getName(), s.getClassName(), s.getMath(), s.getEnglish(), s.getComputer(), s.getPe(),
+                s.getExtraScores()};
+    }
+
+    private static byte[] encode(int kind, int fields, Object[] oldValues, Object[] newValues) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+        out.write(fields);
+        for (int f = 0; f < FIELDS; f++) {
+            if ((fields & (1 << f)) == 0) continue;
+            if (kind != INSERT) writeValue(out, f, oldValues[f]);
+            if (kind != DELETE) writeValue(out, f, newValues[f]);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeValue(ByteArrayOutputStream out, int field, Object value) {
+        if (field >= FIRST_SCORE && field < EXTRA_SCORES) {
+            out.write((Integer) value);
+            return;
+        }
+        byte[] bytes = value == null ? new byte[0]
+                : value instanceof byte[] ? (byte[]) value : ((String) value).getBytes(StandardCharsets.UTF_8);
+        int n = bytes.length;
+        while (n >= 0x80) {
+            out.write((n & 0x7F) | 0x80);
+            n >>>= 7;
+        }
+        out.write(n);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    public static Entry decode(long seq, long time, String studentId, int kind, byte[] delta, int merged) {
+        ByteBuffer in = ByteBuffer.wrap(delta);
+        int fields = in.get() & 0xFF;
+        Object[] oldValues = new Object[FIELDS];
+        Object[] newValues = new Object[FIELDS];
+        for (int f = 0; f < FIELDS; f++) {
+            if ((fields & (1 << f)) == 0) continue;
+            if (kind != INSERT) oldValues[f] = readValue(in, f);
+            if (kind != DELETE) newValues[f] = readValue(in, f);
+        }
+        return new Entry(seq, time, studentId, kind, fields, merged, oldValues, newValues);
+    }
+
+    private static Object readValue(ByteBuffer in, int field) {
+        if (field >= FIRST_SCORE && field < EXTRA_SCORES) {
+            return in.get() & 0xFF;
+        }
+        int n = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.get() & 0xFF;
+            n |= (b & 0x7F) << shift;
+            if (b < 0x80) break;
+        }
+        byte[] bytes = new byte[n];
+        in.get(bytes);
+        if (field == EXTRA_SCORES) return n == 0 ? null : bytes;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 同一学生先后两条记录合并为一条（保留 later 的序号和时间）：旧值取最早记录的，新值取最后记录的；
+    // 合并后没有净变化（如添加后又删除，或改回原值）时返回 null
+    public static Entry merge(Entry earlier, Entry later) {
+        boolean existedBefore = earlier.kind != INSERT;
+        boolean existsAfter = later.kind != DELETE;
+        int merged = earlier.merged + later.merged;
+        if (!existedBefore && !existsAfter) return null;
+        int kind = !existedBefore ? INSERT : !existsAfter ? DELETE : UPDATE;
+        Object[] oldValues = new Object[FIELDS];
+        Object[] newValues = new Object[FIELDS];
+        int fields = 0;
+        for (int f = 0; f < FIELDS; f++) {
+            boolean oldKnown = false;
+            boolean newKnown = false;
+            if (earlier.has(f) && earlier.kind != INSERT) {
+                oldValues[f] = earlier.oldValues[f];
+                oldKnown = true;
+            } else if (later.has(f) && later.kind != INSERT) {
+                oldValues[f] = later.oldValues[f];
+                oldKnown = true;
+            }
+            if (later.has(f) && later.kind != DELETE) {
+                newValues[f] = later.newValues[f];
+                newKnown = true;
+            } else if (earlier.has(f) && earlier.kind != DELETE) {
+                newValues[f] = earlier.newValues[f];
+                newKnown = true;
+            }
+            boolean keep = kind == INSERT ? newKnown : kind == DELETE ? oldKnown
+                    : oldKnown && newKnown && !Objects.deepEquals(oldValues[f], newValues[f]);
+            if (keep) fields |= 1 << f;
+        }
+        if (kind == UPDATE && fields == 0) return null;
+        return new Entry(later.seq, later.time, later.studentId, kind, fields, merged, oldValues, newValues);
+    }
+}
@@ -0,0 +1,245 @@
+package sms.data;
+
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// SQLite 连接池：复用长连接，每个连接缓存自己的预编译语句
+public class ConnectionPool implements AutoCloseable, ConnectionPoolMXBean {
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    private static final long ACQUIRE_TIMEOUT_MS = 10_000;
+    private static final Metrics.Operation ACQUIRE = Metrics.operation("pool.acquire");
+
+    private final String url;
+    private final int maxSize;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private int opened;
+    private long openedTotal;
+    private boolean closed;
+
+    public ConnectionPool(String url, int maxSize) {
+        this.url = url;
+        this.maxSize = maxSize;
+    }
+
+    // 借出连接，用完后 close() 归还；等待空闲连接的时间记入 pool.acquire
+    public PooledConnection acquire() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(ACQUIRE_TIMEOUT_MS);
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new SQLException("连接池已关闭");
+                }
+                PooledConnection conn = idle.pollFirst();
+                if (conn != null) {
+                    ACQUIRE.record(System.nanoTime() - start, 0, false);
+                    return conn;
+                }
+                if (opened < maxSize) {
+                    opened++;
+                    break;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    ACQUIRE.record(System.nanoTime() - start, 0, true);
+                    throw new SQLException("获取数据库连接超时");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("获取数据库连接被中断", e);
+                }
+            }
+        }
+        ACQUIRE.record(System.nanoTime() - start, 0, false);
+        // 在锁外建立物理连接，避免阻塞其他借还操作
+        try {
+            return new PooledConnection(this, openPhysical());
+        } catch (SQLException e) {
+            synchronized (this) {
+                opened--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        try (Metrics.Timer timer = Metrics.start("pool.open")) {
+            Connection conn = openAndConfigure();
+            synchronized (this) {
+                openedTotal++;
+            }
+            timer.done();
+            return conn;
+        }
+    }
+
+    private Connection openAndConfigure() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement stmt = conn.createStatement()) {
+            // WAL 允许读写并发；NORMAL 在 WAL 下仍保证崩溃一致性
+            stmt.execute("PRAGMA journal_mode=WAL");
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("PRAGMA busy_timeout=5000");
+            stmt.execute("PRAGMA mmap_size=268435456");
+            stmt.execute("PRAGMA cache_size=-16384");
+            stmt.execute("PRAGMA temp_store=MEMORY");
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public synchronized int getOpen() {
+        return opened;
+    }
+
+    @Override
+    public synchronized int getIdle() {
+        return idle.size();
+    }
+
+    @Override
+    public synchronized long getOpenedTotal() {
+        return openedTotal;
+    }
+
+    void release(PooledConnection conn) {
+        boolean discard;
+        synchronized (this) {
+            discard = closed || conn.isBroken();
+            if (discard) {
+                opened--;
+            } else {
+                idle.addFirst(conn);
+            }
+            notifyAll();
+        }
+        if (discard) {
+            conn.closePhysical();
+        }
+    }
+
+    @Override
+    public void close() {
+        Deque<PooledConnection> toClose;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            opened -= idle.size();
+            idle.clear();
+            notifyAll();
+        }
+        for (PooledConnection conn : toClose) {
+            conn.closePhysical();
+        }
+    }
+
+    // 池中的一条物理连接
+    public static class PooledConnection implements AutoCloseable {
+        private final ConnectionPool pool;
+        private final Connection conn;
+        private final Map<String, PreparedStatement> statements =
+                new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                        if (size() > STATEMENT_CACHE_SIZE) {
+                            closeQuietly(eldest.getValue());
+                            return true;
+                        }
+                        return false;
+                    }
+                };
+        private boolean broken;
+
+        PooledConnection(ConnectionPool pool, Connection conn) {
+            this.pool = pool;
+            this.conn = conn;
+        }
+
+        // 返回缓存的预编译语句，调用方不要关闭它，只需关闭 ResultSet
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement pstmt = statements.get(sql);
+            if (pstmt == null) {
+                QueryPlanLogger.explain(conn, sql);
+                pstmt = conn.prepareStatement(sql);
+                statements.put(sql, pstmt);
+            } else {
+                pstmt.clearParameters();
+            }
+            return pstmt;
+        }
+
+        public Connection raw() {
+            return conn;
+        }
+
+        public void begin() throws SQLException {
+            conn.setAutoCommit(false);
+        }
+
+        public void commit() throws SQLException {
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+
+        public void rollback() {
+            try {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                broken = true;
+            }
+        }
+
+        boolean isBroken() {
+            if (broken) return true;
+            try {
+                // 未提交的事务不能带回池中
+                if (!conn.getAutoCommit()) {
+                    rollback();
+                }
+                return broken || conn.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        }
+
+        @Override
+        public void close() {
+            pool.release(this);
+        }
+
+        void closePhysical() {
+            for (PreparedStatement pstmt : statements.values()) {
+                closeQuietly(pstmt);
+            }
+            statements.clear();
+            try {
+                conn.close();
+            } catch (SQLException ignored) {
+            }
+        }
+
+        private static void closeQuietly(Statement stmt) {
+            try {
+                stmt.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package sms.data;
+
+// 连接池的状态，由程序注册为 sms:type=ConnectionPool
+public interface ConnectionPoolMXBean {
+    int getMaxSize();
+
+    // 当前已建立的物理连接（含借出和空闲）
+    int getOpen();
+
+    int getIdle();
+
+    // 启动以来建立过的物理连接数，持续增长说明连接在被丢弃重建
+    long getOpenedTotal();
+}
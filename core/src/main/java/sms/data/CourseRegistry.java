@@ -0,0 +1,53 @@
+package sms.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// 课程表：前四门为学生表中的固定列（有排序索引、汇总表和名次表），之后为 courses 表中登记的课程，
+// 成绩按登记顺序（slot）存放在学生的 extra_scores 中，每门一个字节，见 Student.getExtraScores
+// 课程下标：0-3 为固定课程，4 起依次为登记的课程。对象不可变，添加课程后得到新的对象
+public final class CourseRegistry {
+    public static final String[] FIXED_NAMES = {"高等数学", "大学英语", "计算机导论", "体育"};
+    public static final int FIXED_COUNT = FIXED_NAMES.length;
+    // 课程名最长字符数
+    public static final int MAX_NAME_LENGTH = 30;
+    public static final CourseRegistry FIXED_ONLY = new CourseRegistry(Collections.emptyList());
+
+    private final List<String> extraNames;
+
+    // extraNames 按 slot 顺序
+    public CourseRegistry(List<String> extraNames) {
+        this.extraNames = Collections.unmodifiableList(new ArrayList<>(extraNames));
+    }
+
+    public int size() {
+        return FIXED_COUNT + extraNames.size();
+    }
+
+    public int extraCount() {
+        return extraNames.size();
+    }
+
+    public String name(int course) {
+        return course < FIXED_COUNT ? FIXED_NAMES[course] : extraNames.get(course - FIXED_COUNT);
+    }
+
+    public List<String> extraNames() {
+        return extraNames;
+    }
+
+    // 全部课程名，下标即课程下标
+    public String[] names() {
+        String[] names = new String[size()];
+        for (int i = 0; i < names.length; i++) names[i] = name(i);
+        return names;
+    }
+
+    public int indexOf(String name) {
+        for (int i = 0; i < size(); i++) {
+            if (name(i).equals(name)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,113 @@
+package sms.data;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// 流式读取 CSV/TSV：一次只保留一条记录，支持双引号字段（含转义的 "" 和字段内换行）
+// 分隔符由调用方指定，\r\n、\n、\r 都视为记录结束
+public class CsvReader implements AutoCloseable {
+    private final Reader in;
+    private final char delimiter;
+    private final char[] buf = new char[64 * 1024];
+    private int pos;
+    private int limit;
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> record = new ArrayList<>();
+    // 当前记录起始行号（从 1 开始），引号内的换行也计入行数
+    private long line = 1;
+    private long recordLine;
+
+    public CsvReader(Reader in, char delimiter) {
+        this.in = in;
+        this.delimiter = delimiter;
+    }
+
+    // 返回下一条记录，文件结束时返回 null；空行跳过
+    public String[] next() throws IOException {
+        while (true) {
+            int c = read();
+            if (c < 0) return null;
+            if (c == '\n') {
+                line++;
+                continue;
+            }
+            if (c == '\r') {
+                line++;
+                skipLineFeed();
+                continue;
+            }
+            recordLine = line;
+            return readRecord(c);
+        }
+    }
+
+    public long recordLine() {
+        return recordLine;
+    }
+
+    private String[] readRecord(int c) throws IOException {
+        record.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean fieldStart = true;
+        while (true) {
+            if (c < 0) {
+                record.add(field.toString());
+                return record.toArray(new String[0]);
+            }
+            if (quoted) {
+                if (c == '"') {
+                    int n = read();
+                    if (n == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = n;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append((char) c);
+                }
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else if (c == delimiter) {
+                record.add(field.toString());
+                field.setLength(0);
+                fieldStart = true;
+            } else if (c == '\n' || c == '\r') {
+                line++;
+                if (c == '\r') skipLineFeed();
+                record.add(field.toString());
+                return record.toArray(new String[0]);
+            } else {
+                field.append((char) c);
+                fieldStart = false;
+            }
+            c = read();
+        }
+    }
+
+    private void skipLineFeed() throws IOException {
+        if (fill() && buf[pos] == '\n') pos++;
+    }
+
+    private int read() throws IOException {
+        return fill() ? buf[pos++] : -1;
+    }
+
+    private boolean fill() throws IOException {
+        if (pos < limit) return true;
+        limit = in.read(buf, 0, buf.length);
+        pos = 0;
+        return limit > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
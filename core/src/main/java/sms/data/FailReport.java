@@ -0,0 +1,117 @@
+package sms.data;
+
+import java.util.Arrays;
+
+// 不及格报表：一次查询取出至少一门不及格的学生，按列存放（与全表加载相同的 StudentColumns），
+// 同时统计各科不及格人数和“不及格 k 门”的人数；按课程或门数筛选只在下标数组上进行，不再查询
+// 课程下标即 CourseRegistry 的下标，包括登记的课程；登记课程没有成绩不算不及格。建好后只读，可以交给 EDT 使用
+public final class FailReport {
+    // 筛选时表示任意一门课程
+    public static final int ANY_COURSE = -1;
+
+    private final StudentColumns rows;
+    private final CourseRegistry courses;
+    // 每行不及格的门数
+    private final short[] failed;
+    private final int[] courseCounts;
+    // failedCounts[k] 为恰好不及格 k 门的人数
+    private final int[] failedCounts;
+
+    public FailReport(StudentColumns rows, CourseRegistry courses) {
+        this.rows = rows;
+        this.courses = courses;
+        int n = rows.size();
+        failed = new short[n];
+        courseCounts = new int[courses.size()];
+        failedCounts = new int[courses.size() + 1];
+        byte[][] scores = rows.scores();
+        for (int c = 0; c < CourseRegistry.FIXED_COUNT; c++) {
+            byte[] column = scores[c];
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                if (column[i] < GradeStats.PASS_SCORE) {
+                    failed[i]++;
+                    count++;
+                }
+            }
+            courseCounts[c] = count;
+        }
+        // 登记课程按行读成绩向量，大多数行为 null
+        byte[][] extraScores = rows.extraScores();
+        int extraCount = courses.extraCount();
+        for (int i = 0; i < n; i++) {
+            byte[] extra = extraScores[i];
+            if (extra == null) continue;
+            for (int slot = 0; slot < Math.min(extra.length, extraCount); slot++) {
+                if (isFailing(extra[slot])) {
+                    failed[i]++;
+                    courseCounts[CourseRegistry.FIXED_COUNT + slot]++;
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) failedCounts[failed[i]]++;
+    }
+
+    // 至少一门不及格的人数
+    public int size() {
+        return rows.size();
+    }
+
+    public StudentColumns rows() {
+        return rows;
+    }
+
+    // 报表包含的课程，下标与 course 参数一致
+    public CourseRegistry courses() {
+        return courses;
+    }
+
+    public boolean failed(int row, int course) {
+        return isFailing(rows.getScore(row, course));
+    }
+
+    public int failedCourses(int row) {
+        return failed[row];
+    }
+
+    public int courseCount(int course) {
+        return courseCounts[course];
+    }
+
+    // 不及格至少 minFailed 门的人数
+    public int countAtLeast(int minFailed) {
+        int total = 0;
+        for (int k = Math.max(minFailed, 1); k < failedCounts.length; k++) total += failedCounts[k];
+        return total;
+    }
+
+    // 满足条件的行下标（按查询顺序）：course 不及格（ANY_COURSE 为任意一门）且不及格至少 minFailed 门
+    public int[] select(int course, int minFailed) {
+        int min = Math.max(minFailed, 1);
+        int n = rows.size();
+        int[] selected = new int[course == ANY_COURSE ? countAtLeast(min) : courseCounts[course]];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            if (failed[i] >= min && (course == ANY_COURSE || failed(i, course))) selected[size++] = i;
+        }
+        return size == selected.length ? selected : Arrays.copyOf(selected, size);
+    }
+
+    // 以制表符分隔追加一行：学号、姓名、班级、各门成绩（没有成绩为空）、不及格门数；
+    // 不经过 String.format，也不为每行创建字符串
+    public void appendRow(StringBuilder out, int row) {
+        out.append(rows.getId(row)).append('\t')
+                .append(rows.getName(row)).append('\t')
+                .append(rows.getClassName(row));
+        for (int c = 0; c < courses.size(); c++) {
+            int score = rows.getScore(row, c);
+            out.append('\t');
+            if (score != Student.NO_SCORE) out.append(score);
+        }
+        out.append('\t').append(failed[row]).append('\n');
+    }
+
+    private static boolean isFailing(int score) {
+        return score >= 0 && score < GradeStats.PASS_SCORE;
+    }
+}
@@ -0,0 +1,107 @@
+package sms.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// 按班级和课程汇总的成绩统计，从 grade_counts 汇总表读出，大小只与班级数和课程数有关
+// 课程下标与 CourseRegistry 一致，前四门即 StudentDao/SchemaMigrator 的 SCORE_FIELDS
+public class GradeStats {
+    // 固定课程数；登记课程另计，见 courseCount
+    public static final int COURSES = 4;
+    // 0-9, 10-19, ..., 80-89, 90-100 共 10 个分数段
+    public static final int BUCKETS = 10;
+    public static final int PASS_SCORE = 60;
+
+    public static class Summary {
+        public int count;
+        public long sum;
+        public int min = Integer.MAX_VALUE;
+        public int max = Integer.MIN_VALUE;
+        public int fail;
+        public final int[] buckets = new int[BUCKETS];
+
+        public double average() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        public double failRate() {
+            return count == 0 ? 0 : (double) fail / count;
+        }
+
+        // 合并一个分数段的汇总
+        void addBucket(int bucket, int n, long scoreSum, int bucketMin, int bucketMax) {
+            count += n;
+            sum += scoreSum;
+            min = Math.min(min, bucketMin);
+            max = Math.max(max, bucketMax);
+            buckets[bucket] += n;
+            // 不及格线正好是分数段边界，整段计入
+            if (bucketMax < PASS_SCORE) fail += n;
+        }
+
+        void add(Summary other) {
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            fail += other.fail;
+            for (int i = 0; i < BUCKETS; i++) buckets[i] += other.buckets[i];
+        }
+    }
+
+    private final int courseCount;
+    private final Map<String, Summary[]> byClass = new TreeMap<>();
+    private final Summary[] overall;
+
+    public GradeStats() {
+        this(COURSES);
+    }
+
+    // courseCount 为 CourseRegistry 中的课程数
+    public GradeStats(int courseCount) {
+        this.courseCount = courseCount;
+        overall = newSummaries();
+    }
+
+    public int courseCount() {
+        return courseCount;
+    }
+
+    static int bucketOf(int score) {
+        return Math.min(score / 10, BUCKETS - 1);
+    }
+
+    void addBucket(String className, int course, int bucket, int n, long scoreSum, int min, int max) {
+        byClass.computeIfAbsent(className, k -> newSummaries())[course].addBucket(bucket, n, scoreSum, min, max);
+        overall[course].addBucket(bucket, n, scoreSum, min, max);
+    }
+
+    // 整个班级的汇总，供 RemoteStudentStore 还原服务器返回的统计
+    void putSummaries(String className, Summary[] summaries) {
+        byClass.put(className, summaries);
+        for (int course = 0; course < courseCount; course++) overall[course].add(summaries[course]);
+    }
+
+    public List<String> classNames() {
+        return new ArrayList<>(byClass.keySet());
+    }
+
+    // 统计之后才登记的课程没有数据，返回空的汇总
+    public Summary get(String className, int course) {
+        Summary[] summaries = byClass.get(className);
+        return summaries == null || course >= courseCount ? new Summary() : summaries[course];
+    }
+
+    // 全校
+    public Summary overall(int course) {
+        return course < courseCount ? overall[course] : new Summary();
+    }
+
+    private Summary[] newSummaries() {
+        Summary[] summaries = new Summary[courseCount];
+        for (int i = 0; i < courseCount; i++) summaries[i] = new Summary();
+        return summaries;
+    }
+}
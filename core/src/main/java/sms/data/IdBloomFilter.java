@@ -0,0 +1,64 @@
+package sms.data;
+
+import java.nio.charset.StandardCharsets;
+
+// 学号的 Bloom 过滤器：mightContain 为 false 时学号一定不在表中，为 true 时需要再查询确认
+// 按预计元素数和 1% 误判率确定位数和哈希个数；不支持删除，删除的学号只会多一次查询
+// 非线程安全，由 StudentCache 加锁访问
+class IdBloomFilter {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final long[] bits;
+    private final int bitCount;
+    private final int hashes;
+    private final int capacity;
+    private int size;
+
+    IdBloomFilter(int expected) {
+        capacity = Math.max(expected, 1024);
+        long m = (long) Math.ceil(-capacity * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2)));
+        bitCount = (int) Math.min(m, Integer.MAX_VALUE - 63);
+        bits = new long[(bitCount + 63) >>> 6];
+        hashes = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+    }
+
+    void add(String id) {
+        long h = hash(id);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+        size++;
+    }
+
+    boolean mightContain(String id) {
+        long h = hash(id);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    // 元素数超过预计容量后误判率上升，应当重建
+    boolean isOverloaded() {
+        return size > capacity * 2;
+    }
+
+    // 64 位 FNV-1a 再混合高低位，拆成两个 32 位哈希做双重哈希
+    private static long hash(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,332 @@
+package sms.data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// StudentServer 与 RemoteStudentStore 之间的 JSON 编解码，只支持接口中用到的部分：
+// 对象解析为 LinkedHashMap，数组为 ArrayList，整数为 Long，其余数字为 Double
+final class Json {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    // 接口中最深的是 /api/changes 的 数组-对象-学生-成绩数组 四层；限制深度避免递归解析栈溢出
+    static final int MAX_DEPTH = 32;
+
+    private final String text;
+    private int pos;
+    private int depth;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    // 格式错误时抛出 IllegalArgumentException
+    static Object parse(String text) {
+        Json parser = new Json(text);
+        parser.skipSpace();
+        Object value = parser.value();
+        parser.skipSpace();
+        if (parser.pos != text.length()) throw parser.error("多余的内容");
+        return value;
+    }
+
+    // ---- 编码 ----
+
+    static void string(StringBuilder out, String s) {
+        if (s == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c == '\r') {
+                out.append("\\r");
+            } else if (c == '\t') {
+                out.append("\\t");
+            } else if (c < 0x20) {
+                out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    static void student(StringBuilder out, Student s) {
+        if (s == null) {
+            out.append("null");
+            return;
+        }
+        out.append("{\"id\":");
+        string(out, s.getId());
+        out.append(",\"name\":");
+        string(out, s.getName());
+        out.append(",\"className\":");
+        string(out, s.getClassName());
+        out.append(",\"math\":").append(s.getMath())
+                .append(",\"english\":").append(s.getEnglish())
+                .append(",\"computer\":").append(s.getComputer())
+                .append(",\"pe\":").append(s.getPe());
+        // 登记课程的成绩按 slot 顺序，没有成绩为 null；全部没有时省略
+        byte[] extra = s.getExtraScores();
+        if (extra != null) {
+            out.append(",\"extra\":[");
+            for (int i = 0; i < extra.length; i++) {
+                if (i > 0) out.append(',');
+                if (extra[i] == Student.NO_SCORE) {
+                    out.append("null");
+                } else {
+                    out.append(extra[i]);
+                }
+            }
+            out.append(']');
+        }
+        out.append('}');
+    }
+
+    static void students(StringBuilder out, List<Student> students) {
+        out.append('[');
+        for (int i = 0; i < students.size(); i++) {
+            if (i > 0) out.append(',');
+            student(out, students.get(i));
+        }
+        out.append(']');
+    }
+
+    // 排序键等简单值：字符串、数字或 null
+    static void scalar(StringBuilder out, Object value) {
+        if (value instanceof String) {
+            string(out, (String) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    // ---- 解码为学生 ----
+
+    // 字段缺失、类型不符或成绩越界时抛出 IllegalArgumentException
+    static Student toStudent(Object value) {
+        if (value == null) return null;
+        Map<?, ?> map = asObject(value);
+        String id = text(map, "id");
+        if (id.isEmpty()) throw new IllegalArgumentException("学号不能为空");
+        Student student = new Student(id, text(map, "name"), text(map, "className"),
+                grade(map, "math"), grade(map, "english"), grade(map, "computer"), grade(map, "pe"));
+        Object extra = map.get("extra");
+        if (extra != null) {
+            List<?> list = asArray(extra);
+            byte[] scores = new byte[list.size()];
+            for (int i = 0; i < scores.length; i++) {
+                Object v = list.get(i);
+                scores[i] = (byte) (v == null ? Student.NO_SCORE : grade(v, "extra"));
+            }
+            student.setExtraScores(scores);
+        }
+        return student;
+    }
+
+    static List<Student> toStudents(Object value) {
+        List<Student> students = new ArrayList<>();
+        for (Object item : asArray(value)) students.add(toStudent(item));
+        return students;
+    }
+
+    static Map<?, ?> asObject(Object value) {
+        if (!(value instanceof Map)) throw new IllegalArgumentException("应为 JSON 对象");
+        return (Map<?, ?>) value;
+    }
+
+    static List<?> asArray(Object value) {
+        if (!(value instanceof List)) throw new IllegalArgumentException("应为 JSON 数组");
+        return (List<?>) value;
+    }
+
+    static long asLong(Object value) {
+        if (!(value instanceof Long)) throw new IllegalArgumentException("应为整数: " + value);
+        return (Long) value;
+    }
+
+    private static String text(Map<?, ?> map, String key) {
+        Object v = map.get(key);
+        if (!(v instanceof String)) throw new IllegalArgumentException("字段 " + key + " 应为字符串");
+        return (String) v;
+    }
+
+    private static int grade(Map<?, ?> map, String key) {
+        return grade(map.get(key), key);
+    }
+
+    private static int grade(Object v, String key) {
+        if (v instanceof Long && (Long) v >= 0 && Student.isValidGrade((int) Math.min((Long) v, Integer.MAX_VALUE))) {
+            return (int) (long) (Long) v;
+        }
+        throw new IllegalArgumentException("字段 " + key + " 应为 0-100 的整数");
+    }
+
+    // ---- 解析 ----
+
+    private Object value() {
+        if (pos >= text.length()) throw error("意外结束");
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{':
+            case '[':
+                if (++depth > MAX_DEPTH) throw error("嵌套超过 " + MAX_DEPTH + " 层");
+                Object container = c == '{' ? object() : array();
+                depth--;
+                return container;
+            case '"': return stringValue();
+            case 't': return literal("true", Boolean.TRUE);
+            case 'f': return literal("false", Boolean.FALSE);
+            case 'n': return literal("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return number();
+                throw error("意外的字符 '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++;
+        skipSpace();
+        if (peek() == '}') {
+            pos++;
+            return map;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"') throw error("应为字段名");
+            String key = stringValue();
+            skipSpace();
+            expect(':');
+            skipSpace();
+            map.put(key, value());
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect('}');
+                return map;
+            }
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> list = new ArrayList<>();
+        pos++;
+        skipSpace();
+        if (peek() == ']') {
+            pos++;
+            return list;
+        }
+        while (true) {
+            skipSpace();
+            list.add(value());
+            skipSpace();
+            if (peek() == ',') {
+                pos++;
+            } else {
+                expect(']');
+                return list;
+            }
+        }
+    }
+
+    private String stringValue() {
+        pos++;
+        StringBuilder sb = null;
+        int start = pos;
+        while (true) {
+            if (pos >= text.length()) throw error("字符串没有结束");
+            char c = text.charAt(pos);
+            if (c == '"') {
+                String s = sb == null ? text.substring(start, pos) : sb.append(text, start, pos).toString();
+                pos++;
+                return s;
+            }
+            if (c == '\\') {
+                if (sb == null) sb = new StringBuilder();
+                sb.append(text, start, pos);
+                pos++;
+                if (pos >= text.length()) throw error("字符串没有结束");
+                char e = text.charAt(pos++);
+                switch (e) {
+                    case '"': case '\\': case '/': sb.append(e); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) throw error("转义不完整");
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("无效的 \\u 转义");
+                        }
+                        pos += 4;
+                        break;
+                    default: throw error("无效的转义 \\" + e);
+                }
+                start = pos;
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    private Object number() {
+        int start = pos;
+        boolean integral = true;
+        if (peek() == '-') pos++;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                pos++;
+            } else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                integral = false;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        String s = text.substring(start, pos);
+        try {
+            return integral ? (Object) Long.parseLong(s) : (Object) Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw error("无效的数字 " + s);
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        if (!text.startsWith(word, pos)) throw error("意外的字符");
+        pos += word.length();
+        return value;
+    }
+
+    private void skipSpace() {
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') break;
+            pos++;
+        }
+    }
+
+    private char peek() {
+        return pos < text.length() ? text.charAt(pos) : '\0';
+    }
+
+    private void expect(char c) {
+        if (peek() != c) throw error("应为 '" + c + "'");
+        pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("JSON 格式错误（位置 " + pos + "）: " + message);
+    }
+}
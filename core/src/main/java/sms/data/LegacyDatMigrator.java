@@ -0,0 +1,517 @@
+package sms.data;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+// 迁移旧版 students.dat（java.io 序列化的 ArrayList<Student>）
+// 不使用 ObjectInputStream：按序列化协议逐条解析记录，只接受 java.util.ArrayList 和 Student 两个类，
+// 不会实例化文件中声明的任何其他类。句柄表只记录每个对象和字符串在文件中的位置，遇到回引时回到该位置重新解码，
+// 不保留解码出的对象；句柄表约 9 字节/句柄，随记录数线性增长（每条记录 4 个句柄左右）。全部记录在一个事务中写入
+public class LegacyDatMigrator {
+    private static final int STREAM_MAGIC = 0xACED;
+    private static final int STREAM_VERSION = 5;
+    private static final byte TC_NULL = 0x70;
+    private static final byte TC_REFERENCE = 0x71;
+    private static final byte TC_CLASSDESC = 0x72;
+    private static final byte TC_OBJECT = 0x73;
+    private static final byte TC_STRING = 0x74;
+    private static final byte TC_BLOCKDATA = 0x77;
+    private static final byte TC_ENDBLOCKDATA = 0x78;
+    private static final byte TC_RESET = 0x79;
+    private static final byte TC_BLOCKDATALONG = 0x7A;
+    private static final byte TC_LONGSTRING = 0x7C;
+    private static final int BASE_HANDLE = 0x7E0000;
+    private static final byte SC_WRITE_METHOD = 0x01;
+    private static final byte SC_SERIALIZABLE = 0x02;
+
+    private static final String LIST_CLASS = "java.util.ArrayList";
+    private static final String STUDENT_CLASS = "Student";
+    // Student 的字段，下标即 Record 中的槽位
+    private static final String[] STUDENT_FIELDS = {"id", "name", "className", "math", "english", "computer", "pe"};
+
+    private static final byte KIND_DESC = 1;
+    private static final byte KIND_STRING = 2;
+    private static final byte KIND_STUDENT = 3;
+    private static final byte KIND_OTHER = 4;
+
+    private final StudentDao dao;
+
+    public LegacyDatMigrator(StudentDao dao) {
+        this.dao = dao;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dat = Paths.get(args.length > 0 ? args[0] : "students.dat");
+        String url = "jdbc:sqlite:" + (args.length > 1 ? args[1] : "students.db");
+        try (ConnectionPool pool = new ConnectionPool(url, 1)) {
+            StudentDao dao = new StudentDao(pool);
+            dao.migrateSchema();
+            long start = System.nanoTime();
+            StudentImporter.Result result = new LegacyDatMigrator(dao).migrate(dat, (read, total, done) -> { }, () -> false);
+            System.out.printf("迁移完成：成功 %d 条，失败 %d 条，用时 %d ms%n",
+                    result.imported, result.rejected, (System.nanoTime() - start) / 1_000_000);
+            for (StudentImporter.RowError error : result.errors) {
+                System.out.println("第 " + error.line + " 条记录: " + error.message);
+            }
+        }
+    }
+
+    // 校验规则与界面录入、批量导入一致，RowError.line 为记录序号（从 1 开始）
+    public StudentImporter.Result migrate(Path file, StudentImporter.Progress progress, BooleanSupplier cancelled)
+            throws IOException, SQLException {
+        StudentImporter.Result result = new StudentImporter.Result();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long total = channel.size();
+            Decoder decoder = new Decoder(channel);
+            boolean rebuildIndexes = StudentImporter.shouldDeferIndexes(decoder.declaredSize(), dao.count());
+            List<Student> chunk = new ArrayList<>(StudentImporter.CHUNK_SIZE);
+            long[] record = new long[1];
+            dao.upsertInOneTransaction(rebuildIndexes, () -> {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                chunk.clear();
+                while (chunk.size() < StudentImporter.CHUNK_SIZE) {
+                    Student s = decoder.next();
+                    if (s == null) break;
+                    record[0]++;
+                    String error = validate(s);
+                    if (error == null) {
+                        chunk.add(s);
+                    } else {
+                        result.rejected++;
+                        if (result.errors.size() < StudentImporter.MAX_REPORTED_ERRORS) {
+                            result.errors.add(new StudentImporter.RowError(record[0], error));
+                        }
+                    }
+                }
+                result.imported += chunk.size();
+                progress.update(decoder.in.position(), total, result.imported + result.rejected);
+                return chunk.isEmpty() ? null : chunk;
+            });
+        }
+        return result;
+    }
+
+    // 字段在解码结果中的槽位，-1 表示跳过；已知字段的类型不符时拒绝整个类
+    private static int slotOf(String className, String field, String type) throws InvalidClassException {
+        if (className.equals(LIST_CLASS)) {
+            return field.equals("size") && type.equals("I") ? 0 : -1;
+        }
+        int slot = Arrays.asList(STUDENT_FIELDS).indexOf(field);
+        String expected = slot < 0 ? null : slot < 3 ? "Ljava/lang/String;" : "I";
+        if (expected != null && !expected.equals(type)) {
+            throw new InvalidClassException(className, "字段 " + field + " 的类型不符: " + type);
+        }
+        return slot;
+    }
+
+    private static String validate(Student s) {
+        if (s.getId() == null || s.getId().trim().isEmpty()) return "学号不能为空";
+        if (s.getName() == null || s.getName().trim().isEmpty()) return "姓名不能为空";
+        if (s.getClassName() == null || s.getClassName().trim().isEmpty()) return "班级不能为空";
+        if (!Student.isValidGrade(s.getMath()) || !Student.isValidGrade(s.getEnglish())
+                || !Student.isValidGrade(s.getComputer()) || !Student.isValidGrade(s.getPe())) {
+            return "成绩必须在0-100之间";
+        }
+        return null;
+    }
+
+    // 只解码出 Student 记录的流式读取器，按调用逐条返回
+    public static class Decoder {
+        final Input in;
+        private final FileChannel channel;
+        private final Handles handles = new Handles();
+        private boolean headerRead;
+        // 正在读取 ArrayList 的元素
+        private boolean inList;
+        private int declaredSize = -1;
+        // declaredSize() 预读时遇到的顶层学生记录
+        private Student pending;
+
+        public Decoder(FileChannel channel) {
+            this.channel = channel;
+            this.in = new Input(channel, 0, 64 * 1024);
+        }
+
+        // 读到第一条记录之前，返回 ArrayList 声明的元素个数；文件不是以 ArrayList 开头时返回 -1
+        public int declaredSize() throws IOException {
+            if (!headerRead) {
+                pending = advance(true);
+            }
+            return declaredSize;
+        }
+
+        // 返回下一条学生记录，文件结束时返回 null；null 元素跳过
+        public Student next() throws IOException {
+            if (pending != null) {
+                Student s = pending;
+                pending = null;
+                return s;
+            }
+            return advance(false);
+        }
+
+        private Student advance(boolean stopAtList) throws IOException {
+            if (!headerRead) {
+                if (in.readUnsignedShort() != STREAM_MAGIC || in.readUnsignedShort() != STREAM_VERSION) {
+                    throw new StreamCorruptedException("不是 Java 序列化文件");
+                }
+                headerRead = true;
+            }
+            while (true) {
+                if (!inList && in.atEnd()) return null;
+                long pos = in.position();
+                byte tc = in.readByte();
+                switch (tc) {
+                    case TC_NULL:
+                        if (!inList) throw new StreamCorruptedException("意外的 null");
+                        continue;
+                    case TC_RESET:
+                        handles.clear();
+                        continue;
+                    case TC_BLOCKDATA:
+                        in.skip(in.readUnsignedByte());
+                        continue;
+                    case TC_BLOCKDATALONG:
+                        in.skip(in.readInt());
+                        continue;
+                    case TC_ENDBLOCKDATA:
+                        if (!inList) throw new StreamCorruptedException("意外的块结束标记");
+                        inList = false;
+                        continue;
+                    case TC_REFERENCE:
+                        return resolveStudent(in.readInt());
+                    case TC_OBJECT:
+                        ClassDesc desc = readClassDesc(in, true);
+                        if (desc.name.equals(STUDENT_CLASS)) {
+                            return readStudent(in, desc, pos, true);
+                        }
+                        if (inList) throw new InvalidClassException(desc.name, "列表元素不是学生记录");
+                        // ArrayList：先读字段（size），writeObject 写入的元素随后作为注解数据出现
+                        handles.assign(KIND_OTHER, pos);
+                        Object[] fields = new Object[1];
+                        readFields(in, desc, fields, true);
+                        if (declaredSize < 0 && fields[0] != null) declaredSize = (Integer) fields[0];
+                        inList = true;
+                        if (stopAtList) return null;
+                        continue;
+                    default:
+                        throw new StreamCorruptedException(String.format("无法识别的类型标记 0x%02X，位置 %d", tc, pos));
+                }
+            }
+        }
+
+        private Student resolveStudent(int handle) throws IOException {
+            if (handles.kind(handle) != KIND_STUDENT) {
+                throw new StreamCorruptedException("回引指向的不是学生记录: " + Integer.toHexString(handle));
+            }
+            Input replay = new Input(channel, handles.position(handle), 512);
+            replay.readByte();
+            ClassDesc desc = readClassDesc(replay, false);
+            return readStudent(replay, desc, -1, false);
+        }
+
+        private Student readStudent(Input in, ClassDesc desc, long pos, boolean assign) throws IOException {
+            if (assign) handles.assign(KIND_STUDENT, pos);
+            Object[] values = new Object[STUDENT_FIELDS.length];
+            readFields(in, desc, values, assign);
+            return new Student((String) values[0], (String) values[1], (String) values[2],
+                    intValue(values[3]), intValue(values[4]), intValue(values[5]), intValue(values[6]));
+        }
+
+        private static int intValue(Object value) {
+            return value == null ? 0 : (Integer) value;
+        }
+
+        // 按类描述的字段顺序读取（基本类型在前，对象在后）；slots 为 null 时只跳过
+        private void readFields(Input in, ClassDesc desc, Object[] slots, boolean assign) throws IOException {
+            if (desc.superDesc != null) {
+                readFields(in, desc.superDesc, slots, assign);
+            }
+            for (int i = 0; i < desc.types.length; i++) {
+                int slot = slots == null || desc.slots[i] >= slots.length ? -1 : desc.slots[i];
+                switch (desc.types[i]) {
+                    case 'B': case 'Z': in.skip(1); break;
+                    case 'C': case 'S': in.skip(2); break;
+                    case 'F': in.skip(4); break;
+                    case 'D': case 'J': in.skip(8); break;
+                    case 'I':
+                        int v = in.readInt();
+                        if (slot >= 0) slots[slot] = v;
+                        break;
+                    default:
+                        String s = readStringOrNull(in, assign);
+                        if (slot >= 0) slots[slot] = s;
+                }
+            }
+        }
+
+        private ClassDesc readClassDesc(Input in, boolean assign) throws IOException {
+            long pos = in.position();
+            byte tc = in.readByte();
+            if (tc == TC_NULL) return null;
+            if (tc == TC_REFERENCE) {
+                int handle = in.readInt();
+                ClassDesc desc = handles.desc(handle);
+                if (desc == null) throw new StreamCorruptedException("回引指向的不是类描述: " + Integer.toHexString(handle));
+                return desc;
+            }
+            if (tc != TC_CLASSDESC) {
+                throw new InvalidClassException(String.format("不支持的类描述类型 0x%02X，位置 %d", tc, pos));
+            }
+            String name = in.readUtf(in.readUnsignedShort());
+            // 在读取其余内容之前先检查允许列表
+            if (!name.equals(LIST_CLASS) && !name.equals(STUDENT_CLASS)) {
+                throw new InvalidClassException(name, "不在允许的类列表中");
+            }
+            ClassDesc desc = new ClassDesc(name);
+            int handle = assign ? handles.assign(KIND_DESC, pos) : -1;
+            in.readLong();
+            byte flags = in.readByte();
+            if ((flags & SC_SERIALIZABLE) == 0) {
+                throw new InvalidClassException(name, "不是 Serializable 类");
+            }
+            if (name.equals(STUDENT_CLASS) && (flags & SC_WRITE_METHOD) != 0) {
+                throw new InvalidClassException(name, "Student 不应有自定义 writeObject");
+            }
+            int count = in.readUnsignedShort();
+            desc.types = new char[count];
+            desc.slots = new int[count];
+            for (int i = 0; i < count; i++) {
+                desc.types[i] = (char) in.readByte();
+                String field = in.readUtf(in.readUnsignedShort());
+                String type = desc.types[i] == 'L' || desc.types[i] == '['
+                        ? readStringOrNull(in, assign) : String.valueOf(desc.types[i]);
+                desc.slots[i] = slotOf(name, field, type);
+            }
+            // 类注解：只允许块数据
+            for (byte b; (b = in.readByte()) != TC_ENDBLOCKDATA; ) {
+                if (b == TC_BLOCKDATA) in.skip(in.readUnsignedByte());
+                else if (b == TC_BLOCKDATALONG) in.skip(in.readInt());
+                else throw new InvalidClassException(name, "类注解中含有对象");
+            }
+            desc.superDesc = readClassDesc(in, assign);
+            if (assign) handles.setDesc(handle, desc);
+            return desc;
+        }
+
+        private String readStringOrNull(Input in, boolean assign) throws IOException {
+            long pos = in.position();
+            byte tc = in.readByte();
+            switch (tc) {
+                case TC_NULL:
+                    return null;
+                case TC_REFERENCE:
+                    return resolveString(in.readInt());
+                case TC_STRING:
+                case TC_LONGSTRING:
+                    long length = tc == TC_STRING ? in.readUnsignedShort() : in.readLong();
+                    if (length > Integer.MAX_VALUE) throw new StreamCorruptedException("字符串过长");
+                    String s = in.readUtf((int) length);
+                    if (assign) handles.assign(KIND_STRING, pos);
+                    return s;
+                default:
+                    throw new InvalidClassException(String.format("字段值不是字符串（类型标记 0x%02X，位置 %d）", tc, pos));
+            }
+        }
+
+        private String resolveString(int handle) throws IOException {
+            if (handles.kind(handle) != KIND_STRING) {
+                throw new StreamCorruptedException("回引指向的不是字符串: " + Integer.toHexString(handle));
+            }
+            String cached = handles.strings.get(handle);
+            if (cached != null) return cached;
+            String s = readStringOrNull(new Input(channel, handles.position(handle), 512), false);
+            handles.strings.put(handle, s);
+            return s;
+        }
+    }
+
+    private static class ClassDesc {
+        final String name;
+        char[] types;
+        // 每个字段在解码结果中的槽位，-1 表示忽略
+        int[] slots;
+        ClassDesc superDesc;
+
+        ClassDesc(String name) {
+            this.name = name;
+        }
+    }
+
+    // 句柄表：每个句柄只记录类型和在文件中的位置；类描述数量很少，直接保存；最近解析过的回引字符串做 LRU 缓存
+    private static class Handles {
+        private long[] positions = new long[1024];
+        private byte[] kinds = new byte[1024];
+        private int size;
+        private final Map<Integer, ClassDesc> descs = new HashMap<>();
+        final Map<Integer, String> strings = new LinkedHashMap<Integer, String>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > 4096;
+            }
+        };
+
+        int assign(byte kind, long position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                kinds = Arrays.copyOf(kinds, size * 2);
+            }
+            positions[size] = position;
+            kinds[size] = kind;
+            return BASE_HANDLE + size++;
+        }
+
+        void setDesc(int handle, ClassDesc desc) {
+            descs.put(handle, desc);
+        }
+
+        ClassDesc desc(int handle) {
+            return kind(handle) == KIND_DESC ? descs.get(handle) : null;
+        }
+
+        byte kind(int handle) {
+            int i = handle - BASE_HANDLE;
+            return i >= 0 && i < size ? kinds[i] : 0;
+        }
+
+        long position(int handle) {
+            return positions[handle - BASE_HANDLE];
+        }
+
+        void clear() {
+            size = 0;
+            descs.clear();
+            strings.clear();
+        }
+    }
+
+    // 基于 FileChannel 定位读取的缓冲输入，多个实例可以共用同一个通道
+    static class Input {
+        private final FileChannel channel;
+        private final ByteBuffer buf;
+        // buf 中第 0 个字节在文件中的位置
+        private long bufStart;
+
+        Input(FileChannel channel, long position, int bufferSize) {
+            this.channel = channel;
+            this.buf = ByteBuffer.allocate(bufferSize);
+            this.bufStart = position;
+            buf.limit(0);
+        }
+
+        long position() {
+            return bufStart + buf.position();
+        }
+
+        boolean atEnd() throws IOException {
+            return !fill(1);
+        }
+
+        byte readByte() throws IOException {
+            require(1);
+            return buf.get();
+        }
+
+        int readUnsignedByte() throws IOException {
+            return readByte() & 0xFF;
+        }
+
+        int readUnsignedShort() throws IOException {
+            require(2);
+            return buf.getShort() & 0xFFFF;
+        }
+
+        int readInt() throws IOException {
+            require(4);
+            return buf.getInt();
+        }
+
+        long readLong() throws IOException {
+            require(8);
+            return buf.getLong();
+        }
+
+        void skip(long n) throws IOException {
+            long inBuffer = Math.min(n, buf.remaining());
+            buf.position(buf.position() + (int) inBuffer);
+            if (n > inBuffer) {
+                bufStart = position() + (n - inBuffer);
+                buf.limit(0);
+            }
+        }
+
+        // 解码 Java 的 modified UTF-8；纯 ASCII 时直接按单字节构造
+        String readUtf(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            int done = 0;
+            while (done < length) {
+                require(1);
+                int n = Math.min(length - done, buf.remaining());
+                buf.get(bytes, done, n);
+                done += n;
+            }
+            boolean ascii = true;
+            for (byte b : bytes) {
+                if (b < 0) {
+                    ascii = false;
+                    break;
+                }
+            }
+            if (ascii) return new String(bytes, StandardCharsets.ISO_8859_1);
+            char[] chars = new char[length];
+            int count = 0;
+            for (int i = 0; i < length; ) {
+                int b = bytes[i++] & 0xFF;
+                if (b < 0x80) {
+                    chars[count++] = (char) b;
+                } else if ((b & 0xE0) == 0xC0 && i < length) {
+                    chars[count++] = (char) ((b & 0x1F) << 6 | bytes[i++] & 0x3F);
+                } else if ((b & 0xF0) == 0xE0 && i + 1 < length) {
+                    chars[count++] = (char) ((b & 0x0F) << 12 | (bytes[i++] & 0x3F) << 6 | bytes[i++] & 0x3F);
+                } else {
+                    throw new StreamCorruptedException("字符串编码错误");
+                }
+            }
+            return new String(chars, 0, count);
+        }
+
+        private void require(int n) throws IOException {
+            if (!fill(n)) throw new EOFException();
+        }
+
+        // 保证缓冲区中至少有 n 个字节，文件不足时返回 false
+        private boolean fill(int n) throws IOException {
+            if (buf.remaining() >= n) return true;
+            bufStart += buf.position();
+            buf.compact();
+            while (buf.position() < n) {
+                int r = channel.read(buf, bufStart + buf.position());
+                if (r < 0) {
+                    buf.flip();
+                    return false;
+                }
+            }
+            buf.flip();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package sms.data;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// 热点操作的计时：每个操作名一个延迟直方图和行数、失败计数，首次使用时注册为 JMX MBean，
+// 每次计时同时发出 JFR 事件 sms.Operation。用法：
+//     try (Metrics.Timer timer = Metrics.start("findAll")) { ...; timer.rows(n); }
+// 没有调用 rows()/done() 就关闭的计时（抛出异常、被取消）记为失败
+public final class Metrics {
+    private static final Logger LOG = Logger.getLogger(Metrics.class.getName());
+    private static final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+    // 第一次取平台 MBeanServer 约需 200 ms（加载 JMX），注册放到后台线程，不拖慢启动和第一次计时
+    private static final ExecutorService REGISTRAR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sms-jmx");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Metrics() {
+    }
+
+    public static Timer start(String name) {
+        return new Timer(operation(name));
+    }
+
+    public static Operation operation(String name) {
+        Operation op = operations.get(name);
+        if (op != null) return op;
+        Operation created = new Operation(name);
+        op = operations.putIfAbsent(name, created);
+        if (op != null) return op;
+        register("sms:type=Operation,name=" + name, created);
+        return created;
+    }
+
+    // 按名称排序的全部操作
+    public static List<Operation> operations() {
+        List<Operation> list = new ArrayList<>(operations.values());
+        list.sort(Comparator.comparing(Operation::getName));
+        return list;
+    }
+
+    public static void resetAll() {
+        for (Operation op : operations.values()) {
+            op.reset();
+        }
+    }
+
+    // 在后台注册到平台 MBeanServer，按调用顺序进行；失败（如重名）时只记日志
+    public static void register(String objectName, Object mbean) {
+        REGISTRAR.execute(() -> {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, new ObjectName(objectName));
+            } catch (JMException e) {
+                LOG.log(Level.FINE, "无法注册 MBean " + objectName, e);
+            }
+        });
+    }
+
+    public static final class Operation implements OperationMXBean {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        public void record(long nanos, long rowCount, boolean failed) {
+            latency.record(nanos);
+            rows.add(rowCount);
+            if (failed) errors.increment();
+        }
+
+        public LatencyHistogram latency() {
+            return latency;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getCount() {
+            return latency.count();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public long getRows() {
+            return rows.sum();
+        }
+
+        @Override
+        public double getTotalMillis() {
+            return latency.totalNanos() / 1e6;
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return latency.meanNanos() / 1e6;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return latency.percentileNanos(50) / 1e6;
+        }
+
+        @Override
+        public double getP90Millis() {
+            return latency.percentileNanos(90) / 1e6;
+        }
+
+        @Override
+        public double getP99Millis() {
+            return latency.percentileNanos(99) / 1e6;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return latency.maxNanos() / 1e6;
+        }
+
+        @Override
+        public void reset() {
+            latency.reset();
+            rows.reset();
+            errors.reset();
+        }
+    }
+
+    // 一次计时，在 try-with-resources 中使用
+    public static final class Timer implements AutoCloseable {
+        private final Operation op;
+        private final OperationEvent event = new OperationEvent();
+        private final long start;
+        private long rows;
+        private boolean done;
+
+        Timer(Operation op) {
+            this.op = op;
+            event.begin();
+            start = System.nanoTime();
+        }
+
+        // 成功完成，记下返回或写入的行数
+        public void rows(long n) {
+            rows = n;
+            done = true;
+        }
+
+        // 成功完成，不统计行数
+        public void done() {
+            done = true;
+        }
+
+        @Override
+        public void close() {
+            long nanos = System.nanoTime() - start;
+            op.record(nanos, rows, !done);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = op.getName();
+                event.rows = rows;
+                event.failed = !done;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package sms.data;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// 每次 Metrics 计时的 JFR 事件，录制时可与 GC、分配等事件按线程和时间对照
+// 未开启录制时 shouldCommit 为 false，只有创建对象的开销
+@Name("sms.Operation")
+@Label("Operation")
+@Category({"Student Management System", "Data"})
+@Description("Timed database or table operation")
+@StackTrace(false)
+class OperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+}
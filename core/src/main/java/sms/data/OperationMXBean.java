@@ -0,0 +1,28 @@
+package sms.data;
+
+// 一个被计时操作的统计，注册为 sms:type=Operation,name=<操作名>，时间单位为毫秒
+public interface OperationMXBean {
+    String getName();
+
+    long getCount();
+
+    // 抛出异常或被取消的次数
+    long getErrors();
+
+    // 返回或写入的行数合计，不统计行数的操作为 0
+    long getRows();
+
+    double getTotalMillis();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    void reset();
+}
@@ -0,0 +1,43 @@
+package sms.data;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// 诊断：用 -Dsms.explain=true 启动时，对程序发出的每条 SQL 记录一次 EXPLAIN QUERY PLAN
+// 含全表扫描（SCAN 且未使用索引）的计划记为 WARNING，便于测试时发现缺失的索引
+public final class QueryPlanLogger {
+    static final boolean ENABLED = Boolean.getBoolean("sms.explain");
+    private static final Logger LOG = Logger.getLogger(QueryPlanLogger.class.getName());
+    private static final Set<String> explained = ConcurrentHashMap.newKeySet();
+
+    private QueryPlanLogger() {
+    }
+
+    static void explain(Connection conn, String sql) {
+        if (!ENABLED || !explained.add(sql)) return;
+        StringBuilder plan = new StringBuilder();
+        boolean scan = false;
+        // 参数未绑定时按 NULL 处理，不影响计划的形状
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+            while (rs.next()) {
+                String detail = rs.getString("detail");
+                plan.append("\n    ").append(detail);
+                if (detail.startsWith("SCAN ") && !detail.contains(" INDEX ")
+                        && !detail.contains("VIRTUAL TABLE")) {
+                    scan = true;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.FINE, "无法获取查询计划: " + sql, e);
+            return;
+        }
+        LOG.log(scan ? Level.WARNING : Level.INFO, (scan ? "全表扫描: " : "查询计划: ") + sql + plan);
+    }
+}
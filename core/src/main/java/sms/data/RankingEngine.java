@@ -0,0 +1,210 @@
+package sms.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// 全校的成绩名次和百分位。成绩只有 0-100（总分 0-400）这几个取值，
+// 按班级和全校分别记录每个分数的人数，名次 = 1 + 分数更高的人数，查表即得，不需要对学生排序
+// 增删改只调整对应分数的计数，“高于某分数的人数”按班级缓存，只有改动过的班级和全校会重算
+// 构建可以在后台线程进行，交给界面后只在 EDT 上使用
+public class RankingEngine {
+    // 指标下标：0-3 为各科（与 SCORE_FIELDS 顺序一致），4 为总分
+    public static final int TOTAL = GradeStats.COURSES;
+    public static final int METRICS = GradeStats.COURSES + 1;
+    private static final int[] MAX_VALUE = {100, 100, 100, 100, 400};
+    // 每个并行任务至少处理的班级数
+    private static final int CLASSES_PER_TASK = 8;
+
+    // 一个班级（或全校）各指标的分数计数
+    private static class Histograms {
+        final int[][] counts = new int[METRICS][];
+        // above[m][v] = 指标 m 高于 v 的人数，计数变化后置为 null
+        int[][] above;
+        int size;
+
+        Histograms() {
+            for (int m = 0; m < METRICS; m++) counts[m] = new int[MAX_VALUE[m] + 1];
+        }
+
+        void add(int[] values, int delta) {
+            for (int m = 0; m < METRICS; m++) counts[m][values[m]] += delta;
+            size += delta;
+            above = null;
+        }
+
+        int above(int metric, int value) {
+            if (above == null) {
+                above = new int[METRICS][];
+                for (int m = 0; m < METRICS; m++) {
+                    int[] c = counts[m];
+                    int[] a = new int[c.length];
+                    for (int v = c.length - 2; v >= 0; v--) a[v] = a[v + 1] + c[v + 1];
+                    above[m] = a;
+                }
+            }
+            return above[metric][value];
+        }
+    }
+
+    private final Map<String, Histograms> byClass = new HashMap<>();
+    private final Histograms school = new Histograms();
+
+    public static int maxValue(int metric) {
+        return MAX_VALUE[metric];
+    }
+
+    // 学生在各指标上的取值
+    public static int[] values(int math, int english, int computer, int pe) {
+        return new int[]{math, english, computer, pe, math + english + computer + pe};
+    }
+
+    // classOf[i] 为第 i 个学生的班级编码（classNames 的下标，班级名不重复），scores[课程][i] 为成绩
+    // 先用计数排序按班级分组，再按班级区间并行统计，各任务写入不同班级，互不竞争
+    public static RankingEngine build(String[] classNames, int[] classOf, byte[][] scores, int n) {
+        int classes = classNames.length;
+        int[] start = new int[classes + 1];
+        for (int i = 0; i < n; i++) start[classOf[i] + 1]++;
+        for (int c = 0; c < classes; c++) start[c + 1] += start[c];
+        int[] order = new int[n];
+        int[] next = Arrays.copyOf(start, classes);
+        for (int i = 0; i < n; i++) order[next[classOf[i]]++] = i;
+
+        Histograms[] histograms = new Histograms[classes];
+        ForkJoinPool.commonPool().invoke(new CountTask(histograms, order, start, scores, 0, classes));
+
+        RankingEngine engine = new RankingEngine();
+        for (int c = 0; c < classes; c++) {
+            Histograms h = histograms[c];
+            if (h.size == 0) continue;
+            engine.byClass.put(classNames[c], h);
+            for (int m = 0; m < METRICS; m++) {
+                int[] total = engine.school.counts[m];
+                int[] counts = h.counts[m];
+                for (int v = 0; v < counts.length; v++) total[v] += counts[v];
+            }
+            engine.school.size += h.size;
+        }
+        return engine;
+    }
+
+    // 各班级的分数计数 counts[指标][分数]，供 StudentServer 传给远程客户端；返回内部数组，不要修改
+    Map<String, int[][]> classCounts() {
+        Map<String, int[][]> counts = new HashMap<>();
+        for (Map.Entry<String, Histograms> e : byClass.entrySet()) counts.put(e.getKey(), e.getValue().counts);
+        return counts;
+    }
+
+    // classCounts 的逆过程；数组末尾为 0 的部分可以省略
+    static RankingEngine fromClassCounts(Map<String, int[][]> counts) {
+        RankingEngine engine = new RankingEngine();
+        for (Map.Entry<String, int[][]> e : counts.entrySet()) {
+            Histograms h = new Histograms();
+            for (int m = 0; m < METRICS; m++) {
+                int[] c = e.getValue()[m];
+                System.arraycopy(c, 0, h.counts[m], 0, Math.min(c.length, h.counts[m].length));
+            }
+            for (int n : h.counts[TOTAL]) h.size += n;
+            if (h.size == 0) continue;
+            engine.byClass.put(e.getKey(), h);
+            for (int m = 0; m < METRICS; m++) {
+                int[] total = engine.school.counts[m];
+                for (int v = 0; v < total.length; v++) total[v] += h.counts[m][v];
+            }
+            engine.school.size += h.size;
+        }
+        return engine;
+    }
+
+    private static class CountTask extends RecursiveAction {
+        private final Histograms[] histograms;
+        private final int[] order;
+        private final int[] start;
+        private final byte[][] scores;
+        private final int from;
+        private final int to;
+
+        CountTask(Histograms[] histograms, int[] order, int[] start, byte[][] scores, int from, int to) {
+            this.histograms = histograms;
+            this.order = order;
+            this.start = start;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CLASSES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new CountTask(histograms, order, start, scores, from, mid),
+                        new CountTask(histograms, order, start, scores, mid, to));
+                return;
+            }
+            for (int c = from; c < to; c++) {
+                Histograms h = new Histograms();
+                int[][] counts = h.counts;
+                for (int k = start[c]; k < start[c + 1]; k++) {
+                    int i = order[k];
+                    int total = 0;
+                    for (int course = 0; course < GradeStats.COURSES; course++) {
+                        int score = scores[course][i];
+                        counts[course][score]++;
+                        total += score;
+                    }
+                    counts[TOTAL][total]++;
+                }
+                h.size = start[c + 1] - start[c];
+                histograms[c] = h;
+            }
+        }
+    }
+
+    public void add(Student s) {
+        adjust(s, 1);
+    }
+
+    public void remove(Student s) {
+        adjust(s, -1);
+    }
+
+    private void adjust(Student s, int delta) {
+        int[] values = values(s.getMath(), s.getEnglish(), s.getComputer(), s.getPe());
+        Histograms h = byClass.computeIfAbsent(s.getClassName(), k -> new Histograms());
+        h.add(values, delta);
+        if (h.size == 0) byClass.remove(s.getClassName());
+        school.add(values, delta);
+    }
+
+    public int size() {
+        return school.size;
+    }
+
+    // 并列的分数名次相同，下一名次跳过并列人数（1, 2, 2, 4）
+    public int schoolRank(int metric, int value) {
+        return 1 + school.above(metric, value);
+    }
+
+    // 不在任何班级统计中时返回 0
+    public int classRank(int metric, String className, int value) {
+        Histograms h = byClass.get(className);
+        return h == null ? 0 : 1 + h.above(metric, value);
+    }
+
+    // 全校分数低于该分数的人数所占百分比
+    public double percentile(int metric, int value) {
+        int n = school.size;
+        if (n == 0) return 0;
+        int below = n - school.above(metric, value) - school.counts[metric][value];
+        return 100.0 * below / n;
+    }
+
+    // 人数最多的班级的人数，班级名次的取值不会超过它
+    public int maxClassSize() {
+        int max = 0;
+        for (Histograms h : byClass.values()) max = Math.max(max, h.size);
+        return max;
+    }
+}
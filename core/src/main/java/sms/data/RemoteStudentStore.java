@@ -0,0 +1,426 @@
+package sms.data;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// 连接 StudentServer 的 StudentStore：读操作发出 HTTP 请求；增删改与本地一样先进入 WriteBehindQueue，
+// 按学号合并后通过 POST /api/changes 一次提交。GET 的响应连同 ETag 记住，再次请求时带 If-None-Match，
+// 数据未变时服务器只回 304。导入导出读写本机文件，连接服务器时不支持
+public class RemoteStudentStore implements StudentStore {
+    private static final long FLUSH_DELAY_MS = 200;
+    private static final int MAX_BATCH = 500;
+    private static final int SEARCH_CHUNK = 500;
+    private static final int RESPONSE_CACHE_SIZE = 256;
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private final URI base;
+    // Authorization 头的内容，服务器不要求令牌时为 null
+    private final String authorization;
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final WriteBehindQueue writes;
+    // 请求路径 -> 上次的 ETag 和响应体
+    private final Map<String, String[]> responses = new LinkedHashMap<String, String[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+            return size() > RESPONSE_CACHE_SIZE;
+        }
+    };
+    private final AtomicReference<CompletableFuture<?>> latestSearch = new AtomicReference<>();
+
+    // 服务器返回的错误（4xx/5xx），message 为服务器给出的原因
+    public static class RemoteException extends IOException {
+        public final int status;
+
+        RemoteException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    // base 形如 http://host:8080
+    public RemoteStudentStore(URI base, int threads) {
+        this(base, null, threads);
+    }
+
+    // token 为服务器要求的访问令牌，见 StudentServer
+    public RemoteStudentStore(URI base, String token, int threads) {
+        this.base = base;
+        this.authorization = token == null ? null : "Bearer " + StudentServer.checkToken(token);
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        this.executor = StudentRepository.newExecutor(threads, "student-remote-");
+        this.writes = new WriteBehindQueue(this::postChanges, FLUSH_DELAY_MS, MAX_BATCH);
+    }
+
+    @Override
+    public CompletableFuture<Void> migrateSchema() {
+        // 表结构由服务器维护
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<StudentColumns> findAllColumns(int expectedRows) {
+        return submit(cancelled -> {
+            List<Student> students = Json.toStudents(Json.asObject(get("/api/students")).get("students"));
+            StudentColumns columns = new StudentColumns(Math.max(students.size(), 16));
+            for (Student s : students) columns.add(s);
+            return columns;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> count() {
+        return submit(cancelled -> (int) Json.asLong(Json.asObject(get("/api/students/count")).get("count")));
+    }
+
+    @Override
+    public CompletableFuture<StudentDao.Page> findPage(String orderField, boolean descending, Object[] boundary,
+                                                       boolean before, int offset, int limit) {
+        StringBuilder path = new StringBuilder("/api/students?order=").append(encode(orderField))
+                .append("&desc=").append(descending).append("&offset=").append(offset).append("&limit=").append(limit);
+        if (boundary != null) {
+            String prefix = before ? "before" : "after";
+            path.append('&').append(prefix).append('=').append(encode(String.valueOf(boundary[0])))
+                    .append('&').append(prefix).append("Id=").append(encode((String) boundary[1]));
+        }
+        return submit(cancelled -> {
+            Map<?, ?> json = Json.asObject(get(path.toString()));
+            StudentDao.Page page = new StudentDao.Page();
+            page.students.addAll(Json.toStudents(json.get("students")));
+            page.firstKey = key(json.get("firstKey"));
+            page.lastKey = key(json.get("lastKey"));
+            return page;
+        });
+    }
+
+    private static Object[] key(Object json) {
+        return json == null ? null : Json.asArray(json).toArray();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String id) {
+        return findById(id).thenApply(student -> student != null);
+    }
+
+    // 队列中有该学号的修改时直接返回，不必等它提交
+    @Override
+    public CompletableFuture<Student> findById(String id) {
+        WriteBehindQueue.Lookup queued = writes.lookup(id);
+        if (queued.found) return CompletableFuture.completedFuture(queued.student);
+        return submitDirect(cancelled -> Json.toStudent(get("/api/students/" + encode(id))));
+    }
+
+    @Override
+    public void insert(Student student) {
+        writes.insert(student);
+    }
+
+    @Override
+    public void update(Student before, Student after) {
+        writes.update(before, after);
+    }
+
+    @Override
+    public void delete(Student before) {
+        writes.delete(before);
+    }
+
+    @Override
+    public CompletableFuture<List<StudentDao.Change>> saveAll(List<StudentDao.Change> changes) {
+        return submit(cancelled -> postChanges(changes));
+    }
+
+    // 写入队列的提交方式；网络和服务器错误包装为 SQLException，队列会把这批修改放回并稍后重试
+    private List<StudentDao.Change> postChanges(List<StudentDao.Change> changes) throws SQLException {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < changes.size(); i++) {
+            StudentDao.Change change = changes.get(i);
+            if (i > 0) body.append(',');
+            body.append("{\"before\":");
+            Json.student(body, change.before);
+            body.append(",\"after\":");
+            Json.student(body, change.after);
+            body.append('}');
+        }
+        body.append(']');
+        try {
+            Map<?, ?> result = Json.asObject(send("POST", "/api/changes", body.toString()));
+            List<StudentDao.Change> conflicts = new ArrayList<>();
+            for (Object index : Json.asArray(result.get("conflicts"))) {
+                conflicts.add(changes.get((int) Json.asLong(index)));
+            }
+            return conflicts;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new SQLException("提交到服务器失败: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("提交到服务器时被中断", e);
+        }
+    }
+
+    @Override
+    public void setWriteListener(WriteBehindQueue.Listener listener) {
+        writes.setListener(listener);
+    }
+
+    @Override
+    public StudentCacheMXBean cacheStats() {
+        return null;
+    }
+
+    @Override
+    public int pendingWrites() {
+        return writes.size();
+    }
+
+    @Override
+    public CompletableFuture<Integer> flushWrites() {
+        return submitDirect(cancelled -> writes.flush());
+    }
+
+    @Override
+    public CompletableFuture<Integer> search(String keyword, Consumer<List<Student>> sink) {
+        CompletableFuture<Integer> future = submit(cancelled -> {
+            List<Student> all = Json.toStudents(get("/api/search?q=" + encode(keyword)));
+            for (int from = 0; from < all.size(); from += SEARCH_CHUNK) {
+                if (cancelled.getAsBoolean()) throw new CancellationException();
+                sink.accept(new ArrayList<>(all.subList(from, Math.min(from + SEARCH_CHUNK, all.size()))));
+            }
+            return all.size();
+        });
+        CompletableFuture<?> previous = latestSearch.getAndSet(future);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<StudentImporter.Result> importFile(Path file, StudentImporter.Progress progress) {
+        return unsupported();
+    }
+
+    @Override
+    public CompletableFuture<Integer> export(StudentExporter.Source source, Path file, StudentExporter.Format format) {
+        return unsupported();
+    }
+
+    @Override
+    public boolean supportsFiles() {
+        return false;
+    }
+
+    private static <T> CompletableFuture<T> unsupported() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(new UnsupportedOperationException("连接服务器时不能导入或导出文件"));
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<RankingEngine> loadRanking() {
+        return submit(cancelled -> {
+            Map<String, int[][]> counts = new HashMap<>();
+            for (Map.Entry<?, ?> e : Json.asObject(Json.asObject(get("/api/ranking")).get("classes")).entrySet()) {
+                List<?> metrics = Json.asArray(e.getValue());
+                int[][] c = new int[metrics.size()][];
+                for (int m = 0; m < c.length; m++) c[m] = ints(metrics.get(m));
+                counts.put((String) e.getKey(), c);
+            }
+            return RankingEngine.fromClassCounts(counts);
+        });
+    }
+
+    @Override
+    public CompletableFuture<GradeStats> gradeStats() {
+        return submit(cancelled -> {
+            Map<?, ?> response = Json.asObject(get("/api/stats"));
+            GradeStats stats = new GradeStats((int) Json.asLong(response.get("courses")));
+            for (Map.Entry<?, ?> e : Json.asObject(response.get("classes")).entrySet()) {
+                List<?> courses = Json.asArray(e.getValue());
+                GradeStats.Summary[] summaries = new GradeStats.Summary[stats.courseCount()];
+                for (int course = 0; course < summaries.length; course++) {
+                    Map<?, ?> json = Json.asObject(courses.get(course));
+                    GradeStats.Summary s = new GradeStats.Summary();
+                    s.count = (int) Json.asLong(json.get("count"));
+                    s.sum = Json.asLong(json.get("sum"));
+                    s.min = (int) Json.asLong(json.get("min"));
+                    s.max = (int) Json.asLong(json.get("max"));
+                    s.fail = (int) Json.asLong(json.get("fail"));
+                    int[] buckets = ints(json.get("buckets"));
+                    System.arraycopy(buckets, 0, s.buckets, 0, Math.min(buckets.length, s.buckets.length));
+                    summaries[course] = s;
+                }
+                stats.putSummaries((String) e.getKey(), summaries);
+            }
+            return stats;
+        });
+    }
+
+    private static int[] ints(Object json) {
+        List<?> list = Json.asArray(json);
+        int[] values = new int[list.size()];
+        for (int i = 0; i < values.length; i++) values[i] = (int) Json.asLong(list.get(i));
+        return values;
+    }
+
+    @Override
+    public CompletableFuture<List<Student>> findFailing(String field) {
+        return submit(cancelled -> Json.toStudents(get("/api/failing?course=" + encode(field))));
+    }
+
+    @Override
+    public CompletableFuture<CourseRegistry> courses() {
+        return submitDirect(cancelled -> toCourses(get("/api/courses")));
+    }
+
+    @Override
+    public CompletableFuture<CourseRegistry> addCourse(String name) {
+        StringBuilder body = new StringBuilder("{\"name\":");
+        Json.string(body, name);
+        body.append('}');
+        return submitDirect(cancelled -> toCourses(send("POST", "/api/courses", body.toString())));
+    }
+
+    private static CourseRegistry toCourses(Object json) {
+        List<String> names = new ArrayList<>();
+        for (Object name : Json.asArray(Json.asObject(json).get("courses"))) names.add((String) name);
+        return new CourseRegistry(names);
+    }
+
+    // 服务器按班级和学号排好序，这里只换成列存储并统计；先取课程表，成绩向量按它解释
+    @Override
+    public CompletableFuture<FailReport> failReport() {
+        return submit(cancelled -> {
+            CourseRegistry courses = toCourses(get("/api/courses"));
+            List<?> list = Json.asArray(get("/api/failreport"));
+            StudentColumns columns = new StudentColumns(Math.max(list.size(), 16));
+            for (Object item : list) columns.add(Json.toStudent(item));
+            return new FailReport(columns, courses);
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<ChangeLog.Entry>> changeLog(String studentId, int limit) {
+        String path = "/api/changelog?limit=" + limit + (studentId == null ? "" : "&id=" + encode(studentId));
+        return submit(cancelled -> {
+            Base64.Decoder base64 = Base64.getDecoder();
+            List<ChangeLog.Entry> entries = new ArrayList<>();
+            for (Object item : Json.asArray(get(path))) {
+                Map<?, ?> json = Json.asObject(item);
+                entries.add(ChangeLog.decode(Json.asLong(json.get("seq")), Json.asLong(json.get("time")),
+                        (String) json.get("id"), (int) Json.asLong(json.get("kind")),
+                        base64.decode((String) json.get("delta")), (int) Json.asLong(json.get("merged"))));
+            }
+            return entries;
+        });
+    }
+
+    // 写入剩余的修改后停止后台线程
+    @Override
+    public void close() throws SQLException {
+        try {
+            writes.close();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // ---- HTTP ----
+
+    // 条件 GET：404 返回 null
+    private Object get(String path) throws IOException, InterruptedException {
+        String[] cached;
+        synchronized (responses) {
+            cached = responses.get(path);
+        }
+        HttpRequest.Builder request = newRequest(path).GET();
+        if (cached != null) request.header("If-None-Match", cached[0]);
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        if (response.statusCode() == 304 && cached != null) return Json.parse(cached[1]);
+        if (response.statusCode() == 404) return null;
+        check(response);
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        if (etag != null) {
+            synchronized (responses) {
+                responses.put(path, new String[]{etag, response.body()});
+            }
+        }
+        return Json.parse(response.body());
+    }
+
+    private Object send(String method, String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = newRequest(path)
+                .header("Content-Type", "application/json; charset=utf-8")
+                .method(method, HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        check(response);
+        return response.body().isEmpty() ? null : Json.parse(response.body());
+    }
+
+    private HttpRequest.Builder newRequest(String path) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path)).timeout(TIMEOUT);
+        if (authorization != null) request.header("Authorization", authorization);
+        return request;
+    }
+
+    private static void check(HttpResponse<String> response) throws RemoteException {
+        int status = response.statusCode();
+        if (status >= 200 && status < 300) return;
+        String message = "服务器返回 " + status;
+        try {
+            Object error = Json.asObject(Json.parse(response.body())).get("error");
+            if (error instanceof String) message = (String) error;
+        } catch (IllegalArgumentException e) {
+            // 不是 JSON 错误信息，保留状态码
+        }
+        throw new RemoteException(status, message);
+    }
+
+    // 与 StudentServer.decode 对应
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    // ---- 执行 ----
+
+    // 读操作：先提交队列中的修改，保证读到自己的修改
+    private <T> CompletableFuture<T> submit(StudentRepository.Query<T> query) {
+        return submitDirect(cancelled -> {
+            writes.flush();
+            return query.run(cancelled);
+        });
+    }
+
+    private <T> CompletableFuture<T> submitDirect(StudentRepository.Query<T> query) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isDone()) return;
+            try {
+                future.complete(query.run(future::isCancelled));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+}
@@ -0,0 +1,397 @@
+package sms.data;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// 按 PRAGMA user_version 逐级升级数据库结构，每一级在单独的事务中执行
+public class SchemaMigrator {
+    private static final String[] SCORE_FIELDS = {"math", "english", "computer", "pe"};
+
+    interface Migration {
+        void apply(Statement stmt) throws SQLException;
+    }
+
+    // 下标 + 1 即升级后的版本号，只能追加，不能修改已发布的步骤
+    private static final Migration[] MIGRATIONS = {
+            SchemaMigrator::createStudents,
+            SchemaMigrator::createSearchIndex,
+            SchemaMigrator::rebuildWithConstraints,
+            SchemaMigrator::createSortIndexes,
+            SchemaMigrator::createGradeCounts,
+            SchemaMigrator::createCourses,
+            SchemaMigrator::createChangeLog,
+            SchemaMigrator::createCourseGradeCounts,
+            SchemaMigrator::createShortSearchIndex,
+    };
+    // 姓名双字索引覆盖的字符位置，更长的姓名记一个 '' 标记，查询时总是作为候选
+    static final int GRAM_POSITIONS = 64;
+
+    public static int latestVersion() {
+        return MIGRATIONS.length;
+    }
+
+    public static void migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            int version = userVersion(stmt);
+            if (version > MIGRATIONS.length) {
+                throw new SQLException("数据库版本 " + version + " 高于程序支持的版本 " + MIGRATIONS.length);
+            }
+            for (int v = version; v < MIGRATIONS.length; v++) {
+                conn.setAutoCommit(false);
+                try {
+                    MIGRATIONS[v].apply(stmt);
+                    stmt.execute("PRAGMA user_version = " + (v + 1));
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("数据库升级到版本 " + (v + 1) + " 失败: " + e.getMessage(), e);
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+            // 批量导入中途退出时索引可能尚未重建
+            if (version == MIGRATIONS.length) {
+                createSecondaryIndexes(stmt);
+            }
+        }
+    }
+
+    private static int userVersion(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // v1：最初的学生表
+    private static void createStudents(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS students (" +
+                "id TEXT PRIMARY KEY," +
+                "name TEXT," +
+                "className TEXT," +
+                "math INTEGER," +
+                "english INTEGER," +
+                "computer INTEGER," +
+                "pe INTEGER)");
+    }
+
+    // v2：trigram 全文索引（外部内容表，不重复存储数据）和班级索引
+    private static void createSearchIndex(Statement stmt) throws SQLException {
+        stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS students_fts USING fts5(" +
+                "id, name, className, content='students', content_rowid='rowid', tokenize='trigram')");
+        createSearchTriggers(stmt);
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_students_className ON students(className, id)");
+        stmt.execute("INSERT INTO students_fts(students_fts) VALUES ('rebuild')");
+    }
+
+    static void createSearchTriggers(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS students_fts_ai AFTER INSERT ON students BEGIN " +
+                "INSERT INTO students_fts(rowid, id, name, className) VALUES (new.rowid, new.id, new.name, new.className); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS students_fts_ad AFTER DELETE ON students BEGIN " +
+                "INSERT INTO students_fts(students_fts, rowid, id, name, className) " +
+                "VALUES ('delete', old.rowid, old.id, old.name, old.className); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS students_fts_au AFTER UPDATE OF id, name, className ON students BEGIN " +
+                "INSERT INTO students_fts(students_fts, rowid, id, name, className) " +
+                "VALUES ('delete', old.rowid, old.id, old.name, old.className); " +
+                "INSERT INTO students_fts(rowid, id, name, className) VALUES (new.rowid, new.id, new.name, new.className); END");
+    }
+
+    // 批量导入期间改为按语句维护全文索引，事务内删除触发器，提交前重新创建
+    static void dropSearchTriggers(Statement stmt) throws SQLException {
+        stmt.execute("DROP TRIGGER IF EXISTS students_fts_ai");
+        stmt.execute("DROP TRIGGER IF EXISTS students_fts_ad");
+        stmt.execute("DROP TRIGGER IF EXISTS students_fts_au");
+    }
+
+    // v3：重建学生表，成绩限定为 0-100 的整数（按整数存储最紧凑），文本列不允许为空
+    // 旧数据中越界或非数字的成绩按 0-100 截断，保留原 rowid 使全文索引仍然有效
+    private static void rebuildWithConstraints(Statement stmt) throws SQLException {
+        StringBuilder ddl = new StringBuilder("CREATE TABLE students_new (" +
+                "id TEXT PRIMARY KEY NOT NULL," +
+                "name TEXT NOT NULL," +
+                "className TEXT NOT NULL");
+        StringBuilder copy = new StringBuilder("INSERT INTO students_new (rowid, id, name, className");
+        StringBuilder select = new StringBuilder(" SELECT rowid, id, COALESCE(name, ''), COALESCE(className, '')");
+        for (String f : SCORE_FIELDS) {
+            ddl.append(", ").append(f).append(" INTEGER NOT NULL CHECK (typeof(").append(f)
+                    .append(") = 'integer' AND ").append(f).append(" BETWEEN 0 AND 100)");
+            copy.append(", ").append(f);
+            select.append(", MIN(MAX(COALESCE(CAST(").append(f).append(" AS INTEGER), 0), 0), 100)");
+        }
+        ddl.append(")");
+        copy.append(")").append(select).append(" FROM students WHERE id IS NOT NULL");
+        stmt.execute(ddl.toString());
+        stmt.execute(copy.toString());
+        // 删除旧表时触发器和索引一并删除，改名后重新创建
+        stmt.execute("DROP TABLE students");
+        stmt.execute("ALTER TABLE students_new RENAME TO students");
+        createSearchTriggers(stmt);
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_students_className ON students(className, id)");
+        stmt.execute("INSERT INTO students_fts(students_fts) VALUES ('rebuild')");
+    }
+
+    // v4：姓名和各科成绩的 (列, id) 索引，供分页排序的键集查询和不及格名单的范围查询使用
+    private static void createSortIndexes(Statement stmt) throws SQLException {
+        createSecondaryIndexes(stmt);
+        stmt.execute("ANALYZE");
+    }
+
+    // v5：按 (班级, 课程, 分数) 计数的汇总表，由触发器随增删改维护
+    // 人数、总分、最高最低分、不及格人数和分数段都能从中汇总，查询代价只与班级数有关
+    // course 为 SCORE_FIELDS 中的下标；计数减到 0 的行保留，读取时过滤
+    private static void createGradeCounts(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS grade_counts (" +
+                "className TEXT NOT NULL," +
+                "course INTEGER NOT NULL," +
+                "score INTEGER NOT NULL," +
+                "n INTEGER NOT NULL," +
+                "PRIMARY KEY (className, course, score)) WITHOUT ROWID");
+        createFixedGradeTriggers(stmt);
+        stmt.execute("DELETE FROM grade_counts");
+        stmt.execute(addFixedGradeCounts("students", 1));
+    }
+
+    // v6：登记课程。固定的四门课程之外，课程只登记在 courses 表中，不再为每门课程加列（加列要重建整张表）
+    // 各课程成绩按 slot 顺序打包为学生表中的一个 BLOB，每门一个字节，0xFF 表示没有成绩，全部没有时为 NULL；
+    // 与全表加载同一次读取，不需要连接查询
+    private static void createCourses(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS courses (" +
+                "slot INTEGER PRIMARY KEY," +
+                "name TEXT NOT NULL UNIQUE)");
+        stmt.execute("ALTER TABLE students ADD COLUMN extra_scores BLOB");
+    }
+
+    // v7：修改日志，由 applyChanges 在写入学生表的同一事务中追加，delta 格式见 ChangeLog
+    // time 为毫秒时间戳；merged 为压缩时合并进这一条的修改次数
+    private static void createChangeLog(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS change_log (" +
+                "seq INTEGER PRIMARY KEY," +
+                "time INTEGER NOT NULL," +
+                "student_id TEXT NOT NULL," +
+                "kind INTEGER NOT NULL," +
+                "delta BLOB NOT NULL," +
+                "merged INTEGER NOT NULL DEFAULT 1)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_change_log_student ON change_log(student_id, seq)");
+    }
+
+    // v8：登记课程的成绩也计入汇总表，course 为 CourseRegistry 的下标（固定课程之后依次为各 slot），
+    // 统计不再扫描学生表
+    private static void createCourseGradeCounts(Statement stmt) throws SQLException {
+        createCourseGradeTriggers(stmt);
+        stmt.execute("DELETE FROM grade_counts WHERE course >= " + SCORE_FIELDS.length);
+        stmt.execute(addCourseGradeCounts("students", 1));
+    }
+
+    // v9：trigram 不能处理的 1-2 个字的关键字：姓名的双字倒排表（按 rowid），另加每个姓名的最后一个字，
+    // 单字关键字按前缀范围查找（以该字开头的双字或最后一个字即覆盖它的全部出现位置）；
+    // 学号中出现过的字符（只增不删，用来判断关键字是否可能出现在学号中）；班级名查询时从班级索引跳读，不需要额外的表
+    private static void createShortSearchIndex(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS search_positions (pos INTEGER PRIMARY KEY)");
+        stmt.execute("INSERT OR IGNORE INTO search_positions WITH RECURSIVE p(pos) AS " +
+                "(SELECT 1 UNION ALL SELECT pos + 1 FROM p WHERE pos < " + GRAM_POSITIONS + ") SELECT pos FROM p");
+        stmt.execute("CREATE TABLE IF NOT EXISTS search_name_grams (" +
+                "gram TEXT NOT NULL," +
+                "student_rowid INTEGER NOT NULL," +
+                "PRIMARY KEY (gram, student_rowid)) WITHOUT ROWID");
+        stmt.execute("CREATE TABLE IF NOT EXISTS search_id_chars (ch TEXT PRIMARY KEY) WITHOUT ROWID");
+        createGramTriggers(stmt);
+        stmt.execute("DELETE FROM search_name_grams");
+        stmt.execute(insertNameGrams("students"));
+        stmt.execute(insertIdChars("students"));
+    }
+
+    static void createGramTriggers(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS students_grams_ai AFTER INSERT ON students BEGIN " +
+                "INSERT OR IGNORE INTO search_name_grams SELECT gram, new.rowid FROM (" + grams("lower(new.name)") + "); " +
+                "INSERT OR IGNORE INTO search_id_chars " + chars("lower(new.id)") + "; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS students_grams_ad AFTER DELETE ON students BEGIN " +
+                deleteNameGrams("old") + "; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS students_grams_au AFTER UPDATE OF id, name ON students BEGIN " +
+                deleteNameGrams("old") + "; " +
+                "INSERT OR IGNORE INTO search_name_grams SELECT gram, new.rowid FROM (" + grams("lower(new.name)") + "); " +
+                "INSERT OR IGNORE INTO search_id_chars " + chars("lower(new.id)") + "; END");
+    }
+
+    // 与全文索引相同，批量导入期间删除，由 StudentDao 按块维护
+    static void dropGramTriggers(Statement stmt) throws SQLException {
+        stmt.execute("DROP TRIGGER IF EXISTS students_grams_ai");
+        stmt.execute("DROP TRIGGER IF EXISTS students_grams_ad");
+        stmt.execute("DROP TRIGGER IF EXISTS students_grams_au");
+    }
+
+    // value 的全部双字（可能重复）和最后一个字，超出 GRAM_POSITIONS 时改为 '' 标记；
+    // 触发器中不能用 WITH，位置取自 search_positions
+    private static String grams(String value) {
+        return "SELECT substr(" + value + ", pos, 2) AS gram FROM search_positions WHERE pos < length(" + value + ")" +
+                " UNION ALL SELECT substr(" + value + ", -1) WHERE length(" + value + ") BETWEEN 1 AND " + GRAM_POSITIONS +
+                " UNION ALL SELECT '' WHERE length(" + value + ") > " + GRAM_POSITIONS;
+    }
+
+    private static String chars(String value) {
+        return "SELECT substr(" + value + ", pos, 1) FROM search_positions WHERE pos <= length(" + value + ")" +
+                " UNION ALL SELECT '' WHERE length(" + value + ") > " + GRAM_POSITIONS;
+    }
+
+    private static String deleteNameGrams(String row) {
+        return "DELETE FROM search_name_grams WHERE student_rowid = " + row + ".rowid AND gram IN (" +
+                grams("lower(" + row + ".name)") + ")";
+    }
+
+    // source（students 或其子查询，需带 rowid）中各行姓名的双字和最后一个字
+    static String insertNameGrams(String source) {
+        // 按主键顺序插入，B 树的页访问更集中
+        return "INSERT OR IGNORE INTO search_name_grams (gram, student_rowid) " + nameGramRows(source) + " ORDER BY 1, 2";
+    }
+
+    // 删除 source 中各行姓名的双字和最后一个字，source 取写入前的旧值
+    static String deleteNameGramsOf(String source) {
+        return "DELETE FROM search_name_grams WHERE (gram, student_rowid) IN (" + nameGramRows(source) + ")";
+    }
+
+    private static String nameGramRows(String source) {
+        String name = "lower(s.name)";
+        return "SELECT substr(" + name + ", p.pos, 2), s.rowid FROM " + source + " s " +
+                "JOIN search_positions p ON p.pos < length(s.name) " +
+                "UNION ALL SELECT substr(" + name + ", -1), s.rowid FROM " + source + " s " +
+                "WHERE length(s.name) BETWEEN 1 AND " + GRAM_POSITIONS +
+                " UNION ALL SELECT '', s.rowid FROM " + source + " s WHERE length(s.name) > " + GRAM_POSITIONS;
+    }
+
+    static String insertIdChars(String source) {
+        return "INSERT OR IGNORE INTO search_id_chars (ch) " +
+                "SELECT DISTINCT substr(lower(s.id), p.pos, 1) FROM " + source + " s " +
+                "JOIN search_positions p ON p.pos <= length(s.id) " +
+                "UNION ALL SELECT '' FROM " + source + " s WHERE length(s.id) > " + GRAM_POSITIONS;
+    }
+
+    // 全部成绩汇总触发器；批量导入结束时恢复
+    static void createGradeTriggers(Statement stmt) throws SQLException {
+        createFixedGradeTriggers(stmt);
+        createCourseGradeTriggers(stmt);
+    }
+
+    private static void createFixedGradeTriggers(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS students_grades_ai AFTER INSERT ON students BEGIN " +
+                upsertGradeCounts(gradeRows("new", 1)) + "; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS students_grades_ad AFTER DELETE ON students BEGIN " +
+                upsertGradeCounts(gradeRows("old", -1)) + "; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS students_grades_au " +
+                "AFTER UPDATE OF className, math, english, computer, pe ON students BEGIN " +
+                upsertGradeCounts(gradeRows("old", -1) + ", " + gradeRows("new", 1)) + "; END");
+    }
+
+    // 登记课程的成绩逐门与 courses 表连接展开（触发器中不能用 WITH）；
+    // 成绩向量和班级都没有变化的修改不改动汇总表
+    private static void createCourseGradeTriggers(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS students_course_grades_ai AFTER INSERT ON students BEGIN " +
+                upsertCourseGradeCounts("new", 1) + "; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS students_course_grades_ad AFTER DELETE ON students BEGIN " +
+                upsertCourseGradeCounts("old", -1) + "; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS students_course_grades_au " +
+                "AFTER UPDATE OF className, extra_scores ON students " +
+                "WHEN old.className IS NOT new.className OR old.extra_scores IS NOT new.extra_scores BEGIN " +
+                upsertCourseGradeCounts("old", -1) + "; " + upsertCourseGradeCounts("new", 1) + "; END");
+    }
+
+    // 与全文索引相同，批量导入期间删除，由 addGradeCounts 按块维护
+    static void dropGradeTriggers(Statement stmt) throws SQLException {
+        stmt.execute("DROP TRIGGER IF EXISTS students_grades_ai");
+        stmt.execute("DROP TRIGGER IF EXISTS students_grades_ad");
+        stmt.execute("DROP TRIGGER IF EXISTS students_grades_au");
+        stmt.execute("DROP TRIGGER IF EXISTS students_course_grades_ai");
+        stmt.execute("DROP TRIGGER IF EXISTS students_course_grades_ad");
+        stmt.execute("DROP TRIGGER IF EXISTS students_course_grades_au");
+    }
+
+    // 把 source（students 或其子查询）中各行的全部成绩按 sign 计入汇总表
+    static void addGradeCounts(Statement stmt, String source, int sign) throws SQLException {
+        for (String sql : gradeCountStatements(source, sign)) {
+            stmt.execute(sql);
+        }
+    }
+
+    // addGradeCounts 依次执行的语句，供需要预编译执行的调用方使用
+    static String[] gradeCountStatements(String source, int sign) {
+        return new String[]{addFixedGradeCounts(source, sign), addCourseGradeCounts(source, sign)};
+    }
+
+    private static String addFixedGradeCounts(String source, int sign) {
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < SCORE_FIELDS.length; i++) {
+            if (i > 0) rows.append(" UNION ALL ");
+            rows.append("SELECT className, ").append(i).append(" AS course, ").append(SCORE_FIELDS[i])
+                    .append(" AS score FROM ").append(source);
+        }
+        // WHERE true 用于消除 INSERT ... SELECT ... ON CONFLICT 的语法歧义
+        return "INSERT INTO grade_counts (className, course, score, n) " +
+                "SELECT className, course, score, " + sign + " * COUNT(*) FROM (" + rows + ") WHERE true " +
+                "GROUP BY className, course, score " +
+                "ON CONFLICT (className, course, score) DO UPDATE SET n = n + excluded.n";
+    }
+
+    private static String addCourseGradeCounts(String source, int sign) {
+        return "INSERT INTO grade_counts (className, course, score, n) " +
+                "SELECT className, course, score, " + sign + " * COUNT(*) FROM (" +
+                "SELECT s.className, " + SCORE_FIELDS.length + " + c.slot AS course, " +
+                courseScore("s.extra_scores", "c.slot") + " AS score " +
+                "FROM " + source + " s JOIN courses c ON c.slot < length(s.extra_scores)) WHERE score >= 0 " +
+                "GROUP BY className, course, score " +
+                "ON CONFLICT (className, course, score) DO UPDATE SET n = n + excluded.n";
+    }
+
+    // 触发器中 row（new 或 old）一行的各门登记课程；extra_scores 为 NULL 时 length 为 NULL，不产生行
+    private static String upsertCourseGradeCounts(String row, int n) {
+        String score = courseScore(row + ".extra_scores", "slot");
+        return "INSERT INTO grade_counts (className, course, score, n) " +
+                "SELECT " + row + ".className, " + SCORE_FIELDS.length + " + slot, " + score + ", " + n +
+                " FROM courses WHERE slot < length(" + row + ".extra_scores) AND " + score + " >= 0 " +
+                "ON CONFLICT (className, course, score) DO UPDATE SET n = n + excluded.n";
+    }
+
+    // 成绩向量第 slot 个字节的分数：在 0..100 各一个字节的常量中查找，0xFF（没有成绩）找不到，结果为 -1
+    static String courseScore(String blob, String slot) {
+        return "(instr(" + SCORE_BYTES + ", substr(" + blob + ", " + slot + " + 1, 1)) - 1)";
+    }
+
+    private static final String SCORE_BYTES = scoreBytes();
+
+    private static String scoreBytes() {
+        StringBuilder hex = new StringBuilder("x'");
+        for (int score = 0; score <= 100; score++) hex.append(String.format("%02x", score));
+        return hex.append("'").toString();
+    }
+
+    private static String gradeRows(String row, int n) {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < SCORE_FIELDS.length; i++) {
+            if (i > 0) values.append(", ");
+            values.append("(").append(row).append(".className, ").append(i).append(", ")
+                    .append(row).append(".").append(SCORE_FIELDS[i]).append(", ").append(n).append(")");
+        }
+        return values.toString();
+    }
+
+    private static String upsertGradeCounts(String values) {
+        return "INSERT INTO grade_counts (className, course, score, n) VALUES " + values +
+                " ON CONFLICT (className, course, score) DO UPDATE SET n = n + excluded.n";
+    }
+
+    // 主键以外的全部索引，已存在的跳过
+    static void createSecondaryIndexes(Statement stmt) throws SQLException {
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_students_className ON students(className, id)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_students_name ON students(name, id)");
+        for (String f : SCORE_FIELDS) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_students_" + f + " ON students(" + f + ", id)");
+        }
+    }
+
+    // 大批量导入前删除，导入后一次性重建（排序建索引比逐行插入快得多）
+    static void dropSecondaryIndexes(Statement stmt) throws SQLException {
+        stmt.execute("DROP INDEX IF EXISTS idx_students_className");
+        stmt.execute("DROP INDEX IF EXISTS idx_students_name");
+        for (String f : SCORE_FIELDS) {
+            stmt.execute("DROP INDEX IF EXISTS idx_students_" + f);
+        }
+    }
+}
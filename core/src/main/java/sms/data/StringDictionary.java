@@ -0,0 +1,54 @@
+package sms.data;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 字符串字典：重复的姓名/班级只保存一份，行中只存整数编码
+public class StringDictionary {
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Integer> codes = new HashMap<>();
+    // 按 Collator 排序后的名次，字典变化后重新计算
+    private int[] ranks;
+
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            values.add(value);
+            codes.put(value, code);
+            ranks = null;
+        }
+        return code;
+    }
+
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public void clear() {
+        values.clear();
+        codes.clear();
+        ranks = null;
+    }
+
+    // 编码 -> 排序名次，与 TableRowSorter 对字符串列使用的 Collator 顺序一致
+    public int[] ranks() {
+        if (ranks == null) {
+            Integer[] order = new Integer[values.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Collator collator = Collator.getInstance();
+            java.util.Arrays.sort(order, (a, b) -> collator.compare(values.get(a), values.get(b)));
+            int[] r = new int[order.length];
+            for (int i = 0; i < order.length; i++) r[order[i]] = i;
+            ranks = r;
+        }
+        return ranks;
+    }
+}
@@ -0,0 +1,113 @@
+package sms.data;
+
+import java.util.Arrays;
+
+// 字段名和 serialVersionUID 与旧版 students.dat 中的类描述一致，旧文件由 LegacyDatMigrator 读取
+public class Student implements java.io.Serializable {
+    private static final long serialVersionUID = 0x20D500466442E647L;
+    // extra_scores 中表示没有成绩的字节
+    public static final int NO_SCORE = -1;
+    private String id;
+    private String name;
+    private String className;
+    private int math;
+    private int english;
+    private int computer;
+    private int pe;
+    // 登记课程的成绩（见 CourseRegistry），旧版文件中没有该字段
+    private byte[] extraScores;
+
+    public Student(String id, String name, String className, int math, int english, int computer, int pe) {
+        this.id = id;
+        this.name = name;
+        this.className = className;
+        this.math = math;
+        this.english = english;
+        this.computer = computer;
+        this.pe = pe;
+    }
+
+    public String getId() { return id; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getClassName() { return className; }
+    public void setClassName(String className) { this.className = className; }
+    public int getMath() { return math; }
+    public void setMath(int math) { this.math = math; }
+    public int getEnglish() { return english; }
+    public void setEnglish(int english) { this.english = english; }
+    public int getComputer() { return computer; }
+    public void setComputer(int computer) { this.computer = computer; }
+    public int getPe() { return pe; }
+    public void setPe(int pe) { this.pe = pe; }
+
+    // 按课程下标取成绩，登记课程没有成绩时为 NO_SCORE
+    public int getScore(int course) {
+        switch (course) {
+            case 0: return math;
+            case 1: return english;
+            case 2: return computer;
+            case 3: return pe;
+            default: return extraScore(extraScores, course - CourseRegistry.FIXED_COUNT);
+        }
+    }
+
+    // 登记课程可以设为 NO_SCORE
+    public void setScore(int course, int score) {
+        switch (course) {
+            case 0: math = score; break;
+            case 1: english = score; break;
+            case 2: computer = score; break;
+            case 3: pe = score; break;
+            default: extraScores = withExtraScore(extraScores, course - CourseRegistry.FIXED_COUNT, score);
+        }
+    }
+
+    // 登记课程的成绩向量，即 extra_scores 列的内容：第 slot 个字节为该课程的成绩，0xFF 表示没有成绩；
+    // 末尾没有成绩的字节省略，全部没有时为 null。返回的数组与其他对象共用，不要修改
+    public byte[] getExtraScores() { return extraScores; }
+
+    public void setExtraScores(byte[] extraScores) { this.extraScores = trim(extraScores); }
+
+    public boolean sameScores(Student other) {
+        return math == other.math && english == other.english && computer == other.computer && pe == other.pe
+                && Arrays.equals(extraScores, other.extraScores);
+    }
+
+    public static int extraScore(byte[] extraScores, int slot) {
+        return extraScores == null || slot >= extraScores.length ? NO_SCORE : extraScores[slot];
+    }
+
+    // 修改一门课程后的新向量，原数组不变
+    public static byte[] withExtraScore(byte[] extraScores, int slot, int score) {
+        int old = extraScores == null ? 0 : extraScores.length;
+        byte[] updated = old == 0 ? new byte[slot + 1] : Arrays.copyOf(extraScores, Math.max(old, slot + 1));
+        Arrays.fill(updated, old, updated.length, (byte) NO_SCORE);
+        updated[slot] = (byte) score;
+        return trim(updated);
+    }
+
+    // 用 scores 中有成绩的字节覆盖 base 的对应课程，其余保留 base 的值；原数组都不变
+    public static byte[] overlayExtraScores(byte[] base, byte[] scores) {
+        if (base == null || scores == null) return trim(base == null ? scores : base);
+        byte[] merged = Arrays.copyOf(base, Math.max(base.length, scores.length));
+        Arrays.fill(merged, base.length, merged.length, (byte) NO_SCORE);
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] != NO_SCORE) merged[i] = scores[i];
+        }
+        return trim(merged);
+    }
+
+    private static byte[] trim(byte[] extraScores) {
+        if (extraScores == null) return null;
+        int length = extraScores.length;
+        while (length > 0 && extraScores[length - 1] == NO_SCORE) length--;
+        if (length == 0) return null;
+        return length == extraScores.length ? extraScores : Arrays.copyOf(extraScores, length);
+    }
+
+    // 验证成绩是否在0-100之间，界面录入和批量导入共用
+    public static boolean isValidGrade(int grade) {
+        return grade >= 0 && grade <= 100;
+    }
+}
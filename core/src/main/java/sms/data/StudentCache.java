@@ -0,0 +1,193 @@
+package sms.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 按学号的读穿透缓存，供 StudentRepository 的 findById/exists 使用：
+// 最近访问的 capacity 名学生按 LRU 淘汰；另有覆盖全表学号的 Bloom 过滤器，不存在的学号多数不必查询数据库
+// 写入时同步更新（write-through），导入等批量写入后整体失效。存取的都是副本，调用方可以修改返回的对象
+public class StudentCache implements StudentCacheMXBean {
+    private final int capacity;
+    private final Map<String, Student> entries;
+    // 已建好的过滤器；为 null 时不能据此判定学号不存在
+    private IdBloomFilter bloom;
+    // 正在重建过滤器时，重建开始后新增的学号
+    private List<String> addedWhileBuilding;
+    private long hits;
+    private long misses;
+    private long bloomRejections;
+    private long evictions;
+    private long version;
+
+    public StudentCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<String, Student>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Student> eldest) {
+                if (size() > StudentCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // 查询结果：found 为 false 时需要查询数据库；found 为 true 且 student 为 null 表示学号不存在
+    public static final class Lookup {
+        static final Lookup MISS = new Lookup(false, null);
+        static final Lookup ABSENT = new Lookup(true, null);
+
+        public final boolean found;
+        public final Student student;
+
+        Lookup(boolean found, Student student) {
+            this.found = found;
+            this.student = student;
+        }
+    }
+
+    public synchronized Lookup lookup(String id) {
+        Student s = entries.get(id);
+        if (s != null) {
+            hits++;
+            return new Lookup(true, WriteBehindQueue.copy(s));
+        }
+        if (bloom != null && !bloom.mightContain(id)) {
+            bloomRejections++;
+            return Lookup.ABSENT;
+        }
+        misses++;
+        return Lookup.MISS;
+    }
+
+    // 每次写入或失效时加一；读数据库之前取得，放入读到的行时若已变化说明期间有写入，读到的可能已过时
+    public synchronized long version() {
+        return version;
+    }
+
+    // 写入（write-through）：新增或修改后的学生
+    public synchronized void put(Student student) {
+        version++;
+        entries.put(student.getId(), WriteBehindQueue.copy(student));
+        addId(student.getId());
+    }
+
+    public synchronized void remove(String id) {
+        version++;
+        entries.remove(id);
+    }
+
+    // 从数据库读到的行，读取开始后缓存有过写入时丢弃
+    public synchronized void putLoaded(Student student, long readVersion) {
+        if (readVersion != version) return;
+        entries.put(student.getId(), WriteBehindQueue.copy(student));
+    }
+
+    // 查询得到的一批行：超过容量的部分只会互相淘汰，只放入前 capacity 行
+    public synchronized void putAllLoaded(Collection<Student> students, long readVersion) {
+        if (readVersion != version) return;
+        int n = 0;
+        for (Student s : students) {
+            if (n++ == capacity) break;
+            entries.put(s.getId(), WriteBehindQueue.copy(s));
+        }
+    }
+
+    public synchronized void putAllLoaded(StudentColumns students, long readVersion) {
+        if (readVersion != version) return;
+        int n = Math.min(students.size(), capacity);
+        for (int row = 0; row < n; row++) {
+            entries.put(students.getId(row), students.getStudent(row));
+        }
+    }
+
+    // 数据库被批量改写：清空条目，过滤器需要重建
+    public synchronized void invalidateAll() {
+        version++;
+        entries.clear();
+        bloom = null;
+        addedWhileBuilding = null;
+    }
+
+    // 需要重建过滤器时返回一个标记，否则返回 null（已有可用的过滤器或正在重建）
+    // 调用方此后从数据库读出全部学号建成过滤器，交给 finishBloom；其间新增的学号由缓存记下并在安装时补上
+    // 读取之前必须先写入写回队列中的修改，否则入队早于 beginBloom、提交晚于读取的学号会被漏掉
+    synchronized Object beginBloom() {
+        if (bloom != null || addedWhileBuilding != null) return null;
+        addedWhileBuilding = new ArrayList<>();
+        return addedWhileBuilding;
+    }
+
+    // 重建期间被 invalidateAll 作废的结果不再使用
+    synchronized void finishBloom(Object token, IdBloomFilter filter) {
+        if (token != addedWhileBuilding) return;
+        for (String id : addedWhileBuilding) {
+            filter.add(id);
+        }
+        bloom = filter;
+        addedWhileBuilding = null;
+    }
+
+    synchronized void abandonBloom(Object token) {
+        if (token == addedWhileBuilding) {
+            addedWhileBuilding = null;
+        }
+    }
+
+    private void addId(String id) {
+        if (bloom != null) {
+            bloom.add(id);
+            if (bloom.isOverloaded()) {
+                bloom = null;
+            }
+        }
+        if (addedWhileBuilding != null) {
+            addedWhileBuilding.add(id);
+        }
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    @Override
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized long getBloomRejections() {
+        return bloomRejections;
+    }
+
+    @Override
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized double getHitRate() {
+        long total = hits + bloomRejections + misses;
+        return total == 0 ? 0 : (double) (hits + bloomRejections) / total;
+    }
+
+    @Override
+    public synchronized boolean isBloomReady() {
+        return bloom != null;
+    }
+}
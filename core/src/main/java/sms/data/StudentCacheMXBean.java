@@ -0,0 +1,22 @@
+package sms.data;
+
+// 按学号查询缓存的统计，由程序注册为 sms:type=StudentCache
+public interface StudentCacheMXBean {
+    int getSize();
+
+    int getCapacity();
+
+    long getHits();
+
+    long getMisses();
+
+    // Bloom 过滤器直接判定学号不存在、未访问数据库的次数
+    long getBloomRejections();
+
+    long getEvictions();
+
+    // (命中 + Bloom 判定) / 全部查询，没有查询时为 0
+    double getHitRate();
+
+    boolean isBloomReady();
+}
@@ -0,0 +1,126 @@
+package sms.data;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+// 按列存放的一批学生：成绩为 byte 数组，姓名/班级为字典编码，与 StudentTableModel 的存储格式相同
+// 全表加载时直接从结果集解码到这里，不为每行创建 Student，表格模型整体接管这些数组
+// 不是线程安全的：在后台线程填充，交给 EDT 之后不再修改
+public class StudentColumns {
+    public static final int COURSE_COUNT = 4;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private String[] ids;
+    private int[] nameCodes;
+    private int[] classCodes;
+    // scores[课程][行]，只有固定的四门课程
+    private final byte[][] scores = new byte[COURSE_COUNT][];
+    // 每行登记课程的成绩向量（见 Student.getExtraScores），大多为 null；与 Student 共用，不修改
+    private byte[][] extraScores;
+    private final StringDictionary names = new StringDictionary();
+    private final StringDictionary classNames = new StringDictionary();
+    private int size;
+
+    public StudentColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public StudentColumns(int capacity) {
+        ids = new String[capacity];
+        nameCodes = new int[capacity];
+        classCodes = new int[capacity];
+        extraScores = new byte[capacity][];
+        for (int c = 0; c < COURSE_COUNT; c++) scores[c] = new byte[capacity];
+    }
+
+    // 追加结果集的当前行
+    public void add(StudentRowReader row) throws SQLException {
+        ensureCapacity(size + 1);
+        ids[size] = row.id();
+        nameCodes[size] = names.encode(row.name());
+        classCodes[size] = classNames.encode(row.className());
+        for (int c = 0; c < COURSE_COUNT; c++) scores[c][size] = (byte) row.score(c);
+        extraScores[size] = row.extraScores();
+        size++;
+    }
+
+    public void add(Student s) {
+        ensureCapacity(size + 1);
+        ids[size] = s.getId();
+        nameCodes[size] = names.encode(s.getName());
+        classCodes[size] = classNames.encode(s.getClassName());
+        scores[0][size] = (byte) s.getMath();
+        scores[1][size] = (byte) s.getEnglish();
+        scores[2][size] = (byte) s.getComputer();
+        scores[3][size] = (byte) s.getPe();
+        extraScores[size] = s.getExtraScores();
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getId(int row) {
+        return ids[row];
+    }
+
+    public String getName(int row) {
+        return names.decode(nameCodes[row]);
+    }
+
+    public String getClassName(int row) {
+        return classNames.decode(classCodes[row]);
+    }
+
+    // course 为 CourseRegistry 中的课程下标，登记课程没有成绩时为 Student.NO_SCORE
+    public int getScore(int row, int course) {
+        return course < COURSE_COUNT ? scores[course][row] : Student.extraScore(extraScores[row], course - COURSE_COUNT);
+    }
+
+    public Student getStudent(int row) {
+        Student student = new Student(ids[row], names.decode(nameCodes[row]), classNames.decode(classCodes[row]),
+                scores[0][row], scores[1][row], scores[2][row], scores[3][row]);
+        student.setExtraScores(extraScores[row]);
+        return student;
+    }
+
+    // 以下返回内部数组本身（长度可能大于 size），供表格模型接管，调用方不要再通过本对象修改
+    public String[] ids() {
+        return ids;
+    }
+
+    public int[] nameCodes() {
+        return nameCodes;
+    }
+
+    public int[] classCodes() {
+        return classCodes;
+    }
+
+    public byte[][] scores() {
+        return scores;
+    }
+
+    public byte[][] extraScores() {
+        return extraScores;
+    }
+
+    public StringDictionary names() {
+        return names;
+    }
+
+    public StringDictionary classNames() {
+        return classNames;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) return;
+        int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1) + 1);
+        ids = Arrays.copyOf(ids, newCapacity);
+        nameCodes = Arrays.copyOf(nameCodes, newCapacity);
+        classCodes = Arrays.copyOf(classCodes, newCapacity);
+        extraScores = Arrays.copyOf(extraScores, newCapacity);
+        for (int c = 0; c < COURSE_COUNT; c++) scores[c] = Arrays.copyOf(scores[c], newCapacity);
+    }
+}
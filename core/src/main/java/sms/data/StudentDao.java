@@ -0,0 +1,1049 @@
+package sms.data;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// 学生表的同步数据访问，所有方法都可能阻塞，不要在 EDT 上调用
+public class StudentDao {
+    private static final Logger LOG = Logger.getLogger(StudentDao.class.getName());
+    private static final String[] SCORE_FIELDS = {"math", "english", "computer", "pe"};
+    private static final int SEARCH_CHUNK = 500;
+    // students 中学号在当前导入块里的行
+    private static final String CHUNK_ROWS = "(SELECT * FROM students WHERE id IN (SELECT id FROM temp.import_chunk))";
+    // 导入块的各条集合语句都是常量，经 conn.prepare 缓存执行，-Dsms.explain 时同样记录查询计划
+    // 暂存表的 extra_scores 为 NULL 表示不改动登记课程的成绩
+    private static final String STAGE_SQL = "INSERT OR REPLACE INTO temp.import_chunk " +
+            "(id, name, className, math, english, computer, pe, extra_scores) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    // 导入的登记课程成绩叠加到已有的成绩向量上：文件中为空的课程保留原成绩
+    private static final String CHUNK_EXTRA_SQL = "SELECT c.id, s.extra_scores, c.extra_scores FROM temp.import_chunk c " +
+            "JOIN students s ON s.id = c.id WHERE c.extra_scores IS NOT NULL AND s.extra_scores IS NOT NULL";
+    private static final String STAGE_EXTRA_SQL = "UPDATE temp.import_chunk SET extra_scores = ? WHERE id = ?";
+    // 新学生和内容有变化的行，条件与 UPSERT_SQL 的 WHERE 相同
+    private static final String CHUNK_CHANGES_SQL = "SELECT c.id AS import_id, c.extra_scores AS import_extra, s.* " +
+            "FROM temp.import_chunk c LEFT JOIN students s ON s.id = c.id " +
+            "WHERE s.id IS NULL OR (s.name, s.className, s.math, s.english, s.computer, s.pe) <> " +
+            "(c.name, c.className, c.math, c.english, c.computer, c.pe) " +
+            "OR c.extra_scores IS NOT NULL AND s.extra_scores IS NOT c.extra_scores";
+    private static final String MARK_CHANGED_SQL = "INSERT INTO temp.import_changed SELECT s.rowid " +
+            "FROM temp.import_chunk c JOIN students s ON s.id = c.id WHERE s.name <> c.name OR s.className <> c.className";
+    private static final String FTS_DELETE_CHANGED_SQL = "INSERT INTO students_fts(students_fts, rowid, id, name, className) " +
+            "SELECT 'delete', rowid, id, name, className FROM students WHERE rowid IN temp.import_changed";
+    // WHERE true 用于消除 INSERT ... SELECT ... ON CONFLICT 的语法歧义
+    private static final String UPSERT_SQL = "INSERT INTO students " +
+            "(id, name, className, math, english, computer, pe, extra_scores) " +
+            "SELECT id, name, className, math, english, computer, pe, extra_scores FROM temp.import_chunk WHERE true " +
+            "ON CONFLICT(id) DO UPDATE SET name=excluded.name, className=excluded.className, " +
+            "math=excluded.math, english=excluded.english, computer=excluded.computer, pe=excluded.pe, " +
+            "extra_scores=COALESCE(excluded.extra_scores, extra_scores) " +
+            "WHERE (name, className, math, english, computer, pe) <> " +
+            "(excluded.name, excluded.className, excluded.math, excluded.english, excluded.computer, excluded.pe) " +
+            "OR excluded.extra_scores IS NOT NULL AND extra_scores IS NOT excluded.extra_scores";
+    // 新插入的行 rowid 都大于写入前的最大值
+    private static final String FTS_INSERT_SQL = "INSERT INTO students_fts(rowid, id, name, className) " +
+            "SELECT rowid, id, name, className FROM students WHERE rowid > ? " +
+            "UNION ALL SELECT rowid, id, name, className FROM students WHERE rowid IN temp.import_changed";
+    // 姓名的双字索引：写入前按旧姓名删除变化的行，写入后加上新行和变化的行；学号字符只增不删
+    // 子查询在语句中出现多次，参数用 ?1 共用
+    private static final String GRAMS_DELETE_CHANGED_SQL = SchemaMigrator.deleteNameGramsOf(
+            "(SELECT rowid, name FROM students WHERE rowid IN temp.import_changed)");
+    private static final String GRAMS_INSERT_SQL = SchemaMigrator.insertNameGrams(
+            "(SELECT rowid, name FROM students WHERE rowid > ?1 OR rowid IN temp.import_changed)");
+    private static final String ID_CHARS_INSERT_SQL = SchemaMigrator.insertIdChars("temp.import_chunk");
+    private static final String[] CHUNK_GRADES_REMOVE = SchemaMigrator.gradeCountStatements(CHUNK_ROWS, -1);
+    private static final String[] CHUNK_GRADES_ADD = SchemaMigrator.gradeCountStatements(CHUNK_ROWS, 1);
+    // upsertInOneTransaction 期间的页缓存，负数单位为 KiB
+    private static final int TRANSACTION_CACHE_SIZE = -256 * 1024;
+    // 分页可排序的字段，rowid 即插入顺序
+    private static final String[] PAGE_ORDER_FIELDS = {"rowid", "id", "name", "className", "math", "english", "computer", "pe"};
+    // 修改日志超过该条数时压缩到 3/4 以下；每追加这么多条检查一次
+    static final int MAX_LOG_ENTRIES = 200_000;
+    private static final int LOG_CHECK_INTERVAL = 1000;
+    // 按 UTF-8 比较时大于任何字符，用作前缀范围的上界
+    private static final String MAX_CODE_POINT = new String(Character.toChars(Character.MAX_CODE_POINT));
+    private static final String LOG_SQL = "INSERT INTO change_log (time, student_id, kind, delta) VALUES (?, ?, ?, ?)";
+
+    private final ConnectionPool pool;
+    private final AtomicInteger logAppends = new AtomicInteger();
+
+    public StudentDao(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    // 按版本升级表结构和索引，见 SchemaMigrator
+    public void migrateSchema() throws SQLException {
+        try (Metrics.Timer timer = Metrics.start("migrateSchema");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            SchemaMigrator.migrate(conn.raw());
+            timer.done();
+        }
+    }
+
+    // 获取所有学生
+    public List<Student> findAll(BooleanSupplier cancelled) throws SQLException {
+        String sql = "SELECT * FROM students";
+        try (Metrics.Timer timer = Metrics.start("findAll");
+             ConnectionPool.PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
+            List<Student> list = readAll(rs, cancelled);
+            timer.rows(list.size());
+            return list;
+        }
+    }
+
+    // 获取所有学生，按列解码，不为每行创建 Student；expectedRows 为预估行数，用于一次分配好数组
+    public StudentColumns findAllColumns(int expectedRows, BooleanSupplier cancelled) throws SQLException {
+        String sql = "SELECT * FROM students";
+        try (Metrics.Timer timer = Metrics.start("findAllColumns");
+             ConnectionPool.PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
+            StudentColumns columns = new StudentColumns(Math.max(expectedRows, 16));
+            StudentRowReader row = new StudentRowReader(rs);
+            while (row.next()) {
+                if ((columns.size() & 1023) == 0 && cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                columns.add(row);
+            }
+            timer.rows(columns.size());
+            return columns;
+        }
+    }
+
+    // 检查学号是否已存在
+    public boolean exists(String id) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM students WHERE id = ?";
+        try (Metrics.Timer timer = Metrics.start("exists");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                boolean found = rs.next() && rs.getInt(1) > 0;
+                timer.rows(found ? 1 : 0);
+                return found;
+            }
+        }
+    }
+
+    // 获取单个学生
+    public Student findById(String id) throws SQLException {
+        String sql = "SELECT * FROM students WHERE id = ?";
+        try (Metrics.Timer timer = Metrics.start("findById");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Student student = rs.next() ? new StudentRowReader(rs).read() : null;
+                timer.rows(student != null ? 1 : 0);
+                return student;
+            }
+        }
+    }
+
+    // 全部学号，供 StudentCache 重建 Bloom 过滤器，只读主键索引；返回行数
+    public int scanIds(Consumer<String> sink) throws SQLException {
+        String sql = "SELECT id FROM students";
+        try (Metrics.Timer timer = Metrics.start("scanIds");
+             ConnectionPool.PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
+            int n = 0;
+            while (rs.next()) {
+                sink.accept(rs.getString(1));
+                n++;
+            }
+            timer.rows(n);
+            return n;
+        }
+    }
+
+    // 插入学生
+    public void insert(Student student) throws SQLException {
+        String sql = "INSERT INTO students (id, name, className, math, english, computer, pe, extra_scores) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        try (Metrics.Timer timer = Metrics.start("insert");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, student.getId());
+            setContent(pstmt, 2, student);
+            timer.rows(pstmt.executeUpdate());
+        }
+    }
+
+    // 批量写入一块：一个事务内先写入临时表，再用几条集合语句完成 upsert 和全文索引维护
+    // 逐行触发器在事务内暂时删除，提交前恢复；学号已存在时覆盖，内容相同的行不改写
+    public void upsertAll(List<Student> students) throws SQLException {
+        Iterator<List<Student>> single = Collections.singletonList(students).iterator();
+        try {
+            upsertInOneTransaction(false, () -> single.hasNext() ? single.next() : null);
+        } catch (IOException e) {
+            // 内存中的数据源不会抛出 IOException
+            throw new SQLException(e);
+        }
+    }
+
+    // 逐块写入但只提交一次，中途出错全部回滚；返回写入的行数
+    // rebuildIndexes 为 true 时在同一事务中先删除二级索引、最后重建，适合写入量接近全表的情况
+    // 新增和内容有变化的学生记入修改日志，与写入在同一事务中
+    public int upsertInOneTransaction(boolean rebuildIndexes, ChunkSource chunks) throws SQLException, IOException {
+        int total = 0;
+        int logged = 0;
+        long now = System.currentTimeMillis();
+        try (Metrics.Timer timer = Metrics.start("upsertInOneTransaction");
+             ConnectionPool.PooledConnection conn = pool.acquire();
+             Statement stmt = conn.raw().createStatement()) {
+            stmt.execute("CREATE TEMP TABLE IF NOT EXISTS import_chunk (id TEXT PRIMARY KEY, name TEXT, className TEXT, " +
+                    "math INTEGER, english INTEGER, computer INTEGER, pe INTEGER, extra_scores BLOB)");
+            stmt.execute("CREATE TEMP TABLE IF NOT EXISTS import_changed (rowid INTEGER PRIMARY KEY)");
+            PreparedStatement stage = conn.prepare(STAGE_SQL);
+            PreparedStatement log = conn.prepare(LOG_SQL);
+            // 单个大事务的脏页都留在页缓存里，超出默认缓存后会反复溢出到 WAL；写入期间临时放大缓存
+            int cacheSize;
+            try (ResultSet rs = stmt.executeQuery("PRAGMA cache_size")) {
+                cacheSize = rs.getInt(1);
+            }
+            stmt.execute("PRAGMA cache_size = " + TRANSACTION_CACHE_SIZE);
+            conn.begin();
+            try {
+                SchemaMigrator.dropSearchTriggers(stmt);
+                SchemaMigrator.dropGramTriggers(stmt);
+                SchemaMigrator.dropGradeTriggers(stmt);
+                if (rebuildIndexes) {
+                    SchemaMigrator.dropSecondaryIndexes(stmt);
+                }
+                for (List<Student> chunk; (chunk = chunks.next()) != null; ) {
+                    logged += upsertChunk(conn, stage, log, chunk, now);
+                    total += chunk.size();
+                }
+                if (rebuildIndexes) {
+                    SchemaMigrator.createSecondaryIndexes(stmt);
+                }
+                SchemaMigrator.createSearchTriggers(stmt);
+                SchemaMigrator.createGramTriggers(stmt);
+                SchemaMigrator.createGradeTriggers(stmt);
+                conn.commit();
+                timer.rows(total);
+            } catch (SQLException | IOException | RuntimeException e) {
+                // 缓存的语句会被复用，失败时丢弃未执行的批次
+                stage.clearBatch();
+                log.clearBatch();
+                conn.rollback();
+                throw e;
+            } finally {
+                stmt.execute("PRAGMA cache_size = " + cacheSize);
+            }
+        }
+        logAppended(logged);
+        return total;
+    }
+
+    // 按块提供待写入的学生，没有更多数据时返回 null
+    public interface ChunkSource {
+        List<Student> next() throws IOException;
+    }
+
+    // 返回记入修改日志的条数
+    private static int upsertChunk(ConnectionPool.PooledConnection conn, PreparedStatement stage, PreparedStatement log,
+                                   List<Student> students, long now) throws SQLException {
+        conn.prepare("DELETE FROM temp.import_chunk").execute();
+        conn.prepare("DELETE FROM temp.import_changed").execute();
+        boolean anyExtra = false;
+        for (Student student : students) {
+            stage.setString(1, student.getId());
+            stage.setString(2, student.getName());
+            stage.setString(3, student.getClassName());
+            stage.setInt(4, student.getMath());
+            stage.setInt(5, student.getEnglish());
+            stage.setInt(6, student.getComputer());
+            stage.setInt(7, student.getPe());
+            stage.setBytes(8, student.getExtraScores());
+            stage.addBatch();
+            anyExtra |= student.getExtraScores() != null;
+        }
+        stage.executeBatch();
+        if (anyExtra) {
+            overlayChunkExtraScores(conn);
+        }
+        int logged = logImportedChunk(conn, log, students, now);
+
+        // 已存在且姓名或班级变化的行：先按旧值从全文索引中删除
+        conn.prepare(MARK_CHANGED_SQL).execute();
+        conn.prepare(FTS_DELETE_CHANGED_SQL).execute();
+        conn.prepare(GRAMS_DELETE_CHANGED_SQL).execute();
+        // 成绩汇总：先减去本块已存在行的旧值，写入后再加上本块全部行的新值
+        for (String sql : CHUNK_GRADES_REMOVE) {
+            conn.prepare(sql).execute();
+        }
+        long maxRowid;
+        try (ResultSet rs = conn.prepare("SELECT COALESCE(MAX(rowid), 0) FROM students").executeQuery()) {
+            rs.next();
+            maxRowid = rs.getLong(1);
+        }
+        conn.prepare(UPSERT_SQL).execute();
+        for (String sql : CHUNK_GRADES_ADD) {
+            conn.prepare(sql).execute();
+        }
+        PreparedStatement fts = conn.prepare(FTS_INSERT_SQL);
+        fts.setLong(1, maxRowid);
+        fts.execute();
+        PreparedStatement grams = conn.prepare(GRAMS_INSERT_SQL);
+        grams.setLong(1, maxRowid);
+        grams.execute();
+        conn.prepare(ID_CHARS_INSERT_SQL).execute();
+        return logged;
+    }
+
+    // 暂存表中带登记课程成绩、且学生已有成绩向量的行，改为两者叠加后的向量
+    private static void overlayChunkExtraScores(ConnectionPool.PooledConnection conn) throws SQLException {
+        PreparedStatement update = conn.prepare(STAGE_EXTRA_SQL);
+        try (ResultSet rs = conn.prepare(CHUNK_EXTRA_SQL).executeQuery()) {
+            while (rs.next()) {
+                update.setBytes(1, Student.overlayExtraScores(rs.getBytes(2), rs.getBytes(3)));
+                update.setString(2, rs.getString(1));
+                update.addBatch();
+            }
+        }
+        update.executeBatch();
+    }
+
+    // 写入前按学号连接暂存表和学生表，只读出新学生和内容有变化的行：
+    // 新学生记为添加，有变化的记为修改，日志格式与 applyChanges 相同，导入覆盖的旧成绩可以在修改记录中查到。
+    // 文件中没有登记课程成绩的行（暂存为 NULL）保留原有的成绩向量
+    private static int logImportedChunk(ConnectionPool.PooledConnection conn, PreparedStatement log,
+                                        List<Student> students, long now) throws SQLException {
+        // 块内学号重复时与暂存表一样以最后一行为准
+        Map<String, Student> imported = new HashMap<>();
+        for (Student s : students) imported.put(s.getId(), s);
+        int logged = 0;
+        try (ResultSet rs = conn.prepare(CHUNK_CHANGES_SQL).executeQuery()) {
+            StudentRowReader row = new StudentRowReader(rs);
+            while (row.next()) {
+                Student s = imported.get(rs.getString(1));
+                Student before = row.id() == null ? null : row.read();
+                Student after = new Student(s.getId(), s.getName(), s.getClassName(),
+                        s.getMath(), s.getEnglish(), s.getComputer(), s.getPe());
+                byte[] extra = rs.getBytes(2);
+                after.setExtraScores(extra != null || before == null ? extra : before.getExtraScores());
+                Change change = new Change(before, after);
+                log.setLong(1, now);
+                log.setString(2, change.getId());
+                log.setInt(3, ChangeLog.kindOf(change));
+                log.setBytes(4, ChangeLog.encode(change));
+                log.addBatch();
+                logged++;
+            }
+        }
+        log.executeBatch();
+        return logged;
+    }
+
+    // 大批量导入时暂时去掉二级索引，结束后重建
+    public void dropSecondaryIndexes() throws SQLException {
+        try (Metrics.Timer timer = Metrics.start("dropSecondaryIndexes");
+             ConnectionPool.PooledConnection conn = pool.acquire();
+             Statement stmt = conn.raw().createStatement()) {
+            SchemaMigrator.dropSecondaryIndexes(stmt);
+            timer.done();
+        }
+    }
+
+    public void createSecondaryIndexes() throws SQLException {
+        try (Metrics.Timer timer = Metrics.start("createSecondaryIndexes");
+             ConnectionPool.PooledConnection conn = pool.acquire();
+             Statement stmt = conn.raw().createStatement()) {
+            SchemaMigrator.createSecondaryIndexes(stmt);
+            stmt.execute("PRAGMA optimize");
+            timer.done();
+        }
+    }
+
+    // 更新学生
+    public void update(Student student) throws SQLException {
+        String sql = "UPDATE students SET name=?, className=?, math=?, english=?, computer=?, pe=?, extra_scores=? " +
+                "WHERE id=?";
+        try (Metrics.Timer timer = Metrics.start("update");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            setContent(pstmt, 1, student);
+            pstmt.setString(8, student.getId());
+            timer.rows(pstmt.executeUpdate());
+        }
+    }
+
+    // 删除学生
+    public void delete(String id) throws SQLException {
+        String sql = "DELETE FROM students WHERE id=?";
+        try (Metrics.Timer timer = Metrics.start("delete");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, id);
+            timer.rows(pstmt.executeUpdate());
+        }
+    }
+
+    // 一个学号上合并后的修改：before 为库中原有内容（新增时为 null），after 为修改后的内容（删除时为 null）
+    // 学号单独保存：新增后又删除合并成的无操作 before 和 after 都为 null
+    public static class Change {
+        public final Student before;
+        public final Student after;
+        private final String id;
+
+        public Change(Student before, Student after) {
+            this((after != null ? after : before).getId(), before, after);
+        }
+
+        public Change(String id, Student before, Student after) {
+            this.id = id;
+            this.before = before;
+            this.after = after;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        // 改回了原值（或插入后又删除），不需要写入
+        public boolean isNoop() {
+            if (before == null || after == null) return before == after;
+            return before.getName().equals(after.getName()) && before.getClassName().equals(after.getClassName())
+                    && before.sameScores(after);
+        }
+    }
+
+    // 在一个事务中写入一批修改，只提交一次；出错时整批回滚
+    // 库中内容已与 before 不同（被其他途径修改、删除或学号已被占用）的修改不写入，作为冲突返回
+    // 写入的修改在同一事务中追加到修改日志，日志过长时随后压缩
+    public List<Change> applyChanges(Collection<Change> changes) throws SQLException {
+        // extra_scores 可能为 NULL，不能放进行值比较
+        String unchanged = "(name, className, math, english, computer, pe) = (?, ?, ?, ?, ?, ?) AND extra_scores IS ?";
+        String insertSql = "INSERT INTO students (id, name, className, math, english, computer, pe, extra_scores) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT(id) DO NOTHING";
+        String updateSql = "UPDATE students SET name=?, className=?, math=?, english=?, computer=?, pe=?, extra_scores=? " +
+                "WHERE id=? AND " + unchanged;
+        // 姓名和班级未变时只写成绩列：出现在 SET 中的 name/className 即使值不变也会触发全文索引的更新触发器
+        String gradesSql = "UPDATE students SET math=?, english=?, computer=?, pe=?, extra_scores=? " +
+                "WHERE id=? AND " + unchanged;
+        String deleteSql = "DELETE FROM students WHERE id=? AND " + unchanged;
+        List<Change> conflicts = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        try (Metrics.Timer timer = Metrics.start("applyChanges");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            conn.begin();
+            try {
+                for (Change change : changes) {
+                    PreparedStatement pstmt;
+                    if (change.before == null) {
+                        pstmt = conn.prepare(insertSql);
+                        pstmt.setString(1, change.after.getId());
+                        setContent(pstmt, 2, change.after);
+                    } else if (change.after != null && change.after.getName().equals(change.before.getName())
+                            && change.after.getClassName().equals(change.before.getClassName())) {
+                        pstmt = conn.prepare(gradesSql);
+                        pstmt.setInt(1, change.after.getMath());
+                        pstmt.setInt(2, change.after.getEnglish());
+                        pstmt.setInt(3, change.after.getComputer());
+                        pstmt.setInt(4, change.after.getPe());
+                        pstmt.setBytes(5, change.after.getExtraScores());
+                        pstmt.setString(6, change.after.getId());
+                        setContent(pstmt, 7, change.before);
+                    } else if (change.after != null) {
+                        pstmt = conn.prepare(updateSql);
+                        setContent(pstmt, 1, change.after);
+                        pstmt.setString(8, change.after.getId());
+                        setContent(pstmt, 9, change.before);
+                    } else {
+                        pstmt = conn.prepare(deleteSql);
+                        pstmt.setString(1, change.before.getId());
+                        setContent(pstmt, 2, change.before);
+                    }
+                    if (pstmt.executeUpdate() == 0) {
+                        conflicts.add(change);
+                        continue;
+                    }
+                    PreparedStatement log = conn.prepare(LOG_SQL);
+                    log.setLong(1, now);
+                    log.setString(2, change.getId());
+                    log.setInt(3, ChangeLog.kindOf(change));
+                    log.setBytes(4, ChangeLog.encode(change));
+                    log.executeUpdate();
+                }
+                conn.commit();
+                timer.rows(changes.size() - conflicts.size());
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        logAppended(changes.size() - conflicts.size());
+        return conflicts;
+    }
+
+    // 提交之后调用：累计追加的日志条数，够 LOG_CHECK_INTERVAL 时检查是否需要压缩
+    private void logAppended(int entries) {
+        if (logAppends.addAndGet(entries) >= LOG_CHECK_INTERVAL) {
+            logAppends.set(0);
+            // 修改已经提交，压缩失败不能让调用方当作写入失败而重试
+            try {
+                compactChangeLog(MAX_LOG_ENTRIES);
+            } catch (SQLException e) {
+                LOG.log(Level.WARNING, "压缩修改日志失败", e);
+            }
+        }
+    }
+
+    // 修改日志，最新的在前；studentId 为 null 时不限学生
+    public List<ChangeLog.Entry> findChanges(String studentId, int limit) throws SQLException {
+        String sql = "SELECT seq, time, student_id, kind, delta, merged FROM change_log " +
+                (studentId == null ? "" : "WHERE student_id = ? ") + "ORDER BY seq DESC LIMIT ?";
+        try (Metrics.Timer timer = Metrics.start("findChanges");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            int index = 1;
+            if (studentId != null) pstmt.setString(index++, studentId);
+            pstmt.setInt(index, limit);
+            List<ChangeLog.Entry> entries = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) entries.add(readEntry(rs));
+            }
+            timer.rows(entries.size());
+            return entries;
+        }
+    }
+
+    private static ChangeLog.Entry readEntry(ResultSet rs) throws SQLException {
+        return ChangeLog.decode(rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getInt(4), rs.getBytes(5),
+                rs.getInt(6));
+    }
+
+    // 日志超过 maxEntries 条时压缩：最新的一半保持原样，更早的记录按学生合并为一条净变化（没有净变化的删除），
+    // 仍超过 3/4 时再删除最早的记录。返回删除的条数
+    public int compactChangeLog(int maxEntries) throws SQLException {
+        try (Metrics.Timer timer = Metrics.start("compactChangeLog");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            long count = countChanges(conn);
+            if (count <= maxEntries) return 0;
+            conn.begin();
+            try {
+                PreparedStatement cut = conn.prepare("SELECT seq FROM change_log ORDER BY seq DESC LIMIT 1 OFFSET ?");
+                cut.setInt(1, maxEntries / 2);
+                long cutoff;
+                try (ResultSet rs = cut.executeQuery()) {
+                    rs.next();
+                    cutoff = rs.getLong(1);
+                }
+                int removed = mergeChanges(conn, cutoff);
+                long keep = (long) maxEntries * 3 / 4;
+                if (count - removed > keep) {
+                    PreparedStatement trim = conn.prepare("DELETE FROM change_log WHERE seq <= " +
+                            "(SELECT seq FROM change_log ORDER BY seq DESC LIMIT 1 OFFSET ?)");
+                    trim.setLong(1, keep);
+                    removed += trim.executeUpdate();
+                }
+                conn.commit();
+                timer.rows(removed);
+                return removed;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static long countChanges(ConnectionPool.PooledConnection conn) throws SQLException {
+        try (ResultSet rs = conn.prepare("SELECT count(*) FROM change_log").executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // 按 (学号, 序号) 顺序读出 seq <= cutoff 的记录，同一学生的记录合并到最后一条上
+    // 读完再修改：同一连接上边遍历边修改同一张表的结果未定义
+    private static int mergeChanges(ConnectionPool.PooledConnection conn, long cutoff) throws SQLException {
+        PreparedStatement select = conn.prepare("SELECT seq, time, student_id, kind, delta, merged FROM change_log " +
+                "WHERE seq <= ? ORDER BY student_id, seq");
+        select.setLong(1, cutoff);
+        List<Long> deletes = new ArrayList<>();
+        List<ChangeLog.Entry> updates = new ArrayList<>();
+        List<Long> group = new ArrayList<>();
+        ChangeLog.Entry net = null;
+        String student = null;
+        try (ResultSet rs = select.executeQuery()) {
+            while (true) {
+                ChangeLog.Entry entry = rs.next() ? readEntry(rs) : null;
+                if (!group.isEmpty() && (entry == null || !entry.studentId.equals(student))) {
+                    collect(group, net, deletes, updates);
+                    group.clear();
+                }
+                if (entry == null) break;
+                if (group.isEmpty()) {
+                    student = entry.studentId;
+                    net = entry;
+                } else {
+                    // 组内前面的记录已相互抵消时从这一条重新开始
+                    net = net == null ? entry : ChangeLog.merge(net, entry);
+                }
+                group.add(entry.seq);
+            }
+        }
+        PreparedStatement update = conn.prepare("UPDATE change_log SET kind = ?, delta = ?, merged = ? WHERE seq = ?");
+        for (ChangeLog.Entry entry : updates) {
+            update.setInt(1, entry.kind);
+            update.setBytes(2, entry.delta());
+            update.setInt(3, entry.merged);
+            update.setLong(4, entry.seq);
+            update.executeUpdate();
+        }
+        PreparedStatement delete = conn.prepare("DELETE FROM change_log WHERE seq = ?");
+        for (long seq : deletes) {
+            delete.setLong(1, seq);
+            delete.executeUpdate();
+        }
+        return deletes.size();
+    }
+
+    // group 为同一学生的记录序号，net 为合并结果（null 表示全部抵消）：结果写到 net 所在的一条，其余删除
+    private static void collect(List<Long> group, ChangeLog.Entry net, List<Long> deletes,
+                                List<ChangeLog.Entry> updates) {
+        if (group.size() == 1 && net != null) return;
+        for (long seq : group) {
+            if (net == null || seq != net.seq) deletes.add(seq);
+        }
+        if (net != null) updates.add(net);
+    }
+
+    // 从第 index 个参数起依次绑定姓名、班级、四门成绩和登记课程的成绩向量，共 7 个
+    private static void setContent(PreparedStatement pstmt, int index, Student student) throws SQLException {
+        pstmt.setString(index, student.getName());
+        pstmt.setString(index + 1, student.getClassName());
+        pstmt.setInt(index + 2, student.getMath());
+        pstmt.setInt(index + 3, student.getEnglish());
+        pstmt.setInt(index + 4, student.getComputer());
+        pstmt.setInt(index + 5, student.getPe());
+        pstmt.setBytes(index + 6, student.getExtraScores());
+    }
+
+    // 固定课程之外登记的课程，按 slot 顺序
+    public CourseRegistry findCourses() throws SQLException {
+        String sql = "SELECT name FROM courses ORDER BY slot";
+        try (Metrics.Timer timer = Metrics.start("findCourses");
+             ConnectionPool.PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
+            List<String> names = new ArrayList<>();
+            while (rs.next()) names.add(rs.getString(1));
+            timer.rows(names.size());
+            return new CourseRegistry(names);
+        }
+    }
+
+    // 登记一门课程，占用下一个 slot；不改动学生表。课程名为空、过长或已存在时抛出 IllegalArgumentException
+    public CourseRegistry addCourse(String name) throws SQLException {
+        String sql = "INSERT INTO courses (slot, name) SELECT COALESCE(MAX(slot) + 1, 0), ? FROM courses";
+        if (name.isEmpty() || name.length() > CourseRegistry.MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("课程名不能为空，且不超过 " + CourseRegistry.MAX_NAME_LENGTH + " 个字");
+        }
+        if (findCourses().indexOf(name) >= 0) {
+            throw new IllegalArgumentException("课程已存在: " + name);
+        }
+        try (Metrics.Timer timer = Metrics.start("addCourse");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, name);
+            timer.rows(pstmt.executeUpdate());
+        }
+        return findCourses();
+    }
+
+    public int count() throws SQLException {
+        String sql = "SELECT COUNT(*) FROM students";
+        try (Metrics.Timer timer = Metrics.start("count");
+             ConnectionPool.PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
+            int n = rs.next() ? rs.getInt(1) : 0;
+            timer.done();
+            return n;
+        }
+    }
+
+    // 键集分页：boundary 为相邻页边界行的 {排序值, 学号}，before 为 true 时取边界之前的一页
+    // 没有边界时退回 OFFSET 定位（例如直接拖动滚动条跳到中间）
+    public Page findPage(String orderField, boolean descending, Object[] boundary, boolean before,
+                         int offset, int limit) throws SQLException {
+        String field = checkOrderField(orderField);
+        // 向前翻页时反转方向查询，再把结果倒过来
+        boolean reverse = boundary != null && before;
+        String dir = descending != reverse ? " DESC" : "";
+        StringBuilder sql = new StringBuilder("SELECT ").append(field).append(" AS sort_key, * FROM students");
+        if (boundary != null) {
+            sql.append(" WHERE (").append(field).append(", id) ")
+                    .append(descending != reverse ? "<" : ">").append(" (?, ?)");
+        }
+        sql.append(" ORDER BY ").append(field).append(dir).append(", id").append(dir).append(" LIMIT ? OFFSET ?");
+        try (Metrics.Timer timer = Metrics.start("findPage");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(sql.toString());
+            int i = 1;
+            if (boundary != null) {
+                pstmt.setObject(i++, boundary[0]);
+                pstmt.setString(i++, (String) boundary[1]);
+            }
+            pstmt.setInt(i++, limit);
+            pstmt.setInt(i, boundary != null ? 0 : offset);
+            Page page = new Page();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                StudentRowReader row = new StudentRowReader(rs);
+                while (row.next()) {
+                    Student s = row.read();
+                    // sort_key 是第一列
+                    Object[] key = {rs.getObject(1), s.getId()};
+                    if (page.students.isEmpty()) page.firstKey = key;
+                    page.lastKey = key;
+                    page.students.add(s);
+                }
+            }
+            if (reverse) {
+                Collections.reverse(page.students);
+                Object[] t = page.firstKey;
+                page.firstKey = page.lastKey;
+                page.lastKey = t;
+            }
+            timer.rows(page.students.size());
+            return page;
+        }
+    }
+
+    // 一页结果及其首尾行的排序键
+    public static class Page {
+        public final List<Student> students = new ArrayList<>();
+        public Object[] firstKey;
+        public Object[] lastKey;
+    }
+
+    public List<Student> search(String keyword, BooleanSupplier cancelled) throws SQLException {
+        List<Student> list = new ArrayList<>();
+        search(keyword, list::addAll, cancelled);
+        return list;
+    }
+
+    // 按学号/姓名/班级查询，结果分三段返回且互不重复：
+    // 学号前缀（主键范围）、班级精确匹配（className 索引）、其余子串匹配（见 restSql）
+    // 结果每满 SEARCH_CHUNK 行交给 sink 一次，返回总行数
+    public int search(String keyword, Consumer<List<Student>> sink, BooleanSupplier cancelled) throws SQLException {
+        try (Metrics.Timer timer = Metrics.start("search")) {
+            ChunkedSink chunks = new ChunkedSink(sink, cancelled);
+            searchSegments(keyword, chunks::readFrom);
+            int total = chunks.finish();
+            timer.rows(total);
+            return total;
+        }
+    }
+
+    // 逐段把查询结果集交给 handler，不在内存中保留结果
+    public void scanSearch(String keyword, ResultSetHandler handler) throws SQLException {
+        try (Metrics.Timer timer = Metrics.start("scanSearch")) {
+            searchSegments(keyword, handler);
+            timer.done();
+        }
+    }
+
+    private void searchSegments(String keyword, ResultSetHandler handler) throws SQLException {
+        String idPrefixSql = "SELECT * FROM students WHERE id >= ? AND id < ?";
+        String classSql = "SELECT * FROM students WHERE className = ? AND NOT (id >= ? AND id < ?)";
+        String idUpper = keyword + Character.MAX_VALUE;
+        try (ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement byId = conn.prepare(idPrefixSql);
+            byId.setString(1, keyword);
+            byId.setString(2, idUpper);
+            try (ResultSet rs = byId.executeQuery()) {
+                handler.handle(rs);
+            }
+
+            PreparedStatement byClass = conn.prepare(classSql);
+            byClass.setString(1, keyword);
+            byClass.setString(2, keyword);
+            byClass.setString(3, idUpper);
+            try (ResultSet rs = byClass.executeQuery()) {
+                handler.handle(rs);
+            }
+
+            PreparedStatement rest = restSql(conn, keyword);
+            try (ResultSet rs = rest.executeQuery()) {
+                handler.handle(rs);
+            }
+        }
+    }
+
+    // 子串匹配的含义始终是 lower(id/name/className) LIKE '%关键字%'，排除前两段已返回的行；按关键字选择候选行的来源：
+    // 3 个字及以上用 trigram 全文索引；1-2 个字用姓名的双字索引（按关键字前缀范围查找）、从班级索引跳读出的匹配班级，
+    // 关键字的字符都在学号中出现过时再加上学号的扫描；空关键字或含 LIKE 通配符（% _）时按原来的 LIKE 扫描全表
+    private static PreparedStatement restSql(ConnectionPool.PooledConnection conn, String keyword) throws SQLException {
+        String like = "(lower(id) LIKE ? OR lower(name) LIKE ? OR lower(className) LIKE ?)";
+        String exclude = " AND NOT (id >= ? AND id < ?) AND className IS NOT ?";
+        String lower = keyword.toLowerCase();
+        String likeKeyword = "%" + lower + "%";
+        int length = keyword.codePointCount(0, keyword.length());
+        boolean wildcard = keyword.indexOf('%') >= 0 || keyword.indexOf('_') >= 0;
+        PreparedStatement rest;
+        int i = 1;
+        if (length >= 3 && !wildcard) {
+            rest = conn.prepare("SELECT * FROM students WHERE " +
+                    "rowid IN (SELECT rowid FROM students_fts WHERE students_fts MATCH ?)" + exclude);
+            // 作为短语匹配，双引号需转义
+            rest.setString(i++, "\"" + keyword.replace("\"", "\"\"") + "\"");
+        } else if (length > 0 && !wildcard) {
+            boolean byId = idMayContain(conn, lower);
+            // 班级数很少：每次在班级索引上取下一个更大的班级名，得到全部不同的班级
+            // CTE 的列不能叫 name，否则子查询中会解析成 students.name
+            rest = conn.prepare("WITH RECURSIVE classes(class_name) AS (SELECT MIN(className) FROM students " +
+                    "UNION ALL SELECT (SELECT MIN(className) FROM students WHERE className > class_name) " +
+                    "FROM classes WHERE class_name IS NOT NULL) " +
+                    "SELECT * FROM students WHERE rowid IN (" +
+                    "SELECT student_rowid FROM search_name_grams WHERE gram >= ? AND gram < ? " +
+                    "UNION ALL SELECT student_rowid FROM search_name_grams WHERE gram = '' " +
+                    "UNION ALL SELECT rowid FROM students WHERE className IN " +
+                    "(SELECT class_name FROM classes WHERE lower(class_name) LIKE ?)" +
+                    (byId ? " UNION ALL SELECT rowid FROM students WHERE lower(id) LIKE ?" : "") +
+                    ") AND " + like + exclude);
+            rest.setString(i++, lower);
+            rest.setString(i++, lower + MAX_CODE_POINT);
+            rest.setString(i++, likeKeyword);
+            if (byId) rest.setString(i++, likeKeyword);
+            rest.setString(i++, likeKeyword);
+            rest.setString(i++, likeKeyword);
+            rest.setString(i++, likeKeyword);
+        } else {
+            rest = conn.prepare("SELECT * FROM students WHERE " + like + exclude);
+            rest.setString(i++, likeKeyword);
+            rest.setString(i++, likeKeyword);
+            rest.setString(i++, likeKeyword);
+        }
+        rest.setString(i++, keyword);
+        rest.setString(i++, keyword + Character.MAX_VALUE);
+        rest.setString(i, keyword);
+        return rest;
+    }
+
+    // 关键字的每个字符都在某个学号中出现过（或有超长学号未登记字符）时，学号才可能包含该关键字
+    private static boolean idMayContain(ConnectionPool.PooledConnection conn, String lower) throws SQLException {
+        PreparedStatement stmt = conn.prepare("SELECT 1 FROM search_id_chars WHERE ch = ?");
+        stmt.setString(1, "");
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) return true;
+        }
+        for (int i = 0; i < lower.length(); i += Character.charCount(lower.codePointAt(i))) {
+            stmt.setString(1, lower.substring(i, i + Character.charCount(lower.codePointAt(i))));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) return false;
+            }
+        }
+        return true;
+    }
+
+    // 全部学生，按插入顺序
+    public void scanAll(ResultSetHandler handler) throws SQLException {
+        try (Metrics.Timer timer = Metrics.start("scanAll");
+             ConnectionPool.PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare("SELECT * FROM students ORDER BY rowid").executeQuery()) {
+            handler.handle(rs);
+            timer.done();
+        }
+    }
+
+    // 某门课程不及格的学生，按成绩和学号排序；course 为 CourseRegistry 的下标，固定课程走 (成绩, id) 索引
+    public void scanFailing(int course, ResultSetHandler handler) throws SQLException {
+        String sql;
+        if (course >= 0 && course < SCORE_FIELDS.length) {
+            String f = SCORE_FIELDS[course];
+            sql = "SELECT * FROM students WHERE " + f + " < 60 ORDER BY " + f + ", id";
+        } else if (course >= SCORE_FIELDS.length) {
+            // 登记课程没有成绩索引，逐行取成绩向量中的字节，没有成绩（-1）不算不及格
+            String score = SchemaMigrator.courseScore("extra_scores", String.valueOf(course - SCORE_FIELDS.length));
+            sql = "SELECT * FROM students WHERE " + score + " BETWEEN 0 AND 59 ORDER BY " + score + ", id";
+        } else {
+            throw new IllegalArgumentException("未知课程: " + course);
+        }
+        try (Metrics.Timer timer = Metrics.start("scanFailing");
+             ConnectionPool.PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
+            handler.handle(rs);
+            timer.done();
+        }
+    }
+
+    // 逐行消费结果集的回调，结果集在回调返回后关闭
+    public interface ResultSetHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
+
+    // 按块转交查询结果，并定期检查是否已被取消
+    private static class ChunkedSink {
+        private final Consumer<List<Student>> sink;
+        private final BooleanSupplier cancelled;
+        private List<Student> buffer = new ArrayList<>();
+        private int total;
+
+        ChunkedSink(Consumer<List<Student>> sink, BooleanSupplier cancelled) {
+            this.sink = sink;
+            this.cancelled = cancelled;
+        }
+
+        void readFrom(ResultSet rs) throws SQLException {
+            StudentRowReader row = new StudentRowReader(rs);
+            while (row.next()) {
+                if ((total & 255) == 0 && cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                buffer.add(row.read());
+                total++;
+                if (buffer.size() == SEARCH_CHUNK) {
+                    flush();
+                }
+            }
+        }
+
+        int finish() {
+            flush();
+            return total;
+        }
+
+        private void flush() {
+            if (buffer.isEmpty()) return;
+            sink.accept(buffer);
+            buffer = new ArrayList<>();
+        }
+    }
+
+    // 某门课程不及格的学生，field 取 math/english/computer/pe
+    public List<Student> findFailing(String field, BooleanSupplier cancelled) throws SQLException {
+        String sql = "SELECT * FROM students WHERE " + checkScoreField(field) + " < 60";
+        try (Metrics.Timer timer = Metrics.start("findFailing");
+             ConnectionPool.PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
+            List<Student> list = readAll(rs, cancelled);
+            timer.rows(list.size());
+            return list;
+        }
+    }
+
+    // 至少一门不及格的学生，全部课程一次查询，按班级和学号排序
+    // 固定课程走各自的成绩索引；登记课程没有索引，只有汇总表中有不及格成绩时才逐行检查成绩向量
+    public FailReport failReport(BooleanSupplier cancelled) throws SQLException {
+        String fixed = "math < 60 OR english < 60 OR computer < 60 OR pe < 60";
+        String extra = " OR EXISTS (SELECT 1 FROM courses c WHERE c.slot < length(extra_scores) AND " +
+                SchemaMigrator.courseScore("extra_scores", "c.slot") + " BETWEEN 0 AND 59)";
+        String anyExtraSql = "SELECT EXISTS (SELECT 1 FROM grade_counts WHERE course >= " + CourseRegistry.FIXED_COUNT +
+                " AND score < 60 AND n > 0)";
+        CourseRegistry courses = findCourses();
+        try (Metrics.Timer timer = Metrics.start("failReport");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            boolean anyExtra;
+            try (ResultSet rs = conn.prepare(anyExtraSql).executeQuery()) {
+                anyExtra = courses.extraCount() > 0 && rs.next() && rs.getBoolean(1);
+            }
+            String sql = "SELECT * FROM students WHERE " + fixed + (anyExtra ? extra : "") + " ORDER BY className, id";
+            try (ResultSet rs = conn.prepare(sql).executeQuery()) {
+                StudentColumns columns = new StudentColumns();
+                StudentRowReader row = new StudentRowReader(rs);
+                while (row.next()) {
+                    if ((columns.size() & 1023) == 0 && cancelled.getAsBoolean()) {
+                        throw new CancellationException();
+                    }
+                    columns.add(row);
+                }
+                timer.rows(columns.size());
+                return new FailReport(columns, courses);
+            }
+        }
+    }
+
+    // 从汇总表读取各班各科的统计，不扫描学生表；课程下标即 CourseRegistry 的下标
+    // 读取课程之后才登记的课程可能已有成绩，不在本次统计中
+    public GradeStats gradeStats() throws SQLException {
+        String sql = "SELECT className, course, MIN(score / 10, " + (GradeStats.BUCKETS - 1) + ") AS bucket, " +
+                "SUM(n), SUM(score * n), MIN(score), MAX(score) FROM grade_counts WHERE n > 0 AND course < ? " +
+                "GROUP BY className, course, bucket";
+        CourseRegistry courses = findCourses();
+        GradeStats stats = new GradeStats(courses.size());
+        try (Metrics.Timer timer = Metrics.start("gradeStats");
+             ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setInt(1, courses.size());
+            int n = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    stats.addBucket(rs.getString(1), rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getLong(5),
+                            rs.getInt(6), rs.getInt(7));
+                    n++;
+                }
+            }
+            timer.rows(n);
+        }
+        return stats;
+    }
+
+    // 只读班级和成绩列，按列存入原始类型数组后构建名次表，1M 行约占 9 MB
+    public RankingEngine loadRanking(BooleanSupplier cancelled) throws SQLException {
+        String sql = "SELECT className, math, english, computer, pe FROM students";
+        StringDictionary classes = new StringDictionary();
+        int[] classOf = new int[1024];
+        byte[][] scores = new byte[SCORE_FIELDS.length][1024];
+        int n = 0;
+        try (Metrics.Timer timer = Metrics.start("loadRanking");
+             ConnectionPool.PooledConnection conn = pool.acquire();
+             ResultSet rs = conn.prepare(sql).executeQuery()) {
+            while (rs.next()) {
+                if ((n & 1023) == 0 && cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                if (n == classOf.length) {
+                    classOf = Arrays.copyOf(classOf, n * 2);
+                    for (int c = 0; c < scores.length; c++) scores[c] = Arrays.copyOf(scores[c], n * 2);
+                }
+                classOf[n] = classes.encode(rs.getString(1));
+                for (int c = 0; c < scores.length; c++) scores[c][n] = (byte) rs.getInt(c + 2);
+                n++;
+            }
+            timer.rows(n);
+        }
+        String[] classNames = new String[classes.size()];
+        for (int code = 0; code < classNames.length; code++) classNames[code] = classes.decode(code);
+        return RankingEngine.build(classNames, classOf, scores, n);
+    }
+
+    private static String checkScoreField(String field) {
+        for (String f : SCORE_FIELDS) {
+            if (f.equals(field)) return f;
+        }
+        throw new IllegalArgumentException("未知课程字段: " + field);
+    }
+
+    private static String checkOrderField(String field) {
+        for (String f : PAGE_ORDER_FIELDS) {
+            if (f.equals(field)) return f;
+        }
+        throw new IllegalArgumentException("未知排序字段: " + field);
+    }
+
+    private static List<Student> readAll(ResultSet rs, BooleanSupplier cancelled) throws SQLException {
+        List<Student> list = new ArrayList<>();
+        StudentRowReader row = new StudentRowReader(rs);
+        while (row.next()) {
+            // 每 1024 行检查一次是否已被取消
+            if ((list.size() & 1023) == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            list.add(row.read());
+        }
+        return list;
+    }
+}
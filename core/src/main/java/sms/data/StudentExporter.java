@@ -0,0 +1,500 @@
+package sms.data;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// 流式导出：结果集逐行编码进直接缓冲区，写满就写入 FileChannel，内存占用与行数无关
+// 先写到同目录的 .part 文件，成功后再改名，失败或取消不会留下半个文件
+// 登记的课程跟在四门固定课程之后，按导出开始时的课程表写出，没有成绩的写为空
+public class StudentExporter {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final String[] CSV_HEADER = {"学号", "姓名", "班级", "高等数学", "大学英语", "计算机导论", "体育"};
+    private static final String[] JSON_KEYS = {"id", "name", "className", "math", "english", "computer", "pe"};
+    // columns 中 extra_scores 列的位置，排在 JSON_KEYS 各列之后
+    private static final int EXTRA_COLUMN = JSON_KEYS.length;
+    // 二进制格式：魔数、版本号、8 字节行数（导出结束后回填）、登记课程表，之后逐行记录；版本 1 没有登记课程
+    private static final byte[] BINARY_MAGIC = {'S', 'M', 'S', 'B'};
+    private static final int BINARY_VERSION = 2;
+    private static final int BINARY_COUNT_OFFSET = 5;
+
+    public enum Format {
+        CSV("csv", "CSV 文件 (*.csv)"),
+        JSONL("jsonl", "JSON Lines 文件 (*.jsonl)"),
+        BINARY("smsb", "紧凑二进制文件 (*.smsb)");
+
+        public final String extension;
+        public final String description;
+
+        Format(String extension, String description) {
+            this.extension = extension;
+            this.description = description;
+        }
+    }
+
+    // 导出的数据来源
+    public interface Source {
+        void scan(StudentDao dao, StudentDao.ResultSetHandler handler) throws SQLException;
+
+        static Source roster() {
+            return StudentDao::scanAll;
+        }
+
+        // course 为 CourseRegistry 的下标
+        static Source failing(int course) {
+            return (dao, handler) -> dao.scanFailing(course, handler);
+        }
+
+        static Source search(String keyword) {
+            return (dao, handler) -> dao.scanSearch(keyword, handler);
+        }
+    }
+
+    private final StudentDao dao;
+
+    public StudentExporter(StudentDao dao) {
+        this.dao = dao;
+    }
+
+    // 返回导出的行数
+    public int export(Source source, Path file, Format format, BooleanSupplier cancelled) throws IOException, SQLException {
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        CourseRegistry courses = dao.findCourses();
+        boolean done = false;
+        int[] count = new int[1];
+        try {
+            // 通道在改名之前关闭
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                RowWriter writer = newWriter(format, channel, courses);
+                writer.begin();
+                source.scan(dao, rs -> {
+                    int[] columns = columns(rs);
+                    while (rs.next()) {
+                        if ((count[0] & 1023) == 0 && cancelled.getAsBoolean()) {
+                            throw new CancellationException();
+                        }
+                        writer.row(rs, columns);
+                        count[0]++;
+                    }
+                });
+                writer.end(count[0]);
+            }
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            done = true;
+            return count[0];
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (!done) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    // 每个结果集只解析一次列位置
+    private static int[] columns(ResultSet rs) throws SQLException {
+        int[] columns = new int[JSON_KEYS.length + 1];
+        for (int i = 0; i < JSON_KEYS.length; i++) {
+            columns[i] = rs.findColumn(JSON_KEYS[i]);
+        }
+        columns[EXTRA_COLUMN] = rs.findColumn("extra_scores");
+        return columns;
+    }
+
+    private static RowWriter newWriter(Format format, FileChannel channel, CourseRegistry courses) {
+        switch (format) {
+            case CSV: return new CsvWriter(channel, courses);
+            case JSONL: return new JsonLinesWriter(channel, courses);
+            default: return new BinaryWriter(channel, courses);
+        }
+    }
+
+    public static int readBinary(Path file, Consumer<Student> sink) throws IOException {
+        return readBinary(file, courses -> { }, sink);
+    }
+
+    // 读取二进制导出文件，返回行数；先把文件中的登记课程表交给 courses，学生的成绩向量按这张表的顺序
+    public static int readBinary(Path file, Consumer<CourseRegistry> courses, Consumer<Student> sink)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            byte[] magic = new byte[BINARY_MAGIC.length];
+            in.readFully(magic);
+            int version = in.readUnsignedByte();
+            if (!Arrays.equals(magic, BINARY_MAGIC) || version < 1 || version > BINARY_VERSION) {
+                throw new IOException("不是学生数据二进制文件: " + file);
+            }
+            long count = in.readLong();
+            List<String> courseNames = new ArrayList<>();
+            if (version >= 2) {
+                for (int i = readVarInt(in); i > 0; i--) courseNames.add(readString(in));
+            }
+            courses.accept(new CourseRegistry(courseNames));
+            List<String> classNames = new ArrayList<>();
+            for (long i = 0; i < count; i++) {
+                String id = readString(in);
+                String name = readString(in);
+                int code = readVarInt(in);
+                if (code == classNames.size()) {
+                    classNames.add(readString(in));
+                } else if (code > classNames.size()) {
+                    throw new IOException("班级编号越界: " + code);
+                }
+                Student student = new Student(id, name, classNames.get(code),
+                        in.readUnsignedByte(), in.readUnsignedByte(), in.readUnsignedByte(), in.readUnsignedByte());
+                if (version >= 2) {
+                    int length = readVarInt(in);
+                    if (length > courseNames.size()) throw new IOException("成绩向量长度越界: " + length);
+                    if (length > 0) {
+                        byte[] extra = new byte[length];
+                        in.readFully(extra);
+                        student.setExtraScores(extra);
+                    }
+                }
+                sink.accept(student);
+            }
+            return (int) count;
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("变长整数格式错误");
+    }
+
+    // 按格式编码一行，缓冲区满时写入通道；通道异常以 UncheckedIOException 穿过 ResultSetHandler
+    private abstract static class RowWriter {
+        final FileChannel channel;
+        final CourseRegistry courses;
+        final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        RowWriter(FileChannel channel, CourseRegistry courses) {
+            this.channel = channel;
+            this.courses = courses;
+        }
+
+        void begin() {
+        }
+
+        abstract void row(ResultSet rs, int[] columns) throws SQLException;
+
+        void end(int count) throws IOException {
+            flush();
+        }
+
+        final void ensure(int bytes) {
+            if (buf.remaining() < bytes) flush();
+        }
+
+        final void flush() {
+            buf.flip();
+            try {
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buf.clear();
+        }
+
+        final void put(char ascii) {
+            ensure(1);
+            buf.put((byte) ascii);
+        }
+
+        final void putAscii(String s) {
+            for (int i = 0; i < s.length(); i++) put(s.charAt(i));
+        }
+
+        final void putInt(int v) {
+            ensure(11);
+            if (v < 0) {
+                buf.put((byte) '-');
+                v = -v;
+            }
+            if (v >= 10) {
+                int div = 1;
+                while (v / div >= 10) div *= 10;
+                for (; div > 0; div /= 10) buf.put((byte) ('0' + v / div % 10));
+            } else {
+                buf.put((byte) ('0' + v));
+            }
+        }
+
+        // 编码一个字符（代理对按一个码点），不合法的单个代理写为 '?'
+        final int putUtf8(String s, int i) {
+            ensure(4);
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf.put((byte) c);
+            } else if (c < 0x800) {
+                buf.put((byte) (0xC0 | c >> 6));
+                buf.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf.put((byte) (0xF0 | cp >> 18));
+                    buf.put((byte) (0x80 | cp >> 12 & 0x3F));
+                    buf.put((byte) (0x80 | cp >> 6 & 0x3F));
+                    buf.put((byte) (0x80 | cp & 0x3F));
+                } else {
+                    buf.put((byte) '?');
+                }
+            } else {
+                buf.put((byte) (0xE0 | c >> 12));
+                buf.put((byte) (0x80 | c >> 6 & 0x3F));
+                buf.put((byte) (0x80 | c & 0x3F));
+            }
+            return i;
+        }
+
+        final void putUtf8(String s) {
+            for (int i = 0; i < s.length(); i++) i = putUtf8(s, i);
+        }
+    }
+
+    // RFC 4180，带 BOM 和中文表头，可直接用 Excel 打开，也能被 StudentImporter 读回（登记课程按表头的课程名对应）
+    private static class CsvWriter extends RowWriter {
+        CsvWriter(FileChannel channel, CourseRegistry courses) {
+            super(channel, courses);
+        }
+
+        @Override
+        void begin() {
+            ensure(3);
+            buf.put((byte) 0xEF).put((byte) 0xBB).put((byte) 0xBF);
+            for (int i = 0; i < CSV_HEADER.length; i++) {
+                if (i > 0) put(',');
+                putUtf8(CSV_HEADER[i]);
+            }
+            for (String course : courses.extraNames()) {
+                put(',');
+                field(course);
+            }
+            putAscii("\r\n");
+        }
+
+        @Override
+        void row(ResultSet rs, int[] columns) throws SQLException {
+            for (int i = 0; i < 3; i++) {
+                if (i > 0) put(',');
+                field(rs.getString(columns[i]));
+            }
+            for (int i = 3; i < EXTRA_COLUMN; i++) {
+                put(',');
+                putInt(rs.getInt(columns[i]));
+            }
+            if (courses.extraCount() > 0) {
+                byte[] extra = rs.getBytes(columns[EXTRA_COLUMN]);
+                for (int slot = 0; slot < courses.extraCount(); slot++) {
+                    put(',');
+                    int score = Student.extraScore(extra, slot);
+                    if (score != Student.NO_SCORE) putInt(score);
+                }
+            }
+            putAscii("\r\n");
+        }
+
+        private void field(String s) {
+            if (s == null) return;
+            boolean quote = false;
+            for (int i = 0; i < s.length() && !quote; i++) {
+                char c = s.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                putUtf8(s);
+                return;
+            }
+            put('"');
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) == '"') put('"');
+                i = putUtf8(s, i);
+            }
+            put('"');
+        }
+    }
+
+    // 每行一个 JSON 对象；有登记课程的成绩时加上 "courses":{"课程名":成绩,...}，只列出有成绩的课程
+    private static class JsonLinesWriter extends RowWriter {
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+        JsonLinesWriter(FileChannel channel, CourseRegistry courses) {
+            super(channel, courses);
+        }
+
+        @Override
+        void row(ResultSet rs, int[] columns) throws SQLException {
+            put('{');
+            for (int i = 0; i < EXTRA_COLUMN; i++) {
+                if (i > 0) put(',');
+                put('"');
+                putAscii(JSON_KEYS[i]);
+                putAscii("\":");
+                if (i < 3) {
+                    string(rs.getString(columns[i]));
+                } else {
+                    putInt(rs.getInt(columns[i]));
+                }
+            }
+            byte[] extra = courses.extraCount() == 0 ? null : rs.getBytes(columns[EXTRA_COLUMN]);
+            boolean first = true;
+            for (int slot = 0; extra != null && slot < Math.min(extra.length, courses.extraCount()); slot++) {
+                if (extra[slot] == Student.NO_SCORE) continue;
+                putAscii(first ? ",\"courses\":{" : ",");
+                first = false;
+                string(courses.extraNames().get(slot));
+                put(':');
+                putInt(extra[slot]);
+            }
+            if (!first) put('}');
+            putAscii("}\n");
+        }
+
+        private void string(String s) {
+            if (s == null) {
+                putAscii("null");
+                return;
+            }
+            put('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    put('\\');
+                    put(c);
+                } else if (c == '\n') {
+                    putAscii("\\n");
+                } else if (c == '\r') {
+                    putAscii("\\r");
+                } else if (c == '\t') {
+                    putAscii("\\t");
+                } else if (c < 0x20) {
+                    putAscii("\\u00");
+                    put(HEX[c >> 4]);
+                    put(HEX[c & 0xF]);
+                } else {
+                    i = putUtf8(s, i);
+                }
+            }
+            put('"');
+        }
+    }
+
+    // 文件头的登记课程表：课程数和各课程名
+    // 每行：学号、姓名为变长长度前缀的 UTF-8；班级为字典编号（首次出现时紧跟字符串）；四门成绩各 1 字节；
+    // 登记课程的成绩向量为变长长度 + 内容（0xFF 表示没有成绩，长度 0 即都没有）
+    private static class BinaryWriter extends RowWriter {
+        private final Map<String, Integer> classCodes = new HashMap<>();
+
+        BinaryWriter(FileChannel channel, CourseRegistry courses) {
+            super(channel, courses);
+        }
+
+        @Override
+        void begin() {
+            ensure(BINARY_COUNT_OFFSET + 8);
+            buf.put(BINARY_MAGIC).put((byte) BINARY_VERSION).putLong(0);
+            varInt(courses.extraCount());
+            for (String course : courses.extraNames()) string(course);
+        }
+
+        @Override
+        void row(ResultSet rs, int[] columns) throws SQLException {
+            string(rs.getString(columns[0]));
+            string(rs.getString(columns[1]));
+            String className = rs.getString(columns[2]);
+            Integer code = classCodes.get(className);
+            if (code == null) {
+                varInt(classCodes.size());
+                string(className);
+                classCodes.put(className, classCodes.size());
+            } else {
+                varInt(code);
+            }
+            ensure(4);
+            for (int i = 3; i < EXTRA_COLUMN; i++) {
+                buf.put((byte) rs.getInt(columns[i]));
+            }
+            // 课程表之后才写入的成绩（导出期间登记的课程）截掉
+            byte[] extra = courses.extraCount() == 0 ? null : rs.getBytes(columns[EXTRA_COLUMN]);
+            int length = extra == null ? 0 : Math.min(extra.length, courses.extraCount());
+            varInt(length);
+            ensure(length);
+            if (length > 0) buf.put(extra, 0, length);
+        }
+
+        @Override
+        void end(int count) throws IOException {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(8).putLong(0, count);
+            channel.write(header, BINARY_COUNT_OFFSET);
+        }
+
+        private void string(String s) {
+            if (s == null) s = "";
+            varInt(utf8Length(s));
+            putUtf8(s);
+        }
+
+        private void varInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf.put((byte) (v & 0x7F | 0x80));
+                v >>>= 7;
+            }
+            buf.put((byte) v);
+        }
+
+        private static int utf8Length(String s) {
+            int n = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    n++;
+                } else if (c < 0x800) {
+                    n += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    n += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    n++;
+                } else {
+                    n += 3;
+                }
+            }
+            return n;
+        }
+    }
+}
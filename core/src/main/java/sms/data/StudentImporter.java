@@ -0,0 +1,389 @@
+package sms.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+// 批量导入 CSV/TSV（含 Excel 另存的带 BOM 或 GBK 编码文件）
+// 解析线程流式读取并按块并行校验，调用线程把每块放在一个事务里批量写入，内存中最多只有几块数据
+// 表头中与已登记课程同名的列作为该课程的成绩导入，空单元格不改动原有成绩；其他不认识的列不导入，列在 Result 中
+public class StudentImporter {
+    public static final int CHUNK_SIZE = 5000;
+    // 解析领先写入的最大块数
+    private static final int QUEUE_CHUNKS = 4;
+    // 报告中最多保留的错误行数，超出的只计数
+    static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int SNIFF_BYTES = 64 * 1024;
+    // 预计导入行数不少于现有行数且超过该值时，先删除二级索引，导入后重建
+    private static final int DEFER_INDEX_MIN_ROWS = 50_000;
+    // 无表头时的列顺序，之后的列依次为登记的课程（可以省略）
+    private static final String[][] HEADERS = {
+            {"学号", "id"},
+            {"姓名", "name"},
+            {"班级", "classname", "class"},
+            {"高等数学", "math"},
+            {"大学英语", "english"},
+            {"计算机导论", "computer"},
+            {"体育", "pe"},
+    };
+
+    public interface Progress {
+        // 在导入线程上调用
+        void update(long bytesRead, long totalBytes, int rowsDone);
+    }
+
+    public static class RowError {
+        public final long line;
+        public final String message;
+
+        RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+    }
+
+    public static class Result {
+        public int imported;
+        public int rejected;
+        public final List<RowError> errors = new ArrayList<>();
+        // 表头中既不是固定列也不是已登记课程的列名，这些列没有导入
+        public final List<String> ignoredColumns = new ArrayList<>();
+    }
+
+    // 一块已解析并校验的行，students[i] 与 errors[i] 恰有一个非空
+    private static class Chunk {
+        static final Chunk END = new Chunk(0);
+
+        final long[] lines;
+        final String[][] records;
+        final Student[] students;
+        final String[] errors;
+        int size;
+        long bytesRead;
+        Throwable failure;
+
+        Chunk(int capacity) {
+            lines = new long[capacity];
+            records = new String[capacity][];
+            students = new Student[capacity];
+            errors = new String[capacity];
+        }
+    }
+
+    private final StudentDao dao;
+
+    public StudentImporter(StudentDao dao) {
+        this.dao = dao;
+    }
+
+    public Result importFile(Path file, Progress progress, BooleanSupplier cancelled) throws IOException, SQLException {
+        long total = Files.size(file);
+        CountingInputStream counter = new CountingInputStream(Files.newInputStream(file));
+        BufferedInputStream in = new BufferedInputStream(counter, SNIFF_BYTES);
+        Charset charset = detectCharset(in);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset), SNIFF_BYTES);
+        try (CsvReader csv = new CsvReader(reader, detectDelimiter(reader))) {
+            Result result = new Result();
+            CourseRegistry courses = dao.findCourses();
+            // 表头在调用线程上解析，缺列时直接抛出
+            String[] first = csv.next();
+            int[] columns = null;
+            if (first != null) {
+                columns = headerColumns(first, courses, result.ignoredColumns);
+                if (columns != null) {
+                    first = csv.next();
+                } else {
+                    columns = new int[HEADERS.length + courses.extraCount()];
+                    Arrays.setAll(columns, i -> i);
+                }
+            }
+            String[] firstRecord = first;
+            int[] recordColumns = columns;
+            BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+            Thread parser = new Thread(() -> parse(csv, firstRecord, recordColumns, courses, counter, queue),
+                    "student-import-parser");
+            parser.setDaemon(true);
+            parser.start();
+            try {
+                return write(queue, result, progress, total, cancelled);
+            } finally {
+                parser.interrupt();
+            }
+        }
+    }
+
+    private Result write(BlockingQueue<Chunk> queue, Result result, Progress progress, long total,
+                         BooleanSupplier cancelled) throws IOException, SQLException {
+        List<Student> batch = new ArrayList<>(CHUNK_SIZE);
+        int existing = dao.count();
+        boolean indexesDropped = false;
+        boolean first = true;
+        Throwable failure = null;
+        try {
+            while (true) {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                Chunk chunk;
+                try {
+                    chunk = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("导入被中断");
+                }
+                if (chunk == Chunk.END) return result;
+                if (chunk.failure != null) {
+                    if (chunk.failure instanceof IOException) throw (IOException) chunk.failure;
+                    throw new IOException(chunk.failure);
+                }
+                batch.clear();
+                for (int i = 0; i < chunk.size; i++) {
+                    if (chunk.students[i] != null) {
+                        batch.add(chunk.students[i]);
+                    } else {
+                        result.rejected++;
+                        if (result.errors.size() < MAX_REPORTED_ERRORS) {
+                            result.errors.add(new RowError(chunk.lines[i], chunk.errors[i]));
+                        }
+                    }
+                }
+                // 逐块提交，删除索引期间其他连接看到的是没有二级索引的表，所以只在导入到空库时这样做
+                if (first && existing == 0 && shouldDeferIndexes(chunk, total, existing)) {
+                    dao.dropSecondaryIndexes();
+                    indexesDropped = true;
+                }
+                first = false;
+                if (!batch.isEmpty()) {
+                    dao.upsertAll(batch);
+                }
+                result.imported += batch.size();
+                progress.update(chunk.bytesRead, total, result.imported + result.rejected);
+            }
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            // 失败或取消时也要重建，已提交的块仍然有效；重建失败不能掩盖导入本身的异常
+            if (indexesDropped) {
+                try {
+                    dao.createSecondaryIndexes();
+                } catch (SQLException e) {
+                    if (failure == null) throw e;
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+    }
+
+    // 按第一块的平均行长估算总行数
+    private static boolean shouldDeferIndexes(Chunk first, long totalBytes, int existing) {
+        if (first.size == 0 || first.bytesRead == 0) return false;
+        return shouldDeferIndexes(totalBytes * first.size / first.bytesRead, existing);
+    }
+
+    static boolean shouldDeferIndexes(long estimatedRows, int existing) {
+        return estimatedRows >= DEFER_INDEX_MIN_ROWS && estimatedRows >= existing;
+    }
+
+    // 在解析线程上运行，从表头之后的第一条记录 record 开始；异常通过带 failure 的块交给写入方
+    private static void parse(CsvReader csv, String[] record, int[] columns, CourseRegistry courses,
+                              CountingInputStream counter, BlockingQueue<Chunk> queue) {
+        try {
+            while (record != null) {
+                Chunk chunk = new Chunk(CHUNK_SIZE);
+                while (record != null && chunk.size < CHUNK_SIZE) {
+                    chunk.lines[chunk.size] = csv.recordLine();
+                    chunk.records[chunk.size++] = record;
+                    record = csv.next();
+                }
+                validate(chunk, columns, courses);
+                chunk.bytesRead = counter.count;
+                queue.put(chunk);
+            }
+            queue.put(Chunk.END);
+        } catch (InterruptedException e) {
+            // 写入方已放弃
+        } catch (Throwable t) {
+            Chunk failed = new Chunk(0);
+            failed.failure = t;
+            queue.clear();
+            queue.offer(failed);
+        }
+    }
+
+    // 并行校验一块内的各行，规则与界面录入一致
+    private static void validate(Chunk chunk, int[] columns, CourseRegistry courses) {
+        IntStream.range(0, chunk.size).parallel().forEach(i -> {
+            try {
+                chunk.students[i] = toStudent(chunk.records[i], columns, courses);
+            } catch (IllegalArgumentException e) {
+                chunk.errors[i] = e.getMessage();
+            }
+            chunk.records[i] = null;
+        });
+    }
+
+    // columns 的前 HEADERS.length 项为固定列，之后按 slot 为登记课程的列（-1 为文件中没有）
+    private static Student toStudent(String[] record, int[] columns, CourseRegistry courses) {
+        int width = 0;
+        for (int h = 0; h < HEADERS.length; h++) width = Math.max(width, columns[h] + 1);
+        if (record.length < width) {
+            throw new IllegalArgumentException("字段数不足，应为 " + width + " 列，实际 " + record.length + " 列");
+        }
+        String id = record[columns[0]].trim();
+        if (id.isEmpty()) throw new IllegalArgumentException("学号不能为空");
+        String name = record[columns[1]].trim();
+        if (name.isEmpty()) throw new IllegalArgumentException("姓名不能为空");
+        String className = record[columns[2]].trim();
+        if (className.isEmpty()) throw new IllegalArgumentException("班级不能为空");
+        int[] scores = new int[4];
+        for (int k = 0; k < scores.length; k++) {
+            scores[k] = grade(HEADERS[3 + k][0], record[columns[3 + k]].trim());
+        }
+        Student student = new Student(id, name, className, scores[0], scores[1], scores[2], scores[3]);
+        // 登记课程：单元格为空或整列缺少时没有成绩，写入时保留原成绩
+        byte[] extra = null;
+        for (int slot = 0; slot < courses.extraCount(); slot++) {
+            int column = columns[HEADERS.length + slot];
+            if (column < 0 || column >= record.length) continue;
+            String text = record[column].trim();
+            if (text.isEmpty()) continue;
+            extra = Student.withExtraScore(extra, slot, grade(courses.extraNames().get(slot), text));
+        }
+        student.setExtraScores(extra);
+        return student;
+    }
+
+    private static int grade(String course, String text) {
+        int score;
+        try {
+            score = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(course + "成绩必须为数字: " + text);
+        }
+        if (!Student.isValidGrade(score)) {
+            throw new IllegalArgumentException(course + "成绩必须在0-100之间: " + score);
+        }
+        return score;
+    }
+
+    // 第一行包含任一已知列名时视为表头，按列名定位；否则返回 null，按默认列顺序读取
+    // 表头中的登记课程按课程名定位，其余非空列名加入 ignored
+    static int[] headerColumns(String[] record, CourseRegistry courses, List<String> ignored) throws IOException {
+        int[] columns = new int[HEADERS.length + courses.extraCount()];
+        Arrays.fill(columns, -1);
+        boolean any = false;
+        List<String> unknown = new ArrayList<>();
+        for (int i = 0; i < record.length; i++) {
+            String name = record[i].trim();
+            boolean known = false;
+            for (int h = 0; h < HEADERS.length; h++) {
+                for (String alias : HEADERS[h]) {
+                    if (alias.equals(name.toLowerCase()) && columns[h] < 0) {
+                        columns[h] = i;
+                        any = true;
+                        known = true;
+                    }
+                }
+            }
+            int course = known ? -1 : courses.indexOf(name);
+            if (course >= CourseRegistry.FIXED_COUNT && columns[HEADERS.length + course - CourseRegistry.FIXED_COUNT] < 0) {
+                columns[HEADERS.length + course - CourseRegistry.FIXED_COUNT] = i;
+            } else if (!known && !name.isEmpty()) {
+                unknown.add(name);
+            }
+        }
+        if (!any) return null;
+        for (int h = 0; h < HEADERS.length; h++) {
+            if (columns[h] < 0) throw new IOException("表头缺少列: " + HEADERS[h][0]);
+        }
+        ignored.addAll(unknown);
+        return columns;
+    }
+
+    // 有 BOM 按 BOM；否则开头一段是合法 UTF-8 就用 UTF-8，不是则按中文 Excel 的默认编码 GB18030
+    static Charset detectCharset(BufferedInputStream in) throws IOException {
+        in.mark(SNIFF_BYTES);
+        byte[] head = new byte[SNIFF_BYTES];
+        int n = 0;
+        for (int r; n < head.length && (r = in.read(head, n, head.length - n)) > 0; ) {
+            n += r;
+        }
+        in.reset();
+        if (n >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            in.skip(3);
+            return StandardCharsets.UTF_8;
+        }
+        if (n >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE) {
+            in.skip(2);
+            return StandardCharsets.UTF_16LE;
+        }
+        if (n >= 2 && (head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF) {
+            in.skip(2);
+            return StandardCharsets.UTF_16BE;
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // 末尾可能截断在多字节字符中间，不算作错误
+        boolean utf8 = !decoder.decode(ByteBuffer.wrap(head, 0, n), CharBuffer.allocate(n), n < head.length).isError();
+        return utf8 ? StandardCharsets.UTF_8 : Charset.forName("GB18030");
+    }
+
+    // 第一行中制表符多于逗号时按 TSV 读取
+    static char detectDelimiter(BufferedReader reader) throws IOException {
+        reader.mark(SNIFF_BYTES);
+        int tabs = 0;
+        int commas = 0;
+        for (int i = 0, c; i < SNIFF_BYTES && (c = reader.read()) >= 0 && c != '\n' && c != '\r'; i++) {
+            if (c == '\t') tabs++;
+            else if (c == ',') commas++;
+        }
+        reader.reset();
+        return tabs > commas ? '\t' : ',';
+    }
+
+    // 统计已读取的字节数，用于进度显示
+    private static class CountingInputStream extends FilterInputStream {
+        volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package sms.data;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// 异步数据访问：所有数据库操作都在专用线程上执行，结果以 CompletableFuture 返回
+// 增删改进入 WriteBehindQueue 合并写入；读操作先写入队列中的修改，按学号查询依次读队列、StudentCache 和数据库
+public class StudentRepository implements StudentStore {
+    // 最早的修改最多等待的时间，以及攒够多少个学号立即写入
+    private static final long FLUSH_DELAY_MS = 200;
+    private static final int MAX_BATCH = 500;
+    // 与界面整体加载到内存的行数上限相当
+    private static final int CACHE_CAPACITY = 50_000;
+
+    private final StudentDao dao;
+    private final ExecutorService executor;
+    private final WriteBehindQueue writes;
+    private final StudentCache cache = new StudentCache(CACHE_CAPACITY);
+    private volatile WriteBehindQueue.Listener writeListener;
+    // 最近一次查询，新的查询会取消它
+    private final AtomicReference<CompletableFuture<?>> latestSearch = new AtomicReference<>();
+
+    public StudentRepository(StudentDao dao, int platformThreads) {
+        this.dao = dao;
+        this.executor = newExecutor(platformThreads, "student-db-");
+        this.writes = new WriteBehindQueue(dao::applyChanges, FLUSH_DELAY_MS, MAX_BATCH);
+        // 冲突的修改没有写入，缓存中先行放入的内容作废
+        writes.setListener(new WriteBehindQueue.Listener() {
+            @Override
+            public void flushed(int written, List<StudentDao.Change> conflicts) {
+                for (StudentDao.Change change : conflicts) {
+                    cache.remove(change.getId());
+                }
+                WriteBehindQueue.Listener l = writeListener;
+                if (l != null) l.flushed(written, conflicts);
+            }
+
+            @Override
+            public void failed(Exception e) {
+                WriteBehindQueue.Listener l = writeListener;
+                if (l != null) l.failed(e);
+            }
+        });
+    }
+
+    interface Query<T> {
+        T run(BooleanSupplier cancelled) throws Exception;
+    }
+
+    @Override
+    public CompletableFuture<Void> migrateSchema() {
+        return submitDirect(cancelled -> {
+            dao.migrateSchema();
+            return null;
+        });
+    }
+
+    // 读到的是全表，顺便建立学号的 Bloom 过滤器
+    public CompletableFuture<List<Student>> findAll() {
+        Object bloomToken = cache.beginBloom();
+        long version = cache.version();
+        CompletableFuture<List<Student>> future = submit(cancelled -> {
+            List<Student> list = dao.findAll(cancelled);
+            cache.putAllLoaded(list, version);
+            if (bloomToken != null) {
+                IdBloomFilter filter = new IdBloomFilter(list.size() * 2);
+                for (Student s : list) {
+                    filter.add(s.getId());
+                }
+                cache.finishBloom(bloomToken, filter);
+            }
+            return list;
+        });
+        abandonBloomOnFailure(future, bloomToken);
+        return future;
+    }
+
+    // 同 findAll，结果按列存放，供整表显示；expectedRows 为预估行数（例如刚查到的 count）
+    @Override
+    public CompletableFuture<StudentColumns> findAllColumns(int expectedRows) {
+        Object bloomToken = cache.beginBloom();
+        long version = cache.version();
+        CompletableFuture<StudentColumns> future = submit(cancelled -> {
+            StudentColumns columns = dao.findAllColumns(expectedRows, cancelled);
+            cache.putAllLoaded(columns, version);
+            if (bloomToken != null) {
+                IdBloomFilter filter = new IdBloomFilter(columns.size() * 2);
+                for (int row = 0; row < columns.size(); row++) {
+                    filter.add(columns.getId(row));
+                }
+                cache.finishBloom(bloomToken, filter);
+            }
+            return columns;
+        });
+        abandonBloomOnFailure(future, bloomToken);
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<Integer> count() {
+        return submit(cancelled -> dao.count());
+    }
+
+    @Override
+    public CompletableFuture<StudentDao.Page> findPage(String orderField, boolean descending, Object[] boundary,
+                                                       boolean before, int offset, int limit) {
+        long version = cache.version();
+        return submit(cancelled -> {
+            StudentDao.Page page = dao.findPage(orderField, descending, boundary, before, offset, limit);
+            cache.putAllLoaded(page.students, version);
+            return page;
+        });
+    }
+
+    // 添加学生时的查重：学号不存在时多数由 Bloom 过滤器直接判定
+    @Override
+    public CompletableFuture<Boolean> exists(String id) {
+        WriteBehindQueue.Lookup queued = writes.lookup(id);
+        if (queued.found) return CompletableFuture.completedFuture(queued.student != null);
+        StudentCache.Lookup cached = cache.lookup(id);
+        if (cached.found) return CompletableFuture.completedFuture(cached.student != null);
+        buildBloom();
+        return load(id).thenApply(student -> student != null);
+    }
+
+    @Override
+    public CompletableFuture<Student> findById(String id) {
+        WriteBehindQueue.Lookup queued = writes.lookup(id);
+        if (queued.found) return CompletableFuture.completedFuture(queued.student);
+        StudentCache.Lookup cached = cache.lookup(id);
+        if (cached.found) return CompletableFuture.completedFuture(cached.student);
+        buildBloom();
+        return load(id);
+    }
+
+    // 未命中时读数据库并放入缓存；查重也读整行，之后修改该学生时可以直接命中
+    private CompletableFuture<Student> load(String id) {
+        long version = cache.version();
+        return submitDirect(cancelled -> {
+            Student student = dao.findById(id);
+            if (student != null) cache.putLoaded(student, version);
+            return student;
+        });
+    }
+
+    // 还没有可用的过滤器时在后台读出全部学号建立；读之前 submit 会先写入队列中的修改
+    private void buildBloom() {
+        Object bloomToken = cache.beginBloom();
+        if (bloomToken == null) return;
+        CompletableFuture<Void> future = submit(cancelled -> {
+            IdBloomFilter filter = new IdBloomFilter(dao.count() * 2);
+            dao.scanIds(filter::add);
+            cache.finishBloom(bloomToken, filter);
+            return null;
+        });
+        abandonBloomOnFailure(future, bloomToken);
+    }
+
+    private void abandonBloomOnFailure(CompletableFuture<?> future, Object bloomToken) {
+        if (bloomToken == null) return;
+        future.whenComplete((result, error) -> {
+            if (error != null) cache.abandonBloom(bloomToken);
+        });
+    }
+
+    // 增删改只进入队列，立即返回；调用方先行更新界面，写入结果通过 setWriteListener 通知
+    @Override
+    public void insert(Student student) {
+        writes.insert(student);
+        cache.put(student);
+    }
+
+    @Override
+    public void update(Student before, Student after) {
+        writes.update(before, after);
+        cache.put(after);
+    }
+
+    @Override
+    public void delete(Student before) {
+        writes.delete(before);
+        cache.remove(before.getId());
+    }
+
+    // 先写入队列中已有的修改，再在一个事务中写入 changes，返回冲突而未写入的修改
+    @Override
+    public CompletableFuture<List<StudentDao.Change>> saveAll(List<StudentDao.Change> changes) {
+        return submit(cancelled -> {
+            List<StudentDao.Change> conflicts = dao.applyChanges(changes);
+            for (StudentDao.Change change : changes) {
+                if (conflicts.contains(change) || change.after == null) {
+                    cache.remove(change.getId());
+                } else {
+                    cache.put(change.after);
+                }
+            }
+            return conflicts;
+        });
+    }
+
+    @Override
+    public void setWriteListener(WriteBehindQueue.Listener listener) {
+        writeListener = listener;
+    }
+
+    // 按学号查询的缓存命中率等统计
+    @Override
+    public StudentCacheMXBean cacheStats() {
+        return cache;
+    }
+
+    // 尚未写入数据库的修改数
+    @Override
+    public int pendingWrites() {
+        return writes.size();
+    }
+
+    // 立即写入队列中的修改，返回提交的修改数
+    @Override
+    public CompletableFuture<Integer> flushWrites() {
+        return submitDirect(cancelled -> writes.flush());
+    }
+
+    // 查询会取消上一次尚未完成的查询：排队中的直接丢弃，执行中的在下一批行时中止
+    // 结果分块交给 sink（在后台线程上调用），返回的 future 完成时给出总行数
+    @Override
+    public CompletableFuture<Integer> search(String keyword, Consumer<List<Student>> sink) {
+        long version = cache.version();
+        CompletableFuture<Integer> future = submit(cancelled -> dao.search(keyword, chunk -> {
+            cache.putAllLoaded(chunk, version);
+            sink.accept(chunk);
+        }, cancelled));
+        CompletableFuture<?> previous = latestSearch.getAndSet(future);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        return future;
+    }
+
+    // 与 search 相同但不取消其他查询，结果一次返回；供 StudentServer 同时服务多个客户端
+    public CompletableFuture<List<Student>> searchAll(String keyword) {
+        long version = cache.version();
+        return submit(cancelled -> {
+            List<Student> list = dao.search(keyword, cancelled);
+            cache.putAllLoaded(list, version);
+            return list;
+        });
+    }
+
+    // 批量导入文件，progress 在后台线程上回调；取消后已提交的块保留
+    // 旧版 students.dat 在一个事务中迁移，取消或出错时不写入任何记录
+    // 导入前后都使缓存整体失效：导入期间读入缓存的行和建立的过滤器不完整
+    @Override
+    public CompletableFuture<StudentImporter.Result> importFile(Path file, StudentImporter.Progress progress) {
+        boolean legacy = file.getFileName().toString().toLowerCase().endsWith(".dat");
+        cache.invalidateAll();
+        return submit(cancelled -> {
+            try {
+                return legacy ? new LegacyDatMigrator(dao).migrate(file, progress, cancelled)
+                        : new StudentImporter(dao).importFile(file, progress, cancelled);
+            } finally {
+                cache.invalidateAll();
+            }
+        });
+    }
+
+    // 流式导出到文件，返回导出的行数
+    @Override
+    public CompletableFuture<Integer> export(StudentExporter.Source source, Path file, StudentExporter.Format format) {
+        return submit(cancelled -> new StudentExporter(dao).export(source, file, format, cancelled));
+    }
+
+    @Override
+    public CompletableFuture<RankingEngine> loadRanking() {
+        return submit(dao::loadRanking);
+    }
+
+    @Override
+    public CompletableFuture<GradeStats> gradeStats() {
+        return submit(cancelled -> dao.gradeStats());
+    }
+
+    @Override
+    public CompletableFuture<List<Student>> findFailing(String field) {
+        return submit(cancelled -> dao.findFailing(field, cancelled));
+    }
+
+    @Override
+    public CompletableFuture<CourseRegistry> courses() {
+        return submitDirect(cancelled -> dao.findCourses());
+    }
+
+    @Override
+    public CompletableFuture<CourseRegistry> addCourse(String name) {
+        return submitDirect(cancelled -> dao.addCourse(name));
+    }
+
+    @Override
+    public CompletableFuture<FailReport> failReport() {
+        return submit(dao::failReport);
+    }
+
+    // 先写入队列，日志包含刚才的修改
+    @Override
+    public CompletableFuture<List<ChangeLog.Entry>> changeLog(String studentId, int limit) {
+        return submit(cancelled -> dao.findChanges(studentId, limit));
+    }
+
+    // 读操作：先写入队列中的修改，保证读到自己的修改
+    private <T> CompletableFuture<T> submit(Query<T> query) {
+        return submitDirect(cancelled -> {
+            writes.flush();
+            return query.run(cancelled);
+        });
+    }
+
+    // 不等待写入队列，用于不受队列影响的操作
+    private <T> CompletableFuture<T> submitDirect(Query<T> query) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            // 排队期间已被取消则不再执行
+            if (future.isDone()) return;
+            try {
+                future.complete(query.run(future::isCancelled));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    // 取出 CompletableFuture 异常链中的真实原因
+    public static Throwable unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    // 写入剩余的修改后停止后台线程
+    @Override
+    public void close() throws SQLException {
+        try {
+            writes.close();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // JDK 21+ 使用虚拟线程，否则退回到固定大小的守护线程池
+    static ExecutorService newExecutor(int platformThreads, String threadPrefix) {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(platformThreads, r -> {
+                Thread t = new Thread(r, threadPrefix + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package sms.data;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// 逐行解码学生表的结果集：列号在构造时按列名解析一次，之后按下标取值
+// 文本列按 UTF-8 字节读取（驱动的 getString 每次都要分配缓冲区并解码）；
+// 班级名和姓名重复度高，同一结果集中相同的值只解码一次、共用一个 String 实例
+public final class StudentRowReader {
+    // 去重表的上限，超过后照常解码，避免异常数据撑大去重表
+    private static final int MAX_CLASS_NAMES = 4096;
+    private static final int MAX_NAMES = 1 << 16;
+
+    private final ResultSet rs;
+    private final int idColumn;
+    private final int nameColumn;
+    private final int classColumn;
+    private final int[] scoreColumns = new int[StudentColumns.COURSE_COUNT];
+    private final int extraColumn;
+    private final Utf8Interner classNames = new Utf8Interner(MAX_CLASS_NAMES);
+    private final Utf8Interner names = new Utf8Interner(MAX_NAMES);
+
+    public StudentRowReader(ResultSet rs) throws SQLException {
+        this.rs = rs;
+        idColumn = rs.findColumn("id");
+        nameColumn = rs.findColumn("name");
+        classColumn = rs.findColumn("className");
+        scoreColumns[0] = rs.findColumn("math");
+        scoreColumns[1] = rs.findColumn("english");
+        scoreColumns[2] = rs.findColumn("computer");
+        scoreColumns[3] = rs.findColumn("pe");
+        extraColumn = rs.findColumn("extra_scores");
+    }
+
+    public boolean next() throws SQLException {
+        return rs.next();
+    }
+
+    public String id() throws SQLException {
+        byte[] utf8 = rs.getBytes(idColumn);
+        return utf8 == null ? null : new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    public String name() throws SQLException {
+        byte[] utf8 = rs.getBytes(nameColumn);
+        return utf8 == null ? null : names.intern(utf8);
+    }
+
+    public String className() throws SQLException {
+        byte[] utf8 = rs.getBytes(classColumn);
+        return utf8 == null ? null : classNames.intern(utf8);
+    }
+
+    // course 为课程下标：0 高等数学、1 大学英语、2 计算机导论、3 体育
+    public int score(int course) throws SQLException {
+        return rs.getInt(scoreColumns[course]);
+    }
+
+    // 登记课程的成绩向量，原样取出 BLOB，不逐门解码；没有时为 null
+    public byte[] extraScores() throws SQLException {
+        return rs.getBytes(extraColumn);
+    }
+
+    public Student read() throws SQLException {
+        Student student = new Student(id(), name(), className(), score(0), score(1), score(2), score(3));
+        student.setExtraScores(extraScores());
+        return student;
+    }
+}
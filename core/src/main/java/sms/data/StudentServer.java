@@ -0,0 +1,642 @@
+package sms.data;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// 无界面模式：在 HTTP/JSON 接口上提供学生数据的读写，多名教师的客户端（RemoteStudentStore）共用一个数据库
+// 请求在虚拟线程（JDK 21+）或固定线程池上处理，数据库访问都经过 StudentRepository（按学号缓存、连接池）
+// 列表类响应带弱 ETag，取自专用连接上的 PRAGMA data_version（任何连接提交后都会变化）：
+// 客户端轮询时带 If-None-Match，数据未变时直接返回 304；同一版本的响应体缓存起来，不重复查询
+// 单个学生带强 ETag（内容摘要），PUT/DELETE 带 If-Match 时内容已变则返回 412
+// 给定访问令牌时每个请求都要带 Authorization: Bearer 令牌，否则返回 401
+//
+//   GET    /api/students?order=&desc=&offset=&limit=&after=&afterId=&before=&beforeId=   分页（省略 limit 为全部）
+//   GET    /api/students/count
+//   GET    /api/students/{id}
+//   POST   /api/students                 新增，学号已存在返回 409
+//   PUT    /api/students/{id}            修改
+//   DELETE /api/students/{id}
+//   POST   /api/students/lookup          批量按学号查询：["学号", ...] -> [学生或 null, ...]
+//   POST   /api/changes                  批量修改，一个事务：[{"before":..,"after":..}, ...] -> {"written":n,"conflicts":[下标...]}
+//   GET    /api/search?q=   /api/failing?course=   /api/stats   /api/ranking
+//   GET    /api/failreport               至少一门不及格的学生，按班级和学号排序
+//   GET    /api/courses                  登记的课程（固定的四门以外）：{"courses":["课程名", ...]}，按 slot 顺序
+//   POST   /api/courses                  登记课程：{"name":"课程名"}，返回登记后的课程
+//   GET    /api/changelog?id=&limit=     修改日志，最新的在前（省略 id 为全部学生，limit 默认 100）：
+//                                        [{"seq":..,"time":..,"id":..,"kind":..,"merged":..,"delta":"Base64"}, ...]
+public class StudentServer implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(StudentServer.class.getName());
+    private static final int MAX_BODY = 16 * 1024 * 1024;
+    private static final int RESPONSE_CACHE_SIZE = 64;
+    private static final int DEFAULT_LOG_LIMIT = 100;
+    private static final String[] SCORE_FIELDS = {"math", "english", "computer", "pe"};
+    private static final String[] TEXT_ORDER_FIELDS = {"id", "name", "className"};
+    private static final Set<String> KNOWN_PATHS = new HashSet<>(Arrays.asList("/api/students", "/api/students/count",
+            "/api/students/lookup", "/api/students/{id}", "/api/changes", "/api/search", "/api/failing", "/api/failreport",
+            "/api/stats", "/api/ranking", "/api/courses", "/api/changelog"));
+
+    private final StudentRepository repository;
+    // 为 null 时不检查
+    private final byte[] token;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // 只用于读取 data_version，不参与读写
+    private final Connection observer;
+    // 区分服务器的不同运行，重启后旧的 ETag 全部失效
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    // 请求 URI -> 某个数据版本下的响应体
+    private final Map<String, CachedResponse> responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+            return size() > RESPONSE_CACHE_SIZE;
+        }
+    };
+
+    private static final class CachedResponse {
+        final long version;
+        final byte[] body;
+
+        CachedResponse(long version, byte[] body) {
+            this.version = version;
+            this.body = body;
+        }
+    }
+
+    // 4xx 响应，message 返回给客户端
+    private static final class HttpError extends Exception {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    interface Body {
+        void write(StringBuilder out) throws Exception;
+    }
+
+    public StudentServer(StudentRepository repository, String dbUrl, InetSocketAddress address, int threads)
+            throws IOException, SQLException {
+        this(repository, dbUrl, address, threads, null);
+    }
+
+    // token 为客户端须在 Authorization 头中给出的访问令牌，null 表示不检查
+    public StudentServer(StudentRepository repository, String dbUrl, InetSocketAddress address, int threads,
+                         String token) throws IOException, SQLException {
+        this.repository = repository;
+        this.token = token == null ? null : ("Bearer " + checkToken(token)).getBytes(StandardCharsets.US_ASCII);
+        this.observer = DriverManager.getConnection(dbUrl);
+        this.server = HttpServer.create(address, 0);
+        this.executor = StudentRepository.newExecutor(threads, "student-http-");
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    // 等待进行中的请求最多 1 秒
+    @Override
+    public void close() throws SQLException {
+        server.stop(1);
+        executor.shutdown();
+        observer.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getRawPath();
+        String route = route(method, path);
+        try (Metrics.Timer timer = Metrics.start("http." + route)) {
+            try {
+                authorize(exchange);
+                dispatch(exchange, method, path);
+                timer.done();
+            } catch (HttpError e) {
+                sendError(exchange, e.status, e.getMessage());
+                timer.done();
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                timer.done();
+            } catch (Exception e) {
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                // 后台操作中的参数错误
+                if (cause instanceof IllegalArgumentException) {
+                    sendError(exchange, 400, cause.getMessage());
+                    timer.done();
+                    return;
+                }
+                LOG.log(Level.WARNING, method + " " + path + " 失败", cause);
+                sendError(exchange, 500, String.valueOf(cause.getMessage()));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // 令牌放在 HTTP 头中，只能是可见的 ASCII 字符；不符合时抛出 IllegalArgumentException
+    static String checkToken(String token) {
+        if (token.isEmpty() || !token.chars().allMatch(c -> c > ' ' && c < 0x7F)) {
+            throw new IllegalArgumentException("访问令牌只能包含可见的 ASCII 字符");
+        }
+        return token;
+    }
+
+    // 按固定时间比较，不从响应时间泄露令牌的前缀
+    private void authorize(HttpExchange exchange) throws HttpError {
+        if (token == null) return;
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !MessageDigest.isEqual(token, header.getBytes(StandardCharsets.ISO_8859_1))) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            throw new HttpError(401, "缺少访问令牌或令牌不正确");
+        }
+    }
+
+    // 计时用的接口名
+    private static String route(String method, String path) {
+        if (path.equals("/api/students")) return method.equals("POST") ? "insert" : "page";
+        if (isSingleStudent(path)) return method.toLowerCase(Locale.ROOT);
+        if (KNOWN_PATHS.contains(path)) return path.substring(path.lastIndexOf('/') + 1);
+        return "unknown";
+    }
+
+    private void dispatch(HttpExchange exchange, String method, String path) throws Exception {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String pattern = isSingleStudent(path) ? "/api/students/{id}" : path;
+        switch (method + " " + pattern) {
+            case "GET /api/students":
+                sendVersioned(exchange, out -> page(out, query));
+                return;
+            case "GET /api/students/count":
+                sendVersioned(exchange, out -> out.append("{\"count\":").append(repository.count().get()).append('}'));
+                return;
+            case "GET /api/search":
+                sendVersioned(exchange, out -> Json.students(out, repository.searchAll(required(query, "q")).get()));
+                return;
+            case "GET /api/failing":
+                sendVersioned(exchange, out -> Json.students(out, repository.findFailing(course(query)).get()));
+                return;
+            case "GET /api/failreport":
+                sendVersioned(exchange, out -> failReport(out, repository.failReport().get()));
+                return;
+            case "GET /api/courses":
+                sendVersioned(exchange, out -> courses(out, repository.courses().get()));
+                return;
+            case "POST /api/courses":
+                addCourse(exchange, readJson(exchange));
+                return;
+            case "GET /api/changelog":
+                sendVersioned(exchange, out -> changeLog(out, repository.changeLog(query.get("id"),
+                        intParam(query, "limit", DEFAULT_LOG_LIMIT)).get()));
+                return;
+            case "GET /api/stats":
+                sendVersioned(exchange, out -> stats(out, repository.gradeStats().get()));
+                return;
+            case "GET /api/ranking":
+                sendVersioned(exchange, out -> ranking(out, repository.loadRanking().get()));
+                return;
+            case "GET /api/students/{id}":
+                getStudent(exchange, idOf(path));
+                return;
+            case "POST /api/students":
+                insert(exchange, studentBody(readJson(exchange)));
+                return;
+            case "PUT /api/students/{id}":
+                update(exchange, idOf(path), studentBody(readJson(exchange)));
+                return;
+            case "DELETE /api/students/{id}":
+                delete(exchange, idOf(path));
+                return;
+            case "POST /api/students/lookup":
+                lookup(exchange, readJson(exchange));
+                return;
+            case "POST /api/changes":
+                applyChanges(exchange, readJson(exchange));
+                return;
+            default:
+                throw new HttpError(KNOWN_PATHS.contains(pattern) ? 405 : 404, "不支持的请求: " + method + " " + path);
+        }
+    }
+
+    private static boolean isSingleStudent(String path) {
+        return path.startsWith("/api/students/") && !KNOWN_PATHS.contains(path);
+    }
+
+    // ---- 读 ----
+
+    private void page(StringBuilder out, Map<String, String> query) throws Exception {
+        String order = query.getOrDefault("order", "rowid");
+        boolean descending = Boolean.parseBoolean(query.get("desc"));
+        int offset = intParam(query, "offset", 0);
+        int limit = intParam(query, "limit", -1);
+        Object[] boundary = null;
+        boolean before = false;
+        if (query.containsKey("after") || query.containsKey("before")) {
+            before = query.containsKey("before");
+            String prefix = before ? "before" : "after";
+            boundary = new Object[]{sortValue(order, required(query, prefix)), required(query, prefix + "Id")};
+        }
+        StudentDao.Page page = repository.findPage(order, descending, boundary, before, offset, limit).get();
+        out.append("{\"students\":");
+        Json.students(out, page.students);
+        out.append(",\"firstKey\":");
+        key(out, page.firstKey);
+        out.append(",\"lastKey\":");
+        key(out, page.lastKey);
+        out.append('}');
+    }
+
+    // 键集分页的边界值：文本列为字符串，其余（rowid 和成绩）为整数
+    private static Object sortValue(String order, String value) {
+        for (String f : TEXT_ORDER_FIELDS) {
+            if (f.equals(order)) return value;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("排序值应为整数: " + value);
+        }
+    }
+
+    private static void key(StringBuilder out, Object[] key) {
+        if (key == null) {
+            out.append("null");
+            return;
+        }
+        out.append('[');
+        Json.scalar(out, key[0]);
+        out.append(',');
+        Json.scalar(out, key[1]);
+        out.append(']');
+    }
+
+    private static void failReport(StringBuilder out, FailReport report) {
+        StudentColumns rows = report.rows();
+        out.append('[');
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) out.append(',');
+            Json.student(out, rows.getStudent(i));
+        }
+        out.append(']');
+    }
+
+    private static void courses(StringBuilder out, CourseRegistry courses) {
+        out.append("{\"courses\":[");
+        List<String> names = courses.extraNames();
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) out.append(',');
+            Json.string(out, names.get(i));
+        }
+        out.append("]}");
+    }
+
+    // delta 原样以 Base64 传给客户端，由 ChangeLog.decode 解码
+    private static void changeLog(StringBuilder out, List<ChangeLog.Entry> entries) {
+        Base64.Encoder base64 = Base64.getEncoder();
+        out.append('[');
+        for (int i = 0; i < entries.size(); i++) {
+            ChangeLog.Entry e = entries.get(i);
+            if (i > 0) out.append(',');
+            out.append("{\"seq\":").append(e.seq).append(",\"time\":").append(e.time).append(",\"id\":");
+            Json.string(out, e.studentId);
+            out.append(",\"kind\":").append(e.kind).append(",\"merged\":").append(e.merged)
+                    .append(",\"delta\":\"").append(base64.encodeToString(e.delta())).append("\"}");
+        }
+        out.append(']');
+    }
+
+    private static void stats(StringBuilder out, GradeStats stats) {
+        out.append("{\"courses\":").append(stats.courseCount()).append(",\"classes\":{");
+        boolean first = true;
+        for (String className : stats.classNames()) {
+            if (!first) out.append(',');
+            first = false;
+            Json.string(out, className);
+            out.append(":[");
+            for (int course = 0; course < stats.courseCount(); course++) {
+                GradeStats.Summary s = stats.get(className, course);
+                if (course > 0) out.append(',');
+                out.append("{\"count\":").append(s.count).append(",\"sum\":").append(s.sum)
+                        .append(",\"min\":").append(s.min).append(",\"max\":").append(s.max)
+                        .append(",\"fail\":").append(s.fail).append(",\"buckets\":");
+                ints(out, s.buckets);
+                out.append('}');
+            }
+            out.append(']');
+        }
+        out.append("}}");
+    }
+
+    // 每个班级各指标的分数计数，省略末尾的 0
+    private static void ranking(StringBuilder out, RankingEngine ranking) {
+        out.append("{\"classes\":{");
+        boolean first = true;
+        for (Map.Entry<String, int[][]> e : ranking.classCounts().entrySet()) {
+            if (!first) out.append(',');
+            first = false;
+            Json.string(out, e.getKey());
+            out.append(":[");
+            int[][] counts = e.getValue();
+            for (int m = 0; m < counts.length; m++) {
+                if (m > 0) out.append(',');
+                int n = counts[m].length;
+                while (n > 0 && counts[m][n - 1] == 0) n--;
+                ints(out, Arrays.copyOf(counts[m], n));
+            }
+            out.append(']');
+        }
+        out.append("}}");
+    }
+
+    private static void ints(StringBuilder out, int[] values) {
+        out.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) out.append(',');
+            out.append(values[i]);
+        }
+        out.append(']');
+    }
+
+    private void getStudent(HttpExchange exchange, String id) throws Exception {
+        Student s = repository.findById(id).get();
+        if (s == null) throw new HttpError(404, "学号不存在: " + id);
+        String etag = etag(s);
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            sendEmpty(exchange, 304);
+            return;
+        }
+        sendStudent(exchange, 200, s);
+    }
+
+    private void lookup(HttpExchange exchange, Object json) throws Exception {
+        List<?> ids = Json.asArray(json);
+        List<Student> found = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            if (!(id instanceof String)) throw new IllegalArgumentException("学号应为字符串");
+            found.add(repository.findById((String) id).get());
+        }
+        StringBuilder out = new StringBuilder();
+        Json.students(out, found);
+        send(exchange, 200, out);
+    }
+
+    // ---- 写 ----
+
+    // Json.toStudent 把 null 当作“没有学生”（changes 中的 before/after），单个学生的请求体必须是对象
+    private static Student studentBody(Object json) {
+        if (json == null) throw new IllegalArgumentException("请求体应为学生对象，不能为 null");
+        return Json.toStudent(Json.asObject(json));
+    }
+
+    private void addCourse(HttpExchange exchange, Object json) throws Exception {
+        Object name = Json.asObject(json).get("name");
+        if (!(name instanceof String)) throw new IllegalArgumentException("字段 name 应为字符串");
+        StringBuilder out = new StringBuilder();
+        courses(out, repository.addCourse(((String) name).trim()).get());
+        send(exchange, 200, out);
+    }
+
+    private void insert(HttpExchange exchange, Student s) throws Exception {
+        List<StudentDao.Change> conflicts = repository.saveAll(
+                Collections.singletonList(new StudentDao.Change(null, s))).get();
+        if (!conflicts.isEmpty()) throw new HttpError(409, "学号已存在: " + s.getId());
+        exchange.getResponseHeaders().set("ETag", etag(s));
+        sendStudent(exchange, 201, s);
+    }
+
+    private void update(HttpExchange exchange, String id, Student after) throws Exception {
+        if (!after.getId().equals(id)) throw new IllegalArgumentException("不能修改学号");
+        Student current = current(exchange, id);
+        List<StudentDao.Change> conflicts = repository.saveAll(
+                Collections.singletonList(new StudentDao.Change(current, after))).get();
+        if (!conflicts.isEmpty()) throw new HttpError(412, "该学生已被修改或删除: " + id);
+        exchange.getResponseHeaders().set("ETag", etag(after));
+        sendStudent(exchange, 200, after);
+    }
+
+    private void delete(HttpExchange exchange, String id) throws Exception {
+        Student current = current(exchange, id);
+        List<StudentDao.Change> conflicts = repository.saveAll(
+                Collections.singletonList(new StudentDao.Change(current, null))).get();
+        if (!conflicts.isEmpty()) throw new HttpError(412, "该学生已被修改或删除: " + id);
+        sendEmpty(exchange, 204);
+    }
+
+    // 修改前的内容；带 If-Match 时必须与之一致
+    private Student current(HttpExchange exchange, String id) throws Exception {
+        Student current = repository.findById(id).get();
+        if (current == null) throw new HttpError(404, "学号不存在: " + id);
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch != null && !ifMatch.equals("*") && !ifMatch.equals(etag(current))) {
+            throw new HttpError(412, "该学生已被修改: " + id);
+        }
+        return current;
+    }
+
+    private void applyChanges(HttpExchange exchange, Object json) throws Exception {
+        List<StudentDao.Change> changes = new ArrayList<>();
+        for (Object item : Json.asArray(json)) {
+            Map<?, ?> map = Json.asObject(item);
+            Student before = Json.toStudent(map.get("before"));
+            Student after = Json.toStudent(map.get("after"));
+            if (before == null && after == null) throw new IllegalArgumentException("before 和 after 不能都为空");
+            if (before != null && after != null && !before.getId().equals(after.getId())) {
+                throw new IllegalArgumentException("不能修改学号: " + before.getId());
+            }
+            changes.add(new StudentDao.Change(before, after));
+        }
+        List<StudentDao.Change> conflicts = repository.saveAll(changes).get();
+        StringBuilder out = new StringBuilder("{\"written\":").append(changes.size() - conflicts.size())
+                .append(",\"conflicts\":[");
+        int n = 0;
+        for (int i = 0; i < changes.size(); i++) {
+            // 冲突列表中是同一批 Change 对象
+            if (!containsSame(conflicts, changes.get(i))) continue;
+            if (n++ > 0) out.append(',');
+            out.append(i);
+        }
+        out.append("]}");
+        send(exchange, 200, out);
+    }
+
+    private static boolean containsSame(List<StudentDao.Change> list, StudentDao.Change change) {
+        for (StudentDao.Change c : list) {
+            if (c == change) return true;
+        }
+        return false;
+    }
+
+    // ---- 版本与缓存 ----
+
+    private synchronized long dataVersion() throws SQLException {
+        try (Statement stmt = observer.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA data_version")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // 先取版本再查询：查询期间有提交时，响应标的是旧版本，下一次轮询会重新查询
+    private void sendVersioned(HttpExchange exchange, Body body) throws Exception {
+        long version = dataVersion();
+        String etag = "W/\"" + epoch + "-" + version + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            sendEmpty(exchange, 304);
+            return;
+        }
+        String key = exchange.getRequestURI().toString();
+        CachedResponse cached;
+        synchronized (responses) {
+            cached = responses.get(key);
+        }
+        if (cached == null || cached.version != version) {
+            StringBuilder out = new StringBuilder();
+            body.write(out);
+            cached = new CachedResponse(version, out.toString().getBytes(StandardCharsets.UTF_8));
+            synchronized (responses) {
+                responses.put(key, cached);
+            }
+        }
+        send(exchange, 200, cached.body);
+    }
+
+    // 学生内容的摘要
+    static String etag(Student s) {
+        StringBuilder out = new StringBuilder();
+        Json.student(out, s);
+        long h = 0xcbf29ce484222325L;
+        String text = out.toString();
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return "\"" + Long.toHexString(h) + "\"";
+    }
+
+    // ---- 请求与响应 ----
+
+    private static Object readJson(HttpExchange exchange) throws IOException, HttpError {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            for (int n; (n = in.read(chunk)) > 0; ) {
+                if (buffer.size() + n > MAX_BODY) throw new HttpError(413, "请求体过大");
+                buffer.write(chunk, 0, n);
+            }
+            return Json.parse(buffer.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String idOf(String rawPath) {
+        return decode(rawPath.substring("/api/students/".length()));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq < 0) {
+                query.put(decode(pair), "");
+            } else {
+                query.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+            }
+        }
+        return query;
+    }
+
+    // 与 RemoteStudentStore.encode 对应，'+' 按空格解码
+    private static String decode(String s) {
+        return URLDecoder.decode(s, StandardCharsets.UTF_8);
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) throw new IllegalArgumentException("缺少参数 " + name);
+        return value;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("参数 " + name + " 应为整数");
+        }
+    }
+
+    private static String course(Map<String, String> query) {
+        String course = required(query, "course");
+        for (String f : SCORE_FIELDS) {
+            if (f.equals(course)) return f;
+        }
+        throw new IllegalArgumentException("未知课程字段: " + course);
+    }
+
+    private static void sendStudent(HttpExchange exchange, int status, Student s) throws IOException {
+        StringBuilder out = new StringBuilder();
+        Json.student(out, s);
+        send(exchange, status, out);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder out = new StringBuilder("{\"error\":");
+        Json.string(out, message);
+        out.append('}');
+        send(exchange, status, out);
+    }
+
+    private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence body) throws IOException {
+        send(exchange, status, body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
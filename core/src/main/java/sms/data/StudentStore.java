@@ -0,0 +1,80 @@
+package sms.data;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+// 界面使用的学生数据操作：本地数据库为 StudentRepository，连接 StudentServer 时为 RemoteStudentStore
+// 所有操作都不阻塞调用线程；增删改进入写入队列后立即返回，写入结果通过 setWriteListener 通知
+public interface StudentStore extends AutoCloseable {
+    CompletableFuture<Void> migrateSchema();
+
+    // expectedRows 为预估行数，用于一次分配好数组
+    CompletableFuture<StudentColumns> findAllColumns(int expectedRows);
+
+    CompletableFuture<Integer> count();
+
+    // 键集分页，参数见 StudentDao.findPage
+    CompletableFuture<StudentDao.Page> findPage(String orderField, boolean descending, Object[] boundary,
+                                                boolean before, int offset, int limit);
+
+    CompletableFuture<Boolean> exists(String id);
+
+    // 学号不存在时结果为 null
+    CompletableFuture<Student> findById(String id);
+
+    void insert(Student student);
+
+    void update(Student before, Student after);
+
+    void delete(Student before);
+
+    // 先写入队列中已有的修改，再在一个事务中写入 changes，返回冲突而未写入的修改
+    CompletableFuture<List<StudentDao.Change>> saveAll(List<StudentDao.Change> changes);
+
+    void setWriteListener(WriteBehindQueue.Listener listener);
+
+    // 按学号查询的缓存统计，没有缓存时为 null
+    StudentCacheMXBean cacheStats();
+
+    // 尚未写入的修改数
+    int pendingWrites();
+
+    CompletableFuture<Integer> flushWrites();
+
+    // 新的查询取消上一次尚未完成的查询；结果分块交给 sink（在后台线程上调用），完成时给出总行数
+    CompletableFuture<Integer> search(String keyword, Consumer<List<Student>> sink);
+
+    CompletableFuture<StudentImporter.Result> importFile(Path file, StudentImporter.Progress progress);
+
+    CompletableFuture<Integer> export(StudentExporter.Source source, Path file, StudentExporter.Format format);
+
+    CompletableFuture<RankingEngine> loadRanking();
+
+    CompletableFuture<GradeStats> gradeStats();
+
+    CompletableFuture<List<Student>> findFailing(String field);
+
+    // 固定四门课程以外登记的课程
+    CompletableFuture<CourseRegistry> courses();
+
+    // 登记一门课程，结果为登记后的全部课程；课程名无效或已存在时以 IllegalArgumentException 失败
+    CompletableFuture<CourseRegistry> addCourse(String name);
+
+    // 四门课程的不及格名单，一次查询
+    CompletableFuture<FailReport> failReport();
+
+    // 修改日志，最新的在前，最多 limit 条；studentId 为 null 时为全部学生
+    CompletableFuture<List<ChangeLog.Entry>> changeLog(String studentId, int limit);
+
+    // 导入导出直接读写本机文件，只有本地数据库支持
+    default boolean supportsFiles() {
+        return true;
+    }
+
+    // 写入剩余的修改后释放资源
+    @Override
+    void close() throws SQLException;
+}
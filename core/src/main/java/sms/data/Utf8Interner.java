@@ -0,0 +1,53 @@
+package sms.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// 按 UTF-8 字节查找已解码的字符串：重复出现的值直接返回同一个 String，不再解码
+// 开放寻址，键为调用方交出的字节数组；条目达到 maxSize 后只解码不再记录
+final class Utf8Interner {
+    private final int maxSize;
+    private byte[][] keys = new byte[64][];
+    private String[] values = new String[64];
+    private int size;
+
+    Utf8Interner(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    // utf8 之后归本对象所有，调用方不要再修改
+    String intern(byte[] utf8) {
+        int mask = keys.length - 1;
+        int i = hash(utf8) & mask;
+        for (byte[] key; (key = keys[i]) != null; i = (i + 1) & mask) {
+            if (Arrays.equals(key, utf8)) return values[i];
+        }
+        String value = new String(utf8, StandardCharsets.UTF_8);
+        if (size < maxSize) {
+            keys[i] = utf8;
+            values[i] = value;
+            if (++size * 2 > keys.length) grow();
+        }
+        return value;
+    }
+
+    private static int hash(byte[] utf8) {
+        int h = Arrays.hashCode(utf8) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void grow() {
+        byte[][] oldKeys = keys;
+        String[] oldValues = values;
+        keys = new byte[oldKeys.length * 2][];
+        values = new String[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == null) continue;
+            int i = hash(oldKeys[j]) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
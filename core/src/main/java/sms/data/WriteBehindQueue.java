@@ -0,0 +1,205 @@
+package sms.data;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// 延迟合并写入：增删改先进入队列并按学号合并，最早的修改满 flushDelayMs 或队列攒够 maxBatch 个学号后，
+// 在后台线程上用一个事务写入，录入成绩时不再每行各提交一次
+// 写入前后的冲突和失败通过 Listener 在后台线程上通知；失败的修改放回队列，稍后重试
+public class WriteBehindQueue implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(WriteBehindQueue.class.getName());
+    private static final long RETRY_DELAY_MS = 5_000;
+
+    public interface Listener {
+        // 一批修改已提交，conflicts 为与库中内容不一致而没有写入的修改
+        void flushed(int written, List<StudentDao.Change> conflicts);
+
+        // 整批写入失败并已回滚，修改仍在队列中
+        void failed(Exception e);
+    }
+
+    // 在一个事务中写入一批修改并返回冲突，见 StudentDao.applyChanges；连接服务器时由 RemoteStudentStore 提交
+    public interface ChangeWriter {
+        List<StudentDao.Change> applyChanges(List<StudentDao.Change> changes) throws SQLException;
+    }
+
+    private final ChangeWriter writer;
+    private final long flushDelayMs;
+    private final int maxBatch;
+    private final ScheduledExecutorService scheduler;
+    // 同一时刻只有一批在写入，保证同一学号的修改按顺序提交
+    private final Object flushLock = new Object();
+    private volatile Listener listener;
+    // 以下字段由 this 保护；inFlight 为正在写入、尚未提交的一批
+    private Map<String, StudentDao.Change> pending = new LinkedHashMap<>();
+    private Map<String, StudentDao.Change> inFlight = Collections.emptyMap();
+    private ScheduledFuture<?> scheduled;
+    private boolean closed;
+
+    public WriteBehindQueue(ChangeWriter writer, long flushDelayMs, int maxBatch) {
+        this.writer = writer;
+        this.flushDelayMs = flushDelayMs;
+        this.maxBatch = maxBatch;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "student-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void insert(Student student) {
+        enqueue(null, student);
+    }
+
+    // before 为修改前的内容，用于提交时检查库中的行是否已被其他途径改动
+    public void update(Student before, Student after) {
+        enqueue(before, after);
+    }
+
+    public void delete(Student before) {
+        enqueue(before, null);
+    }
+
+    // 先新增后删除的合并为无操作，先删除后新增的合并为修改；before 始终保留最早的一次
+    private synchronized void enqueue(Student before, Student after) {
+        if (closed) throw new IllegalStateException("写入队列已关闭");
+        String id = (after != null ? after : before).getId();
+        StudentDao.Change previous = pending.get(id);
+        pending.put(id, new StudentDao.Change(id, previous != null ? previous.before : copy(before), copy(after)));
+        schedule(pending.size() >= maxBatch ? 0 : flushDelayMs);
+    }
+
+    // 已有更早的计划时保留它，只会把写入提前
+    private void schedule(long delayMs) {
+        if (scheduled != null) {
+            if (scheduled.getDelay(TimeUnit.MILLISECONDS) <= delayMs) return;
+            scheduled.cancel(false);
+        }
+        scheduled = scheduler.schedule(this::flushInBackground, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // 队列中（含正在写入）的学号的最新内容：found 为 false 表示该学号没有待写入的修改，
+    // 否则 student 为修改后的副本，已删除时为 null
+    public synchronized Lookup lookup(String id) {
+        StudentDao.Change change = pending.get(id);
+        if (change == null) change = inFlight.get(id);
+        return change == null ? Lookup.NOT_FOUND : new Lookup(true, copy(change.after));
+    }
+
+    public static class Lookup {
+        static final Lookup NOT_FOUND = new Lookup(false, null);
+        public final boolean found;
+        public final Student student;
+
+        Lookup(boolean found, Student student) {
+            this.found = found;
+            this.student = student;
+        }
+    }
+
+    // 尚未提交的学号数
+    public synchronized int size() {
+        return pending.size() + inFlight.size();
+    }
+
+    // 立即写入队列中的全部修改，返回提交的修改数；读数据库之前和关闭时调用，保证读到自己的修改
+    // 出错时修改放回队列并抛出异常
+    public int flush() throws SQLException {
+        synchronized (flushLock) {
+            Map<String, StudentDao.Change> batch;
+            synchronized (this) {
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                    scheduled = null;
+                }
+                if (pending.isEmpty()) return 0;
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                inFlight = batch;
+            }
+            List<StudentDao.Change> changes = new ArrayList<>(batch.size());
+            for (StudentDao.Change change : batch.values()) {
+                if (!change.isNoop()) changes.add(change);
+            }
+            List<StudentDao.Change> conflicts;
+            try {
+                conflicts = changes.isEmpty() ? Collections.emptyList() : writer.applyChanges(changes);
+            } catch (SQLException | RuntimeException e) {
+                requeue(batch);
+                throw e;
+            }
+            synchronized (this) {
+                inFlight = Collections.emptyMap();
+            }
+            Listener l = listener;
+            if (l != null) l.flushed(changes.size() - conflicts.size(), conflicts);
+            return changes.size() - conflicts.size();
+        }
+    }
+
+    // 失败的一批放回队首，写入期间又有修改的学号与之合并；合并后为无操作的直接丢弃
+    private synchronized void requeue(Map<String, StudentDao.Change> batch) {
+        Map<String, StudentDao.Change> merged = new LinkedHashMap<>();
+        for (Map.Entry<String, StudentDao.Change> e : batch.entrySet()) {
+            String id = e.getKey();
+            StudentDao.Change change = e.getValue();
+            StudentDao.Change newer = pending.remove(id);
+            if (newer != null) change = new StudentDao.Change(id, change.before, newer.after);
+            if (!change.isNoop()) merged.put(id, change);
+        }
+        merged.putAll(pending);
+        pending = merged;
+        inFlight = Collections.emptyMap();
+        if (!closed) schedule(RETRY_DELAY_MS);
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            Listener l = listener;
+            if (l != null) {
+                l.failed(e);
+            } else {
+                LOG.log(Level.WARNING, "写入学生修改失败", e);
+            }
+        }
+    }
+
+    // 写入剩余的修改后停止后台线程，之后不再接受修改；可以重复调用
+    @Override
+    public void close() throws SQLException {
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            flush();
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    // 调用方之后可能继续修改传入的对象，队列只保存副本
+    static Student copy(Student s) {
+        if (s == null) return null;
+        Student copy = new Student(s.getId(), s.getName(), s.getClassName(),
+                s.getMath(), s.getEnglish(), s.getComputer(), s.getPe());
+        // 成绩向量不会被原地修改，可以共用
+        copy.setExtraScores(s.getExtraScores());
+        return copy;
+    }
+}
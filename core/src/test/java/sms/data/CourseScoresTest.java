@@ -0,0 +1,193 @@
+package sms.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 登记课程的成绩在不及格名单、导出和导入中都不丢失
+class CourseScoresTest {
+    @TempDir
+    Path dir;
+    private ConnectionPool pool;
+    private StudentDao dao;
+
+    @BeforeEach
+    void open() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("students.db"), 2);
+        dao = new StudentDao(pool);
+        dao.migrateSchema();
+        dao.addCourse("线性代数");
+        dao.addCourse("大学物理");
+    }
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+    private static Student student(String id, int math, int algebra, int physics) {
+        Student s = new Student(id, "学生" + id, "2023-1", math, 80, 70, 90);
+        if (algebra != Student.NO_SCORE) s.setScore(4, algebra);
+        if (physics != Student.NO_SCORE) s.setScore(5, physics);
+        return s;
+    }
+
+    private void insert(Student... students) throws SQLException {
+        List<StudentDao.Change> changes = new ArrayList<>();
+        for (Student s : students) changes.add(new StudentDao.Change(null, s));
+        dao.applyChanges(changes);
+    }
+
+    @Test
+    void failReportIncludesRegisteredCourses() throws SQLException {
+        insert(student("A", 90, 75, Student.NO_SCORE),
+                student("B", 40, 58, 100),
+                student("C", 65, Student.NO_SCORE, 30),
+                student("D", 95, 0, 59));
+        FailReport report = dao.failReport(() -> false);
+        assertEquals(6, report.courses().size());
+        assertEquals(3, report.size());
+        assertEquals(Arrays.asList("B", "C", "D"), ids(report, report.select(FailReport.ANY_COURSE, 1)));
+        assertEquals(1, report.courseCount(0));
+        assertEquals(2, report.courseCount(4));
+        assertEquals(2, report.courseCount(5));
+        assertEquals(Arrays.asList("B", "D"), ids(report, report.select(FailReport.ANY_COURSE, 2)));
+        assertEquals(Arrays.asList("C", "D"), ids(report, report.select(5, 1)));
+        assertEquals(2, report.countAtLeast(2));
+        assertTrue(report.failed(1, 5));
+        assertFalse(report.failed(1, 4));
+
+        StringBuilder row = new StringBuilder();
+        report.appendRow(row, 1);
+        assertEquals("C\t学生C\t2023-1\t65\t80\t70\t90\t\t30\t1\n", row.toString());
+    }
+
+    // 登记课程也可以导出不及格名单，没有成绩的不算
+    @Test
+    void scanFailingRegisteredCourse() throws SQLException {
+        insert(student("A", 90, 75, Student.NO_SCORE), student("B", 40, 58, 100), student("C", 65, 12, 30));
+        List<String> ids = new ArrayList<>();
+        dao.scanFailing(4, rs -> {
+            while (rs.next()) ids.add(rs.getString("id"));
+        });
+        assertEquals(Arrays.asList("C", "B"), ids);
+    }
+
+    @Test
+    void exportWritesRegisteredCourses() throws Exception {
+        insert(student("A", 90, 75, Student.NO_SCORE), student("B", 40, Student.NO_SCORE, Student.NO_SCORE));
+        StudentExporter exporter = new StudentExporter(dao);
+
+        Path csv = dir.resolve("students.csv");
+        exporter.export(StudentExporter.Source.roster(), csv, StudentExporter.Format.CSV, () -> false);
+        assertEquals(Arrays.asList("﻿学号,姓名,班级,高等数学,大学英语,计算机导论,体育,线性代数,大学物理",
+                "A,学生A,2023-1,90,80,70,90,75,", "B,学生B,2023-1,40,80,70,90,,"),
+                Files.readAllLines(csv, StandardCharsets.UTF_8));
+
+        Path jsonl = dir.resolve("students.jsonl");
+        exporter.export(StudentExporter.Source.roster(), jsonl, StudentExporter.Format.JSONL, () -> false);
+        List<String> lines = Files.readAllLines(jsonl, StandardCharsets.UTF_8);
+        assertEquals("{\"id\":\"A\",\"name\":\"学生A\",\"className\":\"2023-1\",\"math\":90,\"english\":80," +
+                "\"computer\":70,\"pe\":90,\"courses\":{\"线性代数\":75}}", lines.get(0));
+        assertFalse(lines.get(1).contains("courses"));
+
+        Path binary = dir.resolve("students.smsb");
+        exporter.export(StudentExporter.Source.roster(), binary, StudentExporter.Format.BINARY, () -> false);
+        List<CourseRegistry> courses = new ArrayList<>();
+        List<Student> read = new ArrayList<>();
+        assertEquals(2, StudentExporter.readBinary(binary, courses::add, read::add));
+        assertEquals(Arrays.asList("线性代数", "大学物理"), courses.get(0).extraNames());
+        assertSameStudent(dao.findById("A"), read.get(0));
+        assertSameStudent(dao.findById("B"), read.get(1));
+    }
+
+    // 导出的 CSV 导入到登记了同样课程的新库，成绩向量不变
+    @Test
+    void csvRoundTripKeepsRegisteredCourses() throws Exception {
+        insert(student("A", 90, 75, Student.NO_SCORE), student("B", 40, Student.NO_SCORE, 33),
+                student("C", 50, 100, 0));
+        Path csv = dir.resolve("students.csv");
+        new StudentExporter(dao).export(StudentExporter.Source.roster(), csv, StudentExporter.Format.CSV, () -> false);
+
+        try (ConnectionPool other = new ConnectionPool("jdbc:sqlite:" + dir.resolve("other.db"), 2)) {
+            StudentDao otherDao = new StudentDao(other);
+            otherDao.migrateSchema();
+            otherDao.addCourse("线性代数");
+            otherDao.addCourse("大学物理");
+            StudentImporter.Result result = new StudentImporter(otherDao).importFile(csv, (r, t, d) -> { }, () -> false);
+            assertEquals(3, result.imported);
+            assertTrue(result.ignoredColumns.isEmpty());
+            for (String id : Arrays.asList("A", "B", "C")) assertSameStudent(dao.findById(id), otherDao.findById(id));
+            GradeStats.Summary physics = otherDao.gradeStats().get("2023-1", 5);
+            assertEquals(2, physics.count);
+            assertEquals(2, physics.fail);
+        }
+    }
+
+    // 空单元格保留原成绩，有值的覆盖；没有登记的课程列不导入，列在结果中
+    @Test
+    void importOverlaysScoresAndReportsUnknownColumns() throws Exception {
+        insert(student("A", 90, 75, 60), student("B", 40, Student.NO_SCORE, 33));
+        Path csv = dir.resolve("scores.csv");
+        Files.write(csv, Arrays.asList("学号,姓名,班级,高等数学,大学英语,计算机导论,体育,大学物理,概率论",
+                "A,学生A,2023-1,90,80,70,90,,88",
+                "B,学生B,2023-1,40,80,70,90,95,",
+                "C,学生C,2023-1,70,80,70,90,45,",
+                "D,学生D,2023-1,70,80,70,90,101,"), StandardCharsets.UTF_8);
+        StudentImporter.Result result = new StudentImporter(dao).importFile(csv, (r, t, d) -> { }, () -> false);
+        assertEquals(3, result.imported);
+        assertEquals(1, result.rejected);
+        assertEquals("大学物理成绩必须在0-100之间: 101", result.errors.get(0).message);
+        assertEquals(Collections.singletonList("概率论"), result.ignoredColumns);
+
+        assertSameStudent(student("A", 90, 75, 60), dao.findById("A"));
+        assertSameStudent(student("B", 40, Student.NO_SCORE, 95), dao.findById("B"));
+        assertSameStudent(student("C", 70, Student.NO_SCORE, 45), dao.findById("C"));
+        // 只改登记课程成绩的行记为修改
+        ChangeLog.Entry change = dao.findChanges("B", 1).get(0);
+        assertEquals(ChangeLog.UPDATE, change.kind);
+        assertArrayEquals(student("B", 40, Student.NO_SCORE, 95).getExtraScores(),
+                (byte[]) change.newValue(ChangeLog.EXTRA_SCORES));
+    }
+
+    // 无表头时固定列之后依次为登记的课程，可以省略
+    @Test
+    void importWithoutHeaderReadsCoursesByPosition() throws IOException, SQLException {
+        Path csv = dir.resolve("plain.csv");
+        Files.write(csv, Arrays.asList("A,学生A,2023-1,90,80,70,90,75,20", "B,学生B,2023-1,40,80,70,90"),
+                StandardCharsets.UTF_8);
+        StudentImporter.Result result = new StudentImporter(dao).importFile(csv, (r, t, d) -> { }, () -> false);
+        assertEquals(2, result.imported);
+        assertSameStudent(student("A", 90, 75, 20), dao.findById("A"));
+        assertSameStudent(student("B", 40, Student.NO_SCORE, Student.NO_SCORE), dao.findById("B"));
+    }
+
+    private static void assertSameStudent(Student expected, Student actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getClassName(), actual.getClassName());
+        assertTrue(expected.sameScores(actual), expected.getId());
+    }
+
+    private static List<String> ids(FailReport report, int[] rows) {
+        List<String> ids = new ArrayList<>();
+        for (int row : rows) ids.add(report.rows().getId(row));
+        return ids;
+    }
+}
@@ -0,0 +1,127 @@
+package sms.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 汇总表中的统计与逐行扫描学生表的结果一致，包括登记课程
+class GradeStatsTest {
+    @TempDir
+    Path dir;
+    private ConnectionPool pool;
+    private StudentDao dao;
+
+    @BeforeEach
+    void open() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("students.db"), 2);
+        dao = new StudentDao(pool);
+        dao.migrateSchema();
+        dao.addCourse("线性代数");
+        dao.addCourse("大学物理");
+    }
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+    private static Student student(String id, String className, int math, int algebra, int physics) {
+        Student s = new Student(id, "学生" + id, className, math, 80, 55, 90);
+        if (algebra != Student.NO_SCORE) s.setScore(4, algebra);
+        if (physics != Student.NO_SCORE) s.setScore(5, physics);
+        return s;
+    }
+
+    @Test
+    void countsFollowChanges() throws SQLException {
+        Student a = student("A", "2023-1", 90, 75, Student.NO_SCORE);
+        Student b = student("B", "2023-1", 40, 58, 100);
+        Student c = student("C", "2023-2", 65, Student.NO_SCORE, 30);
+        dao.applyChanges(Arrays.asList(new StudentDao.Change(null, a), new StudentDao.Change(null, b),
+                new StudentDao.Change(null, c)));
+        assertMatchesScan();
+
+        // 改班级和登记课程成绩、只改登记课程成绩、删除
+        Student movedA = student("A", "2023-2", 90, 81, 66);
+        Student editedB = student("B", "2023-1", 40, Student.NO_SCORE, 99);
+        dao.applyChanges(Arrays.asList(new StudentDao.Change(a, movedA), new StudentDao.Change(b, editedB),
+                new StudentDao.Change(c, null)));
+        assertMatchesScan();
+
+        dao.update(student("B", "2023-3", 41, 12, Student.NO_SCORE));
+        dao.insert(student("D", "2023-3", 100, 100, 0));
+        dao.delete("A");
+        assertMatchesScan();
+    }
+
+    // 导入的行没有登记课程的成绩时保留原成绩向量，但会改动已有学生的班级，登记课程的计数随之移动
+    @Test
+    void importMovesCourseCounts() throws SQLException {
+        dao.applyChanges(Arrays.asList(new StudentDao.Change(null, student("A", "2023-1", 90, 75, 60)),
+                new StudentDao.Change(null, student("B", "2023-1", 40, 58, 100))));
+        dao.upsertAll(Arrays.asList(new Student("A", "学生A", "2024-1", 70, 80, 55, 90),
+                new Student("E", "学生E", "2024-1", 20, 30, 40, 50)));
+        assertMatchesScan();
+        assertEquals(1, dao.gradeStats().get("2024-1", 4).count);
+    }
+
+    // 从 v7 升级时按已有的成绩向量补齐登记课程的计数
+    @Test
+    void migrationBackfillsCourseCounts() throws SQLException {
+        dao.applyChanges(Arrays.asList(new StudentDao.Change(null, student("A", "2023-1", 90, 75, 60)),
+                new StudentDao.Change(null, student("B", "2023-2", 40, 58, Student.NO_SCORE))));
+        try (ConnectionPool.PooledConnection conn = pool.acquire();
+             Statement stmt = conn.raw().createStatement()) {
+            stmt.execute("DROP TRIGGER students_course_grades_ai");
+            stmt.execute("DROP TRIGGER students_course_grades_ad");
+            stmt.execute("DROP TRIGGER students_course_grades_au");
+            stmt.execute("DELETE FROM grade_counts WHERE course >= " + CourseRegistry.FIXED_COUNT);
+            stmt.execute("PRAGMA user_version = 7");
+            SchemaMigrator.migrate(conn.raw());
+        }
+        assertMatchesScan();
+        dao.insert(student("C", "2023-2", 10, 20, 30));
+        assertMatchesScan();
+    }
+
+    private void assertMatchesScan() throws SQLException {
+        CourseRegistry courses = dao.findCourses();
+        GradeStats actual = dao.gradeStats();
+        List<Student> students = dao.findAll(() -> false);
+        assertEquals(courses.size(), actual.courseCount());
+        for (String className : actual.classNames()) {
+            for (int course = 0; course < courses.size(); course++) {
+                GradeStats.Summary expected = new GradeStats.Summary();
+                for (Student s : students) {
+                    int score = s.getScore(course);
+                    if (!s.getClassName().equals(className) || score == Student.NO_SCORE) continue;
+                    expected.addBucket(GradeStats.bucketOf(score), 1, score, score, score);
+                }
+                GradeStats.Summary summary = actual.get(className, course);
+                String where = className + " 课程 " + course;
+                assertEquals(expected.count, summary.count, where);
+                assertEquals(expected.sum, summary.sum, where);
+                assertEquals(expected.fail, summary.fail, where);
+                assertArrayEquals(expected.buckets, summary.buckets, where);
+                if (expected.count > 0) {
+                    assertEquals(expected.min, summary.min, where);
+                    assertEquals(expected.max, summary.max, where);
+                }
+            }
+        }
+        for (Student s : students) {
+            assertTrue(actual.classNames().contains(s.getClassName()), s.getClassName());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package sms.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// 批量导入写入修改日志：新学生为添加，覆盖已有学生为修改（含旧值），内容不变的不记
+class ImportChangeLogTest {
+    @TempDir
+    Path dir;
+    private ConnectionPool pool;
+    private StudentDao dao;
+
+    @BeforeEach
+    void open() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("students.db"), 1);
+        dao = new StudentDao(pool);
+        dao.migrateSchema();
+    }
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+    @Test
+    void importLogsInsertsAndOverwrites() throws SQLException {
+        dao.upsertAll(Arrays.asList(new Student("1", "张三", "2023-1", 90, 80, 70, 60),
+                new Student("2", "李四", "2023-1", 50, 60, 70, 80)));
+        List<ChangeLog.Entry> entries = dao.findChanges(null, 10);
+        assertEquals(2, entries.size());
+        for (ChangeLog.Entry e : entries) assertEquals(ChangeLog.INSERT, e.kind);
+
+        // 内容相同的再次导入不记
+        dao.upsertAll(Collections.singletonList(new Student("1", "张三", "2023-1", 90, 80, 70, 60)));
+        assertEquals(2, dao.findChanges(null, 10).size());
+
+        // 导入的行没有登记课程的成绩时原成绩不变，也不出现在修改中
+        dao.addCourse("线性代数");
+        Student withExtra = dao.findById("2");
+        Student graded = dao.findById("2");
+        graded.setScore(4, 77);
+        dao.applyChanges(Collections.singletonList(new StudentDao.Change(withExtra, graded)));
+
+        dao.upsertAll(Arrays.asList(new Student("1", "张三", "2023-1", 30, 80, 70, 60),
+                new Student("2", "李四", "2023-2", 50, 60, 70, 80),
+                new Student("2", "李四", "2023-3", 50, 60, 70, 80)));
+        List<ChangeLog.Entry> overwrites = dao.findChanges(null, 2);
+        ChangeLog.Entry classChange = overwrites.get(0);
+        ChangeLog.Entry scoreChange = overwrites.get(1);
+        assertEquals("2", classChange.studentId);
+        assertEquals(ChangeLog.UPDATE, classChange.kind);
+        assertEquals("2023-1", classChange.oldValue(ChangeLog.CLASS_NAME));
+        assertEquals("2023-3", classChange.newValue(ChangeLog.CLASS_NAME));
+        assertFalse(classChange.has(ChangeLog.EXTRA_SCORES));
+        assertEquals("1", scoreChange.studentId);
+        assertEquals(90, scoreChange.oldValue(ChangeLog.FIRST_SCORE));
+        assertEquals(30, scoreChange.newValue(ChangeLog.FIRST_SCORE));
+        assertEquals(1 << ChangeLog.FIRST_SCORE, scoreChange.fields);
+        assertArrayEquals(graded.getExtraScores(), dao.findById("2").getExtraScores());
+        assertEquals(5, dao.findChanges(null, 10).size());
+    }
+
+    // 导入失败回滚时日志也不留下
+    @Test
+    void failedImportLeavesNoLog() {
+        List<Student> bad = Arrays.asList(new Student("1", "张三", "2023-1", 90, 80, 70, 60),
+                new Student("2", "李四", "2023-1", 500, 60, 70, 80));
+        try {
+            dao.upsertAll(bad);
+        } catch (SQLException expected) {
+            // 成绩越界违反 CHECK 约束
+        }
+        try {
+            assertEquals(0, dao.findChanges(null, 10).size());
+            assertEquals(0, dao.count());
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package sms.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonTest {
+    @Test
+    void parsesUpToMaxDepth() {
+        String text = "[".repeat(Json.MAX_DEPTH) + "]".repeat(Json.MAX_DEPTH);
+        Object value = Json.parse(text);
+        for (int i = 1; i < Json.MAX_DEPTH; i++) value = ((List<?>) value).get(0);
+        assertTrue(((List<?>) value).isEmpty());
+    }
+
+    @Test
+    void rejectsDeeperNesting() {
+        String text = "{\"a\":".repeat(Json.MAX_DEPTH) + "[]" + "}".repeat(Json.MAX_DEPTH);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Json.parse(text));
+        assertTrue(e.getMessage().contains("嵌套"), e.getMessage());
+    }
+
+    @Test
+    void siblingContainersDoNotAccumulateDepth() {
+        String text = "[" + "[],".repeat(Json.MAX_DEPTH * 2) + "[]]";
+        assertEquals(Json.MAX_DEPTH * 2 + 1, ((List<?>) Json.parse(text)).size());
+    }
+}
@@ -0,0 +1,166 @@
+package sms.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class LegacyDatMigratorTest {
+    @TempDir
+    Path dir;
+    private ConnectionPool pool;
+    private StudentDao dao;
+
+    @BeforeEach
+    void open() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("students.db"), 1);
+        dao = new StudentDao(pool);
+        dao.migrateSchema();
+    }
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+    // 仓库自带的旧版数据：22 条记录，其中一条学号为空
+    @Test
+    void migratesShippedFile() throws IOException, SQLException {
+        Path dat = Paths.get("..", "students.dat");
+        StudentImporter.Result result = new LegacyDatMigrator(dao).migrate(dat, (read, total, done) -> { }, () -> false);
+        assertEquals(21, result.imported);
+        assertEquals(1, result.rejected);
+        assertEquals(1, result.errors.size());
+        assertEquals("学号不能为空", result.errors.get(0).message);
+        // 后 20 条是同一学号的重复测试数据，按学号覆盖
+        assertEquals(2, dao.count());
+    }
+
+    // 同一学生对象出现两次、班级字符串共用时，序列化写出的是回引
+    @Test
+    void resolvesBackReferences() throws IOException, SQLException {
+        Path dat = dir.resolve("ref.dat");
+        Files.write(dat, referencingFile());
+        try (FileChannel channel = FileChannel.open(dat)) {
+            LegacyDatMigrator.Decoder decoder = new LegacyDatMigrator.Decoder(channel);
+            assertEquals(5, decoder.declaredSize());
+            Student first = decoder.next();
+            Student second = decoder.next();
+            Student repeated = decoder.next();
+            assertEquals("张三", first.getName());
+            assertEquals("一班", second.getClassName());
+            assertEquals("1", repeated.getId());
+            assertEquals(90, repeated.getMath());
+            assertEquals(60, repeated.getPe());
+            assertEquals(101, decoder.next().getMath());
+            assertNull(decoder.next());
+        }
+
+        StudentImporter.Result result = new LegacyDatMigrator(dao).migrate(dat, (read, total, done) -> { }, () -> false);
+        assertEquals(3, result.imported);
+        assertEquals(1, result.rejected);
+        // null 元素不计入记录序号
+        assertEquals(4, result.errors.get(0).line);
+        assertEquals("成绩必须在0-100之间", result.errors.get(0).message);
+        assertEquals(2, dao.count());
+        assertEquals("一班", dao.findById("2").getClassName());
+    }
+
+    // 按 java.io 序列化协议写出 ArrayList<Student>：[张三, 李四, 张三（回引）, null, 王五（成绩越界）]；
+    // 句柄从 0x7E0000 依次分配：0 ArrayList 类描述，1 列表，2 Student 类描述，3 "Ljava/lang/String;"，
+    // 4 张三，5 "一班"，6 "1"，7 "张三"，8 李四 ...
+    private static byte[] referencingFile() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(0xACED);
+        out.writeShort(5);
+        out.writeByte(0x73);
+        out.writeByte(0x72);
+        out.writeUTF("java.util.ArrayList");
+        out.writeLong(8683452581122892189L);
+        out.writeByte(0x03);
+        out.writeShort(1);
+        out.writeByte('I');
+        out.writeUTF("size");
+        out.writeByte(0x78);
+        out.writeByte(0x70);
+        out.writeInt(5);
+        out.writeByte(0x77);
+        out.writeByte(4);
+        out.writeInt(5);
+
+        out.writeByte(0x73);
+        out.writeByte(0x72);
+        out.writeUTF("Student");
+        out.writeLong(1L);
+        out.writeByte(0x02);
+        out.writeShort(7);
+        for (String field : new String[]{"computer", "english", "math", "pe"}) {
+            out.writeByte('I');
+            out.writeUTF(field);
+        }
+        out.writeByte('L');
+        out.writeUTF("className");
+        out.writeByte(0x74);
+        out.writeUTF("Ljava/lang/String;");
+        for (String field : new String[]{"id", "name"}) {
+            out.writeByte('L');
+            out.writeUTF(field);
+            reference(out, 3);
+        }
+        out.writeByte(0x78);
+        out.writeByte(0x70);
+        scores(out, 70, 80, 90, 60);
+        strings(out, "一班", "1", "张三");
+
+        out.writeByte(0x73);
+        reference(out, 2);
+        scores(out, 3, 2, 1, 100);
+        reference(out, 5);
+        strings(out, "2", "李四");
+
+        reference(out, 4);
+        out.writeByte(0x70);
+
+        out.writeByte(0x73);
+        reference(out, 2);
+        scores(out, 3, 2, 101, 4);
+        reference(out, 5);
+        strings(out, "3", "王五");
+        out.writeByte(0x78);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void reference(DataOutputStream out, int handle) throws IOException {
+        out.writeByte(0x71);
+        out.writeInt(0x7E0000 + handle);
+    }
+
+    private static void scores(DataOutputStream out, int computer, int english, int math, int pe) throws IOException {
+        out.writeInt(computer);
+        out.writeInt(english);
+        out.writeInt(math);
+        out.writeInt(pe);
+    }
+
+    private static void strings(DataOutputStream out, String... values) throws IOException {
+        for (String value : values) {
+            out.writeByte(0x74);
+            out.writeUTF(value);
+        }
+    }
+}
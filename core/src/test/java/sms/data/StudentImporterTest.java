@@ -0,0 +1,238 @@
+package sms.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 编码和分隔符识别、表头与无表头文件、逐行错误报告，以及大批量导入时二级索引的删除和重建
+class StudentImporterTest {
+    private static final Charset GB18030 = Charset.forName("GB18030");
+    private static final String HEADER = "学号,姓名,班级,高等数学,大学英语,计算机导论,体育";
+
+    @TempDir
+    Path dir;
+    private ConnectionPool pool;
+    private StudentDao dao;
+
+    @BeforeEach
+    void open() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("students.db"), 2);
+        dao = new StudentDao(pool);
+        dao.migrateSchema();
+    }
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+    // 识别后流的位置在 BOM 之后，其余内容原样可读
+    @Test
+    void detectCharsetFromBomOrContent() throws IOException {
+        byte[] text = "学号,姓名".getBytes(StandardCharsets.UTF_8);
+        assertDetected(StandardCharsets.UTF_8, concat(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}, text), text);
+        byte[] le = "学号".getBytes(StandardCharsets.UTF_16LE);
+        assertDetected(StandardCharsets.UTF_16LE, concat(new byte[]{(byte) 0xFF, (byte) 0xFE}, le), le);
+        byte[] be = "学号".getBytes(StandardCharsets.UTF_16BE);
+        assertDetected(StandardCharsets.UTF_16BE, concat(new byte[]{(byte) 0xFE, (byte) 0xFF}, be), be);
+        assertDetected(StandardCharsets.UTF_8, text, text);
+        byte[] gbk = "学号,姓名,班级".getBytes(GB18030);
+        assertDetected(GB18030, gbk, gbk);
+        assertDetected(StandardCharsets.UTF_8, new byte[0], new byte[0]);
+    }
+
+    // 只看开头 64 KB，末尾截断在多字节字符中间时仍按 UTF-8
+    @Test
+    void detectCharsetIgnoresTruncatedTail() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 40_000) sb.append("张三李四");
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        assertTrue(bytes.length > 64 * 1024 && 64 * 1024 % 3 != 0);
+        assertEquals(StandardCharsets.UTF_8, StudentImporter.detectCharset(
+                new BufferedInputStream(new ByteArrayInputStream(bytes), 64 * 1024)));
+    }
+
+    // 按第一行判断，读取位置不变
+    @Test
+    void detectDelimiterFromFirstLine() throws IOException {
+        BufferedReader tsv = new BufferedReader(new StringReader("学号\t姓名\t班级,甲\n1,2,3,4,5\n"));
+        assertEquals('\t', StudentImporter.detectDelimiter(tsv));
+        assertEquals("学号\t姓名\t班级,甲", tsv.readLine());
+        assertEquals(',', StudentImporter.detectDelimiter(new BufferedReader(new StringReader("1,张三\t,2023-1\n"))));
+        assertEquals(',', StudentImporter.detectDelimiter(new BufferedReader(new StringReader(""))));
+        assertEquals('\t', StudentImporter.detectDelimiter(new BufferedReader(new StringReader("\t\r\n,,,"))));
+    }
+
+    @Test
+    void headerColumnsByNameAndAlias() throws IOException {
+        List<String> ignored = new ArrayList<>();
+        int[] columns = StudentImporter.headerColumns(
+                new String[]{" PE ", "Math", "备注", "id", "class", "name", "english", "computer"},
+                CourseRegistry.FIXED_ONLY, ignored);
+        assertArrayEquals(new int[]{3, 5, 4, 1, 6, 7, 0}, columns);
+        assertEquals(List.of("备注"), ignored);
+        // 没有任何已知列名时不是表头
+        assertNull(StudentImporter.headerColumns(new String[]{"2023001", "张三", "2023-1"},
+                CourseRegistry.FIXED_ONLY, ignored));
+        IOException missing = assertThrows(IOException.class, () -> StudentImporter.headerColumns(
+                new String[]{"学号", "姓名", "班级", "高等数学", "大学英语", "体育"}, CourseRegistry.FIXED_ONLY, ignored));
+        assertEquals("表头缺少列: 计算机导论", missing.getMessage());
+    }
+
+    // GB18030 编码、制表符分隔、列顺序与默认不同的表头
+    @Test
+    void importTsvWithHeaderInGb18030() throws Exception {
+        Path file = dir.resolve("students.tsv");
+        Files.write(file, String.join("\r\n", "体育\tid\tname\tclass\tmath\tenglish\tcomputer",
+                "60\t2023001\t张三\t计科1班\t90\t80\t70",
+                "75\t2023002\t李四\t计科2班\t55\t66\t77", "").getBytes(GB18030));
+        StudentImporter.Result result = importFile(file);
+        assertEquals(2, result.imported);
+        assertEquals(0, result.rejected);
+        assertStudent("2023001", "张三", "计科1班", new int[]{90, 80, 70, 60});
+        assertStudent("2023002", "李四", "计科2班", new int[]{55, 66, 77, 75});
+    }
+
+    // 没有表头时按默认列顺序读取；带 BOM 的 UTF-8，引号内的逗号和换行
+    @Test
+    void importWithoutHeader() throws Exception {
+        Path file = dir.resolve("students.csv");
+        byte[] body = ("2023001,\"张,三\",计科1班,90,80,70,60\n" +
+                "2023002,\"李\n四\",计科2班,1,2,3,4\n").getBytes(StandardCharsets.UTF_8);
+        Files.write(file, concat(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}, body));
+        StudentImporter.Result result = importFile(file);
+        assertEquals(2, result.imported);
+        assertStudent("2023001", "张,三", "计科1班", new int[]{90, 80, 70, 60});
+        assertStudent("2023002", "李\n四", "计科2班", new int[]{1, 2, 3, 4});
+    }
+
+    // 不合法的行逐行报告（行号为记录起始行，跨行的引号字段计入行数），其余行照常导入
+    @Test
+    void rejectedRowsAreReportedWithLineNumbers() throws Exception {
+        Path file = dir.resolve("students.csv");
+        Files.write(file, Arrays.asList(HEADER,
+                "2023001,张三,计科1班,90,80,70,60",
+                "2023002,\"李",
+                "四\",计科1班,90,80,70",
+                "",
+                ",王五,计科1班,90,80,70,60",
+                "2023004,赵六,,90,80,70,60",
+                "2023005,钱七,计科1班,九十,80,70,60",
+                "2023006,孙八,计科1班,90,101,70,60",
+                "2023007,周九,计科1班,90,80,70,60"), StandardCharsets.UTF_8);
+        StudentImporter.Result result = importFile(file);
+        assertEquals(2, result.imported);
+        assertEquals(5, result.rejected);
+        List<String> report = new ArrayList<>();
+        for (StudentImporter.RowError e : result.errors) report.add(e.line + ": " + e.message);
+        assertEquals(Arrays.asList(
+                "3: 字段数不足，应为 7 列，实际 6 列",
+                "6: 学号不能为空",
+                "7: 班级不能为空",
+                "8: 高等数学成绩必须为数字: 九十",
+                "9: 大学英语成绩必须在0-100之间: 101"), report);
+        assertEquals(2, dao.count());
+        assertStudent("2023007", "周九", "计科1班", new int[]{90, 80, 70, 60});
+    }
+
+    @Test
+    void missingHeaderColumnFailsWithoutWriting() throws Exception {
+        Path file = dir.resolve("students.csv");
+        Files.write(file, Arrays.asList("学号,姓名,班级,高等数学", "2023001,张三,计科1班,90"), StandardCharsets.UTF_8);
+        IOException e = assertThrows(IOException.class, () -> importFile(file));
+        assertEquals("表头缺少列: 大学英语", e.getMessage());
+        assertEquals(0, dao.count());
+    }
+
+    @Test
+    void indexesDeferredOnlyForLargeImports() {
+        assertTrue(StudentImporter.shouldDeferIndexes(50_000, 0));
+        assertFalse(StudentImporter.shouldDeferIndexes(49_999, 0));
+        assertFalse(StudentImporter.shouldDeferIndexes(60_000, 100_000));
+    }
+
+    // 导入到空库的大文件先删除二级索引（行数按第一块估算，读缓冲会让估计偏小，文件留出余量）；
+    // 中途取消时已提交的块保留，索引照样重建
+    @Test
+    void cancelledLargeImportRebuildsIndexes() throws Exception {
+        Path file = dir.resolve("large.csv");
+        StringBuilder sb = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < 150_000; i++) {
+            sb.append(2_000_000 + i).append(",学生").append(i).append(",计科").append(i % 40).append("班,")
+                    .append(i % 101).append(",80,70,60\n");
+        }
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        int indexes = secondaryIndexCount();
+        List<Integer> duringImport = new ArrayList<>();
+        assertThrows(CancellationException.class, () -> new StudentImporter(dao).importFile(file,
+                (read, total, done) -> {
+                    try {
+                        duringImport.add(secondaryIndexCount());
+                    } catch (SQLException e) {
+                        throw new AssertionError(e);
+                    }
+                }, () -> !duringImport.isEmpty()));
+        assertEquals(List.of(0), duringImport);
+        assertEquals(indexes, secondaryIndexCount());
+        assertEquals(StudentImporter.CHUNK_SIZE, dao.count());
+    }
+
+    private StudentImporter.Result importFile(Path file) throws IOException, SQLException {
+        return new StudentImporter(dao).importFile(file, (read, total, done) -> { }, () -> false);
+    }
+
+    private void assertStudent(String id, String name, String className, int[] scores) throws SQLException {
+        Student s = dao.findById(id);
+        assertEquals(name, s.getName());
+        assertEquals(className, s.getClassName());
+        assertArrayEquals(scores, new int[]{s.getMath(), s.getEnglish(), s.getComputer(), s.getPe()});
+    }
+
+    private int secondaryIndexCount() throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.acquire();
+             Statement stmt = conn.raw().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master " +
+                     "WHERE type = 'index' AND tbl_name = 'students' AND name LIKE 'idx_students_%'")) {
+            return rs.getInt(1);
+        }
+    }
+
+    private static void assertDetected(Charset expected, byte[] file, byte[] rest) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(file), 64 * 1024);
+        assertEquals(expected, StudentImporter.detectCharset(in));
+        assertArrayEquals(rest, in.readAllBytes());
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(a);
+        out.writeBytes(b);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,165 @@
+package sms.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 三段查询的结果与原来的 lower(...) LIKE '%关键字%' 一致且不重复；全文索引和姓名双字索引随各种写入保持同步
+class StudentSearchTest {
+    private static final String LIKE_SQL =
+            "SELECT id FROM students WHERE lower(id) LIKE ? OR lower(name) LIKE ? OR lower(className) LIKE ?";
+    private static final String LONG_NAME = String.join("", Collections.nCopies(70, "长")) + "xy";
+    private static final String[] KEYWORDS = {
+            "", "王", "秀英", "王秀英", "明明", "明", "2024", "20240", "2401", "1", "计算机", "计算机2401",
+            "ab", "AB", "Ab", "abc", "a%b", "_", "%", "\"", "\"引号", "xy", "长长", "y", "张三丰", "物理", "zz", "王0",
+    };
+
+    @TempDir
+    Path dir;
+    private ConnectionPool pool;
+    private StudentDao dao;
+
+    @BeforeEach
+    void open() throws SQLException {
+        pool = new ConnectionPool("jdbc:sqlite:" + dir.resolve("students.db"), 2);
+        dao = new StudentDao(pool);
+        dao.migrateSchema();
+        for (Student s : Arrays.asList(
+                student("20240001", "王秀英", "计算机2401"),
+                student("20240002", "李明", "计算机2401"),
+                student("20240010", "明明", "软件2402"),
+                student("A100", "Alice Ab", "英语2401"),
+                student("b200", "ab_c%d", "计算机"),
+                student("王001", "赵四", "数学2403"),
+                student("30001", LONG_NAME, "长名2401"),
+                student("计算机2401x", "钱五", "物理2404"),
+                student("30002", "秀", "计算机2401"),
+                student("30003", "\"引号\"", "AB班"))) {
+            dao.insert(s);
+        }
+    }
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+    private static Student student(String id, String name, String className) {
+        return new Student(id, name, className, 60, 70, 80, 90);
+    }
+
+    @Test
+    void matchesLikeWithoutDuplicates() throws SQLException {
+        assertAllKeywords();
+    }
+
+    @Test
+    void indexesFollowSingleRowWrites() throws SQLException {
+        dao.insert(student("40001", "欧阳秀英", "化学2405"));
+        dao.update(student("20240001", "张三丰", "物理2404"));
+        dao.update(student("30001", "短名", "计算机2401"));
+        dao.delete("20240002");
+        assertAllKeywords();
+
+        Student before = dao.findById("20240010");
+        dao.applyChanges(Arrays.asList(
+                new StudentDao.Change(before, student("20240010", "明秀英", "ab2402")),
+                new StudentDao.Change(dao.findById("A100"), null),
+                new StudentDao.Change(null, student("50001", LONG_NAME + "秀", "zz班"))));
+        assertAllKeywords();
+    }
+
+    // CSV 重新导入：已有学生改名、改班级，新增学生，内容不变的行
+    @Test
+    void indexesFollowCsvImport() throws Exception {
+        Path csv = dir.resolve("students.csv");
+        Files.write(csv, Arrays.asList(
+                "学号,姓名,班级,高等数学,大学英语,计算机导论,体育",
+                "20240001,王秀丽,计算机2401,60,70,80,90",
+                "20240002,李明,软件2402,60,70,80,90",
+                "b200,ab_c%d,计算机,60,70,80,90",
+                "60001,秀英,AB班,60,70,80,90",
+                "60002," + LONG_NAME + ",长名2401,60,70,80,90"), StandardCharsets.UTF_8);
+        StudentImporter.Result result = new StudentImporter(dao).importFile(csv, (read, total, done) -> { }, () -> false);
+        assertEquals(5, result.imported);
+        assertAllKeywords();
+    }
+
+    private void assertAllKeywords() throws SQLException {
+        for (String keyword : KEYWORDS) {
+            List<String> found = new ArrayList<>();
+            for (Student s : dao.search(keyword, () -> false)) found.add(s.getId());
+            Set<String> unique = new HashSet<>(found);
+            assertEquals(unique.size(), found.size(), "重复结果: " + keyword + " " + found);
+            assertEquals(likeIds(keyword), unique, "关键字: " + keyword);
+        }
+        assertIndexesInSync();
+    }
+
+    private Set<String> likeIds(String keyword) throws SQLException {
+        Set<String> ids = new HashSet<>();
+        try (ConnectionPool.PooledConnection conn = pool.acquire()) {
+            PreparedStatement stmt = conn.prepare(LIKE_SQL);
+            String like = "%" + keyword.toLowerCase() + "%";
+            stmt.setString(1, like);
+            stmt.setString(2, like);
+            stmt.setString(3, like);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) ids.add(rs.getString(1));
+            }
+        }
+        return ids;
+    }
+
+    // 全文索引用 FTS5 自带的检查与学生表比对；双字索引与按姓名重新计算的结果比对
+    private void assertIndexesInSync() throws SQLException {
+        try (ConnectionPool.PooledConnection conn = pool.acquire();
+             Statement stmt = conn.raw().createStatement()) {
+            stmt.execute("INSERT INTO students_fts(students_fts, rank) VALUES ('integrity-check', 1)");
+            Set<String> expected = new HashSet<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT rowid, name FROM students")) {
+                while (rs.next()) {
+                    long rowid = rs.getLong(1);
+                    int[] name = asciiLower(rs.getString(2)).codePoints().toArray();
+                    for (int p = 0; p + 1 < name.length && p < SchemaMigrator.GRAM_POSITIONS; p++) {
+                        expected.add(new String(name, p, 2) + "/" + rowid);
+                    }
+                    if (name.length > SchemaMigrator.GRAM_POSITIONS) {
+                        expected.add("/" + rowid);
+                    } else if (name.length > 0) {
+                        expected.add(new String(name, name.length - 1, 1) + "/" + rowid);
+                    }
+                }
+            }
+            Set<String> actual = new HashSet<>();
+            try (ResultSet rs = stmt.executeQuery("SELECT gram, student_rowid FROM search_name_grams")) {
+                while (rs.next()) actual.add(rs.getString(1) + "/" + rs.getLong(2));
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    // 与 SQLite 的 lower() 相同，只转换 ASCII 字母
+    private static String asciiLower(String s) {
+        StringBuilder b = new StringBuilder(s.length());
+        for (char c : s.toCharArray()) b.append(c >= 'A' && c <= 'Z' ? (char) (c + 32) : c);
+        return b.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package sms.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StudentServerTest {
+    private static final String TOKEN = "s3cret-Token";
+
+    @TempDir
+    Path dir;
+    private ConnectionPool pool;
+    private StudentRepository repository;
+    private StudentServer server;
+    private URI base;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void start() throws Exception {
+        String url = "jdbc:sqlite:" + dir.resolve("students.db");
+        pool = new ConnectionPool(url, 2);
+        repository = new StudentRepository(new StudentDao(pool), 2);
+        repository.migrateSchema().join();
+        server = new StudentServer(repository, url, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2,
+                TOKEN);
+        server.start();
+        base = URI.create("http://127.0.0.1:" + server.address().getPort());
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        server.close();
+        repository.close();
+        pool.close();
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void requestsWithoutTokenAreRejected() throws Exception {
+        HttpRequest.Builder anonymous = HttpRequest.newBuilder(base.resolve("/api/students/count"));
+        assertEquals(401, send(anonymous).statusCode());
+        HttpRequest.Builder wrong = HttpRequest.newBuilder(base.resolve("/api/students/count"))
+                .header("Authorization", "Bearer s3cret-Tokem");
+        assertEquals(401, send(wrong).statusCode());
+        HttpRequest.Builder write = HttpRequest.newBuilder(base.resolve("/api/changes"))
+                .POST(HttpRequest.BodyPublishers.ofString("[{\"before\":null,\"after\":{\"id\":\"1\",\"name\":\"a\"," +
+                        "\"className\":\"c\",\"math\":1,\"english\":2,\"computer\":3,\"pe\":4}}]"));
+        assertEquals(401, send(write).statusCode());
+        assertEquals(0, repository.count().join());
+    }
+
+    @Test
+    void remoteStoreSendsToken() {
+        RemoteStudentStore remote = new RemoteStudentStore(base, TOKEN, 1);
+        try {
+            assertEquals(0, remote.count().join());
+        } finally {
+            closeQuietly(remote);
+        }
+        RemoteStudentStore anonymous = new RemoteStudentStore(base, 1);
+        try {
+            CompletionException e = assertThrows(CompletionException.class, () -> anonymous.count().join());
+            RemoteStudentStore.RemoteException cause =
+                    assertInstanceOf(RemoteStudentStore.RemoteException.class, e.getCause());
+            assertEquals(401, cause.status);
+        } finally {
+            closeQuietly(anonymous);
+        }
+    }
+
+    @Test
+    void tokenMustBeVisibleAscii() {
+        assertThrows(IllegalArgumentException.class, () -> new RemoteStudentStore(base, "令牌", 1));
+        assertThrows(IllegalArgumentException.class, () -> new RemoteStudentStore(base, "a b", 1));
+    }
+
+    // 深层嵌套的请求体返回 400，而不是在解析时栈溢出断开连接
+    @Test
+    void deeplyNestedBodyIsBadRequest() throws Exception {
+        String body = "[".repeat(1_000_000);
+        HttpResponse<String> response = send(HttpRequest.newBuilder(base.resolve("/api/changes"))
+                .header("Authorization", "Bearer " + TOKEN)
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("嵌套"), response.body());
+    }
+
+    // 请求体为 null 或不是对象时返回 400，不进入写入
+    @Test
+    void nullOrNonObjectStudentBodyIsBadRequest() throws Exception {
+        for (String body : new String[]{"null", "[]", "42"}) {
+            HttpResponse<String> post = send(HttpRequest.newBuilder(base.resolve("/api/students"))
+                    .header("Authorization", "Bearer " + TOKEN)
+                    .POST(HttpRequest.BodyPublishers.ofString(body)));
+            assertEquals(400, post.statusCode(), body);
+            HttpResponse<String> put = send(HttpRequest.newBuilder(base.resolve("/api/students/1"))
+                    .header("Authorization", "Bearer " + TOKEN)
+                    .PUT(HttpRequest.BodyPublishers.ofString(body)));
+            assertEquals(400, put.statusCode(), body);
+        }
+        assertEquals(0, repository.count().join());
+    }
+
+    private static void closeQuietly(RemoteStudentStore store) {
+        try {
+            store.close();
+        } catch (Exception e) {
+            // 测试结束，忽略
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package sms.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindQueueTest {
+    // 延迟足够长，测试期间不会自动写入，只在显式 flush 时写
+    private static final long NEVER_MS = 3_600_000;
+
+    private final List<List<StudentDao.Change>> written = new ArrayList<>();
+    private int failures;
+    private Runnable duringWrite = () -> { };
+    private final WriteBehindQueue queue = new WriteBehindQueue(changes -> {
+        duringWrite.run();
+        if (failures > 0) {
+            failures--;
+            throw new SQLException("写入失败");
+        }
+        written.add(new ArrayList<>(changes));
+        return new ArrayList<>();
+    }, NEVER_MS, 1000);
+
+    @AfterEach
+    void close() throws SQLException {
+        queue.close();
+    }
+
+    private static Student student(String id, int math) {
+        return new Student(id, "张三", "2023-1", math, 80, 70, 60);
+    }
+
+    @Test
+    void insertThenDeleteIsNotWritten() throws SQLException {
+        Student s = student("S1", 90);
+        queue.insert(s);
+        queue.delete(s);
+        assertEquals(0, queue.flush());
+        assertTrue(written.isEmpty());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void deleteThenInsertBecomesUpdate() throws SQLException {
+        queue.delete(student("S1", 90));
+        queue.insert(student("S1", 95));
+        queue.flush();
+        StudentDao.Change change = written.get(0).get(0);
+        assertEquals(90, change.before.getMath());
+        assertEquals(95, change.after.getMath());
+    }
+
+    // 合并成无操作的新增+删除与其他修改同批写入失败时，其他修改放回队列，原始异常抛出
+    @Test
+    void failedBatchWithMergedNoopIsRequeued() throws SQLException {
+        Student s = student("S1", 90);
+        queue.insert(s);
+        queue.delete(s);
+        queue.insert(student("S2", 85));
+        failures = 1;
+
+        SQLException e = assertThrows(SQLException.class, queue::flush);
+        assertEquals("写入失败", e.getMessage());
+        assertEquals(1, queue.size());
+        assertTrue(queue.lookup("S2").found);
+        assertTrue(!queue.lookup("S1").found);
+
+        assertEquals(1, queue.flush());
+        assertEquals(1, written.size());
+        assertEquals("S2", written.get(0).get(0).getId());
+        assertNull(written.get(0).get(0).before);
+        assertEquals(0, queue.size());
+    }
+
+    // 写入期间的后续修改与放回的一批合并：before 保留最早的，after 取最新的
+    @Test
+    void editDuringFailedWriteMergesWithRequeued() throws SQLException {
+        queue.update(student("S1", 60), student("S1", 70));
+        queue.insert(student("S2", 50));
+        Student gone = student("S3", 40);
+        queue.insert(gone);
+        failures = 1;
+        duringWrite = () -> {
+            duringWrite = () -> { };
+            queue.update(student("S1", 70), student("S1", 80));
+            queue.delete(gone);
+        };
+
+        assertThrows(SQLException.class, queue::flush);
+        assertEquals(2, queue.size());
+        assertEquals(2, queue.flush());
+        List<StudentDao.Change> batch = written.get(0);
+        assertEquals(2, batch.size());
+        assertEquals("S1", batch.get(0).getId());
+        assertEquals(60, batch.get(0).before.getMath());
+        assertEquals(80, batch.get(0).after.getMath());
+        assertEquals("S2", batch.get(1).getId());
+    }
+
+    @Test
+    void noopChangeKeepsItsId() {
+        StudentDao.Change noop = new StudentDao.Change("S1", null, null);
+        assertEquals("S1", noop.getId());
+        assertTrue(noop.isNoop());
+    }
+}
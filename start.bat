@@ -0,0 +1,21 @@
+@echo off
+rem 启动学生成绩管理系统，参数同 java -jar（--server 端口、--remote 地址、--restore 快照），见 start.sh
+rem 第一次运行或重新打包后先以 --exit-after-load 启动一次生成 AppCDS 归档，jar 的时间和大小记在 .stamp 中
+setlocal
+chcp 65001 > nul
+set "JAR=%~dp0app\target\student-management-system.jar"
+set "JSA=%~dp0app\target\student-management-system.jsa"
+
+for %%F in ("%JAR%") do set "STAMP=%%~tF %%~zF"
+set "OLD="
+if exist "%JSA%" if exist "%JSA%.stamp" set /p OLD=<"%JSA%.stamp"
+if not "%OLD%"=="%STAMP%" (
+    echo 正在生成 CDS 归档（只在第一次运行时进行）...
+    del "%JSA%" "%JSA%.stamp" 2> nul
+    java -XX:ArchiveClassesAtExit="%JSA%" -jar "%JAR%" --exit-after-load > nul
+    if exist "%JSA%" (echo %STAMP%)> "%JSA%.stamp"
+)
+
+set "CDS="
+if exist "%JSA%" set "CDS=-XX:SharedArchiveFile=%JSA%"
+java %CDS% -jar "%JAR%" %*
@@ -0,0 +1,19 @@
+#!/bin/sh
+# 启动学生成绩管理系统，参数同 java -jar（--server 端口、--remote 地址、--restore 快照）
+# 使用 AppCDS：第一次运行或重新打包后，先以 --exit-after-load 启动一次（显示第一屏数据后自动退出），
+# 把启动过程中加载的类存为归档；之后的启动直接映射归档，省去类的查找、解析和校验
+# 归档与 JDK 版本和 jar 绑定，不匹配时 JVM 忽略归档照常启动
+DIR=$(dirname "$0")
+JAR="$DIR/app/target/student-management-system.jar"
+JSA="$DIR/app/target/student-management-system.jsa"
+
+if [ ! -f "$JSA" ] || [ "$JAR" -nt "$JSA" ]; then
+    echo "正在生成 CDS 归档（只在第一次运行时进行）..."
+    rm -f "$JSA"
+    java -XX:ArchiveClassesAtExit="$JSA" -jar "$JAR" --exit-after-load > /dev/null || rm -f "$JSA"
+fi
+
+if [ -f "$JSA" ]; then
+    exec java -XX:SharedArchiveFile="$JSA" -jar "$JAR" "$@"
+fi
+exec java -jar "$JAR" "$@"